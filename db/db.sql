@@ -1,18 +1,99 @@
+DROP TABLE IF EXISTS engine_progress;
+DROP TABLE IF EXISTS idempotency_keys;
+DROP TABLE IF EXISTS rollup_progress;
+DROP TABLE IF EXISTS daily_rollups;
+DROP TABLE IF EXISTS balance_snapshots;
+DROP TABLE IF EXISTS account_shards;
+DROP TABLE IF EXISTS transactions CASCADE;
 DROP TABLE IF EXISTS accounts;
-DROP TABLE IF EXISTS transactions;
+DROP SEQUENCE IF EXISTS transactions_seq;
+DROP SEQUENCE IF EXISTS accounts_seq;
+
+CREATE SEQUENCE accounts_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE transactions_seq START WITH 1 INCREMENT BY 50;
 
 CREATE TABLE accounts
 (
-    id      INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    id      BIGINT         NOT NULL DEFAULT nextval('accounts_seq') PRIMARY KEY,
     owner   VARCHAR(100)   NOT NULL UNIQUE,
-    balance NUMERIC(19, 2) NOT NULL
+    balance NUMERIC(19, 2) NOT NULL,
+    version BIGINT         NOT NULL DEFAULT 0
 );
 
 CREATE TABLE transactions
 (
-    id         INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    account_id INT REFERENCES accounts (id) ON DELETE CASCADE,
+    id         BIGINT         NOT NULL DEFAULT nextval('transactions_seq'),
+    account_id BIGINT REFERENCES accounts (id) ON DELETE CASCADE,
     type       VARCHAR(30)    NOT NULL,
     amount     NUMERIC(19, 2) NOT NULL,
-    time       TIMESTAMP
-);
\ No newline at end of file
+    time       TIMESTAMP      NOT NULL,
+    PRIMARY KEY (id, time)
+) PARTITION BY RANGE (time);
+
+CREATE INDEX transactions_account_time_idx ON transactions (account_id, time) INCLUDE (id, type, amount);
+
+DO
+$$
+    DECLARE
+        month DATE := date_trunc('month', now());
+    BEGIN
+        FOR i IN 0..3
+            LOOP
+                EXECUTE format('CREATE TABLE transactions_p%s PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+                               to_char(month, 'YYYYMM'), month, month + INTERVAL '1 month');
+                month := month + INTERVAL '1 month';
+            END LOOP;
+    END
+$$;
+
+CREATE TABLE account_shards
+(
+    account_id BIGINT         NOT NULL REFERENCES accounts (id) ON DELETE CASCADE,
+    shard      INT            NOT NULL,
+    balance    NUMERIC(19, 2) NOT NULL,
+    PRIMARY KEY (account_id, shard)
+);
+
+CREATE TABLE balance_snapshots
+(
+    account_id BIGINT         NOT NULL REFERENCES accounts (id) ON DELETE CASCADE,
+    time       TIMESTAMP      NOT NULL,
+    balance    NUMERIC(19, 2) NOT NULL,
+    PRIMARY KEY (account_id, time)
+);
+
+CREATE INDEX balance_snapshots_time_idx ON balance_snapshots (time);
+
+CREATE TABLE daily_rollups
+(
+    account_id BIGINT         NOT NULL REFERENCES accounts (id) ON DELETE CASCADE,
+    rollup_day DATE           NOT NULL,
+    type       VARCHAR(30)    NOT NULL,
+    total      NUMERIC(19, 2) NOT NULL,
+    count      BIGINT         NOT NULL,
+    PRIMARY KEY (account_id, rollup_day, type)
+);
+
+CREATE TABLE rollup_progress
+(
+    id            INT       NOT NULL PRIMARY KEY,
+    aggregated_to TIMESTAMP NOT NULL
+);
+
+INSERT INTO rollup_progress (id, aggregated_to) VALUES (1, '1970-01-01');
+
+CREATE TABLE idempotency_keys
+(
+    idempotency_key VARCHAR(100) NOT NULL PRIMARY KEY,
+    request_hash    VARCHAR(64)  NOT NULL,
+    response        TEXT,
+    created_at      TIMESTAMP    NOT NULL
+);
+
+CREATE INDEX idempotency_keys_created_at_idx ON idempotency_keys (created_at);
+
+CREATE TABLE engine_progress
+(
+    shard         INT    NOT NULL PRIMARY KEY,
+    projected_seq BIGINT NOT NULL
+);
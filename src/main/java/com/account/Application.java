@@ -1,20 +1,24 @@
 package com.account;
 
-import org.modelmapper.ModelMapper;
+import com.account.config.AccountProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.core.env.Profiles;
+import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableConfigurationProperties(AccountProperties.class)
+@EnableRetry
+@EnableScheduling
 public class Application {
 
 	public static void main(String[] args) {
-		SpringApplication.run(Application.class, args);
-	}
-
-	@Bean
-	public ModelMapper modelMapper() {
-		return new ModelMapper();
+		var context = SpringApplication.run(Application.class, args);
+		if (context.getEnvironment().acceptsProfiles(Profiles.of("bulk"))) {
+			System.exit(SpringApplication.exit(context));
+		}
 	}
 
 }
@@ -0,0 +1,182 @@
+package com.account.config;
+
+import com.account.enums.CacheInvalidationMode;
+import com.account.enums.ConcurrencyMode;
+import com.account.enums.LedgerMode;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@ConfigurationProperties(prefix = "account")
+public class AccountProperties {
+    private Lock lock = new Lock();
+    private Concurrency concurrency = new Concurrency();
+    private Sharding sharding = new Sharding();
+    private Ledger ledger = new Ledger();
+    private Cache cache = new Cache();
+    private Partitioning partitioning = new Partitioning();
+    private Snapshots snapshots = new Snapshots();
+    private Rollups rollups = new Rollups();
+    private Idempotency idempotency = new Idempotency();
+    private DbLimiter dbLimiter = new DbLimiter();
+    private Metrics metrics = new Metrics();
+    private Engine engine = new Engine();
+    private Replica replica = new Replica();
+    private Admission admission = new Admission();
+    private Feed feed = new Feed();
+    private Export export = new Export();
+
+    @Data
+    public static class Lock {
+        private int stripes = 1024;
+        private Duration timeout = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Concurrency {
+        private ConcurrencyMode mode = ConcurrencyMode.ATOMIC;
+        private int maxAttempts = 5;
+        private Duration retryDelay = Duration.ofMillis(5);
+        private Duration maxRetryDelay = Duration.ofMillis(100);
+    }
+
+    @Data
+    public static class Sharding {
+        private Duration refreshInterval = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Ledger {
+        private LedgerMode mode = LedgerMode.SYNC;
+        private int flushSize = 64;
+        private Duration maxLatency = Duration.ofMillis(2);
+        private int queueCapacity = 10_000;
+    }
+
+    /**
+     * The balance cache is off by default: with {@code invalidation=none}, or {@code local} which only
+     * reaches caches in the same JVM, a node keeps serving a balance changed on another node until the
+     * entry expires. Enable it on a single node, or with a channel that reaches every node.
+     */
+    @Data
+    public static class Cache {
+        private boolean enabled = false;
+        private long maximumSize = 100_000;
+        private Duration ttl = Duration.ofSeconds(30);
+        private CacheInvalidationMode invalidation = CacheInvalidationMode.NONE;
+    }
+
+    @Data
+    public static class Partitioning {
+        private boolean enabled = false;
+        private int premakeMonths = 3;
+        private int retentionMonths = 24;
+        private Path archiveDir = Path.of("archive");
+        private Duration interval = Duration.ofHours(1);
+        private Duration initialDelay = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Snapshots {
+        private boolean enabled = false;
+        private Duration interval = Duration.ofMinutes(5);
+        private Duration lag = Duration.ofMinutes(1);
+        private Duration initialDelay = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Rollups {
+        private boolean enabled = false;
+        private Duration interval = Duration.ofMinutes(1);
+        private Duration lag = Duration.ofMinutes(1);
+        private Duration initialDelay = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Idempotency {
+        private long cacheSize = 10_000;
+        private Duration retention = Duration.ofHours(24);
+        private boolean purgeEnabled = false;
+        private Duration purgeInterval = Duration.ofHours(1);
+        private Duration initialDelay = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class DbLimiter {
+        private boolean enabled = false;
+        private int permits = 10;
+        private Duration timeout = Duration.ofSeconds(5);
+    }
+
+    @Data
+    public static class Metrics {
+        private boolean enabled = false;
+    }
+
+    @Data
+    public static class Engine {
+        private boolean enabled = false;
+        private int shards = 4;
+        private Path directory = Path.of("engine");
+        private int segmentSize = 64 * 1024 * 1024;
+        private int expectedAccounts = 1 << 16;
+        private int batchSize = 256;
+        private int queueCapacity = 10_000;
+        private boolean fsync = false;
+        private Duration timeout = Duration.ofSeconds(5);
+        private int projectionBatchSize = 1000;
+        private Duration projectionIdleDelay = Duration.ofMillis(10);
+        private Duration snapshotInterval = Duration.ofMinutes(5);
+        private Duration snapshotInitialDelay = Duration.ofMinutes(1);
+    }
+
+    @Data
+    public static class Replica {
+        private boolean enabled = false;
+        private String url;
+        private String username;
+        private String password;
+        private int poolSize = 10;
+        private Duration maxLag = Duration.ofSeconds(5);
+        private boolean readYourWrites = true;
+        private Duration checkInterval = Duration.ofSeconds(1);
+    }
+
+    @Data
+    public static class Admission {
+        private boolean enabled = false;
+        private int maxInFlight = 4;
+        private int queueSize = 16;
+        private Duration timeout = Duration.ofSeconds(1);
+        private Duration retryAfter = Duration.ofSeconds(1);
+        private Map<Long, AccountAdmission> accounts = new HashMap<>();
+    }
+
+    @Data
+    public static class AccountAdmission {
+        private Integer maxInFlight;
+        private Integer queueSize;
+    }
+
+    @Data
+    public static class Feed {
+        private boolean enabled = false;
+        private int deliveryThreads = 2;
+        private Duration timeout = Duration.ofMinutes(30);
+        private Duration writeTimeout = Duration.ofSeconds(5);
+    }
+
+    /**
+     * Async timeout of the CSV exports instead of {@code spring.mvc.async.request-timeout}; zero or
+     * negative means no limit, so a long period is not cut off midway.
+     */
+    @Data
+    public static class Export {
+        private Duration timeout = Duration.ZERO;
+    }
+}
@@ -0,0 +1,17 @@
+package com.account.config;
+
+import com.account.service.admission.AccountAdmissionLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(name = "account.admission.enabled", havingValue = "true")
+public class AdmissionConfig {
+
+    @Bean
+    public AccountAdmissionLimiter accountAdmissionLimiter(AccountProperties properties, MeterRegistry meterRegistry) {
+        return new AccountAdmissionLimiter(properties, meterRegistry);
+    }
+}
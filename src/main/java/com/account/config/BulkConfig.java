@@ -0,0 +1,23 @@
+package com.account.config;
+
+import com.account.service.bulk.BulkCommandRunner;
+import com.account.service.bulk.BulkCopyService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@Configuration
+public class BulkConfig {
+
+    @Bean
+    public BulkCopyService bulkCopyService(JdbcTemplate jdbcTemplate) {
+        return new BulkCopyService(jdbcTemplate);
+    }
+
+    @Bean
+    @Profile("bulk")
+    public BulkCommandRunner bulkCommandRunner(BulkCopyService bulkCopyService) {
+        return new BulkCommandRunner(bulkCopyService);
+    }
+}
@@ -0,0 +1,27 @@
+package com.account.config;
+
+import com.account.service.cache.BalanceCache;
+import com.account.service.cache.BalanceInvalidationChannel;
+import com.account.service.cache.LocalBalanceInvalidationChannel;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public BalanceInvalidationChannel balanceInvalidationChannel(AccountProperties properties) {
+        return switch (properties.getCache().getInvalidation()) {
+            case NONE -> BalanceInvalidationChannel.NONE;
+            case LOCAL -> new LocalBalanceInvalidationChannel();
+        };
+    }
+
+    @Bean
+    public BalanceCache balanceCache(AccountProperties properties,
+                                     BalanceInvalidationChannel balanceInvalidationChannel,
+                                     MeterRegistry meterRegistry) {
+        return new BalanceCache(properties, balanceInvalidationChannel, meterRegistry);
+    }
+}
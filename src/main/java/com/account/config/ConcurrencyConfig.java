@@ -0,0 +1,65 @@
+package com.account.config;
+
+import com.account.repository.AccountRepository;
+import com.account.service.concurrency.AtomicUpdateConcurrencyStrategy;
+import com.account.service.concurrency.ConcurrencyStrategy;
+import com.account.service.concurrency.OptimisticConcurrencyStrategy;
+import com.account.service.concurrency.PessimisticConcurrencyStrategy;
+import com.account.service.concurrency.ShardedConcurrencyStrategy;
+import com.account.service.concurrency.StripedLockConcurrencyStrategy;
+import com.account.service.lock.AccountLockManager;
+import com.account.service.shard.AccountShardManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.ExponentialRandomBackOffPolicy;
+import org.springframework.retry.interceptor.RetryInterceptorBuilder;
+import org.springframework.retry.interceptor.RetryOperationsInterceptor;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+
+@Configuration
+public class ConcurrencyConfig {
+
+    @Bean
+    public ConcurrencyStrategy concurrencyStrategy(AccountProperties properties,
+                                                   AccountRepository accountRepository,
+                                                   AccountLockManager lockManager,
+                                                   AccountShardManager shardManager) {
+        var strategy = switch (properties.getConcurrency().getMode()) {
+            case LOCAL -> new StripedLockConcurrencyStrategy(accountRepository, lockManager);
+            case PESSIMISTIC -> new PessimisticConcurrencyStrategy(accountRepository);
+            case OPTIMISTIC -> new OptimisticConcurrencyStrategy(accountRepository);
+            case ATOMIC -> new AtomicUpdateConcurrencyStrategy(accountRepository);
+        };
+        return new ShardedConcurrencyStrategy(strategy, shardManager);
+    }
+
+    @Bean
+    public RetryOperationsInterceptor concurrencyRetryInterceptor(AccountProperties properties) {
+        var concurrency = properties.getConcurrency();
+        var backOffPolicy = new ExponentialRandomBackOffPolicy();
+        backOffPolicy.setInitialInterval(concurrency.getRetryDelay().toMillis());
+        backOffPolicy.setMaxInterval(concurrency.getMaxRetryDelay().toMillis());
+        backOffPolicy.setMultiplier(2);
+        var retryPolicy = new SimpleRetryPolicy(concurrency.getMaxAttempts(),
+                Map.of(ConcurrencyFailureException.class, true), true) {
+            /**
+             * A failed call that joined an outer transaction, such as a group commit, has marked it
+             * rollback-only, so a retry inside it could never commit.
+             */
+            @Override
+            public boolean canRetry(RetryContext context) {
+                return super.canRetry(context) && (context.getRetryCount() == 0
+                        || !TransactionSynchronizationManager.isActualTransactionActive());
+            }
+        };
+        return RetryInterceptorBuilder.stateless()
+                .retryPolicy(retryPolicy)
+                .backOffPolicy(backOffPolicy)
+                .build();
+    }
+}
@@ -0,0 +1,49 @@
+package com.account.config;
+
+import com.account.service.datasource.LimitedDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+
+@Configuration
+@ConditionalOnProperty(name = "account.db-limiter.enabled", havingValue = "true")
+public class DataSourceLimiterConfig {
+
+    /**
+     * Wraps the connection pool in a {@link LimitedDataSource} before JPA and the transaction manager
+     * see it. Runs before the other data source wrappers, so with a replica only the connections of the
+     * primary take permits. The return type declares the order, which Spring reads before creating the
+     * post-processor.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static LimiterPostProcessor dataSourceLimiter(ObjectProvider<AccountProperties> properties,
+                                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        return new LimiterPostProcessor(properties, meterRegistry);
+    }
+
+    record LimiterPostProcessor(ObjectProvider<AccountProperties> properties,
+                                ObjectProvider<MeterRegistry> meterRegistry) implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof LimitedDataSource)) {
+                return new LimitedDataSource(dataSource, properties.getObject(), meterRegistry.getObject());
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.account.config;
+
+import com.account.repository.AccountRepository;
+import com.account.repository.EngineProgressRepository;
+import com.account.service.engine.EngineProjector;
+import com.account.service.engine.LedgerEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Clock;
+
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "account.engine.enabled", havingValue = "true")
+public class EngineConfig {
+
+    @Bean
+    public LedgerEngine ledgerEngine(AccountProperties properties,
+                                     AccountRepository accountRepository,
+                                     MeterRegistry meterRegistry) {
+        return new LedgerEngine(properties, accountRepository::findAllTotals, Clock.systemUTC(), meterRegistry);
+    }
+
+    @Bean
+    public EngineProjector engineProjector(LedgerEngine ledgerEngine,
+                                           EngineProgressRepository progressRepository,
+                                           JdbcTemplate jdbcTemplate,
+                                           PlatformTransactionManager transactionManager,
+                                           AccountProperties properties,
+                                           MeterRegistry meterRegistry) {
+        return new EngineProjector(ledgerEngine, progressRepository, jdbcTemplate, transactionManager, properties,
+                meterRegistry);
+    }
+
+    @Bean
+    public SchedulingConfigurer engineSnapshotSchedule(LedgerEngine ledgerEngine, AccountProperties properties) {
+        var engine = properties.getEngine();
+        return registrar -> registrar.addFixedDelayTask(new FixedDelayTask(ledgerEngine::takeSnapshots,
+                engine.getSnapshotInterval(), engine.getSnapshotInitialDelay()));
+    }
+}
@@ -0,0 +1,29 @@
+package com.account.config;
+
+import com.account.service.feed.BalanceEventBus;
+import com.account.service.feed.BalanceFeed;
+import com.account.service.feed.LocalBalanceEventBus;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class FeedConfig {
+
+    /**
+     * Reaches the subscribers of this node only. A {@link BalanceEventBus} bean backed by a broker
+     * replaces it to reach the subscribers of every node.
+     */
+    @Bean
+    @ConditionalOnMissingBean
+    public BalanceEventBus balanceEventBus() {
+        return new LocalBalanceEventBus();
+    }
+
+    @Bean
+    public BalanceFeed balanceFeed(AccountProperties properties, BalanceEventBus balanceEventBus,
+                                   MeterRegistry meterRegistry) {
+        return new BalanceFeed(properties, balanceEventBus, meterRegistry);
+    }
+}
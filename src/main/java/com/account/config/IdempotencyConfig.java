@@ -0,0 +1,34 @@
+package com.account.config;
+
+import com.account.repository.IdempotencyKeyRepository;
+import com.account.service.idempotency.IdempotencyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+
+import java.time.Clock;
+
+@Configuration
+public class IdempotencyConfig {
+
+    @Bean
+    public IdempotencyService idempotencyService(IdempotencyKeyRepository repository,
+                                                 ObjectMapper objectMapper,
+                                                 AccountProperties properties,
+                                                 MeterRegistry meterRegistry) {
+        return new IdempotencyService(repository, objectMapper, Clock.systemUTC(), properties, meterRegistry);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "account.idempotency.purge-enabled", havingValue = "true")
+    public SchedulingConfigurer idempotencyPurgeSchedule(IdempotencyService idempotencyService,
+                                                         AccountProperties properties) {
+        var idempotency = properties.getIdempotency();
+        return registrar -> registrar.addFixedDelayTask(new FixedDelayTask(idempotencyService::purge,
+                idempotency.getPurgeInterval(), idempotency.getInitialDelay()));
+    }
+}
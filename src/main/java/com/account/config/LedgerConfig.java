@@ -0,0 +1,57 @@
+package com.account.config;
+
+import com.account.repository.TransactionRepository;
+import com.account.service.AccountService;
+import com.account.service.idempotency.IdempotencyService;
+import com.account.service.ledger.GroupCommitter;
+import com.account.service.ledger.LedgerWriter;
+import com.account.service.ledger.SynchronousLedgerWriter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.RootClassFilter;
+import org.springframework.aop.support.annotation.AnnotationMethodMatcher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.retry.annotation.Retryable;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@Configuration
+public class LedgerConfig {
+
+    @Bean
+    public LedgerWriter ledgerWriter(TransactionRepository transactionRepository) {
+        return new SynchronousLedgerWriter(transactionRepository);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "account.ledger.mode", havingValue = "group")
+    public GroupCommitter groupCommitter(IdempotencyService idempotencyService,
+                                         PlatformTransactionManager transactionManager,
+                                         AccountProperties properties,
+                                         MeterRegistry meterRegistry) {
+        return new GroupCommitter(idempotencyService, transactionManager, properties, meterRegistry);
+    }
+
+    /**
+     * Hands the balance changes of {@link AccountService}, the methods retried on concurrency failures,
+     * to the {@link GroupCommitter} outside their retries and transaction.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    @ConditionalOnProperty(name = "account.ledger.mode", havingValue = "group")
+    public static Advisor groupCommitAdvisor(ObjectProvider<GroupCommitter> groupCommitter) {
+        MethodInterceptor interceptor = invocation -> groupCommitter.getObject().invoke(invocation);
+        var advisor = new DefaultPointcutAdvisor(new ComposablePointcut(new RootClassFilter(AccountService.class),
+                new AnnotationMethodMatcher(Retryable.class)), interceptor);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return advisor;
+    }
+}
@@ -0,0 +1,78 @@
+package com.account.config;
+
+import com.account.service.AccountService;
+import com.account.service.metrics.DbCallRecorder;
+import com.account.service.metrics.InstrumentedDataSource;
+import com.account.service.metrics.OperationMetricsInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.RootClassFilter;
+import org.springframework.aop.support.StaticMethodMatcher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.util.function.SingletonSupplier;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+@Configuration
+@ConditionalOnProperty(name = "account.metrics.enabled", havingValue = "true")
+public class MetricsConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static DbCallRecorder dbCallRecorder() {
+        return new DbCallRecorder();
+    }
+
+    /**
+     * Wraps the connection pool in an {@link InstrumentedDataSource} before JPA and the transaction
+     * manager see it.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static BeanPostProcessor dataSourceMetrics(ObjectProvider<DbCallRecorder> recorder,
+                                                      ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof InstrumentedDataSource)) {
+                    return new InstrumentedDataSource(dataSource, recorder.getObject(), meterRegistry.getObject());
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Times every public {@link AccountService} method outside the ledger wait, retries and the
+     * transaction, so the recorded latency is what the caller sees.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor operationMetricsAdvisor(ObjectProvider<MeterRegistry> meterRegistry,
+                                                  ObjectProvider<DbCallRecorder> recorder) {
+        var interceptor = SingletonSupplier.of(
+                () -> new OperationMetricsInterceptor(meterRegistry.getObject(), recorder.getObject()));
+        var pointcut = new ComposablePointcut(new RootClassFilter(AccountService.class), new StaticMethodMatcher() {
+            @Override
+            public boolean matches(Method method, Class<?> targetClass) {
+                return method.getDeclaringClass() == AccountService.class && Modifier.isPublic(method.getModifiers());
+            }
+        });
+        MethodInterceptor advice = invocation -> interceptor.obtain().invoke(invocation);
+        var advisor = new DefaultPointcutAdvisor(pointcut, advice);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return advisor;
+    }
+}
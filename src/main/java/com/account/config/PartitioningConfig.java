@@ -0,0 +1,32 @@
+package com.account.config;
+
+import com.account.service.partition.TransactionPartitionManager;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+
+@Configuration
+@ConditionalOnProperty(name = "account.partitioning.enabled", havingValue = "true")
+public class PartitioningConfig {
+
+    @Bean
+    public TransactionPartitionManager transactionPartitionManager(JdbcTemplate jdbcTemplate,
+                                                                   DataSource dataSource,
+                                                                   AccountProperties properties) {
+        return new TransactionPartitionManager(jdbcTemplate, dataSource, Clock.systemUTC(), properties);
+    }
+
+    @Bean
+    public SchedulingConfigurer transactionPartitionSchedule(TransactionPartitionManager partitionManager,
+                                                             AccountProperties properties) {
+        var partitioning = properties.getPartitioning();
+        return registrar -> registrar.addFixedDelayTask(new FixedDelayTask(partitionManager::maintain,
+                partitioning.getInterval(), partitioning.getInitialDelay()));
+    }
+}
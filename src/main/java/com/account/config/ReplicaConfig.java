@@ -0,0 +1,101 @@
+package com.account.config;
+
+import com.account.service.datasource.ReplicaLagMonitor;
+import com.account.service.datasource.ReplicaRead;
+import com.account.service.datasource.ReplicaRouter;
+import com.account.service.datasource.RoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(name = "account.replica.enabled", havingValue = "true")
+public class ReplicaConfig {
+
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(AccountProperties properties,
+                                               ObjectProvider<DataSource> dataSource,
+                                               MeterRegistry meterRegistry) {
+        var replica = properties.getReplica();
+        var pool = new HikariDataSource();
+        pool.setPoolName("replica");
+        pool.setJdbcUrl(replica.getUrl());
+        pool.setUsername(replica.getUsername());
+        pool.setPassword(replica.getPassword());
+        pool.setMaximumPoolSize(replica.getPoolSize());
+        pool.setReadOnly(true);
+        return new ReplicaLagMonitor(pool, dataSource::getObject, meterRegistry);
+    }
+
+    @Bean
+    public ReplicaRouter replicaRouter(ReplicaLagMonitor replicaLagMonitor,
+                                       AccountProperties properties,
+                                       MeterRegistry meterRegistry) {
+        return new ReplicaRouter(replicaLagMonitor, properties, meterRegistry);
+    }
+
+    /**
+     * Puts the primary pool and the replica behind a {@link RoutingDataSource}. Runs after the limiter,
+     * so replica reads do not take the permits of the primary, and before the JDBC metrics, which see
+     * the connections of both.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static RoutingPostProcessor replicaRouting(ObjectProvider<ReplicaLagMonitor> monitor) {
+        return new RoutingPostProcessor(monitor);
+    }
+
+    /**
+     * Decides the target of a {@link ReplicaRead} method before its transaction takes a connection.
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor replicaReadAdvisor(ObjectProvider<ReplicaRouter> router) {
+        MethodInterceptor interceptor = invocation -> router.getObject().invoke(invocation);
+        var advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(ReplicaRead.class), interceptor);
+        advisor.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return advisor;
+    }
+
+    @Bean
+    public SchedulingConfigurer replicaLagSchedule(ReplicaLagMonitor replicaLagMonitor, AccountProperties properties) {
+        return registrar -> registrar.addFixedDelayTask(new FixedDelayTask(replicaLagMonitor::check,
+                properties.getReplica().getCheckInterval(), Duration.ZERO));
+    }
+
+    record RoutingPostProcessor(ObjectProvider<ReplicaLagMonitor> monitor)
+            implements BeanPostProcessor, Ordered {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            if (bean instanceof DataSource dataSource && !(bean instanceof RoutingDataSource)) {
+                return new RoutingDataSource(dataSource, monitor.getObject().replica());
+            }
+            return bean;
+        }
+
+        @Override
+        public int getOrder() {
+            return Ordered.HIGHEST_PRECEDENCE + 1;
+        }
+    }
+}
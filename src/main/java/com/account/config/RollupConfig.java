@@ -0,0 +1,31 @@
+package com.account.config;
+
+import com.account.repository.DailyRollupRepository;
+import com.account.repository.RollupProgressRepository;
+import com.account.service.rollup.DailyRollupAggregator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+
+import java.time.Clock;
+
+@Configuration
+@ConditionalOnProperty(name = "account.rollups.enabled", havingValue = "true")
+public class RollupConfig {
+
+    @Bean
+    public DailyRollupAggregator dailyRollupAggregator(DailyRollupRepository rollupRepository,
+                                                       RollupProgressRepository progressRepository,
+                                                       AccountProperties properties) {
+        return new DailyRollupAggregator(rollupRepository, progressRepository, Clock.systemUTC(), properties);
+    }
+
+    @Bean
+    public SchedulingConfigurer dailyRollupSchedule(DailyRollupAggregator aggregator, AccountProperties properties) {
+        var rollups = properties.getRollups();
+        return registrar -> registrar.addFixedDelayTask(new FixedDelayTask(aggregator::aggregate,
+                rollups.getInterval(), rollups.getInitialDelay()));
+    }
+}
@@ -0,0 +1,29 @@
+package com.account.config;
+
+import com.account.repository.BalanceSnapshotRepository;
+import com.account.service.snapshot.BalanceSnapshotter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.FixedDelayTask;
+
+import java.time.Clock;
+
+@Configuration
+@ConditionalOnProperty(name = "account.snapshots.enabled", havingValue = "true")
+public class SnapshotConfig {
+
+    @Bean
+    public BalanceSnapshotter balanceSnapshotter(BalanceSnapshotRepository snapshotRepository,
+                                                 AccountProperties properties) {
+        return new BalanceSnapshotter(snapshotRepository, Clock.systemUTC(), properties);
+    }
+
+    @Bean
+    public SchedulingConfigurer balanceSnapshotSchedule(BalanceSnapshotter snapshotter, AccountProperties properties) {
+        var snapshots = properties.getSnapshots();
+        return registrar -> registrar.addFixedDelayTask(new FixedDelayTask(snapshotter::takeSnapshots,
+                snapshots.getInterval(), snapshots.getInitialDelay()));
+    }
+}
@@ -1,38 +1,97 @@
 package com.account.controller;
 
 import com.account.dto.AccountDto;
+import com.account.dto.BatchRequestDto;
+import com.account.dto.OperationResultDto;
+import com.account.dto.SummaryDto;
 import com.account.dto.TransactionDto;
+import com.account.enums.SummaryGranularity;
+import com.account.exception.EngineUnsupportedOperationException;
 import com.account.exception.Handler;
+import com.account.model.Money;
 import com.account.service.AccountService;
+import com.account.service.admission.AccountAdmissionLimiter;
+import com.account.service.engine.LedgerEngine;
+import com.account.service.feed.BalanceFeed;
+import com.account.service.idempotency.IdempotencyService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.PositiveOrZero;
+import jakarta.validation.constraints.Size;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 @RestController
+@Profile("!reactive")
 @RequestMapping("/accounts")
 @RequiredArgsConstructor
 @Validated
 @FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
 public class AccountController implements Handler {
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final TypeReference<AccountDto> ACCOUNT = new TypeReference<>() {
+    };
+    private static final TypeReference<List<OperationResultDto>> RESULTS = new TypeReference<>() {
+    };
+
     AccountService accountService;
+    IdempotencyService idempotencyService;
+    ObjectMapper objectMapper;
+    BalanceFeed balanceFeed;
+    /**
+     * Present with {@code account.engine.enabled}: writes and current balances then go to the engine,
+     * and the rest is read from its projection. The idempotency key is claimed before the engine is
+     * called and its response stored after the engine answers.
+     */
+    ObjectProvider<LedgerEngine> ledgerEngine;
+    /**
+     * Present with {@code account.admission.enabled}: writes are admitted to their accounts after the
+     * idempotency check, so a replayed response is not limited.
+     */
+    ObjectProvider<AccountAdmissionLimiter> admissionLimiter;
 
     @PostMapping
     @Operation(summary = "Создание нового аккаунта")
     public ResponseEntity<AccountDto> createAccount(@RequestParam @Parameter(description = "Владелец счета")
                                                     @NotBlank(message = "Владелец счета не должен быть пустым")
-                                                    String owner) {
-        return ResponseEntity.ok(accountService.createAccount(owner));
+                                                    String owner,
+                                                    @RequestHeader(name = IDEMPOTENCY_KEY, required = false)
+                                                    @Parameter(description = "Ключ идемпотентности для безопасного повтора запроса")
+                                                    @Size(max = 100, message = "Ключ идемпотентности должен быть не длиннее 100 символов")
+                                                    String idempotencyKey) {
+        return ResponseEntity.ok(idempotent(idempotencyKey, "create " + owner, ACCOUNT,
+                () -> {
+                    var engine = ledgerEngine.getIfAvailable();
+                    return engine == null
+                            ? accountService.createAccount(owner)
+                            : engine.createAccount(owner);
+                }));
     }
 
     @PostMapping("/{id}/deposit")
@@ -40,8 +99,19 @@ public class AccountController implements Handler {
     public ResponseEntity<AccountDto> deposit(@PathVariable @Parameter(description = "ID счета") Long id,
                                               @RequestParam @Parameter(description = "Сумма в рублях")
                                               @PositiveOrZero(message = "Сумма должна быть неотрицательной")
-                                              BigDecimal amount) {
-        return ResponseEntity.ok(accountService.deposit(id, amount));
+                                              @Digits(integer = 17, fraction = 2, message = "Сумма должна быть указана с точностью до копейки")
+                                              BigDecimal amount,
+                                              @RequestHeader(name = IDEMPOTENCY_KEY, required = false)
+                                              @Parameter(description = "Ключ идемпотентности для безопасного повтора запроса")
+                                              @Size(max = 100, message = "Ключ идемпотентности должен быть не длиннее 100 символов")
+                                              String idempotencyKey) {
+        return ResponseEntity.ok(idempotent(idempotencyKey, "deposit " + id + " " + kopecks(amount), ACCOUNT,
+                () -> admitted(() -> {
+                    var engine = ledgerEngine.getIfAvailable();
+                    return engine == null
+                            ? accountService.deposit(id, amount)
+                            : engine.deposit(id, amount);
+                }, id)));
     }
 
     @PostMapping("/{id}/withdraw")
@@ -49,8 +119,19 @@ public class AccountController implements Handler {
     public ResponseEntity<AccountDto> withdraw(@PathVariable @Parameter(description = "ID счета") Long id,
                                                @RequestParam @Parameter(description = "Сумма в рублях")
                                                @PositiveOrZero(message = "Сумма должна быть неотрицательной")
-                                               BigDecimal amount) {
-        return ResponseEntity.ok(accountService.withdraw(id, amount));
+                                               @Digits(integer = 17, fraction = 2, message = "Сумма должна быть указана с точностью до копейки")
+                                               BigDecimal amount,
+                                               @RequestHeader(name = IDEMPOTENCY_KEY, required = false)
+                                               @Parameter(description = "Ключ идемпотентности для безопасного повтора запроса")
+                                               @Size(max = 100, message = "Ключ идемпотентности должен быть не длиннее 100 символов")
+                                               String idempotencyKey) {
+        return ResponseEntity.ok(idempotent(idempotencyKey, "withdraw " + id + " " + kopecks(amount), ACCOUNT,
+                () -> admitted(() -> {
+                    var engine = ledgerEngine.getIfAvailable();
+                    return engine == null
+                            ? accountService.withdraw(id, amount)
+                            : engine.withdraw(id, amount);
+                }, id)));
     }
 
     @PostMapping("/{fromId}/transfer/{toId}")
@@ -59,21 +140,178 @@ public class AccountController implements Handler {
                                                @PathVariable @Parameter(description = "ID счета получателя") Long toId,
                                                @RequestParam @Parameter(description = "Сумма в рублях")
                                                @PositiveOrZero(message = "Сумма должна быть неотрицательной")
-                                               BigDecimal amount) {
-        return ResponseEntity.ok(accountService.transfer(fromId, toId, amount));
+                                               @Digits(integer = 17, fraction = 2, message = "Сумма должна быть указана с точностью до копейки")
+                                               BigDecimal amount,
+                                               @RequestHeader(name = IDEMPOTENCY_KEY, required = false)
+                                               @Parameter(description = "Ключ идемпотентности для безопасного повтора запроса")
+                                               @Size(max = 100, message = "Ключ идемпотентности должен быть не длиннее 100 символов")
+                                               String idempotencyKey) {
+        return ResponseEntity.ok(idempotent(idempotencyKey, "transfer " + fromId + " " + toId + " " + kopecks(amount),
+                ACCOUNT, () -> admitted(() -> {
+                    var engine = ledgerEngine.getIfAvailable();
+                    return engine == null
+                            ? accountService.transfer(fromId, toId, amount)
+                            : engine.transfer(fromId, toId, amount);
+                }, fromId, toId)));
+    }
+
+    @PostMapping("/batch")
+    @Operation(summary = "Пакетное выполнение операций зачисления, списания и перевода")
+    public ResponseEntity<List<OperationResultDto>> executeBatch(@RequestBody @Valid BatchRequestDto request,
+                                                                 @RequestHeader(name = IDEMPOTENCY_KEY, required = false)
+                                                                 @Parameter(description = "Ключ идемпотентности для безопасного повтора запроса")
+                                                                 @Size(max = 100, message = "Ключ идемпотентности должен быть не длиннее 100 символов")
+                                                                 String idempotencyKey) {
+        if (ledgerEngine.getIfAvailable() != null) {
+            throw new EngineUnsupportedOperationException("batch");
+        }
+        return ResponseEntity.ok(idempotencyService.execute(idempotencyKey, describe(request), RESULTS,
+                () -> admitted(() -> accountService.executeBatch(request.getOperations(), request.isAllOrNothing()),
+                        request.getOperations().stream()
+                                .flatMap(operation -> Stream.of(operation.getAccountId(), operation.getTargetAccountId()))
+                                .toArray(Long[]::new))));
+    }
+
+    @PostMapping("/{id}/shards")
+    @Operation(summary = "Распределение баланса счета по нескольким частям для снижения конкуренции")
+    public ResponseEntity<AccountDto> shardAccount(@PathVariable @Parameter(description = "ID счета") Long id,
+                                                   @RequestParam @Parameter(description = "Количество частей, 0 - без распределения")
+                                                   @Min(value = 0, message = "Количество частей должно быть неотрицательным")
+                                                   @Max(value = 256, message = "Количество частей должно быть не больше 256")
+                                                   int count,
+                                                   @RequestHeader(name = IDEMPOTENCY_KEY, required = false)
+                                                   @Parameter(description = "Ключ идемпотентности для безопасного повтора запроса")
+                                                   @Size(max = 100, message = "Ключ идемпотентности должен быть не длиннее 100 символов")
+                                                   String idempotencyKey) {
+        if (ledgerEngine.getIfAvailable() != null) {
+            throw new EngineUnsupportedOperationException("shards");
+        }
+        return ResponseEntity.ok(idempotencyService.execute(idempotencyKey, "shard " + id + " " + count, ACCOUNT,
+                () -> admitted(() -> accountService.shardAccount(id, count), id)));
     }
 
     @GetMapping("/{id}/balance")
-    @Operation(summary = "Предоставление текущего баланса по счету")
-    public ResponseEntity<BigDecimal> getBalance(@PathVariable @Parameter(description = "ID счета") Long id) {
-        return ResponseEntity.ok(accountService.getBalance(id));
+    @Operation(summary = "Предоставление текущего баланса по счету или баланса на момент времени")
+    public ResponseEntity<BigDecimal> getBalance(@PathVariable @Parameter(description = "ID счета") Long id,
+                                                 @RequestParam(required = false)
+                                                 @Parameter(description = "Момент времени, по умолчанию текущий баланс")
+                                                 Instant asOf) {
+        if (asOf == null) {
+            var engine = ledgerEngine.getIfAvailable();
+            return ResponseEntity.ok(engine == null ? accountService.getBalance(id) : engine.getBalance(id));
+        }
+        return ResponseEntity.ok(accountService.getBalance(id, asOf));
+    }
+
+    @GetMapping(value = "/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Подписка на изменения баланса счетов в формате SSE вместо периодического запроса баланса")
+    public SseEmitter subscribe(@RequestParam @Parameter(description = "ID счетов")
+                                @Size(min = 1, max = 100, message = "Количество счетов должно быть от 1 до 100")
+                                Set<Long> ids) {
+        if (ledgerEngine.getIfAvailable() != null) {
+            throw new EngineUnsupportedOperationException("feed");
+        }
+        var emitter = new SseEmitter(balanceFeed.getTimeout().toMillis());
+        var subscription = balanceFeed.subscribe(ids, event -> emitter.send(SseEmitter.event()
+                .name("balance")
+                .data(event.toDto(), MediaType.APPLICATION_JSON)));
+        emitter.onCompletion(subscription::close);
+        emitter.onTimeout(subscription::close);
+        emitter.onError(error -> subscription.close());
+        try {
+            ids.forEach(id -> subscription.offer(accountService.getBalanceEvent(id)));
+        } catch (RuntimeException e) {
+            subscription.close();
+            throw e;
+        }
+        return emitter;
+    }
+
+    @GetMapping("{id}/summary")
+    @Operation(summary = "Сводка зачислений и списаний по дням, неделям или месяцам за период")
+    public ResponseEntity<List<SummaryDto>> getSummary(@PathVariable @Parameter(description = "ID счета") Long id,
+                                                       @RequestParam @Parameter(description = "Первый день периода") LocalDate from,
+                                                       @RequestParam @Parameter(description = "Последний день периода") LocalDate to,
+                                                       @RequestParam(defaultValue = "DAY")
+                                                       @Parameter(description = "Шаг группировки")
+                                                       SummaryGranularity granularity) {
+        return ResponseEntity.ok(accountService.getSummary(id, from, to, granularity));
     }
 
     @GetMapping("{id}/transactions")
     @Operation(summary = "Предоставление выписки по операциям за период времени")
     public ResponseEntity<List<TransactionDto>> getTransactions(@PathVariable @Parameter(description = "ID счета") Long id,
                                                                 @RequestParam @Parameter(description = "Период с") Instant fromTime,
-                                                                @RequestParam @Parameter(description = "Период по") Instant toTime) {
-        return ResponseEntity.ok(accountService.getTransactions(id, fromTime, toTime));
+                                                                @RequestParam @Parameter(description = "Период по") Instant toTime,
+                                                                @RequestParam(required = false)
+                                                                @Parameter(description = "ID последней операции предыдущей страницы")
+                                                                Long afterId,
+                                                                @RequestParam(required = false)
+                                                                @Parameter(description = "Максимальное количество операций на странице")
+                                                                @Min(value = 1, message = "Размер страницы должен быть положительным")
+                                                                @Max(value = 1000, message = "Размер страницы должен быть не больше 1000")
+                                                                Integer limit) {
+        if (limit == null) {
+            return ResponseEntity.ok(accountService.getTransactions(id, fromTime, toTime));
+        }
+        return ResponseEntity.ok(accountService.getTransactions(id, fromTime, toTime, afterId, limit));
+    }
+
+    @GetMapping(value = "{id}/transactions/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Потоковая выгрузка выписки по операциям за период времени в формате NDJSON")
+    public ResponseEntity<StreamingResponseBody> streamTransactions(@PathVariable @Parameter(description = "ID счета") Long id,
+                                                                    @RequestParam @Parameter(description = "Период с") Instant fromTime,
+                                                                    @RequestParam @Parameter(description = "Период по") Instant toTime) {
+        accountService.checkAccountExists(id);
+        StreamingResponseBody body = out -> accountService.streamTransactions(id, fromTime, toTime, transaction -> {
+            try {
+                out.write(objectMapper.writeValueAsBytes(transaction));
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * The engine answers outside of a database transaction, so with the engine the key is claimed
+     * before the operation instead of being stored with it.
+     */
+    private <T> T idempotent(String key, String request, TypeReference<T> type, Supplier<T> operation) {
+        return ledgerEngine.getIfAvailable() == null
+                ? idempotencyService.execute(key, request, type, operation)
+                : idempotencyService.executeClaimed(key, request, type, operation);
+    }
+
+    /**
+     * Amount in the request description as whole kopecks, so {@code 10} and {@code 10.00} are the same
+     * request.
+     */
+    private static long kopecks(BigDecimal amount) {
+        return Money.of(amount).kopecks();
+    }
+
+    private static String describe(BatchRequestDto request) {
+        var description = new StringBuilder("batch ").append(request.isAllOrNothing());
+        for (var operation : request.getOperations()) {
+            description.append(' ').append(operation.getType())
+                    .append(' ').append(operation.getAccountId())
+                    .append(' ').append(operation.getTargetAccountId())
+                    .append(' ').append(kopecks(operation.getAmount()));
+        }
+        return description.toString();
+    }
+
+    private <T> T admitted(Supplier<T> operation, Long... accountIds) {
+        var limiter = admissionLimiter.getIfAvailable();
+        if (limiter == null) {
+            return operation.get();
+        }
+        try (var permit = limiter.admit(accountIds)) {
+            return operation.get();
+        }
     }
 }
@@ -0,0 +1,91 @@
+package com.account.controller;
+
+import com.account.config.AccountProperties;
+import com.account.exception.Handler;
+import com.account.service.bulk.BulkCopyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.constraints.Size;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bulk exports for finance. The rows come straight from {@link BulkCopyService}; with
+ * {@code account.engine.enabled} they cover what the projection has written so far.
+ * <p>
+ * An export of a long period streams for longer than {@code spring.mvc.async.request-timeout}, so it
+ * runs with {@code account.export.timeout} instead, unlimited by default.
+ */
+@RestController
+@Profile("!reactive")
+@RequestMapping("/exports")
+@RequiredArgsConstructor
+@Validated
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ExportController implements Handler {
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+    private static final MediaType GZIP = MediaType.parseMediaType("application/gzip");
+
+    BulkCopyService bulkCopyService;
+    AccountProperties properties;
+
+    @GetMapping("/transactions")
+    @Operation(summary = "Выгрузка операций за период в формате CSV")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(@RequestParam
+                                                                    @Parameter(description = "Период с, включительно")
+                                                                    Instant fromTime,
+                                                                    @RequestParam
+                                                                    @Parameter(description = "Период по, не включительно")
+                                                                    Instant toTime,
+                                                                    @RequestParam(required = false)
+                                                                    @Parameter(description = "ID счетов, по умолчанию все счета")
+                                                                    @Size(max = 10000, message = "Количество счетов должно быть не больше 10000")
+                                                                    List<Long> accountIds,
+                                                                    @RequestParam(defaultValue = "false")
+                                                                    @Parameter(description = "Сжатие выгрузки в gzip")
+                                                                    boolean gzip,
+                                                                    HttpServletRequest request) {
+        BulkCopyService.checkPeriod(fromTime, toTime);
+        WebAsyncUtils.getAsyncManager(request).getAsyncWebRequest()
+                .setTimeout(properties.getExport().getTimeout().toMillis());
+        StreamingResponseBody body = out -> {
+            try {
+                if (gzip) {
+                    var compressed = new GZIPOutputStream(out);
+                    bulkCopyService.exportTransactions(accountIds, fromTime, toTime, compressed);
+                    compressed.finish();
+                } else {
+                    bulkCopyService.exportTransactions(accountIds, fromTime, toTime, out);
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(gzip ? GZIP : TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(gzip ? "transactions.csv.gz" : "transactions.csv")
+                        .build()
+                        .toString())
+                .body(body);
+    }
+}
@@ -0,0 +1,112 @@
+package com.account.controller;
+
+import com.account.dto.AccountDto;
+import com.account.dto.TransactionDto;
+import com.account.exception.Handler;
+import com.account.service.reactive.ReactiveAccountService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@RestController
+@Profile("reactive")
+@RequestMapping("/accounts")
+@RequiredArgsConstructor
+@Validated
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReactiveAccountController implements Handler {
+    ReactiveAccountService accountService;
+
+    @PostMapping
+    @Operation(summary = "Создание нового аккаунта")
+    public Mono<ResponseEntity<AccountDto>> createAccount(@RequestParam @Parameter(description = "Владелец счета")
+                                                          @NotBlank(message = "Владелец счета не должен быть пустым")
+                                                          String owner) {
+        return accountService.createAccount(owner).map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/{id}/deposit")
+    @Operation(summary = "Зачисление суммы на счет")
+    public Mono<ResponseEntity<AccountDto>> deposit(@PathVariable @Parameter(description = "ID счета") Long id,
+                                                    @RequestParam @Parameter(description = "Сумма в рублях")
+                                                    @PositiveOrZero(message = "Сумма должна быть неотрицательной")
+                                                    @Digits(integer = 17, fraction = 2, message = "Сумма должна быть указана с точностью до копейки")
+                                                    BigDecimal amount) {
+        return accountService.deposit(id, amount).map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/{id}/withdraw")
+    @Operation(summary = "Списание суммы со счета")
+    public Mono<ResponseEntity<AccountDto>> withdraw(@PathVariable @Parameter(description = "ID счета") Long id,
+                                                     @RequestParam @Parameter(description = "Сумма в рублях")
+                                                     @PositiveOrZero(message = "Сумма должна быть неотрицательной")
+                                                     @Digits(integer = 17, fraction = 2, message = "Сумма должна быть указана с точностью до копейки")
+                                                     BigDecimal amount) {
+        return accountService.withdraw(id, amount).map(ResponseEntity::ok);
+    }
+
+    @PostMapping("/{fromId}/transfer/{toId}")
+    @Operation(summary = "Перевод суммы с одного счета на другой")
+    public Mono<ResponseEntity<AccountDto>> transfer(@PathVariable @Parameter(description = "ID счета отправителя") Long fromId,
+                                                     @PathVariable @Parameter(description = "ID счета получателя") Long toId,
+                                                     @RequestParam @Parameter(description = "Сумма в рублях")
+                                                     @PositiveOrZero(message = "Сумма должна быть неотрицательной")
+                                                     @Digits(integer = 17, fraction = 2, message = "Сумма должна быть указана с точностью до копейки")
+                                                     BigDecimal amount) {
+        return accountService.transfer(fromId, toId, amount).map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/{id}/balance")
+    @Operation(summary = "Предоставление текущего баланса по счету или баланса на момент времени")
+    public Mono<ResponseEntity<BigDecimal>> getBalance(@PathVariable @Parameter(description = "ID счета") Long id,
+                                                       @RequestParam(required = false)
+                                                       @Parameter(description = "Момент времени, по умолчанию текущий баланс")
+                                                       Instant asOf) {
+        var balance = asOf == null ? accountService.getBalance(id) : accountService.getBalance(id, asOf);
+        return balance.map(ResponseEntity::ok);
+    }
+
+    @GetMapping("{id}/transactions")
+    @Operation(summary = "Предоставление выписки по операциям за период времени")
+    public Flux<TransactionDto> getTransactions(@PathVariable @Parameter(description = "ID счета") Long id,
+                                                @RequestParam @Parameter(description = "Период с") Instant fromTime,
+                                                @RequestParam @Parameter(description = "Период по") Instant toTime,
+                                                @RequestParam(required = false)
+                                                @Parameter(description = "ID последней операции предыдущей страницы")
+                                                Long afterId,
+                                                @RequestParam(required = false)
+                                                @Parameter(description = "Максимальное количество операций на странице")
+                                                @Min(value = 1, message = "Размер страницы должен быть положительным")
+                                                @Max(value = 1000, message = "Размер страницы должен быть не больше 1000")
+                                                Integer limit) {
+        if (limit == null) {
+            return accountService.getTransactions(id, fromTime, toTime);
+        }
+        return accountService.getTransactions(id, fromTime, toTime, afterId, limit);
+    }
+
+    @GetMapping(value = "{id}/transactions/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Потоковая выгрузка выписки по операциям за период времени в формате NDJSON")
+    public Flux<TransactionDto> streamTransactions(@PathVariable @Parameter(description = "ID счета") Long id,
+                                                   @RequestParam @Parameter(description = "Период с") Instant fromTime,
+                                                   @RequestParam @Parameter(description = "Период по") Instant toTime) {
+        return accountService.streamTransactions(id, fromTime, toTime);
+    }
+}
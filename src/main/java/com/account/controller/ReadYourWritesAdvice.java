@@ -0,0 +1,92 @@
+package com.account.controller;
+
+import com.account.service.datasource.Lsn;
+import com.account.service.datasource.ReplicaLagMonitor;
+import com.account.service.datasource.ReplicaRouter;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.MethodParameter;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Read-your-writes for clients of the replica: every answer to a write of {@link AccountController}
+ * carries the current log position of the primary in {@value #LAST_WRITE}, and a read that sends the
+ * header back is served by the primary until the replica has replayed that position.
+ * <p>
+ * With {@code account.engine.enabled} writes reach the database only through the projection, so the
+ * position does not cover them.
+ */
+@Slf4j
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "account.replica", name = {"enabled", "read-your-writes"}, havingValue = "true")
+@ControllerAdvice(assignableTypes = AccountController.class)
+@RequiredArgsConstructor
+public class ReadYourWritesAdvice implements ResponseBodyAdvice<Object>, HandlerInterceptor, WebMvcConfigurer {
+    public static final String LAST_WRITE = "Last-Write-Lsn";
+
+    private final ReplicaLagMonitor monitor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this).addPathPatterns("/accounts/**");
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        var lastWrite = request.getHeader(LAST_WRITE);
+        if (lastWrite != null) {
+            ReplicaRouter.readAfter(parse(lastWrite));
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        ReplicaRouter.clearReadAfter();
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (request.getMethod() != HttpMethod.GET) {
+            try {
+                response.getHeaders().set(LAST_WRITE, Lsn.format(monitor.currentLsn()));
+            } catch (DataAccessException e) {
+                log.warn("Could not read the log position of the primary", e);
+            }
+        }
+        return body;
+    }
+
+    /**
+     * A position that cannot be read is treated as not yet replayed, so the read goes to the primary.
+     */
+    private static long parse(String lastWrite) {
+        try {
+            return Lsn.parse(lastWrite);
+        } catch (IllegalArgumentException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+}
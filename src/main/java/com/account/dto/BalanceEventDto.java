@@ -0,0 +1,21 @@
+package com.account.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalanceEventDto {
+    private Long accountId;
+    private BigDecimal balance;
+    private BigDecimal deposits;
+    private long depositCount;
+    private BigDecimal withdrawals;
+    private long withdrawalCount;
+    private Instant time;
+}
@@ -0,0 +1,21 @@
+package com.account.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchRequestDto {
+    @NotEmpty(message = "Список операций не должен быть пустым")
+    @Size(max = 1000, message = "В пакете должно быть не более 1000 операций")
+    private List<@Valid OperationDto> operations;
+
+    private boolean allOrNothing;
+}
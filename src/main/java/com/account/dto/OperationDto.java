@@ -0,0 +1,37 @@
+package com.account.dto;
+
+import com.account.enums.OperationType;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OperationDto {
+    @NotNull(message = "Тип операции не должен быть пустым")
+    private OperationType type;
+
+    @NotNull(message = "ID счета не должен быть пустым")
+    private Long accountId;
+
+    private Long targetAccountId;
+
+    @NotNull(message = "Сумма не должна быть пустой")
+    @PositiveOrZero(message = "Сумма должна быть неотрицательной")
+    @Digits(integer = 17, fraction = 2, message = "Сумма должна быть указана с точностью до копейки")
+    private BigDecimal amount;
+
+    @JsonIgnore
+    @AssertTrue(message = "Для перевода должен быть указан ID счета получателя")
+    public boolean isTargetAccountValid() {
+        return type != OperationType.TRANSFER || targetAccountId != null;
+    }
+}
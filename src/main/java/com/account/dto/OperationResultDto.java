@@ -0,0 +1,16 @@
+package com.account.dto;
+
+import com.account.enums.OperationStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OperationResultDto {
+    private int index;
+    private OperationStatus status;
+    private AccountDto account;
+    private String error;
+}
@@ -0,0 +1,19 @@
+package com.account.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SummaryDto {
+    private LocalDate period;
+    private BigDecimal deposits;
+    private long depositCount;
+    private BigDecimal withdrawals;
+    private long withdrawalCount;
+}
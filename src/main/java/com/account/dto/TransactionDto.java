@@ -13,7 +13,6 @@ import java.time.Instant;
 @AllArgsConstructor
 public class TransactionDto {
     private Long id;
-    private AccountDto account;
     private TransactionType type;
     private BigDecimal amount;
     private Instant time;
@@ -0,0 +1,6 @@
+package com.account.enums;
+
+public enum CacheInvalidationMode {
+    NONE,
+    LOCAL
+}
@@ -0,0 +1,8 @@
+package com.account.enums;
+
+public enum ConcurrencyMode {
+    LOCAL,
+    PESSIMISTIC,
+    OPTIMISTIC,
+    ATOMIC
+}
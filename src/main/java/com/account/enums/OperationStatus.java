@@ -0,0 +1,7 @@
+package com.account.enums;
+
+public enum OperationStatus {
+    OK,
+    FAILED,
+    ROLLED_BACK
+}
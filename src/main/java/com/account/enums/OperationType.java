@@ -0,0 +1,7 @@
+package com.account.enums;
+
+public enum OperationType {
+    DEPOSIT,
+    WITHDRAW,
+    TRANSFER
+}
@@ -0,0 +1,7 @@
+package com.account.enums;
+
+public enum SummaryGranularity {
+    DAY,
+    WEEK,
+    MONTH
+}
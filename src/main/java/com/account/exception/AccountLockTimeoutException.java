@@ -0,0 +1,10 @@
+package com.account.exception;
+
+import java.util.Arrays;
+
+public class AccountLockTimeoutException extends RuntimeException {
+
+    public AccountLockTimeoutException(Long... accountIds) {
+        super("Не удалось заблокировать счета с ID " + Arrays.toString(accountIds) + ", повторите операцию позже");
+    }
+}
@@ -0,0 +1,15 @@
+package com.account.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+@Getter
+public class AccountOverloadedException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public AccountOverloadedException(Long accountId, Duration retryAfter) {
+        super("Слишком много одновременных операций по счету с ID " + accountId + ", повторите операцию позже");
+        this.retryAfter = retryAfter;
+    }
+}
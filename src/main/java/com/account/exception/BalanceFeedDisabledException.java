@@ -0,0 +1,8 @@
+package com.account.exception;
+
+public class BalanceFeedDisabledException extends RuntimeException {
+
+    public BalanceFeedDisabledException() {
+        super("Подписка на изменения баланса отключена");
+    }
+}
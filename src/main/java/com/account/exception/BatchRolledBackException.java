@@ -0,0 +1,16 @@
+package com.account.exception;
+
+import com.account.dto.OperationResultDto;
+import lombok.Getter;
+
+import java.util.List;
+
+@Getter
+public class BatchRolledBackException extends RuntimeException {
+    private final List<OperationResultDto> results;
+
+    public BatchRolledBackException(List<OperationResultDto> results) {
+        super("Пакет операций отменен");
+        this.results = results;
+    }
+}
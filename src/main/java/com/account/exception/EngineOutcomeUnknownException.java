@@ -0,0 +1,13 @@
+package com.account.exception;
+
+/**
+ * The operation was applied in memory but its journal could not be written to disk, so it may or may
+ * not survive a restart. It is an {@link EngineUnavailableException}, so an idempotency key keeps its
+ * claim and a retry with the key is not applied a second time.
+ */
+public class EngineOutcomeUnknownException extends EngineUnavailableException {
+
+    public EngineOutcomeUnknownException() {
+        super("Результат операции неизвестен, проверьте баланс после восстановления сервиса, прежде чем повторять операцию");
+    }
+}
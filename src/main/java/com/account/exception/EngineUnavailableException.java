@@ -0,0 +1,12 @@
+package com.account.exception;
+
+public class EngineUnavailableException extends RuntimeException {
+
+    public EngineUnavailableException() {
+        super("Очередь операций переполнена или сервис останавливается, повторите операцию позже");
+    }
+
+    protected EngineUnavailableException(String message) {
+        super(message);
+    }
+}
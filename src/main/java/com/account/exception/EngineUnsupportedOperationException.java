@@ -0,0 +1,8 @@
+package com.account.exception;
+
+public class EngineUnsupportedOperationException extends RuntimeException {
+
+    public EngineUnsupportedOperationException(String operation) {
+        super("Операция \"" + operation + "\" недоступна в режиме обработки счетов в памяти");
+    }
+}
@@ -1,10 +1,16 @@
 package com.account.exception;
 
+import com.account.dto.OperationResultDto;
 import org.jetbrains.annotations.NotNull;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.CannotCreateTransactionException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
+import java.util.List;
+
 public interface Handler {
 
     @ExceptionHandler
@@ -24,4 +30,128 @@ public interface Handler {
         );
         return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
     }
+
+    @ExceptionHandler
+    default ResponseEntity<ErrorResponse> handleException(@NotNull AccountLockTimeoutException e) {
+        ErrorResponse response = new ErrorResponse(
+                e.getMessage(),
+                System.currentTimeMillis()
+        );
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler
+    default ResponseEntity<ErrorResponse> handleException(@NotNull ConcurrencyFailureException e) {
+        ErrorResponse response = new ErrorResponse(
+                "Счет изменен параллельной операцией, повторите операцию позже",
+                System.currentTimeMillis()
+        );
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler
+    default ResponseEntity<ErrorResponse> handleException(@NotNull IdempotencyKeyReuseException e) {
+        ErrorResponse response = new ErrorResponse(
+                e.getMessage(),
+                System.currentTimeMillis()
+        );
+        return new ResponseEntity<>(response, HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @ExceptionHandler
+    default ResponseEntity<ErrorResponse> handleException(@NotNull IdempotencyKeyInProgressException e) {
+        ErrorResponse response = new ErrorResponse(
+                e.getMessage(),
+                System.currentTimeMillis()
+        );
+        return new ResponseEntity<>(response, HttpStatus.CONFLICT);
+    }
+
+    @ExceptionHandler
+    default ResponseEntity<ErrorResponse> handleException(@NotNull CannotCreateTransactionException e) {
+        ErrorResponse response = new ErrorResponse(
+                "Нет свободных соединений с базой данных, повторите операцию позже",
+                System.currentTimeMillis()
+        );
+        return new ResponseEntity<>(response, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler
+    default ResponseEntity<List<OperationResultDto>> handleException(@NotNull BatchRolledBackException e) {
+        return new ResponseEntity<>(e.getResults(), HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler
+    default ResponseEntity<ErrorResponse> handleException(@NotNull EngineUnavailableException e) {
+        ErrorResponse response = new ErrorResponse(
+                e.getMessage(),
+                System.currentTimeMillis()
+        );
+        return new ResponseEntity<>(response, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    @ExceptionHandler
+    default ResponseEntity<ErrorResponse> handleException(@NotNull EngineOutcomeUnknownException e) {
+        ErrorResponse response = new ErrorResponse(
+                e.getMessage(),
+                System.currentTimeMillis()
+        );
+        return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @ExceptionHandler
+    default ResponseEntity<ErrorResponse> handleException(@NotNull EngineUnsupportedOperationException e) {
+        ErrorResponse response = new ErrorResponse(
+                e.getMessage(),
+                System.currentTimeMillis()
+        );
+        return new ResponseEntity<>(response, HttpStatus.NOT_IMPLEMENTED);
+    }
+
+    @ExceptionHandler
+    default ResponseEntity<ErrorResponse> handleException(@NotNull InvalidAmountException e) {
+        ErrorResponse response = new ErrorResponse(
+                e.getMessage(),
+                System.currentTimeMillis()
+        );
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler
+    default ResponseEntity<ErrorResponse> handleException(@NotNull InvalidPeriodException e) {
+        ErrorResponse response = new ErrorResponse(
+                e.getMessage(),
+                System.currentTimeMillis()
+        );
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler
+    default ResponseEntity<ErrorResponse> handleException(@NotNull InvalidCursorException e) {
+        ErrorResponse response = new ErrorResponse(
+                e.getMessage(),
+                System.currentTimeMillis()
+        );
+        return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
+    }
+
+    @ExceptionHandler
+    default ResponseEntity<ErrorResponse> handleException(@NotNull AccountOverloadedException e) {
+        ErrorResponse response = new ErrorResponse(
+                e.getMessage(),
+                System.currentTimeMillis()
+        );
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+                .body(response);
+    }
+
+    @ExceptionHandler
+    default ResponseEntity<ErrorResponse> handleException(@NotNull BalanceFeedDisabledException e) {
+        ErrorResponse response = new ErrorResponse(
+                e.getMessage(),
+                System.currentTimeMillis()
+        );
+        return new ResponseEntity<>(response, HttpStatus.NOT_IMPLEMENTED);
+    }
 }
@@ -0,0 +1,8 @@
+package com.account.exception;
+
+public class IdempotencyKeyInProgressException extends RuntimeException {
+
+    public IdempotencyKeyInProgressException(String key) {
+        super("Запрос с ключом идемпотентности " + key + " еще выполняется, повторите запрос позже");
+    }
+}
@@ -0,0 +1,8 @@
+package com.account.exception;
+
+public class IdempotencyKeyReuseException extends RuntimeException {
+
+    public IdempotencyKeyReuseException(String key) {
+        super("Ключ идемпотентности " + key + " уже использован для другого запроса");
+    }
+}
@@ -0,0 +1,14 @@
+package com.account.exception;
+
+import java.math.BigDecimal;
+
+public class InvalidAmountException extends RuntimeException {
+
+    public InvalidAmountException(BigDecimal amount) {
+        super("Сумма " + amount.toPlainString() + " должна быть указана с точностью до копейки и не превышать допустимый размер");
+    }
+
+    public InvalidAmountException() {
+        super("Результат операции превышает допустимый размер суммы");
+    }
+}
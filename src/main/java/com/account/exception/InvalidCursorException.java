@@ -0,0 +1,8 @@
+package com.account.exception;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(Long accountId, Long afterId) {
+        super("Операция " + afterId + " не найдена в выписке по счету " + accountId + " за указанный период");
+    }
+}
@@ -0,0 +1,10 @@
+package com.account.exception;
+
+import java.time.Instant;
+
+public class InvalidPeriodException extends RuntimeException {
+
+    public InvalidPeriodException(Instant fromTime, Instant toTime) {
+        super("Начало периода " + fromTime + " должно быть раньше его конца " + toTime);
+    }
+}
@@ -1,10 +1,9 @@
 package com.account.model;
 
+import com.account.dto.AccountDto;
 import jakarta.persistence.*;
 import lombok.*;
 
-import java.math.BigDecimal;
-
 @Data
 @Entity
 @AllArgsConstructor
@@ -12,11 +11,22 @@ import java.math.BigDecimal;
 @Table(name = "accounts")
 public class Account {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "accounts_seq")
+    @SequenceGenerator(name = "accounts_seq", sequenceName = "accounts_seq", allocationSize = 50)
     private Long id;
 
     private String owner;
 
     @Column(precision = 19, scale = 2)
-    private BigDecimal balance = BigDecimal.ZERO;
+    private Money balance = Money.ZERO;
+
+    @Version
+    private Long version;
+
+    /**
+     * Goes through the getters, so that a lazy reference is initialized rather than read as empty.
+     */
+    public AccountDto toDto() {
+        return new AccountDto(getId(), getOwner(), getBalance() == null ? null : getBalance().toBigDecimal());
+    }
 }
@@ -0,0 +1,34 @@
+package com.account.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "account_shards")
+@IdClass(AccountShard.Key.class)
+public class AccountShard {
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Id
+    private Integer shard;
+
+    @Column(precision = 19, scale = 2)
+    private Money balance = Money.ZERO;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long accountId;
+        private Integer shard;
+    }
+}
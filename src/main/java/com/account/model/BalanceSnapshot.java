@@ -0,0 +1,36 @@
+package com.account.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "balance_snapshots", indexes = @Index(name = "balance_snapshots_time_idx", columnList = "time"))
+@IdClass(BalanceSnapshot.Key.class)
+public class BalanceSnapshot {
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Id
+    private Instant time;
+
+    @Column(precision = 19, scale = 2)
+    private BigDecimal balance;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long accountId;
+        private Instant time;
+    }
+}
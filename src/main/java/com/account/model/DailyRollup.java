@@ -0,0 +1,45 @@
+package com.account.model;
+
+import com.account.enums.TransactionType;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "daily_rollups")
+@IdClass(DailyRollup.Key.class)
+public class DailyRollup {
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Id
+    @Column(name = "rollup_day")
+    private LocalDate day;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    private TransactionType type;
+
+    @Column(precision = 19, scale = 2)
+    private BigDecimal total;
+
+    private Long count;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long accountId;
+        private LocalDate day;
+        private TransactionType type;
+    }
+}
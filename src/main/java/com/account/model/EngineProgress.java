@@ -0,0 +1,22 @@
+package com.account.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "engine_progress")
+public class EngineProgress {
+    @Id
+    private Integer shard;
+
+    @Column(name = "projected_seq", nullable = false)
+    private Long projectedSeq;
+}
@@ -0,0 +1,75 @@
+package com.account.model;
+
+import com.account.exception.InvalidAmountException;
+
+import java.math.BigDecimal;
+
+/**
+ * Amount of rubles as a whole number of kopecks. Arithmetic throws {@link InvalidAmountException}
+ * on {@code long} overflow instead of wrapping around.
+ * <p>
+ * Amounts enter and leave the application as {@link BigDecimal} rubles: {@link #of(BigDecimal)}
+ * rejects fractions of a kopeck rather than rounding them, and {@link #toBigDecimal()} always has
+ * scale 2, the scale of the {@code NUMERIC(19, 2)} columns.
+ */
+public record Money(long kopecks) implements Comparable<Money> {
+    public static final Money ZERO = new Money(0);
+
+    public static Money of(BigDecimal rubles) {
+        try {
+            return new Money(rubles.movePointRight(2).longValueExact());
+        } catch (ArithmeticException e) {
+            throw new InvalidAmountException(rubles);
+        }
+    }
+
+    public static Money ofKopecks(long kopecks) {
+        return kopecks == 0 ? ZERO : new Money(kopecks);
+    }
+
+    public Money plus(Money other) {
+        try {
+            return ofKopecks(Math.addExact(kopecks, other.kopecks));
+        } catch (ArithmeticException e) {
+            throw new InvalidAmountException();
+        }
+    }
+
+    public Money minus(Money other) {
+        try {
+            return ofKopecks(Math.subtractExact(kopecks, other.kopecks));
+        } catch (ArithmeticException e) {
+            throw new InvalidAmountException();
+        }
+    }
+
+    public Money negate() {
+        try {
+            return ofKopecks(Math.negateExact(kopecks));
+        } catch (ArithmeticException e) {
+            throw new InvalidAmountException();
+        }
+    }
+
+    public boolean isLessThan(Money other) {
+        return kopecks < other.kopecks;
+    }
+
+    public int signum() {
+        return Long.signum(kopecks);
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(kopecks, 2);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(kopecks, other.kopecks);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
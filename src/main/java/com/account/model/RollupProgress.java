@@ -0,0 +1,22 @@
+package com.account.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@Entity
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "rollup_progress")
+public class RollupProgress {
+    @Id
+    private Integer id;
+
+    private Instant aggregatedTo;
+}
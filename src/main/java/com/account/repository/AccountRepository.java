@@ -1,7 +1,68 @@
 package com.account.repository;
 
 import com.account.model.Account;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface AccountRepository extends JpaRepository<Account, Long> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.id = :id")
+    Optional<Account> findByIdForUpdate(@Param("id") Long id);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from Account a where a.id in :ids order by a.id")
+    List<Account> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    @Query(nativeQuery = true, value = "SELECT id FROM accounts WHERE id IN (:ids) ORDER BY id FOR UPDATE")
+    List<Long> lockAllById(@Param("ids") Collection<Long> ids);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "accounts"))
+    @Query(nativeQuery = true, value = """
+            UPDATE accounts SET balance = balance + :amount, version = version + 1
+            WHERE id = :id
+            RETURNING id, owner, balance, version""")
+    Optional<AccountView> credit(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "accounts"))
+    @Query(nativeQuery = true, value = """
+            UPDATE accounts SET balance = balance - :amount, version = version + 1
+            WHERE id = :id AND balance >= :amount
+            RETURNING id, owner, balance, version""")
+    Optional<AccountView> debit(@Param("id") Long id, @Param("amount") BigDecimal amount);
+
+    @Query(nativeQuery = true, value = """
+            SELECT a.id, a.owner,
+                   a.balance + COALESCE((SELECT SUM(s.balance) FROM account_shards s WHERE s.account_id = a.id), 0) AS balance,
+                   a.version
+            FROM accounts a
+            WHERE a.id = :id""")
+    Optional<AccountView> findTotalById(@Param("id") Long id);
+
+    @Query(nativeQuery = true, value = """
+            SELECT a.id, a.owner,
+                   a.balance + COALESCE((SELECT SUM(s.balance) FROM account_shards s WHERE s.account_id = a.id), 0) AS balance,
+                   a.version
+            FROM accounts a""")
+    List<AccountView> findAllTotals();
+
+    @Query(nativeQuery = true, value = "SELECT balance FROM accounts WHERE id = :id FOR UPDATE")
+    Optional<BigDecimal> lockBalance(@Param("id") Long id);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "accounts"))
+    @Query(nativeQuery = true, value = "UPDATE accounts SET balance = balance + :amount, version = version + 1 WHERE id = :id")
+    int addBalance(@Param("id") Long id, @Param("amount") BigDecimal amount);
 }
@@ -0,0 +1,65 @@
+package com.account.repository;
+
+import com.account.model.AccountShard;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface AccountShardRepository extends JpaRepository<AccountShard, AccountShard.Key> {
+
+    @Query("select s.accountId as accountId, count(s) as shards from AccountShard s group by s.accountId")
+    List<ShardCount> countShards();
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "account_shards"))
+    @Query(nativeQuery = true, value = """
+            UPDATE account_shards SET balance = balance + :amount
+            WHERE account_id = :accountId AND shard = :shard""")
+    int credit(@Param("accountId") Long accountId, @Param("shard") int shard, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "account_shards"))
+    @Query(nativeQuery = true, value = """
+            UPDATE account_shards SET balance = balance - :amount
+            WHERE account_id = :accountId AND shard = :shard AND balance >= :amount""")
+    int debit(@Param("accountId") Long accountId, @Param("shard") int shard, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "account_shards"))
+    @Query(nativeQuery = true, value = """
+            UPDATE account_shards SET balance = :balance
+            WHERE account_id = :accountId AND shard = :shard""")
+    int setBalance(@Param("accountId") Long accountId, @Param("shard") int shard, @Param("balance") BigDecimal balance);
+
+    @Query(nativeQuery = true, value = """
+            SELECT shard, balance FROM account_shards
+            WHERE account_id = :accountId
+            ORDER BY shard
+            FOR UPDATE""")
+    List<ShardBalance> lockBalances(@Param("accountId") Long accountId);
+
+    @Modifying
+    @Query("delete from AccountShard s where s.accountId = :accountId")
+    int deleteAllByAccountId(@Param("accountId") Long accountId);
+
+    interface ShardCount {
+
+        Long getAccountId();
+
+        Long getShards();
+    }
+
+    interface ShardBalance {
+
+        Integer getShard();
+
+        BigDecimal getBalance();
+    }
+}
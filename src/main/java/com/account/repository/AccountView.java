@@ -0,0 +1,21 @@
+package com.account.repository;
+
+import com.account.model.Account;
+import com.account.model.Money;
+
+import java.math.BigDecimal;
+
+public interface AccountView {
+
+    Long getId();
+
+    String getOwner();
+
+    BigDecimal getBalance();
+
+    Long getVersion();
+
+    default Account toAccount() {
+        return new Account(getId(), getOwner(), Money.of(getBalance()), getVersion());
+    }
+}
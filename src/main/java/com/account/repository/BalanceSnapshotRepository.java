@@ -0,0 +1,37 @@
+package com.account.repository;
+
+import com.account.model.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.Optional;
+
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, BalanceSnapshot.Key> {
+
+    Optional<BalanceSnapshot> findFirstByAccountIdAndTimeLessThanEqualOrderByTimeDesc(Long accountId, Instant time);
+
+    @Query("select max(s.time) from BalanceSnapshot s")
+    Optional<Instant> findLatestTime();
+
+    /**
+     * Writes a snapshot at {@code toTime} for every account with transactions in
+     * {@code (fromTime, toTime]}, starting from its latest snapshot not after {@code fromTime}.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO balance_snapshots (account_id, time, balance)
+            SELECT d.account_id, :toTime,
+                   COALESCE((SELECT s.balance FROM balance_snapshots s
+                             WHERE s.account_id = d.account_id AND s.time <= :fromTime
+                             ORDER BY s.time DESC
+                             LIMIT 1), 0) + d.delta
+            FROM (SELECT account_id, SUM(CASE WHEN type = 'DEPOSIT' THEN amount ELSE -amount END) AS delta
+                  FROM transactions
+                  WHERE time > :fromTime AND time <= :toTime
+                  GROUP BY account_id) d
+            ON CONFLICT DO NOTHING""")
+    int insertSnapshots(@Param("fromTime") Instant fromTime, @Param("toTime") Instant toTime);
+}
@@ -0,0 +1,32 @@
+package com.account.repository;
+
+import com.account.model.DailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface DailyRollupRepository extends JpaRepository<DailyRollup, DailyRollup.Key> {
+
+    List<DailyRollup> findAllByAccountIdAndDayBetweenOrderByDay(Long accountId, LocalDate from, LocalDate to);
+
+    /**
+     * Adds the transactions in {@code (fromTime, toTime]} to the rollups of their account, day and type.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            MERGE INTO daily_rollups r
+            USING (SELECT account_id, CAST(time AS DATE) AS rollup_day, type, SUM(amount) AS total, COUNT(*) AS count
+                   FROM transactions
+                   WHERE time > :fromTime AND time <= :toTime
+                   GROUP BY account_id, CAST(time AS DATE), type) d
+            ON r.account_id = d.account_id AND r.rollup_day = d.rollup_day AND r.type = d.type
+            WHEN MATCHED THEN UPDATE SET total = r.total + d.total, count = r.count + d.count
+            WHEN NOT MATCHED THEN INSERT (account_id, rollup_day, type, total, count)
+                VALUES (d.account_id, d.rollup_day, d.type, d.total, d.count)""")
+    int aggregate(@Param("fromTime") Instant fromTime, @Param("toTime") Instant toTime);
+}
@@ -0,0 +1,7 @@
+package com.account.repository;
+
+import com.account.model.EngineProgress;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface EngineProgressRepository extends JpaRepository<EngineProgress, Integer> {
+}
@@ -0,0 +1,56 @@
+package com.account.repository;
+
+import com.account.model.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    /**
+     * Inserts the key right away rather than at flush, so a concurrent request holding the same key
+     * blocks here and fails on the primary key once the other request commits.
+     */
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO idempotency_keys (idempotency_key, request_hash, response, created_at)
+            VALUES (:key, :requestHash, :response, :createdAt)""")
+    void insert(@Param("key") String key,
+                @Param("requestHash") String requestHash,
+                @Param("response") String response,
+                @Param("createdAt") Instant createdAt);
+
+    /**
+     * Claims the key without a response in a transaction of its own, so the claim is visible to other
+     * requests before the operation runs.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            INSERT INTO idempotency_keys (idempotency_key, request_hash, created_at)
+            VALUES (:key, :requestHash, :createdAt)""")
+    void claim(@Param("key") String key,
+               @Param("requestHash") String requestHash,
+               @Param("createdAt") Instant createdAt);
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(nativeQuery = true, value = """
+            UPDATE idempotency_keys SET response = :response
+            WHERE idempotency_key = :key AND response IS NULL""")
+    int complete(@Param("key") String key, @Param("response") String response);
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(nativeQuery = true, value = "DELETE FROM idempotency_keys WHERE idempotency_key = :key AND response IS NULL")
+    int release(@Param("key") String key);
+
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.createdAt < :before")
+    int deleteCreatedBefore(@Param("before") Instant before);
+}
@@ -0,0 +1,17 @@
+package com.account.repository;
+
+import com.account.model.RollupProgress;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Optional;
+
+public interface RollupProgressRepository extends JpaRepository<RollupProgress, Integer> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select p from RollupProgress p where p.id = :id")
+    Optional<RollupProgress> findByIdForUpdate(@Param("id") Integer id);
+}
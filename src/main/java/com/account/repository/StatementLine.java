@@ -0,0 +1,18 @@
+package com.account.repository;
+
+import com.account.dto.TransactionDto;
+import com.account.enums.TransactionType;
+import com.account.model.Money;
+
+import java.time.Instant;
+
+/**
+ * One statement row, created by the query through its constructor. An interface projection would be a
+ * proxy that resolves every getter by reflection on each row.
+ */
+public record StatementLine(Long id, TransactionType type, Money amount, Instant time) {
+
+    public TransactionDto toDto() {
+        return new TransactionDto(id, type, amount.toBigDecimal(), time);
+    }
+}
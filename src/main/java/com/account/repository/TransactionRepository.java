@@ -1,12 +1,76 @@
 package com.account.repository;
 
-import com.account.model.Account;
 import com.account.model.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
-    List<Transaction> findAllByTimeBetweenAndAccount(Instant time, Instant time2, Account account);
+
+    @Query(nativeQuery = true, value = """
+            SELECT COALESCE(SUM(CASE WHEN type = 'DEPOSIT' THEN amount ELSE -amount END), 0)
+            FROM transactions
+            WHERE account_id = :accountId AND time > :fromTime AND time <= :toTime""")
+    BigDecimal sumChanges(@Param("accountId") Long accountId,
+                          @Param("fromTime") Instant fromTime,
+                          @Param("toTime") Instant toTime);
+
+    @Query("""
+            select new com.account.repository.StatementLine(t.id, t.type, t.amount, t.time) from Transaction t
+            where t.account.id = :accountId and t.time between :fromTime and :toTime
+            order by t.time, t.id""")
+    List<StatementLine> findStatement(@Param("accountId") Long accountId,
+                                      @Param("fromTime") Instant fromTime,
+                                      @Param("toTime") Instant toTime);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            select new com.account.repository.StatementLine(t.id, t.type, t.amount, t.time) from Transaction t
+            where t.account.id = :accountId and t.time between :fromTime and :toTime
+            order by t.time, t.id""")
+    Stream<StatementLine> streamStatement(@Param("accountId") Long accountId,
+                                          @Param("fromTime") Instant fromTime,
+                                          @Param("toTime") Instant toTime);
+
+    @Query("""
+            select new com.account.repository.StatementLine(t.id, t.type, t.amount, t.time) from Transaction t
+            where t.account.id = :accountId and t.time between :fromTime and :toTime
+            order by t.time, t.id""")
+    List<StatementLine> findStatementPage(@Param("accountId") Long accountId,
+                                          @Param("fromTime") Instant fromTime,
+                                          @Param("toTime") Instant toTime,
+                                          Limit limit);
+
+    @Query("""
+            select t.time from Transaction t
+            where t.id = :afterId and t.account.id = :accountId and t.time between :fromTime and :toTime""")
+    Optional<Instant> findStatementCursor(@Param("accountId") Long accountId,
+                                          @Param("fromTime") Instant fromTime,
+                                          @Param("toTime") Instant toTime,
+                                          @Param("afterId") Long afterId);
+
+    @Query("""
+            select new com.account.repository.StatementLine(t.id, t.type, t.amount, t.time) from Transaction t
+            where t.account.id = :accountId and t.time between :fromTime and :toTime
+              and (t.time > :afterTime or t.time = :afterTime and t.id > :afterId)
+            order by t.time, t.id""")
+    List<StatementLine> findStatementPageAfter(@Param("accountId") Long accountId,
+                                               @Param("fromTime") Instant fromTime,
+                                               @Param("toTime") Instant toTime,
+                                               @Param("afterTime") Instant afterTime,
+                                               @Param("afterId") Long afterId,
+                                               Limit limit);
 }
@@ -1,24 +1,57 @@
 package com.account.service;
 
 import com.account.dto.AccountDto;
+import com.account.dto.OperationDto;
+import com.account.dto.OperationResultDto;
+import com.account.dto.SummaryDto;
 import com.account.dto.TransactionDto;
+import com.account.enums.OperationStatus;
+import com.account.enums.SummaryGranularity;
 import com.account.enums.TransactionType;
 import com.account.exception.AccountNotFoundException;
+import com.account.exception.BatchRolledBackException;
+import com.account.exception.InvalidCursorException;
 import com.account.exception.NotEnoughMoneyException;
 import com.account.model.Account;
+import com.account.model.Money;
 import com.account.model.Transaction;
+import com.account.model.BalanceSnapshot;
+import com.account.model.DailyRollup;
 import com.account.repository.AccountRepository;
+import com.account.repository.BalanceSnapshotRepository;
+import com.account.repository.DailyRollupRepository;
+import com.account.repository.StatementLine;
 import com.account.repository.TransactionRepository;
+import com.account.service.cache.BalanceCache;
+import com.account.service.concurrency.ConcurrencyStrategy;
+import com.account.service.datasource.ReplicaRead;
+import com.account.service.datasource.ReplicaRouter;
+import com.account.service.feed.BalanceEvent;
+import com.account.service.feed.BalanceFeed;
+import com.account.service.idempotency.IdempotencyService;
+import com.account.service.ledger.LedgerWriter;
+import com.account.service.shard.AccountShardManager;
 import jakarta.transaction.Transactional;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.experimental.FieldDefaults;
-import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Limit;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.DayOfWeek;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @AllArgsConstructor
@@ -26,75 +59,165 @@ import java.util.List;
 public class AccountService {
     AccountRepository accountRepository;
     TransactionRepository transactionRepository;
-    ModelMapper mapper;
+    BalanceSnapshotRepository snapshotRepository;
+    DailyRollupRepository rollupRepository;
+    ConcurrencyStrategy concurrencyStrategy;
+    AccountShardManager shardManager;
+    LedgerWriter ledgerWriter;
+    BalanceCache balanceCache;
+    IdempotencyService idempotencyService;
+    BalanceFeed balanceFeed;
 
+    @Transactional
     public AccountDto createAccount(String owner) {
         var account = new Account();
         account.setOwner(owner);
-        return mapper.map(accountRepository.save(account), AccountDto.class);
+        return idempotencyService.remember(accountRepository.save(account).toDto());
     }
 
     @Transactional
+    @Retryable(interceptor = "concurrencyRetryInterceptor")
     public AccountDto deposit(Long accountId, BigDecimal amount) {
-        var account = getAccount(accountId);
-        synchronized (account) {
-            account.setBalance(account.getBalance().add(amount));
-            createTransaction(account, TransactionType.DEPOSIT, amount);
-            accountRepository.save(account);
-        }
-        return mapper.map(account, AccountDto.class);
+        return idempotencyService.remember(applyDeposit(accountId, Money.of(amount)));
     }
 
     @Transactional
+    @Retryable(interceptor = "concurrencyRetryInterceptor")
     public AccountDto withdraw(Long accountId, BigDecimal amount) {
-        var account = getAccount(accountId);
-        synchronized (account) {
-            if (account.getBalance().compareTo(amount) >= 0) {
-                account.setBalance(account.getBalance().subtract(amount));
-                createTransaction(account, TransactionType.WITHDRAW, amount);
-                accountRepository.save(account);
-            } else {
-                throw new NotEnoughMoneyException(accountId);
-            }
-        }
-        return mapper.map(account, AccountDto.class);
+        return idempotencyService.remember(applyWithdraw(accountId, Money.of(amount)));
     }
 
     @Transactional
+    @Retryable(interceptor = "concurrencyRetryInterceptor")
     public AccountDto transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
-        var sourceAccount = getAccount(fromAccountId);
-        var targetAccount = getAccount(toAccountId);
-
-        Long firstLockId = Math.min(fromAccountId, toAccountId);
-        Long secondLockId = Math.max(fromAccountId, toAccountId);
-
-        synchronized (firstLockId) {
-            synchronized (secondLockId) {
-                if (sourceAccount.getBalance().compareTo(amount) >= 0) {
-                    sourceAccount.setBalance(sourceAccount.getBalance().subtract(amount));
-                    targetAccount.setBalance(targetAccount.getBalance().add(amount));
-                    createTransaction(sourceAccount, TransactionType.WITHDRAW, amount);
-                    createTransaction(targetAccount, TransactionType.DEPOSIT, amount);
-                    accountRepository.saveAll(List.of(sourceAccount, targetAccount));
-                    return mapper.map(sourceAccount, AccountDto.class);
-                } else {
-                    throw new NotEnoughMoneyException(fromAccountId);
+        return idempotencyService.remember(applyTransfer(fromAccountId, toAccountId, Money.of(amount)));
+    }
+
+    @Transactional
+    @Retryable(interceptor = "concurrencyRetryInterceptor")
+    public List<OperationResultDto> executeBatch(List<OperationDto> operations, boolean allOrNothing) {
+        concurrencyStrategy.lockAll(operations.stream()
+                .flatMap(operation -> Stream.of(operation.getAccountId(), operation.getTargetAccountId()))
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(TreeSet::new)));
+
+        var results = new ArrayList<OperationResultDto>(operations.size());
+        for (int i = 0; i < operations.size(); i++) {
+            try {
+                results.add(new OperationResultDto(i, OperationStatus.OK, apply(operations.get(i)), null));
+            } catch (AccountNotFoundException | NotEnoughMoneyException e) {
+                results.add(new OperationResultDto(i, OperationStatus.FAILED, null, e.getMessage()));
+                if (allOrNothing) {
+                    throw new BatchRolledBackException(rollBack(results, operations.size()));
                 }
             }
         }
+        return idempotencyService.remember(results);
+    }
+
+    @Transactional
+    public AccountDto shardAccount(Long accountId, int shards) {
+        balanceCache.evictAfterCommit(accountId);
+        return idempotencyService.remember(shardManager.reshard(accountId, shards).toDto());
     }
 
+    @ReplicaRead
     public BigDecimal getBalance(Long accountId) {
-        var account = getAccount(accountId);
-        return account.getBalance();
+        if (shardManager.isSharded(accountId)) {
+            return shardManager.total(accountId).getBalance().toBigDecimal();
+        }
+        if (ReplicaRouter.isReplicaRead()) {
+            // A replica balance may trail a write the client has already seen, so it is not cached.
+            var cached = balanceCache.getIfPresent(accountId);
+            return (cached != null ? cached : getAccount(accountId).getBalance()).toBigDecimal();
+        }
+        return balanceCache.get(accountId, this::getAccount).toBigDecimal();
     }
 
-    @Transactional
+    /**
+     * Balance after all transactions up to {@code asOf}: the latest snapshot not after {@code asOf}
+     * plus the transactions since it.
+     */
+    @ReplicaRead
+    public BigDecimal getBalance(Long accountId, Instant asOf) {
+        var snapshot = snapshotRepository.findFirstByAccountIdAndTimeLessThanEqualOrderByTimeDesc(accountId, asOf);
+        if (snapshot.isEmpty()) {
+            checkAccountExists(accountId);
+        }
+        var changes = transactionRepository.sumChanges(accountId,
+                snapshot.map(BalanceSnapshot::getTime).orElse(Instant.EPOCH), asOf);
+        return snapshot.map(BalanceSnapshot::getBalance).orElse(BigDecimal.ZERO).add(changes);
+    }
+
+    /**
+     * Deposit and withdrawal totals per period between {@code from} and {@code to} inclusive, read from
+     * the daily rollups only.
+     */
+    @ReplicaRead
+    public List<SummaryDto> getSummary(Long accountId, LocalDate from, LocalDate to, SummaryGranularity granularity) {
+        var rollups = rollupRepository.findAllByAccountIdAndDayBetweenOrderByDay(accountId, from, to);
+        if (rollups.isEmpty()) {
+            checkAccountExists(accountId);
+        }
+        var periods = new TreeMap<LocalDate, SummaryDto>();
+        for (var rollup : rollups) {
+            var summary = periods.computeIfAbsent(periodStart(rollup.getDay(), granularity),
+                    period -> new SummaryDto(period, BigDecimal.ZERO, 0, BigDecimal.ZERO, 0));
+            addRollup(summary, rollup);
+        }
+        return List.copyOf(periods.values());
+    }
+
+    @ReplicaRead
     public List<TransactionDto> getTransactions(Long id, Instant fromTime, Instant toTime) {
-        var account = getAccount(id);
-        return transactionRepository.findAllByTimeBetweenAndAccount(fromTime, toTime, account).stream()
-                .map(t -> mapper.map(t, TransactionDto.class))
-                .toList();
+        return toStatement(id, transactionRepository.findStatement(id, fromTime, toTime));
+    }
+
+    /**
+     * Page of the statement that starts after the operation {@code afterId}. The operation must belong
+     * to the account and the period, otherwise the cursor is rejected instead of answering with an
+     * empty page.
+     */
+    @ReplicaRead
+    public List<TransactionDto> getTransactions(Long id, Instant fromTime, Instant toTime, Long afterId, int limit) {
+        if (afterId == null) {
+            return toStatement(id, transactionRepository.findStatementPage(id, fromTime, toTime, Limit.of(limit)));
+        }
+        var afterTime = transactionRepository.findStatementCursor(id, fromTime, toTime, afterId)
+                .orElseThrow(() -> new InvalidCursorException(id, afterId));
+        return toStatement(id, transactionRepository.findStatementPageAfter(id, fromTime, toTime, afterTime, afterId,
+                Limit.of(limit)));
+    }
+
+    /**
+     * Passes the statement to {@code consumer} row by row in time order. Rows are read through a
+     * database cursor as unmanaged projections, so memory use does not depend on the period.
+     */
+    @ReplicaRead
+    @Transactional
+    public void streamTransactions(Long id, Instant fromTime, Instant toTime, Consumer<TransactionDto> consumer) {
+        try (var lines = transactionRepository.streamStatement(id, fromTime, toTime)) {
+            lines.forEach(line -> consumer.accept(line.toDto()));
+        }
+    }
+
+    /**
+     * Current balance of the account as the first event of a balance feed. It is read from the primary,
+     * since an older balance from the replica would be dropped by the subscriber after a newer event.
+     */
+    public BalanceEvent getBalanceEvent(Long accountId) {
+        if (shardManager.isSharded(accountId)) {
+            return BalanceEvent.current(accountId, shardManager.total(accountId).getBalance(), null);
+        }
+        var account = getAccount(accountId);
+        return BalanceEvent.current(accountId, account.getBalance(), account.getVersion());
+    }
+
+    @ReplicaRead
+    public void checkAccountExists(Long accountId) {
+        if (!accountRepository.existsById(accountId)) {
+            throw new AccountNotFoundException(accountId);
+        }
     }
 
     public Account getAccount(Long accountId) {
@@ -102,12 +225,96 @@ public class AccountService {
                 .orElseThrow(() -> new AccountNotFoundException(accountId));
     }
 
-    private void createTransaction(Account account, TransactionType type, BigDecimal amount) {
+    private AccountDto apply(OperationDto operation) {
+        var amount = Money.of(operation.getAmount());
+        return switch (operation.getType()) {
+            case DEPOSIT -> applyDeposit(operation.getAccountId(), amount);
+            case WITHDRAW -> applyWithdraw(operation.getAccountId(), amount);
+            case TRANSFER -> applyTransfer(operation.getAccountId(), operation.getTargetAccountId(), amount);
+        };
+    }
+
+    private AccountDto applyDeposit(Long accountId, Money amount) {
+        var account = concurrencyStrategy.deposit(accountId, amount);
+        updateCache(account);
+        createTransaction(account, TransactionType.DEPOSIT, amount);
+        return account.toDto();
+    }
+
+    private AccountDto applyWithdraw(Long accountId, Money amount) {
+        var account = concurrencyStrategy.withdraw(accountId, amount);
+        updateCache(account);
+        createTransaction(account, TransactionType.WITHDRAW, amount);
+        return account.toDto();
+    }
+
+    private AccountDto applyTransfer(Long fromAccountId, Long toAccountId, Money amount) {
+        var transfer = concurrencyStrategy.transfer(fromAccountId, toAccountId, amount);
+        updateCache(transfer.source());
+        updateCache(transfer.target());
+        createTransaction(transfer.source(), TransactionType.WITHDRAW, amount);
+        createTransaction(transfer.target(), TransactionType.DEPOSIT, amount);
+        return transfer.source().toDto();
+    }
+
+    private List<TransactionDto> toStatement(Long accountId, List<StatementLine> lines) {
+        if (lines.isEmpty()) {
+            checkAccountExists(accountId);
+        }
+        return lines.stream()
+                .map(StatementLine::toDto)
+                .toList();
+    }
+
+    private static LocalDate periodStart(LocalDate day, SummaryGranularity granularity) {
+        return switch (granularity) {
+            case DAY -> day;
+            case WEEK -> day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+            case MONTH -> day.withDayOfMonth(1);
+        };
+    }
+
+    private static void addRollup(SummaryDto summary, DailyRollup rollup) {
+        switch (rollup.getType()) {
+            case DEPOSIT -> {
+                summary.setDeposits(summary.getDeposits().add(rollup.getTotal()));
+                summary.setDepositCount(summary.getDepositCount() + rollup.getCount());
+            }
+            case WITHDRAW -> {
+                summary.setWithdrawals(summary.getWithdrawals().add(rollup.getTotal()));
+                summary.setWithdrawalCount(summary.getWithdrawalCount() + rollup.getCount());
+            }
+        }
+    }
+
+    private static List<OperationResultDto> rollBack(List<OperationResultDto> results, int size) {
+        var rolledBack = new ArrayList<OperationResultDto>(size);
+        for (var result : results) {
+            rolledBack.add(result.getStatus() == OperationStatus.FAILED
+                    ? result
+                    : new OperationResultDto(result.getIndex(), OperationStatus.ROLLED_BACK, null, null));
+        }
+        for (int i = results.size(); i < size; i++) {
+            rolledBack.add(new OperationResultDto(i, OperationStatus.ROLLED_BACK, null, null));
+        }
+        return rolledBack;
+    }
+
+    private void updateCache(Account account) {
+        if (shardManager.isSharded(account.getId())) {
+            balanceCache.evictAfterCommit(account.getId());
+        } else {
+            balanceCache.updateAfterCommit(account);
+        }
+    }
+
+    private void createTransaction(Account account, TransactionType type, Money amount) {
         var transaction = new Transaction();
         transaction.setAccount(account);
         transaction.setType(type);
         transaction.setAmount(amount);
         transaction.setTime(Instant.now());
-        transactionRepository.save(transaction);
+        ledgerWriter.append(transaction);
+        balanceFeed.publishAfterCommit(transaction, shardManager.isSharded(account.getId()));
     }
 }
@@ -0,0 +1,207 @@
+package com.account.service.admission;
+
+import com.account.config.AccountProperties;
+import com.account.exception.AccountOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounds the mutating operations of one account that run at the same time, so that a hot account cannot
+ * tie up every request thread and database connection waiting on its row.
+ * <p>
+ * Up to {@code account.admission.max-in-flight} operations of an account run at once and up to
+ * {@code account.admission.queue-size} more wait in FIFO order, for at most
+ * {@code account.admission.timeout}. A caller beyond the queue is rejected at once with
+ * {@link AccountOverloadedException}, and so is a caller that waited out the timeout. Both limits can be
+ * overridden for single accounts under {@code account.admission.accounts.<id>}.
+ * <p>
+ * Operations on several accounts are admitted to them in ascending id order, so two transfers in opposite
+ * directions cannot hold each other up. State is kept only for accounts with running or waiting operations.
+ */
+public class AccountAdmissionLimiter {
+    private final Map<Long, Slot> slots = new ConcurrentHashMap<>();
+    private final int maxInFlight;
+    private final int queueSize;
+    private final Map<Long, AccountProperties.AccountAdmission> overrides;
+    private final long timeoutNanos;
+    private final Duration retryAfter;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Counter queueFullCounter;
+    private final Counter timeoutCounter;
+
+    public AccountAdmissionLimiter(AccountProperties properties, MeterRegistry meterRegistry) {
+        var admission = properties.getAdmission();
+        this.maxInFlight = admission.getMaxInFlight();
+        this.queueSize = admission.getQueueSize();
+        this.overrides = Map.copyOf(admission.getAccounts());
+        this.timeoutNanos = admission.getTimeout().toNanos();
+        this.retryAfter = admission.getRetryAfter();
+        checkLimits(maxInFlight, queueSize, "account.admission");
+        overrides.forEach((accountId, limit) -> checkLimits(maxInFlight(accountId), queueSize(accountId),
+                "account.admission.accounts." + accountId));
+        this.waitTimer = Timer.builder("account.admission.wait")
+                .description("Time spent queued behind other operations of the same account")
+                .register(meterRegistry);
+        this.queueFullCounter = rejected(meterRegistry, "queue-full");
+        this.timeoutCounter = rejected(meterRegistry, "timeout");
+        Gauge.builder("account.admission.in-flight", inFlight, AtomicInteger::get)
+                .description("Admitted account operations still running")
+                .register(meterRegistry);
+        Gauge.builder("account.admission.queued", queued, AtomicInteger::get)
+                .description("Account operations queued behind operations of the same account")
+                .register(meterRegistry);
+        Gauge.builder("account.admission.accounts", slots, Map::size)
+                .description("Accounts with running or queued operations")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Admits an operation on the given accounts; null ids are skipped. The returned permit has to be
+     * closed when the operation is over.
+     */
+    public Permit admit(Long... accountIds) {
+        long[] ids = Arrays.stream(accountIds)
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue)
+                .distinct()
+                .sorted()
+                .toArray();
+        long deadline = System.nanoTime() + timeoutNanos;
+        var permit = new Permit(ids);
+        try {
+            for (int i = 0; i < ids.length; i++) {
+                permit.slots[i] = enter(ids[i], deadline);
+                permit.admitted++;
+            }
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+        return permit;
+    }
+
+    int maxInFlight(Long accountId) {
+        var limit = overrides.get(accountId);
+        return limit == null || limit.getMaxInFlight() == null ? maxInFlight : limit.getMaxInFlight();
+    }
+
+    int queueSize(Long accountId) {
+        var limit = overrides.get(accountId);
+        return limit == null || limit.getQueueSize() == null ? queueSize : limit.getQueueSize();
+    }
+
+    private Slot enter(long accountId, long deadline) {
+        var entered = new boolean[1];
+        var slot = slots.compute(accountId, (id, current) -> {
+            var next = current == null ? new Slot(maxInFlight(id), queueSize(id)) : current;
+            if (next.users < next.capacity) {
+                next.users++;
+                entered[0] = true;
+            }
+            return next;
+        });
+        if (!entered[0]) {
+            queueFullCounter.increment();
+            throw new AccountOverloadedException(accountId, retryAfter);
+        }
+        if (!acquire(slot, deadline)) {
+            leave(accountId);
+            timeoutCounter.increment();
+            throw new AccountOverloadedException(accountId, retryAfter);
+        }
+        inFlight.incrementAndGet();
+        return slot;
+    }
+
+    /**
+     * A zero timeout rather than {@link Semaphore#tryAcquire()}, which would overtake the queue.
+     */
+    private boolean acquire(Slot slot, long deadline) {
+        try {
+            if (slot.permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+            queued.incrementAndGet();
+            long start = System.nanoTime();
+            try {
+                return slot.permits.tryAcquire(deadline - start, TimeUnit.NANOSECONDS);
+            } finally {
+                queued.decrementAndGet();
+                waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void leave(long accountId) {
+        slots.computeIfPresent(accountId, (id, slot) -> --slot.users == 0 ? null : slot);
+    }
+
+    private static Counter rejected(MeterRegistry meterRegistry, String reason) {
+        return Counter.builder("account.admission.rejected")
+                .description("Account operations rejected with 429 Too Many Requests")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+    private static void checkLimits(int maxInFlight, int queueSize, String prefix) {
+        if (maxInFlight <= 0) {
+            throw new IllegalArgumentException(prefix + ".max-in-flight must be positive");
+        }
+        if (queueSize < 0) {
+            throw new IllegalArgumentException(prefix + ".queue-size must not be negative");
+        }
+    }
+
+    /**
+     * Running and queued operations of one account. {@code users} only changes inside
+     * {@link ConcurrentHashMap#compute}, which serializes it per account, and the slot leaves the map with
+     * its last user.
+     */
+    private static final class Slot {
+        private final Semaphore permits;
+        private final int capacity;
+        private int users;
+
+        private Slot(int maxInFlight, int queueSize) {
+            this.permits = new Semaphore(maxInFlight, true);
+            this.capacity = maxInFlight + queueSize;
+        }
+    }
+
+    public final class Permit implements AutoCloseable {
+        private final long[] accountIds;
+        private final Slot[] slots;
+        private int admitted;
+
+        private Permit(long[] accountIds) {
+            this.accountIds = accountIds;
+            this.slots = new Slot[accountIds.length];
+        }
+
+        @Override
+        public void close() {
+            while (admitted > 0) {
+                admitted--;
+                slots[admitted].permits.release();
+                inFlight.decrementAndGet();
+                leave(accountIds[admitted]);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.account.service.bulk;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Command line mode of the {@code bulk} profile, which runs one command without the web server and the
+ * scheduled jobs and exits:
+ * <pre>
+ * java -jar account.jar --spring.profiles.active=bulk export transactions.csv.gz \
+ *     --from=2024-05-01T00:00:00Z --to=2024-06-01T00:00:00Z [--accounts=1,2,3]
+ * java -jar account.jar --spring.profiles.active=bulk import-accounts accounts.csv
+ * java -jar account.jar --spring.profiles.active=bulk import-transactions transactions.csv.gz
+ * </pre>
+ * Files ending in {@code .gz} are compressed and decompressed on the fly. An export is written next to
+ * its target and moved into place once complete.
+ */
+@Slf4j
+public class BulkCommandRunner implements ApplicationRunner {
+    private static final String USAGE =
+            "Usage: export <file> --from=<instant> --to=<instant> [--accounts=<id,...>] | import-accounts <file>"
+                    + " | import-transactions <file>";
+
+    private final BulkCopyService bulkCopyService;
+
+    public BulkCommandRunner(BulkCopyService bulkCopyService) {
+        this.bulkCopyService = bulkCopyService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        var command = args.getNonOptionArgs();
+        if (command.size() != 2) {
+            throw new IllegalArgumentException(USAGE);
+        }
+        var file = Path.of(command.get(1));
+        switch (command.get(0)) {
+            case "export" -> export(file, Instant.parse(option(args, "from")), Instant.parse(option(args, "to")),
+                    accounts(args));
+            case "import-accounts" -> {
+                try (var in = open(file)) {
+                    bulkCopyService.importAccounts(in);
+                }
+            }
+            case "import-transactions" -> {
+                try (var in = open(file)) {
+                    bulkCopyService.importTransactions(in);
+                }
+            }
+            default -> throw new IllegalArgumentException(USAGE);
+        }
+    }
+
+    private void export(Path file, Instant fromTime, Instant toTime, List<Long> accountIds) throws IOException {
+        var temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var out = create(temp, isCompressed(file))) {
+            bulkCopyService.exportTransactions(accountIds, fromTime, toTime, out);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        log.info("Export written to {}", file);
+    }
+
+    private static InputStream open(Path file) throws IOException {
+        var in = Files.newInputStream(file);
+        return isCompressed(file) ? new GZIPInputStream(in, 64 * 1024) : in;
+    }
+
+    private static OutputStream create(Path file, boolean compressed) throws IOException {
+        var out = Files.newOutputStream(file);
+        return compressed ? new GZIPOutputStream(out, 64 * 1024) : out;
+    }
+
+    private static boolean isCompressed(Path file) {
+        return file.getFileName().toString().endsWith(".gz");
+    }
+
+    private static List<Long> accounts(ApplicationArguments args) {
+        var values = args.getOptionValues("accounts");
+        if (values == null) {
+            return List.of();
+        }
+        return values.stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .map(Long::valueOf)
+                .toList();
+    }
+
+    private static String option(ApplicationArguments args, String name) {
+        var values = args.getOptionValues(name);
+        if (values == null || values.size() != 1) {
+            throw new IllegalArgumentException(USAGE);
+        }
+        return values.get(0);
+    }
+}
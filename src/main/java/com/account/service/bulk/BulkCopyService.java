@@ -0,0 +1,136 @@
+package com.account.service.bulk;
+
+import com.account.exception.InvalidPeriodException;
+import com.account.service.datasource.ReplicaRead;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Moves the ledger in and out of the database over the COPY protocol of PostgreSQL, which streams rows
+ * without a statement or a result set per row.
+ * <p>
+ * An export runs {@code COPY (SELECT ...) TO STDOUT} and writes the CSV rows into the given stream as
+ * the server sends them, so memory use does not depend on the size of the export. An import reads CSV in
+ * the same layout, header included, with {@code COPY ... FROM STDIN} in one transaction, and moves the id
+ * sequence past the imported ids so that rows created later do not collide with them.
+ * <p>
+ * Imports are meant for migrations. They bypass the balance cache and the ledger engine, do not check
+ * imported balances against imported ledger lines, and are only picked up by rollups and snapshots that
+ * have not passed the imported period yet, so they should run before the service is first started. When
+ * {@code transactions} is partitioned, the partitions of the imported months have to exist.
+ */
+@Slf4j
+public class BulkCopyService {
+    public static final String ACCOUNT_COLUMNS = "id, owner, balance, version";
+    public static final String TRANSACTION_COLUMNS = "id, account_id, type, amount, time";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String ADVANCE_SEQUENCE = """
+            SELECT setval('%1$s_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM %1$s),
+                                               (SELECT last_value FROM %1$s_seq)))""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BulkCopyService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Writes the transactions from {@code fromTime} inclusive to {@code toTime} exclusive as CSV, ordered
+     * by account and time. An empty {@code accountIds} exports every account.
+     *
+     * @return the number of exported transactions
+     */
+    @ReplicaRead
+    public long exportTransactions(Collection<Long> accountIds, Instant fromTime, Instant toTime, OutputStream out) {
+        var query = exportQuery(accountIds, fromTime, toTime);
+        long start = System.nanoTime();
+        var buffered = new BufferedOutputStream(out, BUFFER_SIZE);
+        long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                long copied = connection.unwrap(PGConnection.class).getCopyAPI().copyOut(query, buffered);
+                buffered.flush();
+                return copied;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        log.info("Exported {} transactions from {} to {} in {} ms", rows, fromTime, toTime,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return rows;
+    }
+
+    /**
+     * Loads accounts as CSV with the columns {@value #ACCOUNT_COLUMNS}.
+     *
+     * @return the number of imported accounts
+     */
+    @Transactional
+    public long importAccounts(InputStream in) {
+        return copyIn("accounts", ACCOUNT_COLUMNS, in);
+    }
+
+    /**
+     * Loads ledger lines as CSV with the columns {@value #TRANSACTION_COLUMNS}, the layout of
+     * {@link #exportTransactions}. Account balances are left as they are.
+     *
+     * @return the number of imported transactions
+     */
+    @Transactional
+    public long importTransactions(InputStream in) {
+        return copyIn("transactions", TRANSACTION_COLUMNS, in);
+    }
+
+    public static void checkPeriod(Instant fromTime, Instant toTime) {
+        if (!fromTime.isBefore(toTime)) {
+            throw new InvalidPeriodException(fromTime, toTime);
+        }
+    }
+
+    /**
+     * COPY takes no bind parameters, so the filter is written into the query. Only numbers and
+     * {@link Instant#toString()} end up in it.
+     */
+    static String exportQuery(Collection<Long> accountIds, Instant fromTime, Instant toTime) {
+        checkPeriod(fromTime, toTime);
+        var accounts = accountIds == null || accountIds.isEmpty() ? "" : accountIds.stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(", ", " AND account_id IN (", ")"));
+        return """
+                COPY (SELECT %s FROM transactions
+                      WHERE time >= TIMESTAMPTZ '%s' AND time < TIMESTAMPTZ '%s'%s
+                      ORDER BY account_id, time, id) TO STDOUT WITH (FORMAT csv, HEADER)"""
+                .formatted(TRANSACTION_COLUMNS, fromTime, toTime, accounts);
+    }
+
+    private long copyIn(String table, String columns, InputStream in) {
+        long start = System.nanoTime();
+        long rows = jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(
+                        "COPY %s (%s) FROM STDIN WITH (FORMAT csv, HEADER)".formatted(table, columns),
+                        new BufferedInputStream(in, BUFFER_SIZE));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        jdbcTemplate.execute(ADVANCE_SEQUENCE.formatted(table));
+        log.info("Imported {} rows into {} in {} ms", rows, table,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return rows;
+    }
+}
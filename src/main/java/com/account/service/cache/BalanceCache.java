@@ -0,0 +1,147 @@
+package com.account.service.cache;
+
+import com.account.config.AccountProperties;
+import com.account.model.Account;
+import com.account.model.Money;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Bounded in-process cache of committed account balances, evicted by size and by
+ * {@code account.cache.ttl}.
+ * <p>
+ * Every entry carries the version of the {@code accounts} row it was read from, and an entry is only
+ * replaced by a higher version, so a read that loaded the row before a concurrent commit cannot
+ * overwrite the balance published by that commit. Balances changed in a transaction are published
+ * after it commits and announced on the {@link BalanceInvalidationChannel}.
+ */
+public class BalanceCache {
+    private final Cache<Long, CachedBalance> cache;
+    private final BalanceInvalidationChannel channel;
+    private final boolean enabled;
+
+    public BalanceCache(AccountProperties properties, BalanceInvalidationChannel channel, MeterRegistry meterRegistry) {
+        var cacheProperties = properties.getCache();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(cacheProperties.getMaximumSize())
+                .expireAfterWrite(cacheProperties.getTtl())
+                .recordStats()
+                .build();
+        this.channel = channel;
+        this.enabled = cacheProperties.isEnabled();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "balances");
+        channel.subscribe(this::onInvalidation);
+    }
+
+    public Money get(Long accountId, Function<Long, Account> loader) {
+        if (!enabled) {
+            return loader.apply(accountId).getBalance();
+        }
+        var cached = cache.getIfPresent(accountId);
+        if (cached != null) {
+            return cached.balance();
+        }
+        var account = loader.apply(accountId);
+        put(accountId, account.getBalance(), account.getVersion());
+        return account.getBalance();
+    }
+
+    /**
+     * Cached balance of the account, or {@code null} when it has to be loaded.
+     */
+    public Money getIfPresent(Long accountId) {
+        if (!enabled) {
+            return null;
+        }
+        var cached = cache.getIfPresent(accountId);
+        return cached == null ? null : cached.balance();
+    }
+
+    /**
+     * Caches the balance of an account loaded outside of {@link #get(Long, Function)}.
+     */
+    public void put(Account account) {
+        if (enabled) {
+            put(account.getId(), account.getBalance(), account.getVersion());
+        }
+    }
+
+    /**
+     * Publishes the balance and version of {@code account} once the current transaction commits. The
+     * account is read at that point, so versions incremented by the commit flush are included.
+     */
+    public void updateAfterCommit(Account account) {
+        afterCommit(account.getId(), account);
+    }
+
+    public void evictAfterCommit(Long accountId) {
+        afterCommit(accountId, null);
+    }
+
+    private void afterCommit(Long accountId, Account account) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(accountId, account);
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        var pending = (Map<Long, Account>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            var changes = new LinkedHashMap<Long, Account>();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changes.forEach(BalanceCache.this::apply);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(BalanceCache.this);
+                }
+            });
+            pending = changes;
+        }
+        pending.put(accountId, account);
+    }
+
+    private void apply(Long accountId, Account account) {
+        if (account == null || account.getVersion() == null) {
+            cache.invalidate(accountId);
+            channel.publish(new BalanceInvalidation(accountId, null));
+        } else {
+            put(accountId, account.getBalance(), account.getVersion());
+            channel.publish(new BalanceInvalidation(accountId, account.getVersion()));
+        }
+    }
+
+    private void put(Long accountId, Money balance, Long version) {
+        if (version == null) {
+            return;
+        }
+        cache.asMap().merge(accountId, new CachedBalance(balance, version),
+                (cached, loaded) -> loaded.version() > cached.version() ? loaded : cached);
+    }
+
+    private void onInvalidation(BalanceInvalidation invalidation) {
+        if (invalidation.version() == null) {
+            cache.invalidate(invalidation.accountId());
+        } else {
+            cache.asMap().computeIfPresent(invalidation.accountId(),
+                    (id, cached) -> cached.version() < invalidation.version() ? null : cached);
+        }
+    }
+
+    private record CachedBalance(Money balance, long version) {
+    }
+}
@@ -0,0 +1,8 @@
+package com.account.service.cache;
+
+/**
+ * Announces that the balance of an account changed. Caches drop entries older than {@code version};
+ * a {@code null} version drops the entry unconditionally.
+ */
+public record BalanceInvalidation(Long accountId, Long version) {
+}
@@ -0,0 +1,22 @@
+package com.account.service.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries {@link BalanceInvalidation} messages between the balance caches of all nodes.
+ */
+public interface BalanceInvalidationChannel {
+    BalanceInvalidationChannel NONE = new BalanceInvalidationChannel() {
+        @Override
+        public void publish(BalanceInvalidation invalidation) {
+        }
+
+        @Override
+        public void subscribe(Consumer<BalanceInvalidation> listener) {
+        }
+    };
+
+    void publish(BalanceInvalidation invalidation);
+
+    void subscribe(Consumer<BalanceInvalidation> listener);
+}
@@ -0,0 +1,23 @@
+package com.account.service.cache;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers invalidations synchronously to every subscriber in this JVM. Stands in for a broker when
+ * several caches share one process, as in tests.
+ */
+public class LocalBalanceInvalidationChannel implements BalanceInvalidationChannel {
+    private final List<Consumer<BalanceInvalidation>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(BalanceInvalidation invalidation) {
+        listeners.forEach(listener -> listener.accept(invalidation));
+    }
+
+    @Override
+    public void subscribe(Consumer<BalanceInvalidation> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,77 @@
+package com.account.service.concurrency;
+
+import com.account.exception.AccountNotFoundException;
+import com.account.exception.NotEnoughMoneyException;
+import com.account.model.Account;
+import com.account.model.Money;
+import com.account.repository.AccountRepository;
+import com.account.repository.AccountView;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Collection;
+
+/**
+ * Changes the balance with a single conditional {@code UPDATE ... RETURNING} per account, so the row lock
+ * is held by the database only for the statement's transaction and no entity is loaded. An empty result
+ * of the debit means the account is missing or short of money. Transfer statements are issued in id order,
+ * and when the second one fails the first is undone on the still locked row, so a batch that goes on
+ * after the failure does not commit half a transfer. Requires PostgreSQL.
+ */
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class AtomicUpdateConcurrencyStrategy implements ConcurrencyStrategy {
+    AccountRepository accountRepository;
+
+    @Override
+    public Account deposit(Long accountId, Money amount) {
+        return credit(accountId, amount);
+    }
+
+    @Override
+    public Account withdraw(Long accountId, Money amount) {
+        return debit(accountId, amount);
+    }
+
+    @Override
+    public Transfer transfer(Long fromAccountId, Long toAccountId, Money amount) {
+        if (fromAccountId <= toAccountId) {
+            var sourceAccount = debit(fromAccountId, amount);
+            Account targetAccount;
+            try {
+                targetAccount = credit(toAccountId, amount);
+            } catch (AccountNotFoundException e) {
+                credit(fromAccountId, amount);
+                throw e;
+            }
+            return new Transfer(fromAccountId.equals(toAccountId) ? targetAccount : sourceAccount, targetAccount);
+        }
+        var targetAccount = credit(toAccountId, amount);
+        try {
+            return new Transfer(debit(fromAccountId, amount), targetAccount);
+        } catch (AccountNotFoundException | NotEnoughMoneyException e) {
+            debit(toAccountId, amount);
+            throw e;
+        }
+    }
+
+    @Override
+    public void lockAll(Collection<Long> accountIds) {
+        accountRepository.lockAllById(accountIds);
+    }
+
+    private Account credit(Long accountId, Money amount) {
+        return accountRepository.credit(accountId, amount.toBigDecimal())
+                .map(AccountView::toAccount)
+                .orElseThrow(() -> new AccountNotFoundException(accountId));
+    }
+
+    private Account debit(Long accountId, Money amount) {
+        return accountRepository.debit(accountId, amount.toBigDecimal())
+                .map(AccountView::toAccount)
+                .orElseThrow(() -> accountRepository.existsById(accountId)
+                        ? new NotEnoughMoneyException(accountId)
+                        : new AccountNotFoundException(accountId));
+    }
+}
@@ -0,0 +1,29 @@
+package com.account.service.concurrency;
+
+import com.account.model.Account;
+import com.account.model.Money;
+
+import java.util.Collection;
+
+/**
+ * Applies a balance change so that concurrent operations on the same account cannot lose updates
+ * or overdraw it. Implementations run inside the caller's transaction and return the updated accounts.
+ */
+public interface ConcurrencyStrategy {
+
+    Account deposit(Long accountId, Money amount);
+
+    Account withdraw(Long accountId, Money amount);
+
+    Transfer transfer(Long fromAccountId, Long toAccountId, Money amount);
+
+    /**
+     * Locks every account a multi-operation unit of work will touch, in id order, until the
+     * surrounding transaction completes.
+     */
+    default void lockAll(Collection<Long> accountIds) {
+    }
+
+    record Transfer(Account source, Account target) {
+    }
+}
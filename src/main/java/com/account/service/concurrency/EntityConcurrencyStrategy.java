@@ -0,0 +1,73 @@
+package com.account.service.concurrency;
+
+import com.account.exception.AccountNotFoundException;
+import com.account.exception.NotEnoughMoneyException;
+import com.account.model.Account;
+import com.account.model.Money;
+import com.account.repository.AccountRepository;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+/**
+ * Read-modify-write of the {@link Account} entity. Subclasses decide how the rows are guarded
+ * between the read and the write.
+ */
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PROTECTED, makeFinal = true)
+public abstract class EntityConcurrencyStrategy implements ConcurrencyStrategy {
+    AccountRepository accountRepository;
+
+    @Override
+    public Account deposit(Long accountId, Money amount) {
+        var account = findAccount(accountId);
+        account.setBalance(account.getBalance().plus(amount));
+        save(List.of(account));
+        return account;
+    }
+
+    @Override
+    public Account withdraw(Long accountId, Money amount) {
+        var account = findAccount(accountId);
+        if (account.getBalance().isLessThan(amount)) {
+            throw new NotEnoughMoneyException(accountId);
+        }
+        account.setBalance(account.getBalance().minus(amount));
+        save(List.of(account));
+        return account;
+    }
+
+    @Override
+    public Transfer transfer(Long fromAccountId, Long toAccountId, Money amount) {
+        var transfer = findAccounts(fromAccountId, toAccountId);
+        var sourceAccount = transfer.source();
+        var targetAccount = transfer.target();
+        if (sourceAccount.getBalance().isLessThan(amount)) {
+            throw new NotEnoughMoneyException(fromAccountId);
+        }
+        sourceAccount.setBalance(sourceAccount.getBalance().minus(amount));
+        targetAccount.setBalance(targetAccount.getBalance().plus(amount));
+        save(List.of(sourceAccount, targetAccount));
+        return transfer;
+    }
+
+    protected Account findAccount(Long accountId) {
+        return accountRepository.findById(accountId)
+                .orElseThrow(() -> new AccountNotFoundException(accountId));
+    }
+
+    protected Transfer findAccounts(Long fromAccountId, Long toAccountId) {
+        if (fromAccountId <= toAccountId) {
+            var sourceAccount = findAccount(fromAccountId);
+            return new Transfer(sourceAccount, findAccount(toAccountId));
+        }
+        var targetAccount = findAccount(toAccountId);
+        return new Transfer(findAccount(fromAccountId), targetAccount);
+    }
+
+    protected void save(List<Account> accounts) {
+        accountRepository.saveAll(accounts);
+    }
+}
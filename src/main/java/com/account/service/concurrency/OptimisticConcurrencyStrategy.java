@@ -0,0 +1,22 @@
+package com.account.service.concurrency;
+
+import com.account.model.Account;
+import com.account.repository.AccountRepository;
+
+import java.util.List;
+
+/**
+ * Relies on {@code Account.version}. Changes are flushed right away so a concurrent update fails
+ * before any ledger rows are written, and the caller retries the whole transaction.
+ */
+public class OptimisticConcurrencyStrategy extends EntityConcurrencyStrategy {
+
+    public OptimisticConcurrencyStrategy(AccountRepository accountRepository) {
+        super(accountRepository);
+    }
+
+    @Override
+    protected void save(List<Account> accounts) {
+        accountRepository.saveAllAndFlush(accounts);
+    }
+}
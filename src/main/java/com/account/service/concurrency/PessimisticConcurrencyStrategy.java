@@ -0,0 +1,43 @@
+package com.account.service.concurrency;
+
+import com.account.exception.AccountNotFoundException;
+import com.account.model.Account;
+import com.account.repository.AccountRepository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Takes {@code SELECT ... FOR UPDATE} row locks. Both rows of a transfer are locked by one query
+ * in id order, so opposite transfers cannot deadlock.
+ */
+public class PessimisticConcurrencyStrategy extends EntityConcurrencyStrategy {
+
+    public PessimisticConcurrencyStrategy(AccountRepository accountRepository) {
+        super(accountRepository);
+    }
+
+    @Override
+    public void lockAll(Collection<Long> accountIds) {
+        accountRepository.lockAllById(accountIds);
+    }
+
+    @Override
+    protected Account findAccount(Long accountId) {
+        return accountRepository.findByIdForUpdate(accountId)
+                .orElseThrow(() -> new AccountNotFoundException(accountId));
+    }
+
+    @Override
+    protected Transfer findAccounts(Long fromAccountId, Long toAccountId) {
+        var accounts = accountRepository.findAllByIdForUpdate(List.of(fromAccountId, toAccountId));
+        return new Transfer(pick(accounts, fromAccountId), pick(accounts, toAccountId));
+    }
+
+    private static Account pick(List<Account> accounts, Long accountId) {
+        return accounts.stream()
+                .filter(account -> account.getId().equals(accountId))
+                .findFirst()
+                .orElseThrow(() -> new AccountNotFoundException(accountId));
+    }
+}
@@ -0,0 +1,102 @@
+package com.account.service.concurrency;
+
+import com.account.exception.AccountNotFoundException;
+import com.account.exception.NotEnoughMoneyException;
+import com.account.model.Account;
+import com.account.model.Money;
+import com.account.service.shard.AccountShardManager;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.util.Collection;
+
+/**
+ * Sends operations on sharded accounts to {@link AccountShardManager} and everything else to the
+ * configured strategy.
+ */
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ShardedConcurrencyStrategy implements ConcurrencyStrategy {
+    ConcurrencyStrategy delegate;
+    AccountShardManager shardManager;
+
+    @Override
+    public Account deposit(Long accountId, Money amount) {
+        return shardManager.isSharded(accountId)
+                ? shardManager.credit(accountId, amount)
+                : delegate.deposit(accountId, amount);
+    }
+
+    @Override
+    public Account withdraw(Long accountId, Money amount) {
+        if (shardManager.isSharded(accountId)) {
+            return shardManager.debit(accountId, amount);
+        }
+        try {
+            return delegate.withdraw(accountId, amount);
+        } catch (NotEnoughMoneyException e) {
+            shardManager.invalidate();
+            if (shardManager.isSharded(accountId)) {
+                return shardManager.debit(accountId, amount);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Transfer transfer(Long fromAccountId, Long toAccountId, Money amount) {
+        if (!shardManager.isSharded(fromAccountId) && !shardManager.isSharded(toAccountId)) {
+            return delegate.transfer(fromAccountId, toAccountId, amount);
+        }
+        if (fromAccountId <= toAccountId) {
+            var sourceAccount = withdraw(fromAccountId, amount);
+            Account targetAccount;
+            try {
+                targetAccount = credit(toAccountId, amount);
+            } catch (AccountNotFoundException e) {
+                credit(fromAccountId, amount);
+                throw e;
+            }
+            return new Transfer(fromAccountId.equals(toAccountId) ? shardManager.total(toAccountId) : sourceAccount,
+                    targetAccount);
+        }
+        var targetAccount = credit(toAccountId, amount);
+        try {
+            return new Transfer(withdraw(fromAccountId, amount), targetAccount);
+        } catch (AccountNotFoundException | NotEnoughMoneyException e) {
+            debit(toAccountId, amount);
+            throw e;
+        }
+    }
+
+    /**
+     * Deposit leg of a transfer: the caller only needs the target as a ledger reference.
+     */
+    private Account credit(Long accountId, Money amount) {
+        if (shardManager.isSharded(accountId)) {
+            shardManager.add(accountId, amount);
+            return shardManager.reference(accountId);
+        }
+        return delegate.deposit(accountId, amount);
+    }
+
+    /**
+     * Undoes the deposit leg of a transfer whose withdrawal failed, so a batch that goes on after the
+     * failure does not commit half a transfer.
+     */
+    private void debit(Long accountId, Money amount) {
+        if (shardManager.isSharded(accountId)) {
+            shardManager.subtract(accountId, amount);
+        } else {
+            delegate.withdraw(accountId, amount);
+        }
+    }
+
+    @Override
+    public void lockAll(Collection<Long> accountIds) {
+        delegate.lockAll(accountIds.stream()
+                .filter(accountId -> !shardManager.isSharded(accountId))
+                .toList());
+    }
+}
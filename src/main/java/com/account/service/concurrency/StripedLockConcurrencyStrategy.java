@@ -0,0 +1,50 @@
+package com.account.service.concurrency;
+
+import com.account.model.Account;
+import com.account.model.Money;
+import com.account.repository.AccountRepository;
+import com.account.service.lock.AccountLockManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+
+/**
+ * Serializes operations with in-process lock stripes. Only safe when a single application node
+ * writes to the database.
+ */
+public class StripedLockConcurrencyStrategy extends EntityConcurrencyStrategy {
+    private final AccountLockManager lockManager;
+
+    public StripedLockConcurrencyStrategy(AccountRepository accountRepository, AccountLockManager lockManager) {
+        super(accountRepository);
+        this.lockManager = lockManager;
+    }
+
+    @Override
+    public Account deposit(Long accountId, Money amount) {
+        try (var ignored = lockManager.lock(accountId)) {
+            return super.deposit(accountId, amount);
+        }
+    }
+
+    @Override
+    public Account withdraw(Long accountId, Money amount) {
+        try (var ignored = lockManager.lock(accountId)) {
+            return super.withdraw(accountId, amount);
+        }
+    }
+
+    @Override
+    public Transfer transfer(Long fromAccountId, Long toAccountId, Money amount) {
+        try (var ignored = lockManager.lock(fromAccountId, toAccountId)) {
+            return super.transfer(fromAccountId, toAccountId, amount);
+        }
+    }
+
+    @Override
+    public void lockAll(Collection<Long> accountIds) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            lockManager.lock(accountIds.toArray(Long[]::new));
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.account.service.datasource;
+
+import com.account.config.AccountProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Admits at most {@code account.db-limiter.permits} open connections of the wrapped pool and queues
+ * further callers in FIFO order on a semaphore.
+ * <p>
+ * A waiting caller only parks on the semaphore, which is cheap for thousands of virtual threads, and
+ * gives up after {@code account.db-limiter.timeout} instead of the much longer pool timeout. A
+ * permit is returned when the connection is closed.
+ */
+public class LimitedDataSource extends DelegatingDataSource {
+    private final Semaphore permits;
+    private final long timeoutNanos;
+    private final Timer waitTimer;
+    private final Counter rejectedCounter;
+
+    public LimitedDataSource(DataSource dataSource, AccountProperties properties, MeterRegistry meterRegistry) {
+        super(dataSource);
+        var limiter = properties.getDbLimiter();
+        if (limiter.getPermits() <= 0) {
+            throw new IllegalArgumentException("account.db-limiter.permits must be positive");
+        }
+        this.permits = new Semaphore(limiter.getPermits(), true);
+        this.timeoutNanos = limiter.getTimeout().toNanos();
+        this.waitTimer = Timer.builder("account.db.limiter.wait")
+                .description("Time spent waiting for a database admission permit")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("account.db.limiter.rejected")
+                .description("Connection requests abandoned after account.db-limiter.timeout")
+                .register(meterRegistry);
+        Gauge.builder("account.db.limiter.waiting", permits, Semaphore::getQueueLength)
+                .description("Callers queued for a database admission permit")
+                .register(meterRegistry);
+        Gauge.builder("account.db.limiter.available", permits, Semaphore::availablePermits)
+                .description("Database admission permits not in use")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return withPermit(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return withPermit(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquire() throws SQLException {
+        if (permits.tryAcquire()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                rejectedCounter.increment();
+                throw new SQLTransientConnectionException("Database admission limit reached");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for database admission", e);
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Connection withPermit(Connection connection) {
+        var released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        } finally {
+                            permits.release();
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,24 @@
+package com.account.service.datasource;
+
+/**
+ * Conversions of PostgreSQL write-ahead log positions between their text form {@code 16/B374D848}
+ * and a comparable {@code long}.
+ */
+public final class Lsn {
+
+    private Lsn() {
+    }
+
+    public static long parse(String lsn) {
+        int slash = lsn.indexOf('/');
+        if (slash < 0) {
+            throw new IllegalArgumentException("Not a log position: " + lsn);
+        }
+        return Long.parseUnsignedLong(lsn.substring(0, slash), 16) << 32
+                | Long.parseUnsignedLong(lsn.substring(slash + 1), 16);
+    }
+
+    public static String format(long lsn) {
+        return Long.toHexString(lsn >>> 32).toUpperCase() + "/" + Long.toHexString(lsn & 0xFFFFFFFFL).toUpperCase();
+    }
+}
@@ -0,0 +1,109 @@
+package com.account.service.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.function.Supplier;
+
+/**
+ * Owns the connection pool of the replica and tracks how far the replica trails the primary.
+ * <p>
+ * {@link #check()} reads the replay position of the replica and the write position of the primary.
+ * The time lag is the age of the last replayed transaction, and counts as zero once the replica has
+ * replayed everything the primary has written, so an idle primary does not make the replica look
+ * stale. Until the first successful check, and after a failed one, the replica is unavailable.
+ */
+@Slf4j
+public class ReplicaLagMonitor implements AutoCloseable {
+    private static final String REPLICA_STATUS = """
+            SELECT pg_last_wal_replay_lsn()::text,
+                   COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)""";
+    private static final String PRIMARY_LSN = "SELECT pg_current_wal_lsn()::text";
+
+    private final DataSource replica;
+    private final JdbcTemplate replicaTemplate;
+    private final Supplier<DataSource> primary;
+    private volatile boolean available;
+    private volatile long replayLsn;
+    private volatile long lagBytes;
+    private volatile double lagSeconds;
+
+    /**
+     * @param primary the application data source, asked only outside of {@link ReplicaRead} methods so
+     *                that it answers from the primary
+     */
+    public ReplicaLagMonitor(DataSource replica, Supplier<DataSource> primary, MeterRegistry meterRegistry) {
+        this.replica = replica;
+        this.replicaTemplate = new JdbcTemplate(replica);
+        this.primary = primary;
+        Gauge.builder("account.db.replica.lag", this, monitor -> monitor.lagSeconds)
+                .description("Seconds since the last transaction replayed by the replica")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("account.db.replica.lag.bytes", this, monitor -> monitor.lagBytes)
+                .description("Write-ahead log written by the primary and not yet replayed by the replica")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("account.db.replica.available", this, monitor -> monitor.available ? 1 : 0)
+                .description("Whether the last replica check succeeded")
+                .register(meterRegistry);
+    }
+
+    public void check() {
+        try {
+            var status = replicaTemplate.queryForObject(REPLICA_STATUS, (rs, row) -> new Status(
+                    rs.getString(1) == null ? 0 : Lsn.parse(rs.getString(1)), rs.getDouble(2)));
+            update(status.replayLsn(), currentLsn(), status.lagSeconds());
+        } catch (DataAccessException | IllegalArgumentException e) {
+            if (available) {
+                log.warn("Replica check failed, reads go to the primary", e);
+            }
+            available = false;
+        }
+    }
+
+    /**
+     * Current write position of the primary. A client that reads after it has seen this position sees
+     * every transaction committed before the call.
+     */
+    public long currentLsn() {
+        return Lsn.parse(new JdbcTemplate(primary.get()).queryForObject(PRIMARY_LSN, String.class));
+    }
+
+    void update(long replayLsn, long primaryLsn, double lagSeconds) {
+        this.replayLsn = replayLsn;
+        this.lagBytes = Math.max(0, primaryLsn - replayLsn);
+        this.lagSeconds = replayLsn >= primaryLsn ? 0 : lagSeconds;
+        this.available = true;
+    }
+
+    public DataSource replica() {
+        return replica;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public long replayLsn() {
+        return replayLsn;
+    }
+
+    public double lagSeconds() {
+        return lagSeconds;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (replica instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private record Status(long replayLsn, double lagSeconds) {
+    }
+}
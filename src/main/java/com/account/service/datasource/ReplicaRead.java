@@ -0,0 +1,15 @@
+package com.account.service.datasource;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a service method that only reads, so with {@code account.replica.enabled} its connections may
+ * be taken from the replica. See {@link ReplicaRouter} for when the primary is used instead.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ReplicaRead {
+}
@@ -0,0 +1,114 @@
+package com.account.service.datasource;
+
+import com.account.config.AccountProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Routes the connections of a {@link ReplicaRead} method to the replica, unless
+ * <ul>
+ *     <li>the caller is already in a transaction, which holds a connection of the primary;</li>
+ *     <li>the last {@link ReplicaLagMonitor#check()} failed or found the replica more than
+ *     {@code account.replica.max-lag} behind;</li>
+ *     <li>with {@code account.replica.read-your-writes}, the client asked to read after a log position
+ *     the replica has not replayed yet.</li>
+ * </ul>
+ * Every decision is counted in {@code account.db.replica.route} by target and reason. Nested read
+ * methods keep the decision of the outermost one.
+ */
+public class ReplicaRouter implements MethodInterceptor {
+    private static final ThreadLocal<RoutingDataSource.Target> TARGET = new ThreadLocal<>();
+    private static final ThreadLocal<Long> READ_AFTER = new ThreadLocal<>();
+
+    private final ReplicaLagMonitor monitor;
+    private final double maxLagSeconds;
+    private final boolean readYourWrites;
+    private final Counter replica;
+    private final Counter inTransaction;
+    private final Counter unavailable;
+    private final Counter lagging;
+    private final Counter behindClient;
+
+    public ReplicaRouter(ReplicaLagMonitor monitor, AccountProperties properties, MeterRegistry meterRegistry) {
+        var settings = properties.getReplica();
+        this.monitor = monitor;
+        this.maxLagSeconds = settings.getMaxLag().toNanos() / 1e9;
+        this.readYourWrites = settings.isReadYourWrites();
+        this.replica = counter(meterRegistry, RoutingDataSource.Target.REPLICA, "replica");
+        this.inTransaction = counter(meterRegistry, RoutingDataSource.Target.PRIMARY, "transaction");
+        this.unavailable = counter(meterRegistry, RoutingDataSource.Target.PRIMARY, "unavailable");
+        this.lagging = counter(meterRegistry, RoutingDataSource.Target.PRIMARY, "lagging");
+        this.behindClient = counter(meterRegistry, RoutingDataSource.Target.PRIMARY, "read-your-writes");
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        if (TARGET.get() != null) {
+            return invocation.proceed();
+        }
+        TARGET.set(route());
+        try {
+            return invocation.proceed();
+        } finally {
+            TARGET.remove();
+        }
+    }
+
+    /**
+     * Sends the read methods of the current thread to the primary while the replica has not replayed
+     * {@code lsn}.
+     */
+    public static void readAfter(long lsn) {
+        READ_AFTER.set(lsn);
+    }
+
+    public static void clearReadAfter() {
+        READ_AFTER.remove();
+    }
+
+    /**
+     * Whether the current thread is inside a {@link ReplicaRead} method routed to the replica, whose
+     * results may trail the primary.
+     */
+    public static boolean isReplicaRead() {
+        return TARGET.get() == RoutingDataSource.Target.REPLICA;
+    }
+
+    static RoutingDataSource.Target currentTarget() {
+        var target = TARGET.get();
+        return target == null ? RoutingDataSource.Target.PRIMARY : target;
+    }
+
+    private RoutingDataSource.Target route() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            inTransaction.increment();
+            return RoutingDataSource.Target.PRIMARY;
+        }
+        if (!monitor.isAvailable()) {
+            unavailable.increment();
+            return RoutingDataSource.Target.PRIMARY;
+        }
+        if (monitor.lagSeconds() > maxLagSeconds) {
+            lagging.increment();
+            return RoutingDataSource.Target.PRIMARY;
+        }
+        var required = READ_AFTER.get();
+        if (readYourWrites && required != null && monitor.replayLsn() < required) {
+            behindClient.increment();
+            return RoutingDataSource.Target.PRIMARY;
+        }
+        replica.increment();
+        return RoutingDataSource.Target.REPLICA;
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, RoutingDataSource.Target target, String reason) {
+        return Counter.builder("account.db.replica.route")
+                .description("Read methods routed to the primary or the replica")
+                .tag("target", target.name().toLowerCase())
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
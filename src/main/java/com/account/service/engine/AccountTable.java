@@ -0,0 +1,132 @@
+package com.account.service.engine;
+
+/**
+ * Open-addressing map from account id to balance in minor units, version and owner, probed linearly
+ * over parallel arrays, so lookups neither box keys nor allocate. Not thread-safe: every table is owned
+ * by one {@link EngineShard}. Account id {@code 0} marks an empty slot.
+ */
+final class AccountTable {
+    private long[] ids;
+    private long[] balances;
+    private long[] versions;
+    private String[] owners;
+    private int mask;
+    private int size;
+
+    AccountTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(16, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Slot of the account, or {@code -1} when it is not in the table.
+     */
+    int find(long id) {
+        int slot = slot(id);
+        while (true) {
+            long current = ids[slot];
+            if (current == id) {
+                return slot;
+            }
+            if (current == 0) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Adds the account unless it is already present, and returns its slot.
+     */
+    int insert(long id, String owner, long balance, long version) {
+        if (id == 0) {
+            throw new IllegalArgumentException("Account id 0 is reserved");
+        }
+        int existing = find(id);
+        if (existing >= 0) {
+            return existing;
+        }
+        if ((size + 1) * 2 > ids.length) {
+            resize();
+        }
+        int slot = slot(id);
+        while (ids[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        ids[slot] = id;
+        owners[slot] = owner;
+        balances[slot] = balance;
+        versions[slot] = version;
+        size++;
+        return slot;
+    }
+
+    void add(int slot, long amount) {
+        balances[slot] += amount;
+        versions[slot]++;
+    }
+
+    long id(int slot) {
+        return ids[slot];
+    }
+
+    long balance(int slot) {
+        return balances[slot];
+    }
+
+    long version(int slot) {
+        return versions[slot];
+    }
+
+    String owner(int slot) {
+        return owners[slot];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void forEach(SlotVisitor visitor) {
+        for (int slot = 0; slot < ids.length; slot++) {
+            if (ids[slot] != 0) {
+                visitor.visit(ids[slot], owners[slot], balances[slot], versions[slot]);
+            }
+        }
+    }
+
+    private void resize() {
+        var oldIds = ids;
+        var oldOwners = owners;
+        var oldBalances = balances;
+        var oldVersions = versions;
+        allocate(oldIds.length * 2);
+        size = 0;
+        for (int slot = 0; slot < oldIds.length; slot++) {
+            if (oldIds[slot] != 0) {
+                insert(oldIds[slot], oldOwners[slot], oldBalances[slot], oldVersions[slot]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        ids = new long[capacity];
+        balances = new long[capacity];
+        versions = new long[capacity];
+        owners = new String[capacity];
+        mask = capacity - 1;
+    }
+
+    private int slot(long id) {
+        return (int) (mix(id) & mask);
+    }
+
+    static long mix(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return hash ^ (hash >>> 32);
+    }
+
+    @FunctionalInterface
+    interface SlotVisitor {
+        void visit(long id, String owner, long balance, long version);
+    }
+}
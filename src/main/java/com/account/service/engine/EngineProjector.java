@@ -0,0 +1,238 @@
+package com.account.service.engine;
+
+import com.account.config.AccountProperties;
+import com.account.enums.TransactionType;
+import com.account.model.EngineProgress;
+import com.account.repository.EngineProgressRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copies the journals of the {@link LedgerEngine} into {@code accounts} and {@code transactions}.
+ * <p>
+ * Each shard is projected in groups of up to {@code account.engine.projection-batch-size} records.
+ * A group inserts the created accounts and the ledger lines, adds the balance change of every account
+ * once, and moves the shard's row in {@code engine_progress} forward, all in one transaction, so every
+ * record is projected exactly once across restarts. The group also draws {@code accounts_seq} past the
+ * created accounts, so the JPA path does not reuse their ids once the engine is switched off. The
+ * tables trail the engine by the time a group takes; the snapshot and rollup lag should stay well
+ * above it.
+ */
+@Slf4j
+public class EngineProjector implements SmartLifecycle {
+    private static final String INSERT_ACCOUNT = "INSERT INTO accounts (id, owner, balance, version) VALUES (?, ?, 0, 0)";
+    private static final String ADD_BALANCE = "UPDATE accounts SET balance = balance + ?, version = version + ? WHERE id = ?";
+    private static final String INSERT_LINE = """
+            INSERT INTO transactions (id, account_id, type, amount, time)
+            VALUES (nextval('transactions_seq'), ?, ?, ?, ?)""";
+    private static final String NEXT_ACCOUNT_ID = "SELECT nextval('accounts_seq')";
+    /**
+     * Allocation size of {@code accounts_seq}: a value {@code v} of the sequence gives Hibernate the ids
+     * above {@code v - 50} up to {@code v}.
+     */
+    private static final int ACCOUNT_ID_BLOCK = 50;
+
+    private final LedgerEngine engine;
+    private final EngineProgressRepository progressRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final long idleDelayNanos;
+    private final DistributionSummary groupSize;
+    private final JournalReader[] readers;
+    private volatile boolean running;
+    private Thread thread;
+
+    public EngineProjector(LedgerEngine engine,
+                           EngineProgressRepository progressRepository,
+                           JdbcTemplate jdbcTemplate,
+                           PlatformTransactionManager transactionManager,
+                           AccountProperties properties,
+                           MeterRegistry meterRegistry) {
+        var settings = properties.getEngine();
+        this.engine = engine;
+        this.progressRepository = progressRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = settings.getProjectionBatchSize();
+        this.idleDelayNanos = settings.getProjectionIdleDelay().toNanos();
+        this.readers = new JournalReader[settings.getShards()];
+        this.groupSize = DistributionSummary.builder("account.engine.projection.group.size")
+                .description("Journal records projected per transaction")
+                .register(meterRegistry);
+        Gauge.builder("account.engine.projection.lag", this, EngineProjector::lag)
+                .description("Journal records not yet projected to the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Projects one group of every shard that has new records, and returns the number of records. A shard
+     * whose group fails is read again from its committed progress on the next call.
+     */
+    int projectOnce() {
+        int projected = 0;
+        for (int shard = 0; shard < readers.length; shard++) {
+            try {
+                if (readers[shard] == null) {
+                    readers[shard] = reader(shard);
+                }
+                projected += project(shard);
+            } catch (IOException | RuntimeException e) {
+                log.error("Failed to project the journal of engine shard {}", shard, e);
+                readers[shard] = null;
+            }
+        }
+        return projected;
+    }
+
+    private int project(int shard) throws IOException {
+        var records = new ArrayList<JournalRecord>(batchSize);
+        readers[shard].read(records, batchSize, engine.publishedSeq(shard));
+        if (records.isEmpty()) {
+            return 0;
+        }
+        var accounts = new ArrayList<Object[]>();
+        var lines = new ArrayList<Object[]>();
+        var changes = new LinkedHashMap<Long, long[]>();
+        for (var record : records) {
+            collect(shard, record, accounts, lines, changes);
+        }
+        long seq = records.get(records.size() - 1).seq();
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_ACCOUNT, accounts);
+            if (!accounts.isEmpty()) {
+                advanceAccountSequence(accounts.stream().mapToLong(account -> (Long) account[0]).max().getAsLong());
+            }
+            jdbcTemplate.batchUpdate(ADD_BALANCE, changes.entrySet().stream()
+                    .map(change -> new Object[]{LedgerEngine.toAmount(change.getValue()[0]), change.getValue()[1],
+                            change.getKey()})
+                    .toList());
+            jdbcTemplate.batchUpdate(INSERT_LINE, lines);
+            progressRepository.save(new EngineProgress(shard, seq));
+        });
+        engine.markProjected(shard, seq);
+        groupSize.record(records.size());
+        return records.size();
+    }
+
+    /**
+     * Draws the sequence until its next block starts above {@code maxId}. Unlike {@code setval} this
+     * works on H2 as well, and never moves the sequence back when shards project out of id order.
+     */
+    private void advanceAccountSequence(long maxId) {
+        long value;
+        do {
+            value = jdbcTemplate.queryForObject(NEXT_ACCOUNT_ID, Long.class);
+        } while (value < maxId + ACCOUNT_ID_BLOCK);
+    }
+
+    private void collect(int shard, JournalRecord record, List<Object[]> accounts, List<Object[]> lines,
+                         Map<Long, long[]> changes) {
+        switch (record.type()) {
+            case CREATE -> accounts.add(new Object[]{record.accountId(), record.owner()});
+            case DEPOSIT -> change(record, record.accountId(), TransactionType.DEPOSIT, lines, changes);
+            case WITHDRAW -> change(record, record.accountId(), TransactionType.WITHDRAW, lines, changes);
+            case TRANSFER -> {
+                change(record, record.accountId(), TransactionType.WITHDRAW, lines, changes);
+                if (EngineShard.shardOf(record.targetId(), readers.length) == shard) {
+                    change(record, record.targetId(), TransactionType.DEPOSIT, lines, changes);
+                }
+            }
+            case CREDIT -> change(record, record.targetId(), TransactionType.DEPOSIT, lines, changes);
+            case BOUNCE -> {
+            }
+        }
+    }
+
+    private static void change(JournalRecord record, long accountId, TransactionType type, List<Object[]> lines,
+                               Map<Long, long[]> changes) {
+        var change = changes.computeIfAbsent(accountId, id -> new long[2]);
+        change[0] += type == TransactionType.DEPOSIT ? record.amount() : -record.amount();
+        change[1]++;
+        var time = Instant.EPOCH.plus(record.time(), ChronoUnit.MICROS).atOffset(ZoneOffset.UTC);
+        lines.add(new Object[]{accountId, type.name(), LedgerEngine.toAmount(record.amount()), time});
+    }
+
+    private long lag() {
+        if (!running) {
+            return 0;
+        }
+        long lag = 0;
+        for (int shard = 0; shard < readers.length; shard++) {
+            var reader = readers[shard];
+            if (reader != null) {
+                lag += engine.publishedSeq(shard) - reader.lastSeq();
+            }
+        }
+        return lag;
+    }
+
+    private JournalReader reader(int shard) {
+        long seq = progressRepository.findById(shard)
+                .map(EngineProgress::getProjectedSeq)
+                .orElse(0L);
+        engine.markProjected(shard, seq);
+        return new JournalReader(engine.directory(), shard, seq);
+    }
+
+    private void run() {
+        while (running) {
+            if (projectOnce() == 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(idleDelayNanos);
+                } catch (InterruptedException e) {
+                    if (running) {
+                        log.warn("Engine projector interrupted while running");
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void start() {
+        for (int shard = 0; shard < readers.length; shard++) {
+            readers[shard] = reader(shard);
+        }
+        running = true;
+        thread = new Thread(this::run, "engine-projector");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 2048;
+    }
+}
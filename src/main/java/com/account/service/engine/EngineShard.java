@@ -0,0 +1,497 @@
+package com.account.service.engine;
+
+import com.account.exception.AccountNotFoundException;
+import com.account.exception.EngineOutcomeUnknownException;
+import com.account.exception.EngineUnavailableException;
+import com.account.exception.InvalidAmountException;
+import com.account.exception.NotEnoughMoneyException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Owns the balances of the accounts hashed to it and applies their commands on a single thread, so
+ * no command takes a lock. Commands are taken from the queue in groups of up to
+ * {@code account.engine.batch-size}; each is journaled before it changes the table, and callers are
+ * answered once the whole group is journaled and, with {@code account.engine.fsync}, forced to disk.
+ * <p>
+ * A transfer to an account of another shard is journaled here as a debit and then delivered to that
+ * shard, which journals the credit with the sequence number of the debit. The highest sequence number
+ * applied from every peer is kept in the table state, so a credit that is delivered again after a
+ * restart is recognised and skipped.
+ * <p>
+ * A credit that would overflow the balance is rejected with {@link InvalidAmountException} before it
+ * is journaled, as {@link com.account.model.Money} does on the database path; a transfer credit of
+ * another shard is bounced back to the payer instead.
+ * <p>
+ * When the journal cannot be forced the shard stops: the commands of the group are in the table but
+ * may be lost, so they are answered with {@link EngineOutcomeUnknownException}, the group is not
+ * published to the projection, and every later command is rejected until the engine is restarted and
+ * replays what reached the journal.
+ */
+@Slf4j
+final class EngineShard {
+    private final int index;
+    private final int shardCount;
+    private final AccountTable table;
+    private final Journal journal;
+    private final Clock clock;
+    private final int batchSize;
+    private final boolean fsync;
+    private final BlockingQueue<Command> queue = new LinkedBlockingQueue<>();
+    private final AtomicLongArray applied;
+    private final AtomicLongArray sent;
+    private final List<JournalRecord> outbound = new ArrayList<>();
+    private EngineShard[] peers;
+    private long seq;
+    private volatile long publishedSeq;
+    private volatile boolean running;
+    private volatile boolean failed;
+    private Thread thread;
+
+    EngineShard(int index, int shardCount, Journal journal, int expectedAccounts, int batchSize, boolean fsync,
+                Clock clock) {
+        this.index = index;
+        this.shardCount = shardCount;
+        this.table = new AccountTable(expectedAccounts);
+        this.journal = journal;
+        this.clock = clock;
+        this.batchSize = batchSize;
+        this.fsync = fsync;
+        this.applied = new AtomicLongArray(shardCount);
+        this.sent = new AtomicLongArray(shardCount);
+    }
+
+    static int shardOf(long accountId, int shardCount) {
+        return (int) ((AccountTable.mix(accountId) >>> 33) % shardCount);
+    }
+
+    void connect(EngineShard[] peers) {
+        this.peers = peers;
+    }
+
+    /**
+     * Loads {@code snapshot} and replays the journal records after it. Debits and bounces still in the
+     * journal are kept for {@link #redeliver()}, since their peer may not have journaled the credit.
+     */
+    void open(EngineSnapshot snapshot) throws IOException {
+        if (snapshot != null) {
+            snapshot.restore(table);
+            for (int peer = 0; peer < shardCount; peer++) {
+                applied.set(peer, snapshot.applied()[peer]);
+            }
+            seq = snapshot.seq();
+        }
+        journal.open(record -> {
+            if (record.seq() > seq) {
+                apply(record);
+            }
+            if (record.type() == JournalRecord.Type.BOUNCE || record.type() == JournalRecord.Type.TRANSFER
+                    && shardOf(record.targetId(), shardCount) != index) {
+                outbound.add(record);
+            }
+        });
+        publishedSeq = seq;
+    }
+
+    /**
+     * Delivers again every debit and bounce of the journal that its peer has not applied yet. Called
+     * for every shard after all of them are open and before any is started.
+     */
+    void redeliver() {
+        int redelivered = 0;
+        for (var record : outbound) {
+            int target = target(record);
+            if (record.seq() > peers[target].applied.get(index)) {
+                peers[target].submit(credit(record));
+                redelivered++;
+            }
+        }
+        if (redelivered > 0) {
+            log.info("Shard {} redelivered {} credits", index, redelivered);
+        }
+        outbound.clear();
+    }
+
+    void start() {
+        running = true;
+        thread = new Thread(this::drain, "engine-shard-" + index);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop(long timeoutMillis) throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.join(timeoutMillis);
+        }
+    }
+
+    void close() throws IOException {
+        journal.close();
+    }
+
+    /**
+     * Queues a command, or rejects it with {@link EngineUnavailableException} once the shard has failed.
+     */
+    void submit(Command command) {
+        queue.add(command);
+        if (failed) {
+            rejectQueued();
+        }
+    }
+
+    /**
+     * Whether the journal could not be forced and the shard no longer takes commands.
+     */
+    boolean isFailed() {
+        return failed;
+    }
+
+    int queued() {
+        return queue.size();
+    }
+
+    long publishedSeq() {
+        return publishedSeq;
+    }
+
+    int index() {
+        return index;
+    }
+
+    /**
+     * Copies the table. Must run on the shard thread, or after it has stopped.
+     */
+    EngineSnapshot capture() {
+        var applied = new long[shardCount];
+        for (int peer = 0; peer < shardCount; peer++) {
+            applied[peer] = this.applied.get(peer);
+        }
+        return EngineSnapshot.of(index, seq, applied, table);
+    }
+
+    /**
+     * Highest sequence number whose record is no longer needed by any peer: every later debit or
+     * bounce may still have to be delivered again.
+     */
+    long deliveredSeq() {
+        long delivered = Long.MAX_VALUE;
+        for (int peer = 0; peer < shardCount; peer++) {
+            long acknowledged = peers[peer].applied.get(index);
+            if (acknowledged < sent.get(peer)) {
+                delivered = Math.min(delivered, acknowledged);
+            }
+        }
+        return delivered;
+    }
+
+    void truncate(long seq) throws IOException {
+        journal.truncate(seq);
+    }
+
+    /**
+     * Seeds the table with an account that existed before the engine. Only valid before the shard is
+     * started on an empty journal.
+     */
+    void seed(long accountId, String owner, long balance, long version) {
+        table.insert(accountId, owner, balance, version);
+    }
+
+    long maxAccountId() {
+        long[] max = {0};
+        table.forEach((id, owner, balance, version) -> max[0] = Math.max(max[0], id));
+        return max[0];
+    }
+
+    void forEachAccount(AccountTable.SlotVisitor visitor) {
+        table.forEach(visitor);
+    }
+
+    private void drain() {
+        var batch = new ArrayList<Command>(batchSize);
+        var replies = new ArrayList<Runnable>(batchSize);
+        while ((running || !queue.isEmpty()) && !failed) {
+            try {
+                var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                for (var command : batch) {
+                    try {
+                        execute(command, replies);
+                    } catch (AccountNotFoundException | NotEnoughMoneyException | InvalidAmountException e) {
+                        command.fail(e);
+                    } catch (RuntimeException e) {
+                        log.error("Shard {} failed to apply {}", index, command, e);
+                        command.fail(e);
+                    }
+                }
+                if (fsync && !force(batch)) {
+                    return;
+                }
+                publishedSeq = seq;
+                replies.forEach(Runnable::run);
+            } catch (InterruptedException e) {
+                if (running) {
+                    log.warn("Engine shard {} interrupted while running", index);
+                }
+            } finally {
+                batch.clear();
+                replies.clear();
+            }
+        }
+    }
+
+    /**
+     * Forces the journal of {@code batch}. On failure the shard stops, the commands of the batch that
+     * are not answered yet get {@link EngineOutcomeUnknownException} and the queued ones are rejected.
+     */
+    private boolean force(List<Command> batch) {
+        try {
+            journal.force();
+            return true;
+        } catch (RuntimeException e) {
+            log.error("Shard {} failed to force its journal and stops", index, e);
+            failed = true;
+            var unknown = new EngineOutcomeUnknownException();
+            batch.forEach(command -> command.fail(unknown));
+            rejectQueued();
+            return false;
+        }
+    }
+
+    /**
+     * Rejects the queued commands, which were never applied. A credit that answers a transfer is the
+     * exception: its debit is journaled on the peer and is delivered again after a restart.
+     */
+    private void rejectQueued() {
+        Command command;
+        while ((command = queue.poll()) != null) {
+            command.fail(command instanceof Credit
+                    ? new EngineOutcomeUnknownException()
+                    : new EngineUnavailableException());
+        }
+    }
+
+    private void execute(Command command, List<Runnable> replies) {
+        if (command instanceof Create create) {
+            append(JournalRecord.Type.CREATE, create.accountId(), 0, 0, 0, 0, create.owner());
+            reply(create.result(), state(table.find(create.accountId())), replies);
+        } else if (command instanceof Deposit deposit) {
+            int slot = existing(deposit.accountId());
+            checkCredit(slot, deposit.amount());
+            append(JournalRecord.Type.DEPOSIT, deposit.accountId(), 0, deposit.amount(), 0, 0, null);
+            reply(deposit.result(), state(slot), replies);
+        } else if (command instanceof Withdraw withdraw) {
+            int slot = existing(withdraw.accountId());
+            if (table.balance(slot) < withdraw.amount()) {
+                throw new NotEnoughMoneyException(withdraw.accountId());
+            }
+            append(JournalRecord.Type.WITHDRAW, withdraw.accountId(), 0, withdraw.amount(), 0, 0, null);
+            reply(withdraw.result(), state(slot), replies);
+        } else if (command instanceof Transfer transfer) {
+            transfer(transfer, replies);
+        } else if (command instanceof Credit credit) {
+            credit(credit, replies);
+        } else if (command instanceof Balance balance) {
+            reply(balance.result(), state(existing(balance.accountId())), replies);
+        } else if (command instanceof Capture capture) {
+            reply(capture.result(), capture(), replies);
+        }
+    }
+
+    /**
+     * Answers after the group is journaled, so a caller never sees a change that could still be lost.
+     */
+    private static <T> void reply(CompletableFuture<T> result, T value, List<Runnable> replies) {
+        replies.add(() -> result.complete(value));
+    }
+
+    private void transfer(Transfer transfer, List<Runnable> replies) {
+        int slot = existing(transfer.fromId());
+        int target = shardOf(transfer.toId(), shardCount);
+        int targetSlot = target == index ? existing(transfer.toId()) : -1;
+        if (table.balance(slot) < transfer.amount()) {
+            throw new NotEnoughMoneyException(transfer.fromId());
+        }
+        if (targetSlot >= 0 && targetSlot != slot) {
+            checkCredit(targetSlot, transfer.amount());
+        }
+        var record = append(JournalRecord.Type.TRANSFER, transfer.fromId(), transfer.toId(), transfer.amount(),
+                0, 0, null);
+        var state = state(slot);
+        if (target == index) {
+            reply(transfer.result(), state, replies);
+        } else {
+            var credit = credit(record).answering(transfer.result(), state);
+            replies.add(() -> peers[target].submit(credit));
+        }
+    }
+
+    private void credit(Credit credit, List<Runnable> replies) {
+        if (credit.ref() <= applied.get(credit.source())) {
+            return;
+        }
+        int slot = table.find(credit.payeeId());
+        if (slot >= 0 && credit.refund() && !fits(slot, credit.amount())) {
+            throw new ArithmeticException("Refund overflows the balance of account " + credit.payeeId());
+        }
+        if (slot >= 0 && (credit.refund() || fits(slot, credit.amount()))) {
+            append(JournalRecord.Type.CREDIT, credit.payerId(), credit.payeeId(), credit.amount(),
+                    credit.source(), credit.ref(), null);
+            if (credit.result() != null) {
+                reply(credit.result(), credit.reply(), replies);
+            }
+            return;
+        }
+        var bounce = append(JournalRecord.Type.BOUNCE, credit.payerId(), credit.payeeId(), credit.amount(),
+                credit.source(), credit.ref(), null);
+        var refund = credit(bounce);
+        replies.add(() -> peers[refund.target()].submit(refund));
+        if (credit.result() != null) {
+            replies.add(() -> credit.result().completeExceptionally(slot < 0
+                    ? new AccountNotFoundException(credit.payeeId())
+                    : new InvalidAmountException()));
+        }
+    }
+
+    private void checkCredit(int slot, long amount) {
+        if (!fits(slot, amount)) {
+            throw new InvalidAmountException();
+        }
+    }
+
+    private boolean fits(int slot, long amount) {
+        try {
+            Math.addExact(table.balance(slot), amount);
+            return true;
+        } catch (ArithmeticException e) {
+            return false;
+        }
+    }
+
+    private JournalRecord append(JournalRecord.Type type, long accountId, long targetId, long amount,
+                                 int peer, long ref, String owner) {
+        var record = new JournalRecord(type, seq + 1, accountId, targetId, amount, micros(clock.instant()),
+                peer, ref, owner);
+        journal.append(record);
+        apply(record);
+        return record;
+    }
+
+    private void apply(JournalRecord record) {
+        switch (record.type()) {
+            case CREATE -> table.insert(record.accountId(), record.owner(), 0, 0);
+            case DEPOSIT -> table.add(table.find(record.accountId()), record.amount());
+            case WITHDRAW -> table.add(table.find(record.accountId()), -record.amount());
+            case TRANSFER -> {
+                table.add(table.find(record.accountId()), -record.amount());
+                int target = shardOf(record.targetId(), shardCount);
+                if (target == index) {
+                    table.add(table.find(record.targetId()), record.amount());
+                } else {
+                    sent.set(target, record.seq());
+                }
+            }
+            case CREDIT -> {
+                table.add(table.find(record.targetId()), record.amount());
+                applied.set(record.peer(), record.ref());
+            }
+            case BOUNCE -> {
+                applied.set(record.peer(), record.ref());
+                sent.set(shardOf(record.accountId(), shardCount), record.seq());
+            }
+        }
+        seq = record.seq();
+    }
+
+    /**
+     * Credit a debit or bounce record sends to its peer. A bounce returns the amount to the payer.
+     */
+    private Credit credit(JournalRecord record) {
+        return record.type() == JournalRecord.Type.BOUNCE
+                ? new Credit(record.targetId(), record.accountId(), record.amount(), index, record.seq(),
+                target(record), true, null, null)
+                : new Credit(record.accountId(), record.targetId(), record.amount(), index, record.seq(),
+                target(record), false, null, null);
+    }
+
+    private int target(JournalRecord record) {
+        return shardOf(record.type() == JournalRecord.Type.BOUNCE ? record.accountId() : record.targetId(),
+                shardCount);
+    }
+
+    private int existing(long accountId) {
+        int slot = table.find(accountId);
+        if (slot < 0) {
+            throw new AccountNotFoundException(accountId);
+        }
+        return slot;
+    }
+
+    private AccountState state(int slot) {
+        return new AccountState(table.id(slot), table.owner(slot), table.balance(slot));
+    }
+
+    static long micros(Instant instant) {
+        return ChronoUnit.MICROS.between(Instant.EPOCH, instant);
+    }
+
+    record AccountState(long id, String owner, long balance) {
+    }
+
+    sealed interface Command {
+
+        CompletableFuture<?> result();
+
+        default void fail(Throwable e) {
+            if (result() != null) {
+                result().completeExceptionally(e);
+            }
+        }
+    }
+
+    record Create(long accountId, String owner, CompletableFuture<AccountState> result) implements Command {
+    }
+
+    record Deposit(long accountId, long amount, CompletableFuture<AccountState> result) implements Command {
+    }
+
+    record Withdraw(long accountId, long amount, CompletableFuture<AccountState> result) implements Command {
+    }
+
+    record Transfer(long fromId, long toId, long amount, CompletableFuture<AccountState> result) implements Command {
+    }
+
+    record Balance(long accountId, CompletableFuture<AccountState> result) implements Command {
+    }
+
+    record Capture(CompletableFuture<EngineSnapshot> result) implements Command {
+    }
+
+    /**
+     * Credit sent by shard {@code source} for its record {@code ref}. When a caller waits for it,
+     * {@code result} is completed with {@code reply}, the state of the payer after the debit. A
+     * {@code refund} returns a bounced amount and is never bounced itself.
+     */
+    record Credit(long payerId, long payeeId, long amount, int source, long ref, int target, boolean refund,
+                  CompletableFuture<AccountState> result, AccountState reply) implements Command {
+
+        Credit answering(CompletableFuture<AccountState> result, AccountState reply) {
+            return new Credit(payerId, payeeId, amount, source, ref, target, refund, result, reply);
+        }
+    }
+}
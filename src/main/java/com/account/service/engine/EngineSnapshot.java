@@ -0,0 +1,152 @@
+package com.account.service.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Copy of the table of a shard after the record {@code seq}, together with the highest sequence number
+ * applied from every peer.
+ * <p>
+ * A snapshot file is written under a temporary name, forced to disk and then renamed, so the latest file
+ * of a shard is always complete; its trailing CRC-32 is checked anyway on load.
+ */
+record EngineSnapshot(int shard, long seq, long[] applied, long[] ids, long[] balances, long[] versions,
+                      String[] owners) {
+    private static final Pattern FILE = Pattern.compile("snapshot-(\\d+)-(\\d+)\\.bin");
+    private static final int MAGIC = 0x454E4753;
+
+    static EngineSnapshot of(int shard, long seq, long[] applied, AccountTable table) {
+        int size = table.size();
+        var ids = new long[size];
+        var balances = new long[size];
+        var versions = new long[size];
+        var owners = new String[size];
+        int[] next = {0};
+        table.forEach((id, owner, balance, version) -> {
+            int i = next[0]++;
+            ids[i] = id;
+            owners[i] = owner;
+            balances[i] = balance;
+            versions[i] = version;
+        });
+        return new EngineSnapshot(shard, seq, applied, ids, balances, versions, owners);
+    }
+
+    void restore(AccountTable table) {
+        for (int i = 0; i < ids.length; i++) {
+            table.insert(ids[i], owners[i], balances[i], versions[i]);
+        }
+    }
+
+    /**
+     * Writes the snapshot and deletes the older snapshots of the shard.
+     */
+    void write(Path directory) throws IOException {
+        var path = directory.resolve("snapshot-%d-%020d.bin".formatted(shard, seq));
+        var temporary = directory.resolve(path.getFileName() + ".tmp");
+        var crc = new CRC32();
+        try (var out = new DataOutputStream(new CheckedOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary)), crc))) {
+            out.writeInt(MAGIC);
+            out.writeInt(shard);
+            out.writeLong(seq);
+            out.writeInt(applied.length);
+            for (long peerSeq : applied) {
+                out.writeLong(peerSeq);
+            }
+            out.writeInt(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                out.writeLong(ids[i]);
+                out.writeLong(balances[i]);
+                out.writeLong(versions[i]);
+                out.writeUTF(owners[i] == null ? "" : owners[i]);
+            }
+            out.flush();
+            out.writeInt((int) crc.getValue());
+        }
+        try (var channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+        for (var older : files(directory, shard)) {
+            if (!older.equals(path)) {
+                Files.deleteIfExists(older);
+            }
+        }
+    }
+
+    /**
+     * Latest snapshot of the shard, or {@code null} when none was written.
+     */
+    static EngineSnapshot latest(Path directory, int shard) throws IOException {
+        var files = files(directory, shard);
+        if (files.isEmpty()) {
+            return null;
+        }
+        var path = files.get(files.size() - 1);
+        var crc = new CRC32();
+        try (var in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path)), crc))) {
+            if (in.readInt() != MAGIC || in.readInt() != shard) {
+                throw new IOException("Not a snapshot of shard " + shard + ": " + path);
+            }
+            long seq = in.readLong();
+            var applied = new long[in.readInt()];
+            for (int peer = 0; peer < applied.length; peer++) {
+                applied[peer] = in.readLong();
+            }
+            int size = in.readInt();
+            var ids = new long[size];
+            var balances = new long[size];
+            var versions = new long[size];
+            var owners = new String[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = in.readLong();
+                balances[i] = in.readLong();
+                versions[i] = in.readLong();
+                var owner = in.readUTF();
+                owners[i] = owner.isEmpty() ? null : owner;
+            }
+            int expected = (int) crc.getValue();
+            if (in.readInt() != expected) {
+                throw new IOException("Snapshot " + path + " is corrupt");
+            }
+            return new EngineSnapshot(shard, seq, applied, ids, balances, versions, owners);
+        }
+    }
+
+    static boolean exists(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.anyMatch(path -> FILE.matcher(path.getFileName().toString()).matches());
+        }
+    }
+
+    private static List<Path> files(Path directory, int shard) throws IOException {
+        var files = new ArrayList<Path>();
+        try (var list = Files.list(directory)) {
+            list.forEach(path -> {
+                var matcher = FILE.matcher(path.getFileName().toString());
+                if (matcher.matches() && Integer.parseInt(matcher.group(1)) == shard) {
+                    files.add(path);
+                }
+            });
+        }
+        files.sort(Comparator.comparing(path -> path.getFileName().toString()));
+        return files;
+    }
+}
@@ -0,0 +1,141 @@
+package com.account.service.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Append-only journal of one shard, written through memory-mapped segment files of a fixed size named
+ * after the sequence number of their first record. A record is in the page cache once
+ * {@link #append(JournalRecord)} returns and survives a crash of the process; {@link #force()} makes it
+ * survive a crash of the machine.
+ */
+class Journal implements Closeable {
+    private static final Pattern SEGMENT = Pattern.compile("journal-(\\d+)-(\\d+)\\.log");
+
+    private final Path directory;
+    private final int shard;
+    private final int segmentSize;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private boolean dirty;
+
+    Journal(Path directory, int shard, int segmentSize) {
+        this.directory = directory;
+        this.shard = shard;
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Passes every intact record to {@code consumer} in order and positions the journal after the last
+     * one, discarding a record torn by a crash. Returns the sequence number of the last record, or
+     * {@code 0} for an empty journal.
+     */
+    long open(Consumer<JournalRecord> consumer) throws IOException {
+        long last = 0;
+        var segments = segments(directory, shard);
+        for (int i = 0; i < segments.size(); i++) {
+            var segment = segments.get(i);
+            boolean active = i == segments.size() - 1;
+            try (var file = FileChannel.open(segment.path(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                var mapped = file.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(file.size(), segmentSize));
+                JournalRecord record;
+                while ((record = JournalRecord.read(mapped)) != null) {
+                    consumer.accept(record);
+                    last = record.seq();
+                }
+                if (active) {
+                    if (mapped.remaining() >= 4 && mapped.getInt(mapped.position()) != 0) {
+                        int torn = mapped.position();
+                        while (mapped.hasRemaining()) {
+                            mapped.put((byte) 0);
+                        }
+                        mapped.position(torn);
+                    }
+                    channel = FileChannel.open(segment.path(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    buffer = mapped;
+                }
+            }
+        }
+        if (buffer == null) {
+            roll(last + 1);
+        }
+        return last;
+    }
+
+    void append(JournalRecord record) {
+        try {
+            if (record.size() > buffer.remaining()) {
+                roll(record.seq());
+            }
+            record.write(buffer);
+            dirty = true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void force() {
+        if (dirty) {
+            buffer.force();
+            dirty = false;
+        }
+    }
+
+    /**
+     * Deletes every segment except the active one whose records all have a sequence number up to
+     * {@code seq}.
+     */
+    void truncate(long seq) throws IOException {
+        var segments = segments(directory, shard);
+        for (int i = 0; i < segments.size() - 1; i++) {
+            if (segments.get(i + 1).firstSeq() - 1 <= seq) {
+                Files.deleteIfExists(segments.get(i).path());
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            buffer.force();
+            channel.close();
+        }
+    }
+
+    private void roll(long firstSeq) throws IOException {
+        if (channel != null) {
+            buffer.force();
+            channel.close();
+        }
+        var path = directory.resolve("journal-%d-%020d.log".formatted(shard, firstSeq));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+    }
+
+    static List<Segment> segments(Path directory, int shard) throws IOException {
+        var segments = new ArrayList<Segment>();
+        try (var files = Files.list(directory)) {
+            files.forEach(path -> {
+                var matcher = SEGMENT.matcher(path.getFileName().toString());
+                if (matcher.matches() && Integer.parseInt(matcher.group(1)) == shard) {
+                    segments.add(new Segment(path, Long.parseLong(matcher.group(2))));
+                }
+            });
+        }
+        segments.sort((a, b) -> Long.compare(a.firstSeq(), b.firstSeq()));
+        return segments;
+    }
+
+    record Segment(Path path, long firstSeq) {
+    }
+}
@@ -0,0 +1,87 @@
+package com.account.service.engine;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Reads the journal of a shard in order while its writer keeps appending, following it into new
+ * segments. Callers pass the highest sequence number the writer has published, so a record that is
+ * still being written is never returned.
+ */
+final class JournalReader {
+    private final Path directory;
+    private final int shard;
+    private long lastSeq;
+    private long segmentFirstSeq = -1;
+    private MappedByteBuffer buffer;
+
+    JournalReader(Path directory, int shard, long afterSeq) {
+        this.directory = directory;
+        this.shard = shard;
+        this.lastSeq = afterSeq;
+    }
+
+    /**
+     * Adds up to {@code max} records following the last one read and not after {@code upTo} to
+     * {@code records}, and returns how many were added.
+     */
+    int read(List<JournalRecord> records, int max, long upTo) throws IOException {
+        int count = 0;
+        while (count < max && lastSeq < upTo) {
+            var record = buffer == null ? null : JournalRecord.read(buffer);
+            if (record == null) {
+                if (!advance()) {
+                    break;
+                }
+                continue;
+            }
+            if (record.seq() <= lastSeq) {
+                continue;
+            }
+            if (record.seq() > upTo) {
+                buffer.position(buffer.position() - record.size());
+                break;
+            }
+            records.add(record);
+            lastSeq = record.seq();
+            count++;
+        }
+        return count;
+    }
+
+    long lastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Moves to the segment holding the record after the last one read, if the writer has started it.
+     */
+    private boolean advance() throws IOException {
+        var segments = Journal.segments(directory, shard);
+        Journal.Segment next = null;
+        for (var segment : segments) {
+            if (segment.firstSeq() <= lastSeq + 1) {
+                next = segment;
+            }
+        }
+        if (next == null) {
+            if (!segments.isEmpty()) {
+                throw new IllegalStateException("Journal of shard %d no longer holds record %d"
+                        .formatted(shard, lastSeq + 1));
+            }
+            return false;
+        }
+        if (next.firstSeq() == segmentFirstSeq) {
+            return false;
+        }
+        try (var file = FileChannel.open(next.path(), StandardOpenOption.READ)) {
+            buffer = file.map(FileChannel.MapMode.READ_ONLY, 0, file.size());
+        }
+        segmentFirstSeq = next.firstSeq();
+        return true;
+    }
+}
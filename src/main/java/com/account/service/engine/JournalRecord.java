@@ -0,0 +1,94 @@
+package com.account.service.engine;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+/**
+ * One applied command in the journal of a shard. Amounts are in minor units and {@code time} is in
+ * microseconds since the epoch.
+ * <p>
+ * A {@code TRANSFER} debits {@code accountId} and credits {@code targetId} when both are in the shard;
+ * otherwise the credit is sent to the shard of {@code targetId}, which journals it as a {@code CREDIT}
+ * or, when the account does not exist there, as a {@code BOUNCE} that sends the amount back. Both carry
+ * the shard ({@code peer}) and sequence number ({@code ref}) of the record that sent them.
+ * <p>
+ * On disk a record is its length, the fields and a CRC-32 of the fields; a zero length or a checksum
+ * mismatch marks the end of the written part of a segment.
+ */
+record JournalRecord(Type type, long seq, long accountId, long targetId, long amount, long time,
+                     int peer, long ref, String owner) {
+    private static final int FIXED_SIZE = 1 + 8 * 5 + 4 + 8 + 2;
+
+    enum Type {
+        CREATE,
+        DEPOSIT,
+        WITHDRAW,
+        TRANSFER,
+        CREDIT,
+        BOUNCE
+    }
+
+    int size() {
+        return 4 + FIXED_SIZE + ownerBytes().length + 4;
+    }
+
+    void write(ByteBuffer buffer) {
+        var owner = ownerBytes();
+        int start = buffer.position();
+        buffer.putInt(FIXED_SIZE + owner.length + 4);
+        buffer.put((byte) type.ordinal());
+        buffer.putLong(seq);
+        buffer.putLong(accountId);
+        buffer.putLong(targetId);
+        buffer.putLong(amount);
+        buffer.putLong(time);
+        buffer.putInt(peer);
+        buffer.putLong(ref);
+        buffer.putShort((short) owner.length);
+        buffer.put(owner);
+        buffer.putInt(checksum(buffer, start + 4, FIXED_SIZE + owner.length));
+    }
+
+    /**
+     * Reads the record at the position of {@code buffer} and moves past it, or returns {@code null} and
+     * leaves the position unchanged when no complete record starts there.
+     */
+    static JournalRecord read(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < 4) {
+            return null;
+        }
+        int length = buffer.getInt(start);
+        if (length < FIXED_SIZE + 4 || length > buffer.remaining() - 4) {
+            return null;
+        }
+        if (buffer.getInt(start + length) != checksum(buffer, start + 4, length - 4)) {
+            return null;
+        }
+        buffer.position(start + 4);
+        var type = Type.values()[buffer.get()];
+        long seq = buffer.getLong();
+        long accountId = buffer.getLong();
+        long targetId = buffer.getLong();
+        long amount = buffer.getLong();
+        long time = buffer.getLong();
+        int peer = buffer.getInt();
+        long ref = buffer.getLong();
+        var owner = new byte[buffer.getShort()];
+        buffer.get(owner);
+        buffer.position(start + 4 + length);
+        return new JournalRecord(type, seq, accountId, targetId, amount, time, peer, ref,
+                owner.length == 0 ? null : new String(owner, StandardCharsets.UTF_8));
+    }
+
+    private byte[] ownerBytes() {
+        return owner == null ? new byte[0] : owner.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int checksum(ByteBuffer buffer, int offset, int length) {
+        var crc = new CRC32();
+        crc.update(buffer.duplicate().position(offset).limit(offset + length));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,338 @@
+package com.account.service.engine;
+
+import com.account.config.AccountProperties;
+import com.account.dto.AccountDto;
+import com.account.exception.EngineUnavailableException;
+import com.account.model.Money;
+import com.account.repository.AccountView;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-memory account engine for {@code account.engine.enabled}: balances are kept in
+ * {@code account.engine.shards} {@link EngineShard}s that account ids are hashed to, and every command
+ * is journaled under {@code account.engine.directory} before it is answered. The {@code accounts} and
+ * {@code transactions} tables follow asynchronously through {@link EngineProjector}.
+ * <p>
+ * On start every shard loads its latest snapshot and replays its journal after it. On the first start
+ * in an empty directory the shards are seeded with the accounts already in the database, including
+ * the balances of their shards, and snapshotted at once. The shard count must not change while the
+ * directory holds a journal. The engine owns the balances of the node it runs on, so only one node may
+ * run it against a database.
+ * <p>
+ * {@link #takeSnapshots()} writes a snapshot of every shard and deletes the journal segments that are
+ * covered by it, projected, and no longer needed to deliver a transfer to another shard.
+ * <p>
+ * A shard whose journal cannot be forced stops taking commands, and its accounts answer with
+ * {@link EngineUnavailableException} until the engine is restarted. It is neither snapshotted nor
+ * projected past its last forced record.
+ */
+@Slf4j
+public class LedgerEngine implements SmartLifecycle {
+    private final AccountProperties.Engine settings;
+    private final Supplier<List<AccountView>> existingAccounts;
+    private final Clock clock;
+    private final Semaphore admission;
+    private final long timeoutNanos;
+    private final Map<String, Long> owners = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final AtomicLongArray projected;
+    private EngineShard[] shards;
+    private volatile boolean running;
+
+    public LedgerEngine(AccountProperties properties,
+                        Supplier<List<AccountView>> existingAccounts,
+                        Clock clock,
+                        MeterRegistry meterRegistry) {
+        this.settings = properties.getEngine();
+        this.existingAccounts = existingAccounts;
+        this.clock = clock;
+        this.admission = new Semaphore(settings.getQueueCapacity());
+        this.timeoutNanos = settings.getTimeout().toNanos();
+        this.projected = new AtomicLongArray(settings.getShards());
+        Gauge.builder("account.engine.queue", this, engine -> engine.admission.availablePermits())
+                .description("Free places in the engine admission queue")
+                .register(meterRegistry);
+    }
+
+    public AccountDto createAccount(String owner) {
+        long id = nextId.getAndIncrement();
+        if (owners.putIfAbsent(owner, id) != null) {
+            throw new DataIntegrityViolationException("Owner " + owner + " already has an account");
+        }
+        try {
+            return toDto(execute(id, result -> new EngineShard.Create(id, owner, result)));
+        } catch (RuntimeException e) {
+            owners.remove(owner, id);
+            throw e;
+        }
+    }
+
+    public AccountDto deposit(Long accountId, BigDecimal amount) {
+        long minor = toMinor(amount);
+        return toDto(execute(accountId, result -> new EngineShard.Deposit(accountId, minor, result)));
+    }
+
+    public AccountDto withdraw(Long accountId, BigDecimal amount) {
+        long minor = toMinor(amount);
+        return toDto(execute(accountId, result -> new EngineShard.Withdraw(accountId, minor, result)));
+    }
+
+    /**
+     * Returns the source account once the target shard has credited the amount. When the target
+     * account does not exist the amount is returned to the source account and
+     * {@code AccountNotFoundException} is thrown.
+     */
+    public AccountDto transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        long minor = toMinor(amount);
+        return toDto(execute(fromAccountId,
+                result -> new EngineShard.Transfer(fromAccountId, toAccountId, minor, result)));
+    }
+
+    public BigDecimal getBalance(Long accountId) {
+        EngineShard.AccountState state = execute(accountId, result -> new EngineShard.Balance(accountId, result));
+        return toAmount(state.balance());
+    }
+
+    /**
+     * Snapshots every shard and truncates its journal. Returns the number of accounts written.
+     */
+    public int takeSnapshots() {
+        if (!running) {
+            return 0;
+        }
+        int accounts = 0;
+        for (var shard : shards) {
+            if (shard.isFailed()) {
+                continue;
+            }
+            var captured = new CompletableFuture<EngineSnapshot>();
+            shard.submit(new EngineShard.Capture(captured));
+            var snapshot = await(captured, System.nanoTime() + timeoutNanos);
+            try {
+                snapshot.write(settings.getDirectory());
+                shard.truncate(Math.min(snapshot.seq(), Math.min(shard.deliveredSeq(), projected.get(shard.index()))));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            accounts += snapshot.ids().length;
+        }
+        log.debug("Wrote engine snapshots of {} accounts", accounts);
+        return accounts;
+    }
+
+    /**
+     * Records that the projection holds every record of {@code shard} up to {@code seq}, so the journal
+     * may be truncated up to it.
+     */
+    public void markProjected(int shard, long seq) {
+        projected.set(shard, seq);
+    }
+
+    int shardCount() {
+        return settings.getShards();
+    }
+
+    Path directory() {
+        return settings.getDirectory();
+    }
+
+    long publishedSeq(int shard) {
+        return shards[shard].publishedSeq();
+    }
+
+    @Override
+    public void start() {
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        halt();
+        if (shards == null) {
+            return;
+        }
+        try {
+            for (var shard : shards) {
+                if (!shard.isFailed()) {
+                    shard.capture().write(settings.getDirectory());
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to write the final engine snapshots", e);
+        }
+    }
+
+    /**
+     * Stops the shards and closes their journals without a final snapshot, so the next start replays
+     * the journals as after a crash.
+     */
+    void halt() {
+        running = false;
+        if (shards == null) {
+            return;
+        }
+        try {
+            for (var shard : shards) {
+                shard.stop(TimeUnit.NANOSECONDS.toMillis(timeoutNanos));
+                try {
+                    shard.close();
+                } catch (IOException | UncheckedIOException e) {
+                    log.error("Failed to close the journal of engine shard {}", shard.index(), e);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts before the web server and stops after it, so no request reaches a stopped engine.
+     */
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 2048;
+    }
+
+    private void recover() throws IOException {
+        var directory = settings.getDirectory();
+        Files.createDirectories(directory);
+        boolean fresh = !EngineSnapshot.exists(directory) && !hasJournal(directory);
+        int count = settings.getShards();
+        shards = new EngineShard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new EngineShard(i, count, journal(i), settings.getExpectedAccounts() / count,
+                    settings.getBatchSize(), settings.isFsync(), clock);
+        }
+        for (var shard : shards) {
+            shard.connect(shards);
+            shard.open(EngineSnapshot.latest(directory, shard.index()));
+        }
+        if (fresh) {
+            seed();
+        }
+        long maxId = 0;
+        for (var shard : shards) {
+            maxId = Math.max(maxId, shard.maxAccountId());
+            shard.forEachAccount((id, owner, balance, version) -> {
+                if (owner != null) {
+                    owners.put(owner, id);
+                }
+            });
+        }
+        nextId.set(maxId + 1);
+        for (var shard : shards) {
+            shard.redeliver();
+        }
+        for (var shard : shards) {
+            shard.start();
+        }
+        log.info("Engine recovered {} accounts in {} shards", owners.size(), count);
+    }
+
+    Journal journal(int shard) {
+        return new Journal(settings.getDirectory(), shard, settings.getSegmentSize());
+    }
+
+    private void seed() throws IOException {
+        int seeded = 0;
+        for (var account : existingAccounts.get()) {
+            shards[EngineShard.shardOf(account.getId(), shards.length)].seed(account.getId(), account.getOwner(),
+                    toMinor(account.getBalance()), account.getVersion() == null ? 0 : account.getVersion());
+            seeded++;
+        }
+        for (var shard : shards) {
+            shard.capture().write(settings.getDirectory());
+        }
+        log.info("Engine seeded with {} accounts from the database", seeded);
+    }
+
+    private <T> T execute(long accountId, Function<CompletableFuture<T>, EngineShard.Command> command) {
+        if (!running) {
+            throw new EngineUnavailableException();
+        }
+        var shard = shards[EngineShard.shardOf(accountId, shards.length)];
+        if (shard.isFailed()) {
+            throw new EngineUnavailableException();
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        try {
+            if (!admission.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new EngineUnavailableException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EngineUnavailableException();
+        }
+        var result = new CompletableFuture<T>();
+        result.whenComplete((value, error) -> admission.release());
+        shard.submit(command.apply(result));
+        return await(result, deadline);
+    }
+
+    private static <T> T await(CompletableFuture<T> result, long deadline) {
+        try {
+            return result.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EngineUnavailableException();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new EngineUnavailableException();
+        }
+    }
+
+    private static boolean hasJournal(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.anyMatch(path -> path.getFileName().toString().startsWith("journal-"));
+        }
+    }
+
+    static long toMinor(BigDecimal amount) {
+        return Money.of(amount).kopecks();
+    }
+
+    static BigDecimal toAmount(long minor) {
+        return Money.ofKopecks(minor).toBigDecimal();
+    }
+
+    private static AccountDto toDto(EngineShard.AccountState state) {
+        return new AccountDto(state.id(), state.owner(), toAmount(state.balance()));
+    }
+}
@@ -0,0 +1,56 @@
+package com.account.service.feed;
+
+import com.account.dto.BalanceEventDto;
+import com.account.model.Money;
+
+import java.time.Instant;
+
+/**
+ * Committed change of one account: the balance and row version after it, and the deposits and
+ * withdrawals that led to it.
+ * <p>
+ * The balance and version of a sharded account are {@code null}, since the balance is spread over the
+ * shards; such an event only tells the subscriber to read the balance again.
+ */
+public record BalanceEvent(Long accountId, Money balance, Long version, Money deposits, long depositCount,
+                           Money withdrawals, long withdrawalCount, Instant time) {
+
+    /**
+     * Current balance without transactions, sent first to a new subscriber.
+     */
+    public static BalanceEvent current(Long accountId, Money balance, Long version) {
+        return new BalanceEvent(accountId, balance, version, Money.ZERO, 0, Money.ZERO, 0, Instant.now());
+    }
+
+    public boolean hasTransactions() {
+        return depositCount + withdrawalCount > 0;
+    }
+
+    /**
+     * Whether {@code other} already carries this balance or a newer one. Events without a version are
+     * never superseded.
+     */
+    public boolean isSupersededBy(BalanceEvent other) {
+        return version != null && other.version != null && version <= other.version;
+    }
+
+    /**
+     * One event for this change followed by {@code later}: the newer balance of the two and the
+     * transactions of both.
+     */
+    public BalanceEvent merge(BalanceEvent later) {
+        var latest = later.isSupersededBy(this) ? this : later;
+        return new BalanceEvent(accountId, latest.balance, latest.version,
+                deposits.plus(later.deposits), depositCount + later.depositCount,
+                withdrawals.plus(later.withdrawals), withdrawalCount + later.withdrawalCount, latest.time);
+    }
+
+    public BalanceEvent withoutTransactions() {
+        return new BalanceEvent(accountId, balance, version, Money.ZERO, 0, Money.ZERO, 0, time);
+    }
+
+    public BalanceEventDto toDto() {
+        return new BalanceEventDto(accountId, balance == null ? null : balance.toBigDecimal(),
+                deposits.toBigDecimal(), depositCount, withdrawals.toBigDecimal(), withdrawalCount, time);
+    }
+}
@@ -0,0 +1,14 @@
+package com.account.service.feed;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries {@link BalanceEvent} messages from the node that committed a change to the balance feeds of
+ * all nodes, including its own.
+ */
+public interface BalanceEventBus {
+
+    void publish(BalanceEvent event);
+
+    void subscribe(Consumer<BalanceEvent> listener);
+}
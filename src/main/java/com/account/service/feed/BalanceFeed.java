@@ -0,0 +1,363 @@
+package com.account.service.feed;
+
+import com.account.config.AccountProperties;
+import com.account.exception.BalanceFeedDisabledException;
+import com.account.model.Account;
+import com.account.model.Money;
+import com.account.model.Transaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes committed balance changes to the subscribers of the accounts.
+ * <p>
+ * Transactions reported with {@link #publishAfterCommit(Transaction, boolean)} are summed up per
+ * account, and once the database transaction commits one {@link BalanceEvent} per changed account is
+ * published on the {@link BalanceEventBus}. Every node passes the events of the bus to its own
+ * subscribers, and {@code account.feed.delivery-threads} threads write them out, so neither the
+ * committing thread nor the bus waits for a slow client.
+ * <p>
+ * A write blocks until the client takes the data, so it runs on a writer thread of its own and the
+ * delivery thread waits at most {@code account.feed.write-timeout} for it. A subscription whose write
+ * misses the deadline is closed; its writer stays blocked until the connection times out, but the
+ * other subscribers are not held up.
+ * <p>
+ * A subscriber has at most one undelivered event per account: a newer event is merged into it, so
+ * the buffer of a slow subscriber is bounded by the number of its accounts and it gets the latest
+ * balance together with all transactions since its previous event.
+ */
+@Slf4j
+public class BalanceFeed implements AutoCloseable {
+    private final BalanceEventBus bus;
+    private final boolean enabled;
+    private final Duration timeout;
+    private final long writeTimeoutNanos;
+    private final ExecutorService executor;
+    private final ExecutorService writers;
+    private final Map<Long, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Counter published;
+    private final Counter coalesced;
+    private final Counter writeTimeouts;
+
+    public BalanceFeed(AccountProperties properties, BalanceEventBus bus, MeterRegistry meterRegistry) {
+        var feedProperties = properties.getFeed();
+        this.bus = bus;
+        this.enabled = feedProperties.isEnabled();
+        this.timeout = feedProperties.getTimeout();
+        this.writeTimeoutNanos = feedProperties.getWriteTimeout().toNanos();
+        this.executor = enabled
+                ? Executors.newFixedThreadPool(feedProperties.getDeliveryThreads(), daemonThreads("balance-feed-"))
+                : null;
+        this.writers = enabled ? Executors.newCachedThreadPool(daemonThreads("balance-feed-writer-")) : null;
+        this.published = Counter.builder("account.feed.published")
+                .description("Balance events published after commit")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("account.feed.coalesced")
+                .description("Balance events merged into an undelivered event of the same account")
+                .register(meterRegistry);
+        this.writeTimeouts = Counter.builder("account.feed.write.timeouts")
+                .description("Subscriptions closed because a write took longer than account.feed.write-timeout")
+                .register(meterRegistry);
+        Gauge.builder("account.feed.subscribers", subscribers, AtomicInteger::get)
+                .description("Open balance feed subscriptions")
+                .register(meterRegistry);
+        if (enabled) {
+            bus.subscribe(this::onEvent);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * How long a subscription stays open before the client has to subscribe again.
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * Reports a transaction of the current database transaction, to be published once it commits. The
+     * account of the transaction is read at that point, so versions incremented by the commit flush are
+     * included.
+     *
+     * @param sharded whether the balance of the account is spread over shards and unknown here
+     */
+    public void publishAfterCommit(Transaction transaction, boolean sharded) {
+        if (!enabled) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publish(new Change(transaction.getAccount(), sharded).add(transaction));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        var pending = (Map<Long, Change>) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            var changes = new LinkedHashMap<Long, Change>();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    changes.values().forEach(BalanceFeed.this::publish);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(BalanceFeed.this);
+                }
+            });
+            pending = changes;
+        }
+        pending.computeIfAbsent(transaction.getAccount().getId(), id -> new Change(transaction.getAccount(), sharded))
+                .add(transaction);
+    }
+
+    /**
+     * Opens a subscription to the events of {@code accountIds}. Events are passed to {@code sink} one
+     * at a time; the subscription is closed when the sink fails.
+     */
+    public Subscription subscribe(Collection<Long> accountIds, Sink sink) {
+        if (!enabled) {
+            throw new BalanceFeedDisabledException();
+        }
+        var subscription = new Subscription(Set.copyOf(accountIds), sink);
+        for (var accountId : subscription.accountIds) {
+            subscriptions.compute(accountId, (id, accountSubscriptions) -> {
+                var updated = accountSubscriptions == null
+                        ? ConcurrentHashMap.<Subscription>newKeySet()
+                        : accountSubscriptions;
+                updated.add(subscription);
+                return updated;
+            });
+        }
+        subscribers.incrementAndGet();
+        return subscription;
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+            writers.shutdownNow();
+        }
+    }
+
+    private void publish(Change change) {
+        try {
+            bus.publish(change.toEvent());
+            published.increment();
+        } catch (RuntimeException e) {
+            log.warn("Could not publish the balance of account {}", change.account.getId(), e);
+        }
+    }
+
+    private void onEvent(BalanceEvent event) {
+        var accountSubscriptions = subscriptions.get(event.accountId());
+        if (accountSubscriptions != null) {
+            accountSubscriptions.forEach(subscription -> subscription.offer(event));
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        var count = new AtomicInteger();
+        return runnable -> {
+            var thread = new Thread(runnable, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * Writes one event to a subscriber, for example as a server-sent event.
+     */
+    @FunctionalInterface
+    public interface Sink {
+        void send(BalanceEvent event) throws IOException;
+    }
+
+    /**
+     * Events of some accounts for one subscriber. At most one delivery task runs for a subscription at a
+     * time, so its events are sent in order.
+     */
+    public class Subscription implements AutoCloseable {
+        private final Set<Long> accountIds;
+        private final Sink sink;
+        private final Map<Long, BalanceEvent> pending = new LinkedHashMap<>();
+        private final Map<Long, BalanceEvent> delivered = new HashMap<>();
+        private boolean scheduled;
+        private boolean closed;
+
+        private Subscription(Set<Long> accountIds, Sink sink) {
+            this.accountIds = accountIds;
+            this.sink = sink;
+        }
+
+        /**
+         * Queues an event for delivery, merged into the undelivered event of the same account if there is
+         * one.
+         */
+        public void offer(BalanceEvent event) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                var previous = pending.get(event.accountId());
+                if (previous == null) {
+                    pending.put(event.accountId(), event);
+                } else {
+                    pending.put(event.accountId(), previous.merge(event));
+                    coalesced.increment();
+                }
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                close();
+            }
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                pending.clear();
+            }
+            for (var accountId : accountIds) {
+                subscriptions.computeIfPresent(accountId, (id, accountSubscriptions) -> {
+                    accountSubscriptions.remove(this);
+                    return accountSubscriptions.isEmpty() ? null : accountSubscriptions;
+                });
+            }
+            subscribers.decrementAndGet();
+        }
+
+        private void drain() {
+            while (true) {
+                List<BalanceEvent> events;
+                synchronized (this) {
+                    if (closed || pending.isEmpty()) {
+                        scheduled = false;
+                        return;
+                    }
+                    events = new ArrayList<>(pending.values());
+                    pending.clear();
+                }
+                for (var event : events) {
+                    if (!send(event)) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Sends an event unless the subscriber already has its balance. A late event with transactions
+         * is sent with the newer balance the subscriber already has.
+         */
+        private boolean send(BalanceEvent event) {
+            var previous = delivered.get(event.accountId());
+            if (previous != null && event.isSupersededBy(previous)) {
+                if (!event.hasTransactions()) {
+                    return true;
+                }
+                event = previous.withoutTransactions().merge(event);
+            }
+            var sending = event;
+            Future<?> write = null;
+            try {
+                write = writers.submit(() -> {
+                    sink.send(sending);
+                    return null;
+                });
+                write.get(writeTimeoutNanos, TimeUnit.NANOSECONDS);
+                delivered.put(event.accountId(), event);
+                return true;
+            } catch (TimeoutException e) {
+                writeTimeouts.increment();
+                log.debug("Balance feed subscriber of accounts {} does not take events", accountIds);
+                write.cancel(true);
+            } catch (ExecutionException | RejectedExecutionException e) {
+                log.debug("Balance feed subscriber of accounts {} is gone", accountIds, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            close();
+            return false;
+        }
+    }
+
+    /**
+     * Transactions of one account in the current database transaction.
+     */
+    private static final class Change {
+        private Account account;
+        private final boolean sharded;
+        private Money deposits = Money.ZERO;
+        private long depositCount;
+        private Money withdrawals = Money.ZERO;
+        private long withdrawalCount;
+        private Instant time;
+
+        private Change(Account account, boolean sharded) {
+            this.account = account;
+            this.sharded = sharded;
+        }
+
+        private Change add(Transaction transaction) {
+            account = transaction.getAccount();
+            time = transaction.getTime();
+            switch (transaction.getType()) {
+                case DEPOSIT -> {
+                    deposits = deposits.plus(transaction.getAmount());
+                    depositCount++;
+                }
+                case WITHDRAW -> {
+                    withdrawals = withdrawals.plus(transaction.getAmount());
+                    withdrawalCount++;
+                }
+            }
+            return this;
+        }
+
+        private BalanceEvent toEvent() {
+            return new BalanceEvent(account.getId(), sharded ? null : account.getBalance(),
+                    sharded ? null : account.getVersion(), deposits, depositCount, withdrawals, withdrawalCount,
+                    time);
+        }
+    }
+}
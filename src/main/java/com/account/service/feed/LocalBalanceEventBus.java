@@ -0,0 +1,23 @@
+package com.account.service.feed;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Delivers events synchronously to every subscriber in this JVM. Stands in for a broker on a single
+ * node and in tests.
+ */
+public class LocalBalanceEventBus implements BalanceEventBus {
+    private final List<Consumer<BalanceEvent>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(BalanceEvent event) {
+        listeners.forEach(listener -> listener.accept(event));
+    }
+
+    @Override
+    public void subscribe(Consumer<BalanceEvent> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,244 @@
+package com.account.service.idempotency;
+
+import com.account.config.AccountProperties;
+import com.account.exception.EngineUnavailableException;
+import com.account.exception.IdempotencyKeyInProgressException;
+import com.account.exception.IdempotencyKeyReuseException;
+import com.account.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.transaction.Transactional;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * Replays the stored response of a mutating request that is sent again with the same
+ * {@code Idempotency-Key}.
+ * <p>
+ * {@link #execute} runs the operation with the key bound to the calling thread, and the operation
+ * passes its result to {@link #remember} inside its own transaction. The key is therefore committed
+ * together with the balance change or not at all, and the primary key of {@code idempotency_keys}
+ * lets only one of two concurrent requests with the same key commit; the other replays its response.
+ * <p>
+ * Operations that do not write the database in a transaction of their own, such as those of the
+ * in-memory engine, go through {@link #executeClaimed} instead.
+ * <p>
+ * Recently stored responses are kept in a bounded cache in front of the table, so most replays touch
+ * neither the table nor the account row. Keys are kept for {@code account.idempotency.retention}.
+ */
+public class IdempotencyService {
+    private final IdempotencyKeyRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+    private final Duration retention;
+    private final Cache<String, StoredResponse> cache;
+    private final ThreadLocal<PendingKey> pending = new ThreadLocal<>();
+
+    public IdempotencyService(IdempotencyKeyRepository repository,
+                              ObjectMapper objectMapper,
+                              Clock clock,
+                              AccountProperties properties,
+                              MeterRegistry meterRegistry) {
+        var idempotency = properties.getIdempotency();
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        this.retention = idempotency.getRetention();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(idempotency.getCacheSize())
+                .expireAfterWrite(retention)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "idempotency");
+    }
+
+    /**
+     * Runs {@code operation} once per {@code key}. A repeated call with the same key and request returns
+     * the first response; the same key with a different request is rejected.
+     *
+     * @param key     value of the {@code Idempotency-Key} header, {@code null} to run without deduplication
+     * @param request description of the request, compared with the one the key was first used for
+     */
+    public <T> T execute(String key, String request, TypeReference<T> type, Supplier<T> operation) {
+        if (key == null) {
+            return operation.get();
+        }
+        var requestHash = hash(request);
+        var stored = find(key);
+        if (stored != null) {
+            return replay(key, requestHash, stored, type);
+        }
+        pending.set(new PendingKey(key, requestHash));
+        try {
+            return operation.get();
+        } catch (DataIntegrityViolationException e) {
+            stored = find(key);
+            if (stored == null) {
+                throw e;
+            }
+            return replay(key, requestHash, stored, type);
+        } finally {
+            pending.remove();
+        }
+    }
+
+    /**
+     * Like {@link #execute}, for an operation that runs outside of a database transaction. The key is
+     * claimed in a committed transaction of its own before the operation runs, so a repeated or
+     * concurrent request with the key never reaches the operation, and the response is stored once the
+     * operation returns. A rejected operation releases the claim so the request can be retried.
+     * <p>
+     * {@link EngineUnavailableException} keeps the claim: after a timeout or a journal failure the
+     * operation may still be applied, and a retry is answered with
+     * {@link IdempotencyKeyInProgressException} rather than applied twice. The claim then expires with
+     * the key.
+     */
+    public <T> T executeClaimed(String key, String request, TypeReference<T> type, Supplier<T> operation) {
+        if (key == null) {
+            return operation.get();
+        }
+        var requestHash = hash(request);
+        var stored = find(key);
+        if (stored == null) {
+            try {
+                repository.claim(key, requestHash, clock.instant());
+            } catch (DataIntegrityViolationException e) {
+                stored = find(key);
+                if (stored == null) {
+                    throw e;
+                }
+            }
+        }
+        if (stored != null) {
+            return replay(key, requestHash, stored, type);
+        }
+        T response;
+        try {
+            response = operation.get();
+        } catch (EngineUnavailableException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            repository.release(key);
+            throw e;
+        }
+        var json = write(response);
+        repository.complete(key, json);
+        cache.put(key, new StoredResponse(requestHash, json));
+        return response;
+    }
+
+    /**
+     * Wraps {@code operation} so that it sees the key of the current {@link #execute} call when it runs
+     * on another thread.
+     */
+    public <T> Callable<T> withCurrentKey(Callable<T> operation) {
+        var key = pending.get();
+        if (key == null) {
+            return operation;
+        }
+        return () -> {
+            pending.set(key);
+            try {
+                return operation.call();
+            } finally {
+                pending.remove();
+            }
+        };
+    }
+
+    /**
+     * Stores {@code response} under the key of the current {@link #execute} call in the current
+     * transaction, and returns it unchanged.
+     */
+    public <T> T remember(T response) {
+        var key = pending.get();
+        if (key == null) {
+            return response;
+        }
+        var json = write(response);
+        repository.insert(key.key(), key.requestHash(), json, clock.instant());
+        var stored = new StoredResponse(key.requestHash(), json);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.put(key.key(), stored);
+                }
+            });
+        } else {
+            cache.put(key.key(), stored);
+        }
+        return response;
+    }
+
+    @Transactional
+    public int purge() {
+        return repository.deleteCreatedBefore(clock.instant().minus(retention));
+    }
+
+    private StoredResponse find(String key) {
+        var cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        var stored = repository.findById(key)
+                .map(row -> new StoredResponse(row.getRequestHash(), row.getResponse()))
+                .orElse(null);
+        if (stored != null && stored.response() != null) {
+            cache.put(key, stored);
+        }
+        return stored;
+    }
+
+    private <T> T replay(String key, String requestHash, StoredResponse stored, TypeReference<T> type) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReuseException(key);
+        }
+        if (stored.response() == null) {
+            throw new IdempotencyKeyInProgressException(key);
+        }
+        try {
+            return objectMapper.readValue(stored.response(), type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored response of idempotency key " + key + " is unreadable", e);
+        }
+    }
+
+    private String write(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Response is not serializable", e);
+        }
+    }
+
+    private static String hash(String request) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(request.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record PendingKey(String key, String requestHash) {
+    }
+
+    private record StoredResponse(String requestHash, String response) {
+    }
+}
@@ -0,0 +1,230 @@
+package com.account.service.ledger;
+
+import com.account.config.AccountProperties;
+import com.account.service.idempotency.IdempotencyService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the balance changes of many callers in one database transaction, so the commit is paid once
+ * per group instead of once per operation.
+ * <p>
+ * A call is queued, up to {@code account.ledger.queue-capacity} calls, and a single writer thread
+ * takes a group of up to {@code account.ledger.flush-size} calls, waiting at most
+ * {@code account.ledger.max-latency} after the first one for the group to fill. Every call of the group
+ * joins the transaction of the writer, so a balance change and its ledger lines are committed
+ * together, and a caller gets its result only after that transaction has committed.
+ * <p>
+ * A failed participant marks the shared transaction rollback-only, so when a call fails the group is
+ * rolled back and run again without it, and the failed call runs alone in a transaction of its own; a
+ * caller gets the same result or exception as without grouping. A call made inside a transaction, or
+ * when the queue is full or the writer is stopped, runs at once on the calling thread.
+ */
+@Slf4j
+public class GroupCommitter implements MethodInterceptor, SmartLifecycle {
+    private final IdempotencyService idempotencyService;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Call> queue;
+    private final int flushSize;
+    private final long maxLatencyNanos;
+    private final Timer commitTimer;
+    private final DistributionSummary groupSize;
+    private final Counter replayed;
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public GroupCommitter(IdempotencyService idempotencyService,
+                          PlatformTransactionManager transactionManager,
+                          AccountProperties properties,
+                          MeterRegistry meterRegistry) {
+        var ledger = properties.getLedger();
+        this.idempotencyService = idempotencyService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.queue = new ArrayBlockingQueue<>(ledger.getQueueCapacity());
+        this.flushSize = ledger.getFlushSize();
+        this.maxLatencyNanos = ledger.getMaxLatency().toNanos();
+        this.commitTimer = Timer.builder("account.ledger.commit")
+                .description("Time to run and commit one group of operations")
+                .register(meterRegistry);
+        this.groupSize = DistributionSummary.builder("account.ledger.group.size")
+                .description("Operations committed per group")
+                .register(meterRegistry);
+        this.replayed = Counter.builder("account.ledger.group.replayed")
+                .description("Operations run again after their group was rolled back")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Object invoke(@NotNull MethodInvocation invocation) throws Throwable {
+        if (TransactionSynchronizationManager.isActualTransactionActive() || !running) {
+            return invocation.proceed();
+        }
+        var call = new Call(idempotencyService.withCurrentKey(() -> proceed(invocation)), new CompletableFuture<>());
+        if (!queue.offer(call)) {
+            return invocation.proceed();
+        }
+        if (!running && queue.remove(call)) {
+            return invocation.proceed();
+        }
+        try {
+            return call.result().join();
+        } catch (CompletionException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        writerThread = new Thread(this::drain, "ledger-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts before the web server and stops after it, so the queue is empty when the writer stops.
+     */
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 2048;
+    }
+
+    private void drain() {
+        var group = new ArrayList<Call>(flushSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = System.nanoTime() + maxLatencyNanos;
+                while (group.size() < flushSize) {
+                    var next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                commit(group);
+            } catch (InterruptedException e) {
+                if (running) {
+                    log.warn("Ledger writer interrupted while running");
+                }
+            } finally {
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * Runs {@code group} in one transaction. When a call fails, the calls before it are committed as a
+     * group again, the failed call is run alone for its own result, and the calls after it form a new
+     * group; when the commit fails, every call is run alone.
+     */
+    private void commit(List<Call> group) {
+        if (group.isEmpty()) {
+            return;
+        }
+        int[] failed = {-1};
+        List<Object> results;
+        try {
+            results = commitTimer.record(() -> transactionTemplate.execute(status -> {
+                var values = new ArrayList<>(group.size());
+                for (var call : group) {
+                    failed[0]++;
+                    values.add(call(call.operation()));
+                }
+                failed[0] = -1;
+                return values;
+            }));
+        } catch (RuntimeException | Error e) {
+            if (failed[0] < 0) {
+                log.debug("Commit of {} operations failed, running them one by one", group.size(), e);
+                replayed.increment(group.size());
+                group.forEach(GroupCommitter::runAlone);
+                return;
+            }
+            replayed.increment(failed[0] + 1);
+            commit(group.subList(0, failed[0]));
+            runAlone(group.get(failed[0]));
+            commit(group.subList(failed[0] + 1, group.size()));
+            return;
+        }
+        groupSize.record(group.size());
+        for (int i = 0; i < group.size(); i++) {
+            group.get(i).result().complete(results.get(i));
+        }
+    }
+
+    private static void runAlone(Call call) {
+        try {
+            call.result().complete(call.operation().call());
+        } catch (Throwable e) {
+            call.result().completeExceptionally(e);
+        }
+    }
+
+    private static Object call(Callable<Object> operation) {
+        try {
+            return operation.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Proceeds with a copy of the invocation, so a call can be run again after its group rolled back.
+     */
+    private static Object proceed(MethodInvocation invocation) throws Exception {
+        try {
+            return ((ProxyMethodInvocation) invocation).invocableClone().proceed();
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private record Call(Callable<Object> operation, CompletableFuture<Object> result) {
+    }
+}
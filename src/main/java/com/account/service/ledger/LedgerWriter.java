@@ -0,0 +1,12 @@
+package com.account.service.ledger;
+
+import com.account.model.Transaction;
+
+public interface LedgerWriter {
+
+    /**
+     * Appends a ledger line to the caller's transaction. The line may be inserted later, but always
+     * before that transaction commits.
+     */
+    void append(Transaction transaction);
+}
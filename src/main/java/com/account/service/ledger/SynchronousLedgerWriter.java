@@ -0,0 +1,18 @@
+package com.account.service.ledger;
+
+import com.account.model.Transaction;
+import com.account.repository.TransactionRepository;
+import lombok.AccessLevel;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+@RequiredArgsConstructor
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class SynchronousLedgerWriter implements LedgerWriter {
+    TransactionRepository transactionRepository;
+
+    @Override
+    public void append(Transaction transaction) {
+        transactionRepository.save(transaction);
+    }
+}
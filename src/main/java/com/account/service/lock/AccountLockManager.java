@@ -0,0 +1,140 @@
+package com.account.service.lock;
+
+import com.account.config.AccountProperties;
+import com.account.exception.AccountLockTimeoutException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of {@link ReentrantLock} stripes keyed by account id.
+ * <p>
+ * Stripes of a multi-account operation are always taken in ascending stripe order, so two transfers
+ * between the same accounts in opposite directions cannot deadlock. When called inside a transaction
+ * the locks are held until the transaction completes, otherwise until the returned handle is closed.
+ */
+@Component
+public class AccountLockManager {
+    private final ReentrantLock[] stripes;
+    private final long timeoutNanos;
+    private final Timer waitTimer;
+    private final Counter contendedCounter;
+    private final Counter timeoutCounter;
+
+    public AccountLockManager(AccountProperties properties, MeterRegistry meterRegistry) {
+        var lockProperties = properties.getLock();
+        if (lockProperties.getStripes() <= 0) {
+            throw new IllegalArgumentException("account.lock.stripes must be positive");
+        }
+        this.stripes = new ReentrantLock[lockProperties.getStripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.timeoutNanos = lockProperties.getTimeout().toNanos();
+        this.waitTimer = Timer.builder("account.lock.wait")
+                .description("Time spent waiting for account lock stripes")
+                .register(meterRegistry);
+        this.contendedCounter = Counter.builder("account.lock.contended")
+                .description("Lock acquisitions that had to wait for another operation")
+                .register(meterRegistry);
+        this.timeoutCounter = Counter.builder("account.lock.timeouts")
+                .description("Lock acquisitions abandoned after account.lock.timeout")
+                .register(meterRegistry);
+    }
+
+    public LockHandle lock(Long... accountIds) {
+        int[] indexes = Arrays.stream(accountIds)
+                .mapToInt(this::stripeIndex)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        long start = System.nanoTime();
+        int acquired = 0;
+        try {
+            for (int index : indexes) {
+                if (!acquire(stripes[index], start)) {
+                    timeoutCounter.increment();
+                    throw new AccountLockTimeoutException(accountIds);
+                }
+                acquired++;
+            }
+        } finally {
+            if (acquired < indexes.length) {
+                release(indexes, acquired);
+            }
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        var handle = new LockHandle(indexes);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            handle.bindToTransaction();
+        }
+        return handle;
+    }
+
+    int stripeIndex(Long accountId) {
+        long hash = accountId * 0x9E3779B97F4A7C15L;
+        return (int) Math.floorMod(hash ^ (hash >>> 32), (long) stripes.length);
+    }
+
+    private boolean acquire(ReentrantLock lock, long start) {
+        if (lock.tryLock()) {
+            return true;
+        }
+        contendedCounter.increment();
+        try {
+            return lock.tryLock(timeoutNanos - (System.nanoTime() - start), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void release(int[] indexes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    public final class LockHandle implements AutoCloseable {
+        private final int[] indexes;
+        private boolean boundToTransaction;
+        private boolean released;
+
+        private LockHandle(int[] indexes) {
+            this.indexes = indexes;
+        }
+
+        private void bindToTransaction() {
+            boundToTransaction = true;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    releaseOnce();
+                }
+            });
+        }
+
+        private void releaseOnce() {
+            if (!released) {
+                released = true;
+                release(indexes, indexes.length);
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!boundToTransaction) {
+                releaseOnce();
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.account.service.metrics;
+
+/**
+ * Per-thread running totals of JDBC statements, rows and time spent in the driver, so that the work
+ * can be attributed to the operation running on the thread.
+ */
+public class DbCallRecorder {
+    private final ThreadLocal<Calls> calls = ThreadLocal.withInitial(Calls::new);
+
+    public Calls current() {
+        return calls.get();
+    }
+
+    public static final class Calls {
+        long statements;
+        long rows;
+        long nanos;
+
+        public long statements() {
+            return statements;
+        }
+
+        public long rows() {
+            return rows;
+        }
+
+        public long nanos() {
+            return nanos;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.account.service.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Counts executed statements, affected or read rows and time spent in JDBC calls, both in total and
+ * per thread through {@link DbCallRecorder}.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource {
+    private final DbCallRecorder recorder;
+    private final Counter statementCounter;
+    private final Counter rowCounter;
+
+    public InstrumentedDataSource(DataSource dataSource, DbCallRecorder recorder, MeterRegistry meterRegistry) {
+        super(dataSource);
+        this.recorder = recorder;
+        this.statementCounter = Counter.builder("account.db.statements")
+                .description("JDBC statements executed")
+                .register(meterRegistry);
+        this.rowCounter = Counter.builder("account.db.rows")
+                .description("Rows returned or affected by JDBC statements")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return connection(super.getConnection(username, password));
+    }
+
+    private Connection connection(Connection connection) {
+        return proxy(Connection.class, connection, (method, args) -> {
+            var result = invoke(connection, method, args);
+            if (result instanceof CallableStatement statement) {
+                return statement(CallableStatement.class, statement);
+            }
+            if (result instanceof PreparedStatement statement) {
+                return statement(PreparedStatement.class, statement);
+            }
+            if (result instanceof Statement statement) {
+                return statement(Statement.class, statement);
+            }
+            return result;
+        });
+    }
+
+    private <S extends Statement> S statement(Class<S> type, S statement) {
+        return proxy(type, statement, (method, args) -> {
+            var name = method.getName();
+            if (!name.startsWith("execute")) {
+                var result = invoke(statement, method, args);
+                return name.equals("getResultSet") && result != null ? resultSet((ResultSet) result) : result;
+            }
+            var calls = recorder.current();
+            long start = System.nanoTime();
+            try {
+                var result = invoke(statement, method, args);
+                long rows = rows(result);
+                if (rows > 0) {
+                    calls.rows += rows;
+                    rowCounter.increment(rows);
+                }
+                return result instanceof ResultSet resultSet ? resultSet(resultSet) : result;
+            } finally {
+                calls.nanos += System.nanoTime() - start;
+                calls.statements++;
+                statementCounter.increment();
+            }
+        });
+    }
+
+    private ResultSet resultSet(ResultSet resultSet) {
+        return proxy(ResultSet.class, resultSet, (method, args) -> {
+            var result = invoke(resultSet, method, args);
+            if (method.getName().equals("next") && Boolean.TRUE.equals(result)) {
+                recorder.current().rows++;
+                rowCounter.increment();
+            }
+            return result;
+        });
+    }
+
+    private static long rows(Object result) {
+        if (result instanceof Integer count) {
+            return Math.max(count, 0);
+        }
+        if (result instanceof Long count) {
+            return Math.max(count, 0);
+        }
+        if (result instanceof int[] counts) {
+            return sum(counts);
+        }
+        if (result instanceof long[] counts) {
+            return sum(counts);
+        }
+        return 0;
+    }
+
+    private static long sum(int[] counts) {
+        long rows = 0;
+        for (int count : counts) {
+            rows += Math.max(count, 0);
+        }
+        return rows;
+    }
+
+    private static long sum(long[] counts) {
+        long rows = 0;
+        for (long count : counts) {
+            rows += Math.max(count, 0);
+        }
+        return rows;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static <T> T proxy(Class<T> type, T target, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> handler.handle(method, args)));
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Method method, Object[] args) throws Throwable;
+    }
+}
@@ -0,0 +1,129 @@
+package com.account.service.metrics;
+
+import com.account.exception.AccountLockTimeoutException;
+import com.account.exception.AccountNotFoundException;
+import com.account.exception.IdempotencyKeyReuseException;
+import com.account.exception.NotEnoughMoneyException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the latency of every call as {@code account.operation}, tagged with the method name and
+ * {@link Outcome}, and the JDBC statements, rows and time the call spent on its own thread as
+ * {@code account.operation.db.*}. Calls that did not reach the database, such as cached reads, only
+ * record their latency, so the count of {@code account.operation.db.statements} is the number of calls
+ * that did.
+ * <p>
+ * Work done on other threads, such as operations run in a group commit, is not attributed to the caller.
+ */
+public class OperationMetricsInterceptor implements MethodInterceptor {
+    private final MeterRegistry meterRegistry;
+    private final DbCallRecorder recorder;
+    private final Map<Method, Meters[]> meters = new ConcurrentHashMap<>();
+
+    public OperationMetricsInterceptor(MeterRegistry meterRegistry, DbCallRecorder recorder) {
+        this.meterRegistry = meterRegistry;
+        this.recorder = recorder;
+    }
+
+    @Override
+    public Object invoke(@NotNull MethodInvocation invocation) throws Throwable {
+        var calls = recorder.current();
+        long statements = calls.statements;
+        long rows = calls.rows;
+        long nanos = calls.nanos;
+        long start = System.nanoTime();
+        var outcome = Outcome.OK;
+        try {
+            return invocation.proceed();
+        } catch (Throwable e) {
+            outcome = Outcome.of(e);
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            var operation = meters(invocation.getMethod(), outcome);
+            operation.latency.record(elapsed, TimeUnit.NANOSECONDS);
+            if (calls.statements != statements) {
+                operation.statements.record(calls.statements - statements);
+                operation.rows.record(calls.rows - rows);
+                operation.dbTime.record(calls.nanos - nanos, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private Meters meters(Method method, Outcome outcome) {
+        var byOutcome = meters.computeIfAbsent(method, key -> new Meters[Outcome.values().length]);
+        var operation = byOutcome[outcome.ordinal()];
+        if (operation == null) {
+            operation = register(method, outcome);
+            byOutcome[outcome.ordinal()] = operation;
+        }
+        return operation;
+    }
+
+    private Meters register(Method method, Outcome outcome) {
+        String[] tags = {"operation", method.getName(), "outcome", outcome.tag};
+        return new Meters(
+                Timer.builder("account.operation")
+                        .description("Account operation latency")
+                        .tags(tags)
+                        .register(meterRegistry),
+                DistributionSummary.builder("account.operation.db.statements")
+                        .description("JDBC statements executed per operation")
+                        .tags(tags)
+                        .register(meterRegistry),
+                DistributionSummary.builder("account.operation.db.rows")
+                        .description("Rows returned or affected per operation")
+                        .tags(tags)
+                        .register(meterRegistry),
+                Timer.builder("account.operation.db.time")
+                        .description("Time spent in JDBC calls per operation")
+                        .tags(tags)
+                        .register(meterRegistry));
+    }
+
+    public enum Outcome {
+        OK("ok"),
+        NOT_FOUND("not-found"),
+        INSUFFICIENT_FUNDS("insufficient-funds"),
+        CONFLICT("conflict"),
+        ERROR("error");
+
+        private final String tag;
+
+        Outcome(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+
+        public static Outcome of(Throwable e) {
+            if (e instanceof AccountNotFoundException) {
+                return NOT_FOUND;
+            }
+            if (e instanceof NotEnoughMoneyException) {
+                return INSUFFICIENT_FUNDS;
+            }
+            if (e instanceof AccountLockTimeoutException || e instanceof ConcurrencyFailureException
+                    || e instanceof IdempotencyKeyReuseException) {
+                return CONFLICT;
+            }
+            return ERROR;
+        }
+    }
+
+    private record Meters(Timer latency, DistributionSummary statements, DistributionSummary rows, Timer dbTime) {
+    }
+}
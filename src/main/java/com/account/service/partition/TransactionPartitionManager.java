@@ -0,0 +1,162 @@
+package com.account.service.partition;
+
+import com.account.config.AccountProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Maintains the monthly range partitions of the {@code transactions} table.
+ * <p>
+ * Partitions for the current month and {@code account.partitioning.premake-months} months ahead are
+ * created in advance. Partitions whose month ended more than {@code account.partitioning.retention-months}
+ * ago are detached, copied to a gzipped CSV file in {@code account.partitioning.archive-dir} and dropped.
+ * A partition is only dropped once its archive file is on disk, and a partition left detached by a
+ * failed run is archived by the next one.
+ * <p>
+ * Every node schedules the maintenance, so a run first takes a session-level advisory lock on a
+ * connection of its own and is skipped while another node holds it.
+ */
+@Slf4j
+public class TransactionPartitionManager {
+    private static final String TABLE = "transactions";
+    private static final Pattern PARTITION_NAME = Pattern.compile(TABLE + "_p(\\d{6})");
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+    /**
+     * Advisory lock key of the maintenance, the same on every node.
+     */
+    private static final long LOCK_KEY = 0x7472616e73L;
+    private static final String TRY_LOCK = "SELECT pg_try_advisory_lock(?)";
+    private static final String UNLOCK = "SELECT pg_advisory_unlock(?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final Clock clock;
+    private final int premakeMonths;
+    private final int retentionMonths;
+    private final Path archiveDir;
+
+    public TransactionPartitionManager(JdbcTemplate jdbcTemplate, DataSource dataSource, Clock clock,
+                                       AccountProperties properties) {
+        var partitioning = properties.getPartitioning();
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.clock = clock;
+        this.premakeMonths = partitioning.getPremakeMonths();
+        this.retentionMonths = partitioning.getRetentionMonths();
+        this.archiveDir = partitioning.getArchiveDir();
+    }
+
+    public void maintain() {
+        try (var connection = dataSource.getConnection()) {
+            if (!advisoryLock(connection, TRY_LOCK)) {
+                log.info("Partition maintenance is running on another node, skipping");
+                return;
+            }
+            try {
+                maintainLocked();
+            } finally {
+                advisoryLock(connection, UNLOCK);
+            }
+        } catch (SQLException e) {
+            throw new UncategorizedSQLException("partition maintenance lock", TRY_LOCK, e);
+        }
+    }
+
+    private void maintainLocked() {
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject("""
+                SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))""",
+                Boolean.class, TABLE))) {
+            log.warn("Table {} is not partitioned, skipping partition maintenance", TABLE);
+            return;
+        }
+        var current = YearMonth.now(clock);
+        createPartitions(current);
+        archivePartitions(current.minusMonths(retentionMonths));
+    }
+
+    private static boolean advisoryLock(Connection connection, String sql) throws SQLException {
+        try (var statement = connection.prepareStatement(sql)) {
+            statement.setLong(1, LOCK_KEY);
+            try (var result = statement.executeQuery()) {
+                return result.next() && result.getBoolean(1);
+            }
+        }
+    }
+
+    void createPartitions(YearMonth current) {
+        for (int i = 0; i <= premakeMonths; i++) {
+            var month = current.plusMonths(i);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')"
+                    .formatted(partitionName(month), TABLE, month.atDay(1), month.plusMonths(1).atDay(1)));
+        }
+    }
+
+    void archivePartitions(YearMonth oldestKept) {
+        var attached = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = to_regclass(?)""", String.class, TABLE);
+        var candidates = jdbcTemplate.queryForList(
+                "SELECT tablename FROM pg_tables WHERE schemaname = current_schema() AND tablename LIKE ?",
+                String.class, TABLE + "\\_p%");
+        for (var partition : candidates) {
+            var month = partitionMonth(partition);
+            if (month.isEmpty() || !month.get().isBefore(oldestKept)) {
+                continue;
+            }
+            if (attached.contains(partition)) {
+                jdbcTemplate.execute("ALTER TABLE %s DETACH PARTITION %s".formatted(TABLE, partition));
+            }
+            try {
+                export(partition);
+            } catch (IOException | SQLException e) {
+                log.error("Failed to archive partition {}, it stays detached until the next run", partition, e);
+                continue;
+            }
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            log.info("Archived partition {} to {}", partition, archiveDir);
+        }
+    }
+
+    private void export(String partition) throws IOException, SQLException {
+        Files.createDirectories(archiveDir);
+        var target = archiveDir.resolve(partition + ".csv.gz");
+        var temp = archiveDir.resolve(partition + ".csv.gz.tmp");
+        try (var connection = dataSource.getConnection();
+             var file = new FileOutputStream(temp.toFile())) {
+            var out = new GZIPOutputStream(file);
+            connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyOut("COPY %s TO STDOUT WITH (FORMAT csv, HEADER)".formatted(partition), out);
+            out.finish();
+            file.getChannel().force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static String partitionName(YearMonth month) {
+        return TABLE + "_p" + month.format(MONTH_FORMAT);
+    }
+
+    static Optional<YearMonth> partitionMonth(String partition) {
+        var matcher = PARTITION_NAME.matcher(partition);
+        return matcher.matches()
+                ? Optional.of(YearMonth.parse(matcher.group(1), MONTH_FORMAT))
+                : Optional.empty();
+    }
+}
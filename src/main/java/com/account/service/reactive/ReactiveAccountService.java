@@ -0,0 +1,294 @@
+package com.account.service.reactive;
+
+import com.account.config.AccountProperties;
+import com.account.dto.AccountDto;
+import com.account.dto.TransactionDto;
+import com.account.enums.TransactionType;
+import com.account.exception.AccountNotFoundException;
+import com.account.exception.NotEnoughMoneyException;
+import com.account.model.Account;
+import com.account.model.Money;
+import com.account.service.cache.BalanceCache;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Non-blocking counterpart of {@code AccountService} on R2DBC for the {@code reactive} profile.
+ * <p>
+ * Balances change with a single conditional {@code UPDATE ... RETURNING} per account, and the ledger
+ * lines are inserted in the same transaction; the group-commit ledger writer is not used. The returned
+ * balance includes the shards of a sharded account. Deposits go to the {@code accounts} row; a
+ * withdrawal the row cannot cover locks the account and its shards and moves the shard balances into
+ * the row. Requires PostgreSQL.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveAccountService {
+    private static final String ACCOUNT_COLUMNS = """
+            id, owner,
+            balance + COALESCE((SELECT SUM(s.balance) FROM account_shards s WHERE s.account_id = accounts.id), 0) AS total,
+            version,
+            EXISTS (SELECT 1 FROM account_shards s WHERE s.account_id = accounts.id) AS sharded""";
+    private static final String STATEMENT = """
+            SELECT id, type, amount, time FROM transactions
+            WHERE account_id = :accountId AND time BETWEEN :fromTime AND :toTime""";
+    private static final int FETCH_SIZE = 500;
+
+    private final DatabaseClient databaseClient;
+    private final TransactionalOperator transactionalOperator;
+    private final BalanceCache balanceCache;
+    private final RetryBackoffSpec retry;
+
+    public ReactiveAccountService(DatabaseClient databaseClient,
+                                  TransactionalOperator reactiveTransactionalOperator,
+                                  BalanceCache balanceCache,
+                                  AccountProperties properties) {
+        var concurrency = properties.getConcurrency();
+        this.databaseClient = databaseClient;
+        this.transactionalOperator = reactiveTransactionalOperator;
+        this.balanceCache = balanceCache;
+        this.retry = Retry.backoff(concurrency.getMaxAttempts() - 1L, concurrency.getRetryDelay())
+                .maxBackoff(concurrency.getMaxRetryDelay())
+                .filter(ConcurrencyFailureException.class::isInstance)
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    public Mono<AccountDto> createAccount(String owner) {
+        return databaseClient.sql("INSERT INTO accounts (owner, balance) VALUES (:owner, 0) RETURNING " + ACCOUNT_COLUMNS)
+                .bind("owner", owner)
+                .map(ReactiveAccountService::toAccount)
+                .one()
+                .map(Account::toDto);
+    }
+
+    public Mono<AccountDto> deposit(Long accountId, BigDecimal amount) {
+        return write(credit(accountId, amount)
+                .flatMap(account -> insertLine(account, TransactionType.DEPOSIT, amount).thenReturn(account)));
+    }
+
+    public Mono<AccountDto> withdraw(Long accountId, BigDecimal amount) {
+        return write(debit(accountId, amount)
+                .flatMap(account -> insertLine(account, TransactionType.WITHDRAW, amount).thenReturn(account)));
+    }
+
+    public Mono<AccountDto> transfer(Long fromAccountId, Long toAccountId, BigDecimal amount) {
+        Mono<Account[]> legs = fromAccountId <= toAccountId
+                ? debit(fromAccountId, amount).zipWhen(source -> credit(toAccountId, amount),
+                (source, target) -> new Account[]{fromAccountId.equals(toAccountId) ? target : source, target})
+                : credit(toAccountId, amount).zipWhen(target -> debit(fromAccountId, amount),
+                (target, source) -> new Account[]{source, target});
+        return commit(legs.flatMap(accounts -> insertLine(accounts[0], TransactionType.WITHDRAW, amount)
+                        .then(insertLine(accounts[1], TransactionType.DEPOSIT, amount))
+                        .thenReturn(accounts)))
+                .map(accounts -> accounts[0].toDto());
+    }
+
+    public Mono<BigDecimal> getBalance(Long accountId) {
+        var cached = balanceCache.getIfPresent(accountId);
+        if (cached != null) {
+            return Mono.just(cached.toBigDecimal());
+        }
+        return databaseClient.sql("SELECT " + ACCOUNT_COLUMNS + " FROM accounts WHERE id = :id")
+                .bind("id", accountId)
+                .map(ReactiveAccountService::toAccount)
+                .one()
+                .switchIfEmpty(Mono.error(() -> new AccountNotFoundException(accountId)))
+                .doOnNext(balanceCache::put)
+                .map(account -> account.getBalance().toBigDecimal());
+    }
+
+    /**
+     * Balance after all transactions up to {@code asOf}: the latest snapshot not after {@code asOf}
+     * plus the transactions since it, in one statement.
+     */
+    public Mono<BigDecimal> getBalance(Long accountId, Instant asOf) {
+        return databaseClient.sql("""
+                        SELECT COALESCE(s.balance, 0) + COALESCE((
+                                   SELECT SUM(CASE WHEN t.type = 'DEPOSIT' THEN t.amount ELSE -t.amount END)
+                                   FROM transactions t
+                                   WHERE t.account_id = a.id AND t.time > COALESCE(s.time, TIMESTAMP '1970-01-01')
+                                     AND t.time <= :asOf), 0) AS balance
+                        FROM accounts a
+                        LEFT JOIN LATERAL (SELECT balance, time FROM balance_snapshots
+                                           WHERE account_id = a.id AND time <= :asOf
+                                           ORDER BY time DESC LIMIT 1) s ON TRUE
+                        WHERE a.id = :id""")
+                .bind("id", accountId)
+                .bind("asOf", asOf)
+                .map(row -> row.get("balance", BigDecimal.class))
+                .one()
+                .switchIfEmpty(Mono.error(() -> new AccountNotFoundException(accountId)));
+    }
+
+    public Flux<TransactionDto> getTransactions(Long accountId, Instant fromTime, Instant toTime) {
+        return orAccountNotFound(accountId, statement(accountId, fromTime, toTime, STATEMENT + " ORDER BY time, id")
+                .map(ReactiveAccountService::toTransaction)
+                .all());
+    }
+
+    public Flux<TransactionDto> getTransactions(Long accountId, Instant fromTime, Instant toTime, Long afterId, int limit) {
+        var spec = afterId == null
+                ? statement(accountId, fromTime, toTime, STATEMENT + " ORDER BY time, id LIMIT :limit")
+                : statement(accountId, fromTime, toTime, STATEMENT + """
+                 AND (time, id) > ((SELECT p.time FROM transactions p
+                                    WHERE p.id = :afterId AND p.time BETWEEN :fromTime AND :toTime), :afterId)
+                ORDER BY time, id LIMIT :limit""").bind("afterId", afterId);
+        return orAccountNotFound(accountId, spec.bind("limit", limit)
+                .map(ReactiveAccountService::toTransaction)
+                .all());
+    }
+
+    /**
+     * Statement rows in time order, fetched from a cursor {@value #FETCH_SIZE} rows at a time as the
+     * subscriber requests them, so a slow client holds back the query instead of buffering the period.
+     */
+    public Flux<TransactionDto> streamTransactions(Long accountId, Instant fromTime, Instant toTime) {
+        return checkAccountExists(accountId)
+                .thenMany(statement(accountId, fromTime, toTime, STATEMENT + " ORDER BY time, id")
+                        .filter(statement -> statement.fetchSize(FETCH_SIZE))
+                        .map(ReactiveAccountService::toTransaction)
+                        .all())
+                .as(transactionalOperator::transactional);
+    }
+
+    public Mono<Void> checkAccountExists(Long accountId) {
+        return databaseClient.sql("SELECT 1 FROM accounts WHERE id = :id")
+                .bind("id", accountId)
+                .map(row -> true)
+                .one()
+                .switchIfEmpty(Mono.error(() -> new AccountNotFoundException(accountId)))
+                .then();
+    }
+
+    private Mono<AccountDto> write(Mono<Account> operation) {
+        return commit(operation.map(account -> new Account[]{account}))
+                .map(accounts -> accounts[0].toDto());
+    }
+
+    /**
+     * Runs {@code operation} in a transaction, retried on conflicts, and caches the changed accounts
+     * only once it has committed.
+     */
+    private Mono<Account[]> commit(Mono<Account[]> operation) {
+        return operation.as(transactionalOperator::transactional)
+                .retryWhen(retry)
+                .doOnNext(accounts -> {
+                    for (var account : accounts) {
+                        updateCache(account);
+                    }
+                });
+    }
+
+    private Mono<Account> credit(Long accountId, BigDecimal amount) {
+        return databaseClient.sql("""
+                        UPDATE accounts SET balance = balance + :amount, version = version + 1
+                        WHERE id = :id
+                        RETURNING\s""" + ACCOUNT_COLUMNS)
+                .bind("id", accountId)
+                .bind("amount", amount)
+                .map(ReactiveAccountService::toAccount)
+                .one()
+                .switchIfEmpty(Mono.error(() -> new AccountNotFoundException(accountId)));
+    }
+
+    private Mono<Account> debit(Long accountId, BigDecimal amount) {
+        return databaseClient.sql("""
+                        UPDATE accounts SET balance = balance - :amount, version = version + 1
+                        WHERE id = :id AND balance >= :amount
+                        RETURNING\s""" + ACCOUNT_COLUMNS)
+                .bind("id", accountId)
+                .bind("amount", amount)
+                .map(ReactiveAccountService::toAccount)
+                .one()
+                .switchIfEmpty(Mono.defer(() -> collectShards(accountId, amount)));
+    }
+
+    /**
+     * Slow path of a withdrawal the {@code accounts} row cannot cover: locks the row and the shards of
+     * the account, and debits their sum from the row.
+     */
+    private Mono<Account> collectShards(Long accountId, BigDecimal amount) {
+        var mainBalance = databaseClient.sql("SELECT balance FROM accounts WHERE id = :id FOR UPDATE")
+                .bind("id", accountId)
+                .map(row -> row.get("balance", BigDecimal.class))
+                .one()
+                .switchIfEmpty(Mono.error(() -> new AccountNotFoundException(accountId)));
+        var shardBalance = databaseClient.sql("SELECT balance FROM account_shards WHERE account_id = :id FOR UPDATE")
+                .bind("id", accountId)
+                .map(row -> row.get("balance", BigDecimal.class))
+                .all()
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return mainBalance.zipWith(shardBalance).flatMap(balances -> {
+            var shards = balances.getT2();
+            if (balances.getT1().add(shards).compareTo(amount) < 0) {
+                return Mono.error(new NotEnoughMoneyException(accountId));
+            }
+            return databaseClient.sql("UPDATE account_shards SET balance = 0 WHERE account_id = :id")
+                    .bind("id", accountId)
+                    .then()
+                    .then(databaseClient.sql("""
+                                    UPDATE accounts SET balance = balance + :shards - :amount, version = version + 1
+                                    WHERE id = :id
+                                    RETURNING\s""" + ACCOUNT_COLUMNS)
+                            .bind("id", accountId)
+                            .bind("shards", shards)
+                            .bind("amount", amount)
+                            .map(ReactiveAccountService::toAccount)
+                            .one());
+        });
+    }
+
+    private Mono<Void> insertLine(Account account, TransactionType type, BigDecimal amount) {
+        return databaseClient.sql("INSERT INTO transactions (account_id, type, amount, time) VALUES (:accountId, :type, :amount, :time)")
+                .bind("accountId", account.getId())
+                .bind("type", type.name())
+                .bind("amount", amount)
+                .bind("time", Instant.now())
+                .then();
+    }
+
+    private DatabaseClient.GenericExecuteSpec statement(Long accountId, Instant fromTime, Instant toTime, String sql) {
+        return databaseClient.sql(sql)
+                .bind("accountId", accountId)
+                .bind("fromTime", fromTime)
+                .bind("toTime", toTime);
+    }
+
+    private Flux<TransactionDto> orAccountNotFound(Long accountId, Flux<TransactionDto> lines) {
+        return lines.switchIfEmpty(checkAccountExists(accountId).thenMany(Flux.empty()));
+    }
+
+    private void updateCache(Account account) {
+        if (account.getVersion() == null) {
+            balanceCache.evictAfterCommit(account.getId());
+        } else {
+            balanceCache.updateAfterCommit(account);
+        }
+    }
+
+    /**
+     * Leaves the version of a sharded account empty, so its total is evicted from the balance cache
+     * instead of cached: it does not follow the version of the {@code accounts} row.
+     */
+    private static Account toAccount(Readable row) {
+        var sharded = Boolean.TRUE.equals(row.get("sharded", Boolean.class));
+        return new Account(row.get("id", Long.class), row.get("owner", String.class),
+                Money.of(row.get("total", BigDecimal.class)), sharded ? null : row.get("version", Long.class));
+    }
+
+    private static TransactionDto toTransaction(Readable row) {
+        return new TransactionDto(row.get("id", Long.class), TransactionType.valueOf(row.get("type", String.class)),
+                row.get("amount", BigDecimal.class), row.get("time", Instant.class));
+    }
+}
@@ -0,0 +1,54 @@
+package com.account.service.rollup;
+
+import com.account.config.AccountProperties;
+import com.account.model.RollupProgress;
+import com.account.repository.DailyRollupRepository;
+import com.account.repository.RollupProgressRepository;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Folds new transactions into {@code daily_rollups} in batches.
+ * <p>
+ * A run adds the transactions between the time recorded in {@code rollup_progress} and
+ * {@code account.rollups.lag} ago, then moves the recorded time forward in the same transaction.
+ * The progress row is locked for the run, so every transaction is counted exactly once even when
+ * several nodes run the aggregator.
+ */
+@Slf4j
+public class DailyRollupAggregator {
+    private static final int PROGRESS_ID = 1;
+
+    private final DailyRollupRepository rollupRepository;
+    private final RollupProgressRepository progressRepository;
+    private final Clock clock;
+    private final Duration lag;
+
+    public DailyRollupAggregator(DailyRollupRepository rollupRepository,
+                                 RollupProgressRepository progressRepository,
+                                 Clock clock,
+                                 AccountProperties properties) {
+        this.rollupRepository = rollupRepository;
+        this.progressRepository = progressRepository;
+        this.clock = clock;
+        this.lag = properties.getRollups().getLag();
+    }
+
+    @Transactional
+    public int aggregate() {
+        var progress = progressRepository.findByIdForUpdate(PROGRESS_ID)
+                .orElseGet(() -> progressRepository.saveAndFlush(new RollupProgress(PROGRESS_ID, Instant.EPOCH)));
+        var toTime = clock.instant().minus(lag);
+        if (!toTime.isAfter(progress.getAggregatedTo())) {
+            return 0;
+        }
+        int merged = rollupRepository.aggregate(progress.getAggregatedTo(), toTime);
+        log.debug("Merged {} daily rollups for ({}, {}]", merged, progress.getAggregatedTo(), toTime);
+        progress.setAggregatedTo(toTime);
+        return merged;
+    }
+}
@@ -0,0 +1,193 @@
+package com.account.service.shard;
+
+import com.account.config.AccountProperties;
+import com.account.exception.AccountNotFoundException;
+import com.account.exception.NotEnoughMoneyException;
+import com.account.model.Account;
+import com.account.model.AccountShard;
+import com.account.model.Money;
+import com.account.repository.AccountRepository;
+import com.account.repository.AccountShardRepository;
+import com.account.repository.AccountView;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the balance of a hot account in {@code account_shards} rows so that concurrent operations
+ * update different rows. The balance of a sharded account is the {@code accounts} row plus all of
+ * its shards; the {@code accounts} row only receives money from nodes that have not yet noticed the
+ * account was sharded.
+ * <p>
+ * Which accounts are sharded is cached for {@code account.sharding.refresh-interval}.
+ */
+@Component
+public class AccountShardManager {
+    private final AccountRepository accountRepository;
+    private final AccountShardRepository shardRepository;
+    private final long refreshIntervalNanos;
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile Map<Long, Integer> shardCounts;
+    private volatile long loadedAt;
+
+    public AccountShardManager(AccountRepository accountRepository,
+                               AccountShardRepository shardRepository,
+                               AccountProperties properties) {
+        this.accountRepository = accountRepository;
+        this.shardRepository = shardRepository;
+        this.refreshIntervalNanos = properties.getSharding().getRefreshInterval().toNanos();
+    }
+
+    public boolean isSharded(Long accountId) {
+        return shardCount(accountId) > 0;
+    }
+
+    public int shardCount(Long accountId) {
+        var counts = shardCounts;
+        if (counts == null || System.nanoTime() - loadedAt > refreshIntervalNanos) {
+            counts = refresh(counts);
+        }
+        return counts.getOrDefault(accountId, 0);
+    }
+
+    public void invalidate() {
+        shardCounts = null;
+    }
+
+    public Account credit(Long accountId, Money amount) {
+        add(accountId, amount);
+        return total(accountId);
+    }
+
+    public Account debit(Long accountId, Money amount) {
+        subtract(accountId, amount);
+        return total(accountId);
+    }
+
+    public void add(Long accountId, Money amount) {
+        int shards = shardCount(accountId);
+        if (shards == 0 || shardRepository.credit(accountId, randomShard(shards), amount.toBigDecimal()) == 0) {
+            invalidate();
+            if (accountRepository.addBalance(accountId, amount.toBigDecimal()) == 0) {
+                throw new AccountNotFoundException(accountId);
+            }
+        }
+    }
+
+    public void subtract(Long accountId, Money amount) {
+        int shards = shardCount(accountId);
+        if (shards == 0 || shardRepository.debit(accountId, randomShard(shards), amount.toBigDecimal()) == 0) {
+            borrow(accountId, amount);
+        }
+    }
+
+    public Account reference(Long accountId) {
+        return accountRepository.getReferenceById(accountId);
+    }
+
+    public Account total(Long accountId) {
+        return accountRepository.findTotalById(accountId)
+                .map(AccountView::toAccount)
+                .orElseThrow(() -> new AccountNotFoundException(accountId));
+    }
+
+    /**
+     * Moves the whole balance of the account into {@code count} shards, or back into the
+     * {@code accounts} row when {@code count} is zero.
+     */
+    public Account reshard(Long accountId, int count) {
+        var mainBalance = lockBalance(accountId);
+        var shardBalance = shardRepository.lockBalances(accountId).stream()
+                .map(shard -> Money.of(shard.getBalance()))
+                .reduce(Money.ZERO, Money::plus);
+        shardRepository.deleteAllByAccountId(accountId);
+
+        if (count > 0) {
+            var shares = split(mainBalance.plus(shardBalance), count);
+            var shards = new ArrayList<AccountShard>(count);
+            for (int i = 0; i < count; i++) {
+                shards.add(new AccountShard(accountId, i, shares[i]));
+            }
+            shardRepository.saveAll(shards);
+            accountRepository.addBalance(accountId, mainBalance.negate().toBigDecimal());
+        } else {
+            accountRepository.addBalance(accountId, shardBalance.toBigDecimal());
+        }
+        invalidate();
+        return total(accountId);
+    }
+
+    /**
+     * Slow path of a withdrawal whose own shard is short: locks the account and all of its shards,
+     * takes the amount from their sum and spreads the rest evenly again so that the following
+     * withdrawals hit the fast path.
+     */
+    private void borrow(Long accountId, Money amount) {
+        var mainBalance = lockBalance(accountId);
+        var shards = shardRepository.lockBalances(accountId);
+
+        var total = shards.stream()
+                .map(shard -> Money.of(shard.getBalance()))
+                .reduce(mainBalance, Money::plus);
+        if (total.isLessThan(amount)) {
+            throw new NotEnoughMoneyException(accountId);
+        }
+        if (shards.isEmpty()) {
+            accountRepository.addBalance(accountId, amount.negate().toBigDecimal());
+            return;
+        }
+
+        var shares = split(total.minus(amount), shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            shardRepository.setBalance(accountId, shards.get(i).getShard(), shares[i].toBigDecimal());
+        }
+        if (mainBalance.signum() != 0) {
+            accountRepository.addBalance(accountId, mainBalance.negate().toBigDecimal());
+        }
+    }
+
+    private Money lockBalance(Long accountId) {
+        return accountRepository.lockBalance(accountId)
+                .map(Money::of)
+                .orElseThrow(() -> new AccountNotFoundException(accountId));
+    }
+
+    private static Money[] split(Money total, int count) {
+        var share = Money.ofKopecks(total.kopecks() / count);
+        var shares = new Money[count];
+        Arrays.fill(shares, share);
+        shares[0] = Money.ofKopecks(total.kopecks() - share.kopecks() * (count - 1L));
+        return shares;
+    }
+
+    private Map<Long, Integer> refresh(Map<Long, Integer> current) {
+        if (current != null && !refreshLock.tryLock()) {
+            return current;
+        }
+        if (current == null) {
+            refreshLock.lock();
+        }
+        try {
+            if (shardCounts != null && shardCounts != current) {
+                return shardCounts;
+            }
+            var counts = shardRepository.countShards().stream()
+                    .collect(Collectors.toUnmodifiableMap(AccountShardRepository.ShardCount::getAccountId,
+                            count -> count.getShards().intValue()));
+            loadedAt = System.nanoTime();
+            shardCounts = counts;
+            return counts;
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    private static int randomShard(int shards) {
+        return ThreadLocalRandom.current().nextInt(shards);
+    }
+}
@@ -0,0 +1,146 @@
+package com.account.benchmark;
+
+import com.account.config.AccountProperties;
+import com.account.repository.BalanceSnapshotRepository;
+import com.account.repository.DailyRollupRepository;
+import com.account.repository.IdempotencyKeyRepository;
+import com.account.service.AccountService;
+import com.account.service.cache.BalanceCache;
+import com.account.service.cache.BalanceInvalidationChannel;
+import com.account.service.concurrency.StripedLockConcurrencyStrategy;
+import com.account.service.feed.BalanceFeed;
+import com.account.service.feed.LocalBalanceEventBus;
+import com.account.service.idempotency.IdempotencyService;
+import com.account.service.ledger.SynchronousLedgerWriter;
+import com.account.service.lock.AccountLockManager;
+import com.account.service.shard.AccountShardManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of the {@link AccountService} hot paths, either on {@link InMemoryRepositories} with the
+ * {@code LOCAL} lock stripes and no Spring proxies, or through the application context on an embedded
+ * H2 database.
+ * <p>
+ * {@code singleAccount} puts every thread on one account, {@code disjoint} gives every thread its own
+ * account, and {@code transferRing} moves money from the thread's account to the next one of a ring of
+ * {@value #RING} accounts, so neighbouring threads contend pairwise. Run through
+ * {@link AccountServiceBenchmarkRunner} to sweep thread counts from 1 to 64 into one JSON file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class AccountServiceBenchmark {
+    private static final int RING = 64;
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000000000");
+
+    @Param({"memory", "h2"})
+    public String store;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+    private long hotAccountId;
+    private long[] ownAccountIds;
+    private long[] ringAccountIds;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        if (store.equals("memory")) {
+            accountService = inMemoryAccountService();
+        } else {
+            context = BenchmarkContext.start(Map.of());
+            accountService = context.getBean(AccountService.class);
+        }
+        hotAccountId = createAccount("hot");
+        ownAccountIds = new long[RING];
+        ringAccountIds = new long[RING];
+        for (int i = 0; i < RING; i++) {
+            ownAccountIds[i] = createAccount("own-" + i);
+            ringAccountIds[i] = createAccount("ring-" + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadAccounts {
+        long ownAccountId;
+        long ringFromId;
+        long ringToId;
+
+        @Setup
+        public void setUp(AccountServiceBenchmark benchmark) {
+            int index = benchmark.threads.getAndIncrement() % RING;
+            ownAccountId = benchmark.ownAccountIds[index];
+            ringFromId = benchmark.ringAccountIds[index];
+            ringToId = benchmark.ringAccountIds[(index + 1) % RING];
+        }
+    }
+
+    @Benchmark
+    public Object depositSingleAccount() {
+        return accountService.deposit(hotAccountId, AMOUNT);
+    }
+
+    @Benchmark
+    public Object depositDisjoint(ThreadAccounts accounts) {
+        return accountService.deposit(accounts.ownAccountId, AMOUNT);
+    }
+
+    @Benchmark
+    public Object withdrawDisjoint(ThreadAccounts accounts) {
+        return accountService.withdraw(accounts.ownAccountId, AMOUNT);
+    }
+
+    @Benchmark
+    public Object transferRing(ThreadAccounts accounts) {
+        return accountService.transfer(accounts.ringFromId, accounts.ringToId, AMOUNT);
+    }
+
+    @Benchmark
+    public Object balanceDisjoint(ThreadAccounts accounts) {
+        return accountService.getBalance(accounts.ownAccountId);
+    }
+
+    private long createAccount(String owner) {
+        long id = accountService.createAccount("benchmark-" + owner).getId();
+        accountService.deposit(id, INITIAL_BALANCE);
+        return id;
+    }
+
+    private static AccountService inMemoryAccountService() {
+        var repositories = new InMemoryRepositories();
+        var properties = new AccountProperties();
+        var meterRegistry = new SimpleMeterRegistry();
+        var accountRepository = repositories.accountRepository();
+        var transactionRepository = repositories.transactionRepository();
+        return new AccountService(accountRepository, transactionRepository,
+                InMemoryRepositories.unsupported(BalanceSnapshotRepository.class),
+                InMemoryRepositories.unsupported(DailyRollupRepository.class),
+                new StripedLockConcurrencyStrategy(accountRepository, new AccountLockManager(properties, meterRegistry)),
+                new AccountShardManager(accountRepository, repositories.shardRepository(), properties),
+                new SynchronousLedgerWriter(transactionRepository),
+                new BalanceCache(properties, BalanceInvalidationChannel.NONE, meterRegistry),
+                new IdempotencyService(InMemoryRepositories.unsupported(IdempotencyKeyRepository.class),
+                        new ObjectMapper(), Clock.systemUTC(), properties, meterRegistry),
+                new BalanceFeed(properties, new LocalBalanceEventBus(), meterRegistry));
+    }
+}
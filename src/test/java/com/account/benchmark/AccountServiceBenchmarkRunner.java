@@ -0,0 +1,59 @@
+package com.account.benchmark;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Runs {@link AccountServiceBenchmark} and {@link MappingBenchmark} once per thread count and writes
+ * all results into one JSON file that can be diffed between releases, next to one file per thread count.
+ * <p>
+ * {@code ./mvnw -Pbenchmark test -DskipTests -Djmh.main=com.account.benchmark.AccountServiceBenchmarkRunner}
+ * <p>
+ * Thread counts come from {@code -Dbenchmark.threads} (default {@code 1,2,4,8,16,32,64}), the output
+ * file from the JMH option {@code -rff} (default {@code target/jmh/account-service.json}); any other JMH
+ * option in {@code -Djmh.args}, such as {@code -p store=memory}, applies to every run.
+ */
+public final class AccountServiceBenchmarkRunner {
+    private static final String DEFAULT_RESULT = "target/jmh/account-service.json";
+
+    private AccountServiceBenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        var commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp()) {
+            commandLine.showHelp();
+            return;
+        }
+        var threadCounts = Arrays.stream(System.getProperty("benchmark.threads", "1,2,4,8,16,32,64").split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        var result = new File(commandLine.getResult().orElse(DEFAULT_RESULT));
+        var stem = result.getPath().replaceFirst("\\.json$", "");
+        result.getAbsoluteFile().getParentFile().mkdirs();
+
+        var results = new ArrayList<RunResult>();
+        for (int threads : threadCounts) {
+            var options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(threads)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(stem + "-threads-" + threads + ".json");
+            if (commandLine.getIncludes().isEmpty()) {
+                options.include(AccountServiceBenchmark.class.getSimpleName())
+                        .include(MappingBenchmark.class.getSimpleName());
+            }
+            results.addAll(new Runner(options.build()).run());
+        }
+        ResultFormatFactory.getInstance(ResultFormatType.JSON, result.getPath()).writeOut(results);
+    }
+}
@@ -0,0 +1,86 @@
+package com.account.benchmark;
+
+import com.account.service.AccountService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Posts {@code operations} deposits over HTTP either one request per operation or as a single
+ * {@code POST /accounts/batch}. Scores are per group of operations, so they compare directly.
+ * <p>
+ * {@code ./mvnw -Pbenchmark test -DskipTests -Djmh.args="BatchBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(4)
+public class BatchBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int operations;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+    private long[] accountIds;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.startWeb(Map.of());
+        var accountService = context.getBean(AccountService.class);
+        accountIds = new long[256];
+        for (int i = 0; i < accountIds.length; i++) {
+            accountIds[i] = accountService.createAccount("benchmark-" + i).getId();
+        }
+        client = HttpClient.newHttpClient();
+        baseUrl = "http://localhost:" + BenchmarkContext.port(context) + "/accounts";
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int singleCalls() throws IOException, InterruptedException {
+        int status = 0;
+        for (int i = 0; i < operations; i++) {
+            var request = HttpRequest.newBuilder(URI.create(baseUrl + "/" + randomAccount() + "/deposit?amount=1.00"))
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            status += client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        }
+        return status;
+    }
+
+    @Benchmark
+    public int batchCall() throws IOException, InterruptedException {
+        var body = new StringJoiner(",", "{\"operations\":[", "]}");
+        for (int i = 0; i < operations; i++) {
+            body.add("{\"type\":\"DEPOSIT\",\"accountId\":" + randomAccount() + ",\"amount\":" + BigDecimal.ONE + "}");
+        }
+        var request = HttpRequest.newBuilder(URI.create(baseUrl + "/batch"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private long randomAccount() {
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+}
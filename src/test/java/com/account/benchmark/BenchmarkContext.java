@@ -0,0 +1,75 @@
+package com.account.benchmark;
+
+import com.account.Application;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Starts the application against an in-memory H2 database in PostgreSQL mode, or against the database
+ * given by the {@code benchmark.datasource.url} system property. H2 has no {@code UPDATE ... RETURNING},
+ * so it defaults to the pessimistic concurrency mode. The reactive variant needs PostgreSQL and reaches it
+ * through the same URL with the {@code r2dbc:} scheme.
+ */
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {
+    }
+
+    public static ConfigurableApplicationContext start(Map<String, Object> properties) {
+        return start(WebApplicationType.NONE, properties);
+    }
+
+    public static ConfigurableApplicationContext startWeb(Map<String, Object> properties) {
+        Map<String, Object> webProperties = new HashMap<>(properties);
+        webProperties.putIfAbsent("server.port", "0");
+        return start(WebApplicationType.SERVLET, webProperties);
+    }
+
+    public static ConfigurableApplicationContext startReactive(Map<String, Object> properties) {
+        var url = System.getProperty("benchmark.datasource.url");
+        if (url == null || !url.startsWith("jdbc:postgresql:")) {
+            throw new IllegalStateException("The reactive variant needs -Dbenchmark.datasource.url=jdbc:postgresql://...");
+        }
+        Map<String, Object> reactiveProperties = new HashMap<>(properties);
+        reactiveProperties.putIfAbsent("spring.profiles.active", "reactive");
+        reactiveProperties.putIfAbsent("spring.r2dbc.url", "r2dbc:" + url.substring("jdbc:".length()));
+        reactiveProperties.putIfAbsent("server.port", "0");
+        return start(WebApplicationType.REACTIVE, reactiveProperties);
+    }
+
+    public static int port(ConfigurableApplicationContext context) {
+        return context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+    }
+
+    private static ConfigurableApplicationContext start(WebApplicationType type, Map<String, Object> properties) {
+        Map<String, Object> defaults = new HashMap<>();
+        var url = System.getProperty("benchmark.datasource.url");
+        if (url == null) {
+            defaults.put("spring.datasource.url", "jdbc:h2:mem:" + UUID.randomUUID()
+                    + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+            defaults.put("spring.datasource.driverClassName", "org.h2.Driver");
+            defaults.put("spring.datasource.username", "sa");
+            defaults.put("spring.datasource.password", "");
+            defaults.put("spring.jpa.properties.hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+            defaults.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+            defaults.put("account.concurrency.mode", "pessimistic");
+            defaults.put("account.partitioning.enabled", "false");
+        } else {
+            defaults.put("spring.datasource.url", url);
+        }
+        defaults.put("spring.jpa.properties.hibernate.show_sql", "false");
+        defaults.put("spring.datasource.hikari.maximum-pool-size", "64");
+        defaults.put("logging.level.root", "WARN");
+        defaults.putAll(properties);
+        return new SpringApplicationBuilder(Application.class)
+                .web(type)
+                .run(defaults.entrySet().stream()
+                        .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                        .toArray(String[]::new));
+    }
+}
@@ -0,0 +1,88 @@
+package com.account.benchmark;
+
+import com.account.exception.NotEnoughMoneyException;
+import com.account.service.AccountService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of each {@code account.concurrency.mode} under a given contention profile: with
+ * {@code accounts = 1} every thread hits the same row, with 1024 accounts collisions are rare.
+ * <p>
+ * {@code ./mvnw -Pbenchmark test -DskipTests -Djmh.args="ConcurrencyStrategyBenchmark -t 8"}
+ * <p>
+ * {@code ATOMIC} relies on {@code UPDATE ... RETURNING} and needs PostgreSQL:
+ * {@code -Djmh.args="ConcurrencyStrategyBenchmark -p mode=ATOMIC -jvmArgs -Dbenchmark.datasource.url=jdbc:postgresql://localhost:5433/account_db"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(8)
+public class ConcurrencyStrategyBenchmark {
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @Param({"LOCAL", "PESSIMISTIC", "OPTIMISTIC"})
+    public String mode;
+
+    @Param({"1", "16", "1024"})
+    public int accounts;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+    private long[] accountIds;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(Map.of(
+                "account.concurrency.mode", mode,
+                "account.concurrency.max-attempts", "50"));
+        accountService = context.getBean(AccountService.class);
+        accountIds = new long[accounts];
+        for (int i = 0; i < accounts; i++) {
+            accountIds[i] = accountService.createAccount("benchmark-" + i).getId();
+            accountService.deposit(accountIds[i], BigDecimal.valueOf(1_000_000_000));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object deposit() {
+        return accountService.deposit(randomAccount(), AMOUNT);
+    }
+
+    @Benchmark
+    public Object withdraw() {
+        try {
+            return accountService.withdraw(randomAccount(), AMOUNT);
+        } catch (NotEnoughMoneyException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object transfer() {
+        long from = randomAccount();
+        long to = randomAccount();
+        try {
+            return accountService.transfer(from, to, AMOUNT);
+        } catch (NotEnoughMoneyException e) {
+            return e;
+        }
+    }
+
+    private long randomAccount() {
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+}
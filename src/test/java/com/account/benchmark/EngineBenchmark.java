@@ -0,0 +1,90 @@
+package com.account.benchmark;
+
+import com.account.exception.NotEnoughMoneyException;
+import com.account.service.AccountService;
+import com.account.service.engine.LedgerEngine;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfers between random accounts through the JPA path of {@link AccountService} or through the
+ * in-memory {@link LedgerEngine}, which journals every transfer and projects it to the database
+ * afterwards. {@code fsync} forces the journal to disk before every answer of the engine.
+ * <p>
+ * {@code ./mvnw -Pbenchmark test -DskipTests -Djmh.args="EngineBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(32)
+public class EngineBenchmark {
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @Param({"jpa", "engine"})
+    public String path;
+
+    @Param({"false", "true"})
+    public boolean fsync;
+
+    @Param({"1024"})
+    public int accounts;
+
+    private ConfigurableApplicationContext context;
+    private Path directory;
+    private AccountService accountService;
+    private LedgerEngine engine;
+    private long[] accountIds;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("engine-benchmark");
+        context = BenchmarkContext.start(Map.of(
+                "account.engine.enabled", path.equals("engine"),
+                "account.engine.directory", directory,
+                "account.engine.fsync", fsync));
+        accountService = context.getBean(AccountService.class);
+        engine = context.getBeanProvider(LedgerEngine.class).getIfAvailable();
+        accountIds = new long[accounts];
+        for (int i = 0; i < accounts; i++) {
+            if (engine == null) {
+                accountIds[i] = accountService.createAccount("benchmark-" + i).getId();
+                accountService.deposit(accountIds[i], BigDecimal.valueOf(1_000_000_000));
+            } else {
+                accountIds[i] = engine.createAccount("benchmark-" + i).getId();
+                engine.deposit(accountIds[i], BigDecimal.valueOf(1_000_000_000));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public Object transfer() {
+        var random = ThreadLocalRandom.current();
+        long from = accountIds[random.nextInt(accountIds.length)];
+        long to = accountIds[random.nextInt(accountIds.length)];
+        try {
+            return engine == null
+                    ? accountService.transfer(from, to, AMOUNT)
+                    : engine.transfer(from, to, AMOUNT);
+        } catch (NotEnoughMoneyException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.account.benchmark;
+
+import com.account.service.AccountService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency of a cached {@code GET /accounts/{id}/balance} while {@code inFlight} deposits keep the
+ * connection pool saturated, with requests served by the Tomcat platform thread pool or by virtual
+ * threads, with and without the database admission limiter.
+ * <p>
+ * The balance request needs no connection, so its latency shows how long unrelated requests queue
+ * behind requests waiting for the database. Deposit throughput and failures are printed on teardown.
+ * Virtual threads need a Java 21 runtime; on older runtimes the {@code virtual} trials fail in setup.
+ * <p>
+ * {@code ./mvnw -Pbenchmark test -DskipTests -Djmh.args="ExecutionModeBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 2, time = 10)
+@Fork(1)
+@Threads(1)
+public class ExecutionModeBenchmark {
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"false", "true"})
+    public boolean limiter;
+
+    @Param({"2000"})
+    public int inFlight;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private ExecutorService clientExecutor;
+    private Thread loadThread;
+    private volatile boolean loading;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private long loadStart;
+    private String baseUrl;
+    private long[] accountIds;
+    private HttpRequest balanceRequest;
+
+    @Setup
+    public void setUp() throws Exception {
+        boolean virtual = threads.equals("virtual");
+        if (virtual && Runtime.version().feature() < 21) {
+            throw new IllegalStateException("Virtual threads need Java 21, running on " + Runtime.version());
+        }
+        context = BenchmarkContext.startWeb(Map.of(
+                "spring.threads.virtual.enabled", virtual,
+                "account.db-limiter.enabled", limiter,
+                "account.db-limiter.permits", 10,
+                "account.db-limiter.timeout", "30s",
+                "spring.datasource.hikari.maximum-pool-size", 10,
+                "account.cache.enabled", true,
+                "account.cache.ttl", "10m",
+                "server.tomcat.threads.max", 200,
+                "server.tomcat.max-connections", inFlight * 2));
+        var accountService = context.getBean(AccountService.class);
+        accountIds = new long[1024];
+        for (int i = 0; i < accountIds.length; i++) {
+            accountIds[i] = accountService.createAccount("benchmark-" + i).getId();
+        }
+        baseUrl = "http://localhost:" + BenchmarkContext.port(context) + "/accounts/";
+        clientExecutor = Executors.newFixedThreadPool(4);
+        client = HttpClient.newBuilder().executor(clientExecutor).build();
+        balanceRequest = HttpRequest.newBuilder(URI.create(baseUrl + accountIds[0] + "/balance")).GET().build();
+        client.send(balanceRequest, HttpResponse.BodyHandlers.discarding());
+
+        loading = true;
+        loadStart = System.nanoTime();
+        loadThread = new Thread(this::load, "deposit-load");
+        loadThread.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        loading = false;
+        loadThread.join();
+        double seconds = (System.nanoTime() - loadStart) / 1e9;
+        System.out.printf("%n%s threads, limiter %s: %.0f deposits/s, %d failed%n",
+                threads, limiter, completed.get() / seconds, failed.get());
+        clientExecutor.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    public int cachedBalance() throws Exception {
+        return client.send(balanceRequest, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private void load() {
+        var permits = new Semaphore(inFlight);
+        while (loading) {
+            try {
+                if (!permits.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            long id = accountIds[1 + ThreadLocalRandom.current().nextInt(accountIds.length - 1)];
+            var request = HttpRequest.newBuilder(URI.create(baseUrl + id + "/deposit?amount=" + BigDecimal.ONE))
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error == null && response.statusCode() == 200) {
+                            completed.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                        permits.release();
+                    });
+        }
+        permits.acquireUninterruptibly(inFlight);
+    }
+}
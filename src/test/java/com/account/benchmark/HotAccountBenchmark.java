@@ -0,0 +1,134 @@
+package com.account.benchmark;
+
+import com.account.service.AccountService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency of {@code POST /accounts/{id}/deposit} on random accounts while {@code hotInFlight} deposits
+ * on a single hot account keep its row locked, with and without per-account admission control.
+ * <p>
+ * Without admission the hot account holds most request threads and every pooled connection, so the
+ * p99 of the other accounts follows the queue on the hot row. With admission at most
+ * {@code account.admission.max-in-flight} hot deposits hold a connection, the rest wait in a short queue
+ * or are answered 429 at once, and the other accounts keep their latency. Hot deposits completed and
+ * rejected are printed on teardown.
+ * <p>
+ * {@code ./mvnw -Pbenchmark test -DskipTests -Djmh.args="HotAccountBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 2, time = 10)
+@Fork(1)
+@Threads(4)
+public class HotAccountBenchmark {
+
+    @Param({"false", "true"})
+    public boolean admission;
+
+    @Param({"400"})
+    public int hotInFlight;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private ExecutorService clientExecutor;
+    private Thread loadThread;
+    private volatile boolean loading;
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private long loadStart;
+    private String baseUrl;
+    private long hotAccountId;
+    private long[] accountIds;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = BenchmarkContext.startWeb(Map.of(
+                "account.admission.enabled", admission,
+                "account.admission.max-in-flight", 4,
+                "account.admission.queue-size", 16,
+                "account.admission.timeout", "1s",
+                "spring.datasource.hikari.maximum-pool-size", 10,
+                "server.tomcat.threads.max", 200,
+                "server.tomcat.max-connections", hotInFlight * 2));
+        var accountService = context.getBean(AccountService.class);
+        hotAccountId = accountService.createAccount("benchmark-hot").getId();
+        accountIds = new long[1024];
+        for (int i = 0; i < accountIds.length; i++) {
+            accountIds[i] = accountService.createAccount("benchmark-" + i).getId();
+        }
+        baseUrl = "http://localhost:" + BenchmarkContext.port(context) + "/accounts/";
+        clientExecutor = Executors.newFixedThreadPool(8);
+        client = HttpClient.newBuilder().executor(clientExecutor).build();
+        client.send(deposit(accountIds[0]), HttpResponse.BodyHandlers.discarding());
+
+        loading = true;
+        loadStart = System.nanoTime();
+        loadThread = new Thread(this::load, "hot-account-load");
+        loadThread.start();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        loading = false;
+        loadThread.join();
+        double seconds = (System.nanoTime() - loadStart) / 1e9;
+        System.out.printf("%nadmission %s: hot account %.0f deposits/s, %d rejected with 429, %d failed%n",
+                admission, completed.get() / seconds, rejected.get(), failed.get());
+        clientExecutor.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    public int otherAccountDeposit() throws Exception {
+        long id = accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+        return client.send(deposit(id), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private void load() {
+        var permits = new Semaphore(hotInFlight);
+        while (loading) {
+            try {
+                if (!permits.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                    continue;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            client.sendAsync(deposit(hotAccountId), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error == null && response.statusCode() == 200) {
+                            completed.incrementAndGet();
+                        } else if (error == null && response.statusCode() == 429) {
+                            rejected.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                        permits.release();
+                    });
+        }
+        permits.acquireUninterruptibly(hotInFlight);
+    }
+
+    private HttpRequest deposit(long accountId) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + accountId + "/deposit?amount=" + BigDecimal.ONE))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+}
@@ -0,0 +1,83 @@
+package com.account.benchmark;
+
+import com.account.model.Account;
+import com.account.repository.AccountRepository;
+import com.account.repository.AccountShardRepository;
+import com.account.repository.TransactionRepository;
+
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Map-backed stand-ins for the repositories on the {@code AccountService} hot paths, so the service
+ * can be measured without JPA and a database. Only the methods those paths call are implemented;
+ * anything else throws {@link UnsupportedOperationException}.
+ */
+final class InMemoryRepositories {
+    private final Map<Long, Account> accounts = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    AccountRepository accountRepository() {
+        return proxy(AccountRepository.class, (name, args) -> switch (name) {
+            case "findById" -> Optional.ofNullable(accounts.get((Long) args[0]));
+            case "existsById" -> accounts.containsKey((Long) args[0]);
+            case "getReferenceById" -> accounts.get((Long) args[0]);
+            case "save" -> save((Account) args[0]);
+            case "saveAll" -> {
+                ((Iterable<?>) args[0]).forEach(account -> save((Account) account));
+                yield args[0];
+            }
+            default -> throw new UnsupportedOperationException(name);
+        });
+    }
+
+    private Account save(Account account) {
+        if (account.getId() == null) {
+            account.setId(nextId.getAndIncrement());
+            account.setVersion(0L);
+            accounts.put(account.getId(), account);
+        } else {
+            account.setVersion(account.getVersion() + 1);
+        }
+        return account;
+    }
+
+    TransactionRepository transactionRepository() {
+        return proxy(TransactionRepository.class, (name, args) -> switch (name) {
+            case "save", "saveAll" -> args[0];
+            default -> throw new UnsupportedOperationException(name);
+        });
+    }
+
+    AccountShardRepository shardRepository() {
+        return proxy(AccountShardRepository.class, (name, args) -> switch (name) {
+            case "countShards" -> List.of();
+            default -> throw new UnsupportedOperationException(name);
+        });
+    }
+
+    static <T> T unsupported(Class<T> type) {
+        return proxy(type, (name, args) -> {
+            throw new UnsupportedOperationException(name);
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, Handler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) ->
+                switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemory" + type.getSimpleName();
+                    default -> handler.handle(method.getName(), args);
+                }));
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(String method, Object[] args);
+    }
+}
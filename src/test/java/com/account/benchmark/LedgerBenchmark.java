@@ -0,0 +1,60 @@
+package com.account.benchmark;
+
+import com.account.service.AccountService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deposits into random accounts, each in a transaction of its own or group-committed with the
+ * deposits of other threads. {@code poolSize} bounds the connection pool, so both modes can be compared
+ * under contention for connections.
+ * <p>
+ * {@code ./mvnw -Pbenchmark test -DskipTests -Djmh.args="LedgerBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(32)
+public class LedgerBenchmark {
+
+    @Param({"sync", "group"})
+    public String ledgerMode;
+
+    @Param({"8", "64"})
+    public int poolSize;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+    private long[] accountIds;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(Map.of(
+                "account.ledger.mode", ledgerMode,
+                "spring.datasource.hikari.maximum-pool-size", poolSize));
+        accountService = context.getBean(AccountService.class);
+        accountIds = new long[1024];
+        for (int i = 0; i < accountIds.length; i++) {
+            accountIds[i] = accountService.createAccount("benchmark-" + i).getId();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object deposit() {
+        long id = accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+        return accountService.deposit(id, BigDecimal.ONE);
+    }
+}
@@ -0,0 +1,94 @@
+package com.account.benchmark;
+
+import com.account.dto.AccountDto;
+import com.account.dto.TransactionDto;
+import com.account.enums.TransactionType;
+import com.account.model.Account;
+import com.account.model.Money;
+import com.account.model.Transaction;
+import com.account.repository.StatementLine;
+import org.modelmapper.Converter;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning an account into an {@link AccountDto} and the rows of a large statement into
+ * {@link TransactionDto}s, through the reflective {@link ModelMapper} the service used before and through
+ * the hand-written {@link Account#toDto()} and {@link StatementLine#toDto()}. The statement benchmarks
+ * report the time per row; run with {@code -prof gc} for the allocation per row as well.
+ * <p>
+ * {@code ./mvnw -Pbenchmark test -DskipTests -Djmh.args="MappingBenchmark -prof gc"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class MappingBenchmark {
+    private static final int ROWS = 10_000;
+
+    private final ModelMapper mapper = newModelMapper();
+    private Account account;
+    private List<Transaction> transactions;
+    private List<StatementLine> lines;
+
+    @Setup
+    public void setUp() {
+        account = new Account(42L, "benchmark", Money.of(new BigDecimal("1234.56")), 7L);
+        transactions = new ArrayList<>(ROWS);
+        lines = new ArrayList<>(ROWS);
+        var time = Instant.parse("2024-05-01T00:00:00Z");
+        for (int i = 0; i < ROWS; i++) {
+            var type = i % 2 == 0 ? TransactionType.DEPOSIT : TransactionType.WITHDRAW;
+            var amount = Money.ofKopecks(100 + i);
+            transactions.add(new Transaction((long) i, account, type, amount, time.plusSeconds(i)));
+            lines.add(new StatementLine((long) i, type, amount, time.plusSeconds(i)));
+        }
+        mapper.map(account, AccountDto.class);
+        mapper.map(transactions.get(0), TransactionDto.class);
+    }
+
+    @Benchmark
+    public AccountDto modelMapper() {
+        return mapper.map(account, AccountDto.class);
+    }
+
+    @Benchmark
+    public AccountDto toDto() {
+        return account.toDto();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<TransactionDto> statementModelMapper() {
+        var statement = new ArrayList<TransactionDto>(ROWS);
+        for (var transaction : transactions) {
+            statement.add(mapper.map(transaction, TransactionDto.class));
+        }
+        return statement;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public List<TransactionDto> statementToDto() {
+        var statement = new ArrayList<TransactionDto>(ROWS);
+        for (var line : lines) {
+            statement.add(line.toDto());
+        }
+        return statement;
+    }
+
+    private static ModelMapper newModelMapper() {
+        var mapper = new ModelMapper();
+        Converter<Money, BigDecimal> money = context -> context.getSource() == null ? null : context.getSource().toBigDecimal();
+        mapper.addConverter(money, Money.class, BigDecimal.class);
+        return mapper;
+    }
+}
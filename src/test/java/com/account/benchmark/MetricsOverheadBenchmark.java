@@ -0,0 +1,74 @@
+package com.account.benchmark;
+
+import com.account.service.AccountService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cost of the operation timers and JDBC counters: the same deposit and cached balance read with
+ * {@code account.metrics.enabled} off and on, on an embedded H2 database and the Prometheus registry.
+ * <p>
+ * {@code ./mvnw -Pbenchmark test -DskipTests -Djmh.args="MetricsOverheadBenchmark"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(4)
+public class MetricsOverheadBenchmark {
+    private static final int ACCOUNTS = 64;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+    private long[] accountIds;
+    private final AtomicInteger threads = new AtomicInteger();
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(Map.of(
+                "account.metrics.enabled", metrics,
+                "account.cache.enabled", true,
+                "account.cache.ttl", "10m"));
+        accountService = context.getBean(AccountService.class);
+        accountIds = new long[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountIds[i] = accountService.createAccount("metrics-" + i).getId();
+            accountService.getBalance(accountIds[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadAccount {
+        long accountId;
+
+        @Setup
+        public void setUp(MetricsOverheadBenchmark benchmark) {
+            accountId = benchmark.accountIds[benchmark.threads.getAndIncrement() % ACCOUNTS];
+        }
+    }
+
+    @Benchmark
+    public Object deposit(ThreadAccount account) {
+        return accountService.deposit(account.accountId, BigDecimal.ONE);
+    }
+
+    @Benchmark
+    public Object cachedBalance(ThreadAccount account) {
+        return accountService.getBalance(account.accountId);
+    }
+}
@@ -0,0 +1,64 @@
+package com.account.benchmark;
+
+import com.account.model.Money;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Balance arithmetic of one transfer, check the funds of the source, debit it and credit the target,
+ * on {@link BigDecimal} amounts as before and on {@link Money}. Run with the allocation profiler to
+ * compare the bytes allocated per transfer as well as the throughput:
+ * <p>
+ * {@code ./mvnw -Pbenchmark test -DskipTests -Djmh.args="MoneyBenchmark -prof gc"}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class MoneyBenchmark {
+    private static final int ACCOUNTS = 1024;
+
+    private final BigDecimal[] decimalBalances = new BigDecimal[ACCOUNTS];
+    private final Money[] moneyBalances = new Money[ACCOUNTS];
+    private BigDecimal decimalAmount;
+    private Money moneyAmount;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < ACCOUNTS; i++) {
+            decimalBalances[i] = new BigDecimal("1000000.00");
+            moneyBalances[i] = Money.of(decimalBalances[i]);
+        }
+        decimalAmount = new BigDecimal("12.34");
+        moneyAmount = Money.of(decimalAmount);
+    }
+
+    @Benchmark
+    public boolean bigDecimal() {
+        int from = next++ & (ACCOUNTS - 1);
+        int to = (from + 1) & (ACCOUNTS - 1);
+        if (decimalBalances[from].compareTo(decimalAmount) < 0) {
+            return false;
+        }
+        decimalBalances[from] = decimalBalances[from].subtract(decimalAmount);
+        decimalBalances[to] = decimalBalances[to].add(decimalAmount);
+        return true;
+    }
+
+    @Benchmark
+    public boolean money() {
+        int from = next++ & (ACCOUNTS - 1);
+        int to = (from + 1) & (ACCOUNTS - 1);
+        if (moneyBalances[from].isLessThan(moneyAmount)) {
+            return false;
+        }
+        moneyBalances[from] = moneyBalances[from].minus(moneyAmount);
+        moneyBalances[to] = moneyBalances[to].plus(moneyAmount);
+        return true;
+    }
+}
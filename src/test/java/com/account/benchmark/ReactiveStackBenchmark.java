@@ -0,0 +1,137 @@
+package com.account.benchmark;
+
+import com.account.service.AccountService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * The same HTTP load against the Spring MVC and JPA stack and against the WebFlux and R2DBC variant of
+ * the {@code reactive} profile, both with the atomic update strategy and {@value #POOL_SIZE} database
+ * connections. Every invocation keeps {@value #CONCURRENCY} requests in flight ({@value #STREAMS} for
+ * statement streams of {@value #STATEMENT_LINES} lines), and the score is requests per second. The peak
+ * number of live threads, client included, is printed on teardown.
+ * <p>
+ * Needs PostgreSQL:
+ * {@code ./mvnw -Pbenchmark test -DskipTests -Djmh.args="ReactiveStackBenchmark -jvmArgs -Dbenchmark.datasource.url=jdbc:postgresql://localhost:5433/account_db"}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(1)
+public class ReactiveStackBenchmark {
+    private static final int CONCURRENCY = 256;
+    private static final int STREAMS = 32;
+    private static final int STATEMENT_LINES = 1000;
+    private static final int POOL_SIZE = 20;
+
+    @Param({"mvc", "reactive"})
+    public String stack;
+
+    private ConfigurableApplicationContext context;
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private String baseUrl;
+    private long[] accountIds;
+    private long statementAccountId;
+    private Instant statementFrom;
+
+    @Setup
+    public void setUp() throws Exception {
+        Map<String, Object> properties = Map.of(
+                "spring.datasource.hikari.maximum-pool-size", POOL_SIZE,
+                "spring.r2dbc.pool.max-size", POOL_SIZE,
+                "server.tomcat.threads.max", 200,
+                "account.cache.enabled", true,
+                "account.cache.ttl", "10m");
+        context = stack.equals("reactive")
+                ? BenchmarkContext.startReactive(properties)
+                : BenchmarkContext.startWeb(properties);
+        var accountService = context.getBean(AccountService.class);
+        var prefix = "stack-" + System.nanoTime() + "-";
+        accountIds = new long[1024];
+        for (int i = 0; i < accountIds.length; i++) {
+            accountIds[i] = accountService.createAccount(prefix + i).getId();
+        }
+        statementAccountId = accountIds[0];
+        statementFrom = Instant.now().minus(1, ChronoUnit.DAYS);
+        var time = Timestamp.from(Instant.now().minus(1, ChronoUnit.HOURS));
+        context.getBean(JdbcTemplate.class).batchUpdate(
+                "INSERT INTO transactions (account_id, type, amount, time) VALUES (?, 'DEPOSIT', 1, ?)",
+                Collections.nCopies(STATEMENT_LINES, new Object[]{statementAccountId, time}));
+
+        baseUrl = "http://localhost:" + BenchmarkContext.port(context) + "/accounts/";
+        clientExecutor = Executors.newFixedThreadPool(4);
+        client = HttpClient.newBuilder().executor(clientExecutor).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.out.printf("%n%s: peak %d live threads%n", stack, ManagementFactory.getThreadMXBean().getPeakThreadCount());
+        clientExecutor.shutdownNow();
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENCY)
+    public int deposit() {
+        return send(CONCURRENCY, () -> HttpRequest.newBuilder(URI.create(baseUrl + randomAccount() + "/deposit?amount=1"))
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CONCURRENCY)
+    public int balance() {
+        return send(CONCURRENCY, () -> HttpRequest.newBuilder(URI.create(baseUrl + randomAccount() + "/balance"))
+                .GET()
+                .build());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STREAMS)
+    public int statementStream() {
+        return send(STREAMS, () -> HttpRequest.newBuilder(URI.create(baseUrl + statementAccountId
+                        + "/transactions/stream?fromTime=" + statementFrom + "&toTime=" + Instant.now()))
+                .GET()
+                .build());
+    }
+
+    private long randomAccount() {
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+
+    private int send(int count, Supplier<HttpRequest> request) {
+        var responses = new CompletableFuture<?>[count];
+        for (int i = 0; i < count; i++) {
+            responses[i] = client.sendAsync(request.get(), HttpResponse.BodyHandlers.discarding())
+                    .thenAccept(response -> {
+                        if (response.statusCode() != 200) {
+                            throw new IllegalStateException("HTTP " + response.statusCode());
+                        }
+                    });
+        }
+        CompletableFuture.allOf(responses).join();
+        return count;
+    }
+}
@@ -0,0 +1,76 @@
+package com.account.benchmark;
+
+import com.account.exception.NotEnoughMoneyException;
+import com.account.service.AccountService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many payers transfer to a single settlement account split into {@code shards} sub-balances
+ * ({@code 0} keeps the plain single-row account), while the settlement account pays out.
+ * <p>
+ * Sharding pays off when the row lock is held across network round trips, so compare shard counts
+ * against PostgreSQL; embedded H2 mostly shows the cost of the extra statements.
+ * <p>
+ * {@code ./mvnw -Pbenchmark test -DskipTests -Djmh.args="ShardedAccountBenchmark -t 16 -jvmArgs -Dbenchmark.datasource.url=..."}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@Threads(16)
+public class ShardedAccountBenchmark {
+    private static final BigDecimal AMOUNT = BigDecimal.ONE;
+
+    @Param({"0", "1", "4", "16", "64"})
+    public int shards;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+    private long settlementAccountId;
+    private long[] payerIds;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(Map.of());
+        accountService = context.getBean(AccountService.class);
+        settlementAccountId = accountService.createAccount("settlement").getId();
+        accountService.deposit(settlementAccountId, BigDecimal.valueOf(1_000_000_000));
+        accountService.shardAccount(settlementAccountId, shards);
+        payerIds = new long[1024];
+        for (int i = 0; i < payerIds.length; i++) {
+            payerIds[i] = accountService.createAccount("payer-" + i).getId();
+            accountService.deposit(payerIds[i], BigDecimal.valueOf(1_000_000_000));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object payIn() {
+        return accountService.transfer(randomPayer(), settlementAccountId, AMOUNT);
+    }
+
+    @Benchmark
+    public Object payOut() {
+        try {
+            return accountService.withdraw(settlementAccountId, AMOUNT);
+        } catch (NotEnoughMoneyException e) {
+            return e;
+        }
+    }
+
+    private long randomPayer() {
+        return payerIds[ThreadLocalRandom.current().nextInt(payerIds.length)];
+    }
+}
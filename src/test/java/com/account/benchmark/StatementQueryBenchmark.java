@@ -0,0 +1,119 @@
+package com.account.benchmark;
+
+import com.account.service.AccountService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statement query latency over {@code rows} seeded transactions spread across {@code ACCOUNTS} accounts
+ * and one year, with and without the {@code (account_id, time)} index.
+ * <p>
+ * Twenty million rows need a PostgreSQL database created from {@code db/db.sql}; it is seeded once and
+ * reused by later runs. On the default in-memory H2 database pass a smaller size, e.g.
+ * {@code ./mvnw -Pbenchmark test -DskipTests -Djmh.args="StatementQueryBenchmark -p rows=1000000"}.
+ * H2 indexes the {@code account_id} foreign key on its own, so only PostgreSQL shows the full
+ * difference between the indexed and unindexed runs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class StatementQueryBenchmark {
+    private static final int ACCOUNTS = 10_000;
+    private static final Instant END = Instant.parse("2026-01-01T00:00:00Z");
+    private static final long PERIOD_SECONDS = Duration.ofDays(365).toSeconds();
+
+    @Param({"20000000"})
+    public int rows;
+
+    @Param({"true", "false"})
+    public boolean indexed;
+
+    private ConfigurableApplicationContext context;
+    private AccountService accountService;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start(Map.of());
+        accountService = context.getBean(AccountService.class);
+        var jdbc = context.getBean(JdbcTemplate.class);
+        boolean postgres = System.getProperty("benchmark.datasource.url") != null;
+        Integer seeded = jdbc.queryForObject("SELECT COUNT(*) FROM accounts", Integer.class);
+        if (seeded == null || seeded == 0) {
+            seed(jdbc, postgres);
+        }
+        jdbc.execute("DROP INDEX IF EXISTS transactions_account_time_idx");
+        if (indexed) {
+            jdbc.execute(postgres
+                    ? "CREATE INDEX transactions_account_time_idx ON transactions (account_id, time) INCLUDE (id, type, amount)"
+                    : "CREATE INDEX transactions_account_time_idx ON transactions (account_id, time)");
+        }
+        if (postgres) {
+            jdbc.execute("VACUUM ANALYZE transactions");
+        }
+    }
+
+    private void seed(JdbcTemplate jdbc, boolean postgres) {
+        if (postgres) {
+            jdbc.update("""
+                    INSERT INTO accounts (id, owner, balance, version)
+                    SELECT x, 'benchmark-' || x, 0, 0 FROM generate_series(1, ?) x""", ACCOUNTS);
+            jdbc.update("""
+                    INSERT INTO transactions (id, account_id, type, amount, time)
+                    SELECT x, x % ? + 1, CASE WHEN x % 2 = 0 THEN 'DEPOSIT' ELSE 'WITHDRAW' END, 1.00,
+                           ? - make_interval(secs => x * 7919 % ?)
+                    FROM generate_series(1, ?) x""",
+                    ACCOUNTS, java.sql.Timestamp.from(END), PERIOD_SECONDS, rows);
+        } else {
+            jdbc.update("""
+                    INSERT INTO accounts (id, owner, balance, version)
+                    SELECT x, CONCAT('benchmark-', x), 0, 0 FROM SYSTEM_RANGE(1, ?) r (x)""", ACCOUNTS);
+            jdbc.update("""
+                    INSERT INTO transactions (id, account_id, type, amount, time)
+                    SELECT x, MOD(x, ?) + 1, CASE WHEN MOD(x, 2) = 0 THEN 'DEPOSIT' ELSE 'WITHDRAW' END, 1.00,
+                           DATEADD(SECOND, -MOD(x * 7919, ?), CAST(? AS TIMESTAMP WITH TIME ZONE))
+                    FROM SYSTEM_RANGE(1, ?) r (x)""",
+                    ACCOUNTS, PERIOD_SECONDS, java.sql.Timestamp.from(END), rows);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object monthStatement() {
+        var from = randomTime();
+        return accountService.getTransactions(randomAccount(), from, from.plus(Duration.ofDays(30)));
+    }
+
+    @Benchmark
+    public Object firstPage() {
+        return accountService.getTransactions(randomAccount(), END.minus(Duration.ofDays(365)), END, null, 100);
+    }
+
+    @Benchmark
+    public Object pageAfter() {
+        long account = randomAccount();
+        long afterId = account - 1 + (long) ACCOUNTS * ThreadLocalRandom.current().nextInt(1, rows / ACCOUNTS);
+        return accountService.getTransactions(account, END.minus(Duration.ofDays(365)), END, afterId, 100);
+    }
+
+    private static long randomAccount() {
+        return ThreadLocalRandom.current().nextInt(ACCOUNTS) + 1;
+    }
+
+    private static Instant randomTime() {
+        return END.minusSeconds(ThreadLocalRandom.current().nextLong(PERIOD_SECONDS));
+    }
+}
@@ -0,0 +1,535 @@
+package com.account.benchmark;
+
+import com.account.dto.BatchRequestDto;
+import com.account.dto.OperationDto;
+import com.account.dto.OperationResultDto;
+import com.account.enums.OperationStatus;
+import com.account.enums.OperationType;
+import com.account.exception.AccountLockTimeoutException;
+import com.account.exception.NotEnoughMoneyException;
+import com.account.service.AccountService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Fires random concurrent deposits, withdrawals, transfers and batches of them that are not
+ * all-or-nothing at {@link AccountService} directly or through the REST API, then checks that no money
+ * was created or destroyed:
+ * <ul>
+ *     <li>the sum of all balances equals the initial balances plus accepted deposits minus accepted
+ *     withdrawals;</li>
+ *     <li>every balance equals the sum of its ledger lines and none is negative;</li>
+ *     <li>the number of ledger lines matches the accepted operations.</li>
+ * </ul>
+ * Over REST every request carries an {@code Idempotency-Key} and a share of them is sent twice, which
+ * must not post twice. Throughput and p50/p99/p999 latency are reported per operation.
+ * <p>
+ * Runs on the embedded H2 database of {@link BenchmarkContext}, or on PostgreSQL given by
+ * {@code -Dbenchmark.datasource.url}:
+ * {@code ./mvnw -Pbenchmark test -DskipTests -Djmh.main=com.account.benchmark.StressHarness
+ * -Djmh.args="--accounts=64 --threads=32 --operations=50000 --via=service,rest"}; {@code --mode} and
+ * {@code --ledger} set {@code account.concurrency.mode} and {@code account.ledger.mode}.
+ */
+public final class StressHarness {
+    private static final BigDecimal MAX_AMOUNT = BigDecimal.valueOf(500);
+    private static final int MAX_BATCH_SIZE = 4;
+
+    private final Options options;
+    private final Via via;
+
+    public StressHarness(Options options, Via via) {
+        this.options = options;
+        this.via = via;
+    }
+
+    public static void main(String[] args) {
+        var options = Options.parse(args);
+        boolean passed = true;
+        for (var via : options.via()) {
+            var report = new StressHarness(options, via).run();
+            System.out.println(report);
+            passed &= report.violations().isEmpty();
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    public Report run() {
+        Map<String, Object> properties = new HashMap<>();
+        if (options.mode() != null) {
+            properties.put("account.concurrency.mode", options.mode());
+        }
+        if (options.ledger() != null) {
+            properties.put("account.ledger.mode", options.ledger());
+        }
+        try (var context = via == Via.REST ? BenchmarkContext.startWeb(properties) : BenchmarkContext.start(properties)) {
+            return new Run(context).execute();
+        }
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1)];
+    }
+
+    public enum Via {
+        SERVICE,
+        REST
+    }
+
+    enum Operation {
+        DEPOSIT,
+        WITHDRAW,
+        TRANSFER,
+        BATCH
+    }
+
+    enum Outcome {
+        OK,
+        REJECTED,
+        CONFLICT,
+        FAILED
+    }
+
+    public record Options(int accounts, int threads, int operations, List<Via> via, String mode, String ledger,
+                          BigDecimal initialBalance, double replayRate) {
+
+        public static Options parse(String... args) {
+            Map<String, String> values = new HashMap<>();
+            for (var arg : args) {
+                var pair = arg.replaceFirst("^--", "").split("=", 2);
+                values.put(pair[0], pair.length > 1 ? pair[1] : "true");
+            }
+            return new Options(
+                    Integer.parseInt(values.getOrDefault("accounts", "64")),
+                    Integer.parseInt(values.getOrDefault("threads", "16")),
+                    Integer.parseInt(values.getOrDefault("operations", "20000")),
+                    Arrays.stream(values.getOrDefault("via", "service,rest").split(","))
+                            .map(value -> Via.valueOf(value.trim().toUpperCase()))
+                            .toList(),
+                    values.get("mode"),
+                    values.get("ledger"),
+                    new BigDecimal(values.getOrDefault("initial-balance", "1000.00")),
+                    Double.parseDouble(values.getOrDefault("replay-rate", "0.1")));
+        }
+    }
+
+    public record Report(Via via, Options options, double seconds, Map<Operation, OperationStats> stats,
+                         List<String> violations) {
+
+        @Override
+        public String toString() {
+            long total = stats.values().stream().mapToLong(OperationStats::count).sum();
+            var text = new StringBuilder(String.format("%s, %d accounts, %d threads: %d operations in %.1f s, %.0f ops/s%n",
+                    via, options.accounts(), options.threads(), total, seconds, total / seconds));
+            stats.forEach((operation, operationStats) -> text.append(String.format("  %-8s %s%n", operation, operationStats)));
+            text.append(violations.isEmpty() ? "  invariants hold" : "  VIOLATIONS: " + String.join("; ", violations));
+            return text.toString();
+        }
+    }
+
+    public record OperationStats(Map<Outcome, Long> outcomes, long p50Nanos, long p99Nanos, long p999Nanos) {
+
+        long count() {
+            return outcomes.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s p50=%.2f ms p99=%.2f ms p999=%.2f ms",
+                    outcomes, p50Nanos / 1e6, p99Nanos / 1e6, p999Nanos / 1e6);
+        }
+    }
+
+    private interface Client {
+
+        Outcome execute(OperationDto operation);
+
+        /**
+         * Runs {@code operations} as one batch that is not all-or-nothing and adds the status of each
+         * operation to {@code statuses}.
+         */
+        Outcome executeBatch(List<OperationDto> operations, List<OperationStatus> statuses);
+    }
+
+    private final class Run {
+        private final AccountService accountService;
+        private final JdbcTemplate jdbcTemplate;
+        private final Client client;
+        private final long[] accountIds;
+        private final String owners = "stress-" + UUID.randomUUID() + "-%";
+
+        Run(ConfigurableApplicationContext context) {
+            this.accountService = context.getBean(AccountService.class);
+            this.jdbcTemplate = context.getBean(JdbcTemplate.class);
+            this.client = via == Via.REST
+                    ? new RestClient(BenchmarkContext.port(context), context.getBean(ObjectMapper.class))
+                    : new ServiceClient();
+            this.accountIds = new long[options.accounts()];
+        }
+
+        Report execute() {
+            for (int i = 0; i < accountIds.length; i++) {
+                accountIds[i] = accountService.createAccount(owners.replace("%", String.valueOf(i))).getId();
+                accountService.deposit(accountIds[i], options.initialBalance());
+            }
+
+            var workers = new Worker[options.threads()];
+            var start = new CountDownLatch(1);
+            var threads = new ArrayList<Thread>();
+            for (int i = 0; i < workers.length; i++) {
+                workers[i] = new Worker(options.operations() / workers.length, start);
+                var thread = new Thread(workers[i], "stress-" + i);
+                thread.start();
+                threads.add(thread);
+            }
+            long startNanos = System.nanoTime();
+            start.countDown();
+            for (var thread : threads) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException(e);
+                }
+            }
+            double seconds = (System.nanoTime() - startNanos) / 1e9;
+            return new Report(via, options, seconds, stats(workers), verify(workers));
+        }
+
+
+        private List<String> verify(Worker[] workers) {
+            var violations = new ArrayList<String>();
+            var deposited = BigDecimal.ZERO;
+            var withdrawn = BigDecimal.ZERO;
+            long expectedLines = accountIds.length;
+            long failed = 0;
+            for (var worker : workers) {
+                deposited = deposited.add(worker.deposited);
+                withdrawn = withdrawn.add(worker.withdrawn);
+                expectedLines += worker.acceptedLines;
+                failed += worker.failed;
+            }
+            if (failed > 0) {
+                violations.add(failed + " operations failed with an unexpected error");
+            }
+
+            var initial = options.initialBalance().multiply(BigDecimal.valueOf(accountIds.length));
+            var expectedTotal = initial.add(deposited).subtract(withdrawn);
+            var total = jdbcTemplate.queryForObject("""
+                    SELECT COALESCE(SUM(a.balance), 0)
+                         + (SELECT COALESCE(SUM(s.balance), 0) FROM account_shards s
+                            WHERE s.account_id IN (SELECT id FROM accounts WHERE owner LIKE ?))
+                    FROM accounts a WHERE a.owner LIKE ?""", BigDecimal.class, owners, owners);
+            if (total.compareTo(expectedTotal) != 0) {
+                violations.add("sum of balances " + total + " != expected " + expectedTotal);
+            }
+
+            var negative = jdbcTemplate.queryForObject("""
+                    SELECT (SELECT COUNT(*) FROM accounts WHERE owner LIKE ? AND balance < 0)
+                         + (SELECT COUNT(*) FROM account_shards
+                            WHERE balance < 0 AND account_id IN (SELECT id FROM accounts WHERE owner LIKE ?))""",
+                    Long.class, owners, owners);
+            if (negative != 0) {
+                violations.add(negative + " negative balances");
+            }
+
+            var mismatched = jdbcTemplate.queryForList("""
+                    SELECT a.id FROM accounts a
+                    WHERE a.balance + COALESCE((SELECT SUM(s.balance) FROM account_shards s WHERE s.account_id = a.id), 0)
+                       <> COALESCE((SELECT SUM(CASE WHEN t.type = 'DEPOSIT' THEN t.amount ELSE -t.amount END)
+                                    FROM transactions t WHERE t.account_id = a.id), 0)
+                      AND a.owner LIKE ?""", Long.class, owners);
+            if (!mismatched.isEmpty()) {
+                violations.add("balance differs from ledger for accounts " + mismatched);
+            }
+
+            var lines = jdbcTemplate.queryForObject("""
+                    SELECT COUNT(*) FROM transactions
+                    WHERE account_id IN (SELECT id FROM accounts WHERE owner LIKE ?)""", Long.class, owners);
+            if (lines != expectedLines) {
+                violations.add(lines + " ledger lines != expected " + expectedLines);
+            }
+            return violations;
+        }
+
+        private Map<Operation, OperationStats> stats(Worker[] workers) {
+            var stats = new EnumMap<Operation, OperationStats>(Operation.class);
+            for (var operation : Operation.values()) {
+                var outcomes = new EnumMap<Outcome, Long>(Outcome.class);
+                var latencies = new ArrayList<long[]>();
+                int size = 0;
+                for (var worker : workers) {
+                    worker.outcomes.get(operation).forEach((outcome, count) -> outcomes.merge(outcome, count, Long::sum));
+                    var workerLatencies = Arrays.copyOf(worker.latencies.get(operation), worker.latencyCounts.get(operation));
+                    latencies.add(workerLatencies);
+                    size += workerLatencies.length;
+                }
+                var all = new long[size];
+                int offset = 0;
+                for (var part : latencies) {
+                    System.arraycopy(part, 0, all, offset, part.length);
+                    offset += part.length;
+                }
+                Arrays.sort(all);
+                stats.put(operation, new OperationStats(outcomes, percentile(all, 0.50), percentile(all, 0.99),
+                        percentile(all, 0.999)));
+            }
+            return stats;
+        }
+
+        private final class ServiceClient implements Client {
+
+            @Override
+            public Outcome execute(OperationDto operation) {
+                try {
+                    switch (operation.getType()) {
+                        case DEPOSIT -> accountService.deposit(operation.getAccountId(), operation.getAmount());
+                        case WITHDRAW -> accountService.withdraw(operation.getAccountId(), operation.getAmount());
+                        case TRANSFER -> accountService.transfer(operation.getAccountId(), operation.getTargetAccountId(),
+                                operation.getAmount());
+                    }
+                    return Outcome.OK;
+                } catch (NotEnoughMoneyException e) {
+                    return Outcome.REJECTED;
+                } catch (AccountLockTimeoutException | ConcurrencyFailureException e) {
+                    return Outcome.CONFLICT;
+                } catch (RuntimeException e) {
+                    return Outcome.FAILED;
+                }
+            }
+
+            @Override
+            public Outcome executeBatch(List<OperationDto> operations, List<OperationStatus> statuses) {
+                try {
+                    accountService.executeBatch(operations, false).forEach(result -> statuses.add(result.getStatus()));
+                    return Outcome.OK;
+                } catch (AccountLockTimeoutException | ConcurrencyFailureException e) {
+                    return Outcome.CONFLICT;
+                } catch (RuntimeException e) {
+                    return Outcome.FAILED;
+                }
+            }
+        }
+
+        private final class Worker implements Runnable {
+            private final int operations;
+            private final CountDownLatch start;
+            private final Map<Operation, Map<Outcome, Long>> outcomes = new EnumMap<>(Operation.class);
+            private final Map<Operation, long[]> latencies = new EnumMap<>(Operation.class);
+            private final Map<Operation, Integer> latencyCounts = new EnumMap<>(Operation.class);
+            private BigDecimal deposited = BigDecimal.ZERO;
+            private BigDecimal withdrawn = BigDecimal.ZERO;
+            private long acceptedLines;
+            private long failed;
+
+            Worker(int operations, CountDownLatch start) {
+                this.operations = operations;
+                this.start = start;
+                for (var operation : Operation.values()) {
+                    outcomes.put(operation, new EnumMap<>(Outcome.class));
+                    latencies.put(operation, new long[operations]);
+                    latencyCounts.put(operation, 0);
+                }
+            }
+
+            @Override
+            public void run() {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                var random = ThreadLocalRandom.current();
+                var operationTypes = Operation.values();
+                for (int i = 0; i < operations; i++) {
+                    var operation = operationTypes[random.nextInt(operationTypes.length)];
+                    var batch = new ArrayList<OperationDto>();
+                    if (operation == Operation.BATCH) {
+                        for (int j = random.nextInt(2, MAX_BATCH_SIZE + 1); j > 0; j--) {
+                            batch.add(randomOperation(OperationType.values()[random.nextInt(OperationType.values().length)]));
+                        }
+                    } else {
+                        batch.add(randomOperation(OperationType.valueOf(operation.name())));
+                        operation = Operation.valueOf(batch.get(0).getType().name());
+                    }
+                    var statuses = new ArrayList<OperationStatus>();
+
+                    long startNanos = System.nanoTime();
+                    var outcome = operation == Operation.BATCH
+                            ? client.executeBatch(batch, statuses)
+                            : client.execute(batch.get(0));
+                    int index = latencyCounts.merge(operation, 1, Integer::sum) - 1;
+                    latencies.get(operation)[index] = System.nanoTime() - startNanos;
+                    outcomes.get(operation).merge(outcome, 1L, Long::sum);
+                    record(outcome, batch, statuses);
+                }
+            }
+
+            /**
+             * A random operation on random accounts. A transfer to the same account becomes a deposit.
+             */
+            private OperationDto randomOperation(OperationType type) {
+                var random = ThreadLocalRandom.current();
+                long accountId = accountIds[random.nextInt(accountIds.length)];
+                long targetAccountId = accountIds[random.nextInt(accountIds.length)];
+                if (type == OperationType.TRANSFER && targetAccountId == accountId) {
+                    type = OperationType.DEPOSIT;
+                }
+                var amount = BigDecimal.valueOf(random.nextLong(1, MAX_AMOUNT.movePointRight(2).longValue() + 1), 2);
+                return new OperationDto(type, accountId, type == OperationType.TRANSFER ? targetAccountId : null,
+                        amount);
+            }
+
+            /**
+             * Counts the accepted operations of a call. A single operation is accepted with its call; the
+             * operations of a batch are accepted by their own status, and a batch that is not
+             * all-or-nothing must report one status per operation and never roll any back.
+             */
+            private void record(Outcome outcome, List<OperationDto> batch, List<OperationStatus> statuses) {
+                if (outcome == Outcome.FAILED) {
+                    failed++;
+                }
+                if (outcome != Outcome.OK) {
+                    return;
+                }
+                if (statuses.isEmpty()) {
+                    accept(batch.get(0));
+                    return;
+                }
+                if (statuses.size() != batch.size() || statuses.contains(OperationStatus.ROLLED_BACK)) {
+                    failed++;
+                    return;
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    if (statuses.get(i) == OperationStatus.OK) {
+                        accept(batch.get(i));
+                    }
+                }
+            }
+
+            private void accept(OperationDto operation) {
+                switch (operation.getType()) {
+                    case DEPOSIT -> {
+                        deposited = deposited.add(operation.getAmount());
+                        acceptedLines++;
+                    }
+                    case WITHDRAW -> {
+                        withdrawn = withdrawn.add(operation.getAmount());
+                        acceptedLines++;
+                    }
+                    case TRANSFER -> acceptedLines += 2;
+                }
+            }
+        }
+    }
+
+    private final class RestClient implements Client {
+        private final HttpClient httpClient = HttpClient.newHttpClient();
+        private final String baseUrl;
+        private final ObjectMapper objectMapper;
+
+        RestClient(int port, ObjectMapper objectMapper) {
+            this.baseUrl = "http://localhost:" + port + "/accounts/";
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public Outcome execute(OperationDto operation) {
+            var path = switch (operation.getType()) {
+                case DEPOSIT -> operation.getAccountId() + "/deposit";
+                case WITHDRAW -> operation.getAccountId() + "/withdraw";
+                case TRANSFER -> operation.getAccountId() + "/transfer/" + operation.getTargetAccountId();
+            };
+            var request = request(path + "?amount=" + operation.getAmount())
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            try {
+                var response = sendWithReplay(request);
+                return response == null ? Outcome.FAILED : outcome(response);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Outcome.FAILED;
+            } catch (IOException e) {
+                return Outcome.FAILED;
+            }
+        }
+
+        @Override
+        public Outcome executeBatch(List<OperationDto> operations, List<OperationStatus> statuses) {
+            try {
+                var request = request("batch")
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(
+                                objectMapper.writeValueAsString(new BatchRequestDto(operations, false))))
+                        .build();
+                var response = sendWithReplay(request);
+                if (response == null) {
+                    return Outcome.FAILED;
+                }
+                if (response.statusCode() == 200) {
+                    for (var result : objectMapper.readValue(response.body(), OperationResultDto[].class)) {
+                        statuses.add(result.getStatus());
+                    }
+                }
+                return outcome(response);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return Outcome.FAILED;
+            } catch (IOException e) {
+                return Outcome.FAILED;
+            }
+        }
+
+        private HttpRequest.Builder request(String path) {
+            return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                    .header("Idempotency-Key", UUID.randomUUID().toString())
+                    .timeout(Duration.ofSeconds(30));
+        }
+
+        /**
+         * Sends the request, and a share of the accepted ones once more with the same key. Returns
+         * {@code null} when the repeated request did not get the first response back.
+         */
+        private HttpResponse<String> sendWithReplay(HttpRequest request) throws IOException, InterruptedException {
+            var response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 200 && ThreadLocalRandom.current().nextDouble() < options.replayRate()) {
+                var replay = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                if (replay.statusCode() != 200 || !replay.body().equals(response.body())) {
+                    return null;
+                }
+            }
+            return response;
+        }
+
+        private static Outcome outcome(HttpResponse<String> response) {
+            return switch (response.statusCode()) {
+                case 200 -> Outcome.OK;
+                case 404 -> Outcome.REJECTED;
+                case 409 -> Outcome.CONFLICT;
+                default -> Outcome.FAILED;
+            };
+        }
+    }
+}
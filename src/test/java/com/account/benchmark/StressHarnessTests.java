@@ -0,0 +1,24 @@
+package com.account.benchmark;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Takes about a minute, so it only runs with {@code ./mvnw test -Pstress}.
+ */
+@Tag("stress")
+class StressHarnessTests {
+
+    @Test
+    void testMoneyIsConservedThroughServiceAndRest() {
+        var options = StressHarness.Options.parse("--accounts=16", "--threads=8", "--operations=2000");
+        for (var via : options.via()) {
+            var report = new StressHarness(options, via).run();
+            assertEquals(List.of(), report.violations(), report.toString());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.account.controller;
+
+import com.account.config.AccountProperties;
+import com.account.dto.AccountDto;
+import com.account.exception.IdempotencyKeyInProgressException;
+import com.account.exception.InvalidCursorException;
+import com.account.model.IdempotencyKey;
+import com.account.repository.IdempotencyKeyRepository;
+import com.account.service.AccountService;
+import com.account.service.admission.AccountAdmissionLimiter;
+import com.account.service.engine.LedgerEngine;
+import com.account.service.feed.BalanceFeed;
+import com.account.service.feed.LocalBalanceEventBus;
+import com.account.service.idempotency.IdempotencyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class AccountControllerTests {
+    private IdempotencyKeyRepository mockKeyRepository;
+    private LedgerEngine mockEngine;
+    private AccountService mockAccountService;
+    private AccountController controller;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        mockKeyRepository = Mockito.mock(IdempotencyKeyRepository.class);
+        mockEngine = Mockito.mock(LedgerEngine.class);
+        mockAccountService = Mockito.mock(AccountService.class);
+        var properties = new AccountProperties();
+        var meterRegistry = new SimpleMeterRegistry();
+        var idempotencyService = new IdempotencyService(mockKeyRepository, new ObjectMapper(), Clock.systemUTC(),
+                properties, meterRegistry);
+        ObjectProvider<LedgerEngine> engineProvider = Mockito.mock(ObjectProvider.class);
+        when(engineProvider.getIfAvailable()).thenReturn(mockEngine);
+        ObjectProvider<AccountAdmissionLimiter> limiterProvider = Mockito.mock(ObjectProvider.class);
+        controller = new AccountController(mockAccountService, idempotencyService, new ObjectMapper(),
+                new BalanceFeed(properties, new LocalBalanceEventBus(), meterRegistry), engineProvider, limiterProvider);
+    }
+
+    @Test
+    void testEngineDepositWithKeyIsAppliedOnce() {
+        when(mockEngine.deposit(1L, BigDecimal.TEN)).thenReturn(new AccountDto(1L, "owner", new BigDecimal("10.00")));
+
+        var first = controller.deposit(1L, BigDecimal.TEN, "key-1");
+        var second = controller.deposit(1L, BigDecimal.TEN, "key-1");
+
+        assertEquals(first.getBody(), second.getBody());
+        verify(mockEngine, times(1)).deposit(1L, BigDecimal.TEN);
+        var inOrder = inOrder(mockKeyRepository, mockEngine);
+        inOrder.verify(mockKeyRepository).claim(eq("key-1"), any(), any());
+        inOrder.verify(mockEngine).deposit(1L, BigDecimal.TEN);
+        inOrder.verify(mockKeyRepository).complete(eq("key-1"), any());
+        verify(mockKeyRepository, never()).insert(any(), any(), any(), any());
+        verifyNoInteractions(mockAccountService);
+    }
+
+    @Test
+    void testAmountWithOtherScaleIsTheSameRequest() {
+        when(mockEngine.deposit(eq(1L), any())).thenReturn(new AccountDto(1L, "owner", new BigDecimal("10.00")));
+
+        var first = controller.deposit(1L, new BigDecimal("10"), "key-1");
+        var second = controller.deposit(1L, new BigDecimal("10.00"), "key-1");
+
+        assertEquals(first.getBody(), second.getBody());
+        verify(mockEngine, times(1)).deposit(eq(1L), any());
+    }
+
+    @Test
+    void testEngineDepositWithKeyClaimedConcurrentlyIsNotApplied() {
+        doThrow(new DataIntegrityViolationException("duplicate key"))
+                .when(mockKeyRepository).claim(eq("key-1"), any(), any());
+        when(mockKeyRepository.findById("key-1"))
+                .thenReturn(Optional.empty())
+                .thenAnswer(invocation -> {
+                    var hash = ArgumentCaptor.forClass(String.class);
+                    verify(mockKeyRepository).claim(eq("key-1"), hash.capture(), any());
+                    return Optional.of(new IdempotencyKey("key-1", hash.getValue(), null, Instant.now()));
+                });
+
+        assertThrows(IdempotencyKeyInProgressException.class, () -> controller.deposit(1L, BigDecimal.TEN, "key-1"));
+        verifyNoInteractions(mockEngine);
+    }
+
+    @Test
+    void testPageAfterUnknownOrForeignOperationIsBadRequest() throws Exception {
+        when(mockAccountService.getTransactions(eq(1L), any(), any(), eq(99L), eq(10)))
+                .thenThrow(new InvalidCursorException(1L, 99L));
+
+        MockMvcBuilders.standaloneSetup(controller).build()
+                .perform(get("/accounts/1/transactions")
+                        .param("fromTime", "2024-01-01T00:00:00Z")
+                        .param("toTime", "2024-02-01T00:00:00Z")
+                        .param("afterId", "99")
+                        .param("limit", "10"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,59 @@
+package com.account.controller;
+
+import com.account.config.AccountProperties;
+import com.account.service.bulk.BulkCopyService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+class ExportControllerTests {
+    private AccountProperties properties;
+    private BulkCopyService mockBulkCopyService;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new AccountProperties();
+        mockBulkCopyService = Mockito.mock(BulkCopyService.class);
+    }
+
+    @Test
+    void testExportIsNotLimitedByAsyncRequestTimeout() throws Exception {
+        var result = mockMvc().perform(exportRequest())
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertEquals(0, result.getRequest().getAsyncContext().getTimeout());
+    }
+
+    @Test
+    void testExportUsesItsOwnTimeout() throws Exception {
+        properties.getExport().setTimeout(Duration.ofHours(2));
+
+        var result = mockMvc().perform(exportRequest())
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        assertEquals(Duration.ofHours(2).toMillis(), result.getRequest().getAsyncContext().getTimeout());
+    }
+
+    private MockMvc mockMvc() {
+        return MockMvcBuilders.standaloneSetup(new ExportController(mockBulkCopyService, properties))
+                .setAsyncRequestTimeout(Duration.ofMinutes(10).toMillis())
+                .build();
+    }
+
+    private static RequestBuilder exportRequest() {
+        return get("/exports/transactions")
+                .param("fromTime", "2024-01-01T00:00:00Z")
+                .param("toTime", "2024-02-01T00:00:00Z");
+    }
+}
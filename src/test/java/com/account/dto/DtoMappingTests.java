@@ -0,0 +1,62 @@
+package com.account.dto;
+
+import com.account.enums.TransactionType;
+import com.account.model.Account;
+import com.account.model.Money;
+import com.account.model.Transaction;
+import com.account.repository.StatementLine;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.Converter;
+import org.modelmapper.ModelMapper;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The hand-written conversions against the {@link ModelMapper} configuration they replace.
+ */
+class DtoMappingTests {
+    private static final List<Money> AMOUNTS = Arrays.asList(Money.ZERO, Money.ofKopecks(1), Money.ofKopecks(-1),
+            Money.of(new BigDecimal("1234.5")), Money.ofKopecks(Long.MAX_VALUE), null);
+
+    private final ModelMapper modelMapper = modelMapper();
+
+    @Test
+    void testAccountMatchesModelMapper() {
+        for (var balance : AMOUNTS) {
+            for (var owner : Arrays.asList("Test owner", "", null)) {
+                var account = new Account(42L, owner, balance, 7L);
+                assertEquals(modelMapper.map(account, AccountDto.class), account.toDto());
+            }
+        }
+        var created = new Account();
+        assertEquals(modelMapper.map(created, AccountDto.class), created.toDto());
+    }
+
+    @Test
+    void testStatementLineMatchesModelMapper() {
+        var account = new Account(42L, "Test owner", Money.ZERO, 7L);
+        for (var amount : AMOUNTS.subList(0, AMOUNTS.size() - 1)) {
+            for (var type : TransactionType.values()) {
+                var transaction = new Transaction(11L, account, type, amount, Instant.parse("2024-05-01T10:15:30.123456Z"));
+                var line = new StatementLine(transaction.getId(), transaction.getType(), transaction.getAmount(),
+                        transaction.getTime());
+                assertEquals(modelMapper.map(transaction, TransactionDto.class), line.toDto());
+            }
+        }
+    }
+
+    /**
+     * The mapper bean of the application before the hand-written conversions.
+     */
+    private static ModelMapper modelMapper() {
+        var mapper = new ModelMapper();
+        Converter<Money, BigDecimal> money = context -> context.getSource() == null ? null : context.getSource().toBigDecimal();
+        mapper.addConverter(money, Money.class, BigDecimal.class);
+        return mapper;
+    }
+}
@@ -0,0 +1,58 @@
+package com.account.model;
+
+import com.account.exception.InvalidAmountException;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MoneyTests {
+
+    @Test
+    void testAmountRoundTrip() {
+        var money = Money.of(new BigDecimal("1234.5"));
+
+        assertEquals(123450, money.kopecks());
+        assertEquals(new BigDecimal("1234.50"), money.toBigDecimal());
+        assertEquals("1234.50", money.toString());
+        assertEquals(Money.ofKopecks(-1), Money.of(new BigDecimal("-0.01")));
+    }
+
+    @Test
+    void testTrailingZerosAreAccepted() {
+        assertEquals(Money.ofKopecks(100), Money.of(new BigDecimal("1.0000")));
+        assertEquals(Money.ofKopecks(1000), Money.of(new BigDecimal("1E+1")));
+    }
+
+    @Test
+    void testFractionOfKopeckIsRejected() {
+        assertThrows(InvalidAmountException.class, () -> Money.of(new BigDecimal("0.001")));
+        assertThrows(InvalidAmountException.class, () -> Money.of(new BigDecimal("10.005")));
+    }
+
+    @Test
+    void testArithmetic() {
+        var hundred = Money.of(BigDecimal.valueOf(100));
+        var ten = Money.of(BigDecimal.TEN);
+
+        assertEquals(Money.of(BigDecimal.valueOf(110)), hundred.plus(ten));
+        assertEquals(Money.of(BigDecimal.valueOf(90)), hundred.minus(ten));
+        assertEquals(Money.of(BigDecimal.valueOf(-10)), ten.negate());
+        assertTrue(ten.isLessThan(hundred));
+        assertTrue(hundred.compareTo(ten) > 0);
+        assertEquals(0, hundred.minus(hundred).signum());
+    }
+
+    @Test
+    void testOverflowIsRejected() {
+        var max = Money.ofKopecks(Long.MAX_VALUE);
+
+        assertThrows(InvalidAmountException.class, () -> max.plus(Money.ofKopecks(1)));
+        assertThrows(InvalidAmountException.class, () -> Money.ofKopecks(Long.MIN_VALUE).minus(Money.ofKopecks(1)));
+        assertThrows(InvalidAmountException.class, () -> Money.ofKopecks(Long.MIN_VALUE).negate());
+        assertThrows(InvalidAmountException.class, () -> Money.of(new BigDecimal("100000000000000000")));
+    }
+}
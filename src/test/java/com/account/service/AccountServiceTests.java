@@ -1,42 +1,85 @@
 package com.account.service;
 
+import com.account.config.AccountProperties;
 import com.account.dto.AccountDto;
+import com.account.dto.OperationDto;
+import com.account.dto.OperationResultDto;
+import com.account.dto.SummaryDto;
 import com.account.dto.TransactionDto;
+import com.account.enums.OperationStatus;
+import com.account.enums.OperationType;
+import com.account.enums.SummaryGranularity;
+import com.account.enums.TransactionType;
 import com.account.exception.AccountNotFoundException;
+import com.account.exception.BatchRolledBackException;
+import com.account.exception.InvalidCursorException;
 import com.account.exception.NotEnoughMoneyException;
 import com.account.model.Account;
+import com.account.model.BalanceSnapshot;
+import com.account.model.DailyRollup;
+import com.account.model.Money;
 import com.account.model.Transaction;
 import com.account.repository.AccountRepository;
+import com.account.repository.AccountShardRepository;
+import com.account.repository.AccountView;
+import com.account.repository.BalanceSnapshotRepository;
+import com.account.repository.DailyRollupRepository;
+import com.account.repository.IdempotencyKeyRepository;
+import com.account.repository.StatementLine;
 import com.account.repository.TransactionRepository;
+import com.account.service.cache.BalanceCache;
+import com.account.service.cache.BalanceInvalidationChannel;
+import com.account.service.concurrency.AtomicUpdateConcurrencyStrategy;
+import com.account.service.concurrency.ConcurrencyStrategy;
+import com.account.service.concurrency.StripedLockConcurrencyStrategy;
+import com.account.service.feed.BalanceFeed;
+import com.account.service.feed.LocalBalanceEventBus;
+import com.account.service.idempotency.IdempotencyService;
+import com.account.service.ledger.SynchronousLedgerWriter;
+import com.account.service.lock.AccountLockManager;
+import com.account.service.shard.AccountShardManager;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
-import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Limit;
 
 import java.math.BigDecimal;
+import java.time.Clock;
 import java.time.Instant;
-import java.util.Collections;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 
 class AccountServiceTests {
     private AccountRepository mockAccountRepository;
     private TransactionRepository mockTransactionRepository;
-    private ModelMapper mockModelMapper;
+    private BalanceSnapshotRepository mockSnapshotRepository;
+    private DailyRollupRepository mockRollupRepository;
     private AccountService accountService;
 
     @BeforeEach
     public void setUp() {
         mockAccountRepository = Mockito.mock(AccountRepository.class);
         mockTransactionRepository = Mockito.mock(TransactionRepository.class);
-        mockModelMapper = Mockito.mock(ModelMapper.class);
-        accountService = new AccountService(mockAccountRepository, mockTransactionRepository, mockModelMapper);
+        mockSnapshotRepository = Mockito.mock(BalanceSnapshotRepository.class);
+        mockRollupRepository = Mockito.mock(DailyRollupRepository.class);
+        var properties = new AccountProperties();
+        var lockManager = new AccountLockManager(properties, new SimpleMeterRegistry());
+        accountService = accountService(properties, new StripedLockConcurrencyStrategy(mockAccountRepository, lockManager));
     }
 
     @Test
@@ -48,16 +91,15 @@ class AccountServiceTests {
         AccountDto expectedDto = new AccountDto();
         expectedDto.setId(1L);
         expectedDto.setOwner("Test owner");
-        expectedDto.setBalance(BigDecimal.ZERO);
+        expectedDto.setBalance(new BigDecimal("0.00"));
 
         when(mockAccountRepository.save(any(Account.class))).thenReturn(account);
-        when(mockModelMapper.map(account, AccountDto.class)).thenReturn(expectedDto);
 
         AccountDto accountDto = accountService.createAccount("Test owner");
 
         assertEquals("Test owner", accountDto.getOwner());
         assertEquals(1L, accountDto.getId());
-        assertEquals(BigDecimal.ZERO, accountDto.getBalance());
+        assertEquals(expectedDto, accountDto);
     }
 
     @Test
@@ -65,20 +107,19 @@ class AccountServiceTests {
         Account account = new Account();
         account.setId(1L);
         account.setOwner("Test owner");
-        account.setBalance(BigDecimal.valueOf(100));
+        account.setBalance(Money.of(BigDecimal.valueOf(100)));
 
         AccountDto expectedDto = new AccountDto();
         expectedDto.setId(1L);
         expectedDto.setOwner("Test owner");
-        expectedDto.setBalance(BigDecimal.valueOf(150));
+        expectedDto.setBalance(new BigDecimal("150.00"));
 
         when(mockAccountRepository.findById(1L)).thenReturn(Optional.of(account));
         when(mockAccountRepository.save(any(Account.class))).thenReturn(account);
-        when(mockModelMapper.map(account, AccountDto.class)).thenReturn(expectedDto);
 
         AccountDto accountDto = accountService.deposit(1L, BigDecimal.valueOf(50));
 
-        assertEquals(expectedDto.getBalance(), accountDto.getBalance());
+        assertEquals(expectedDto, accountDto);
         verify(mockTransactionRepository).save(any(Transaction.class));
     }
 
@@ -87,20 +128,19 @@ class AccountServiceTests {
         Account account = new Account();
         account.setId(1L);
         account.setOwner("Test owner");
-        account.setBalance(BigDecimal.valueOf(100));
+        account.setBalance(Money.of(BigDecimal.valueOf(100)));
 
         AccountDto expectedDto = new AccountDto();
         expectedDto.setId(1L);
         expectedDto.setOwner("Test owner");
-        expectedDto.setBalance(BigDecimal.valueOf(50));
+        expectedDto.setBalance(new BigDecimal("50.00"));
 
         when(mockAccountRepository.findById(1L)).thenReturn(Optional.of(account));
         when(mockAccountRepository.save(any(Account.class))).thenReturn(account);
-        when(mockModelMapper.map(account, AccountDto.class)).thenReturn(expectedDto);
 
         AccountDto accountDto = accountService.withdraw(1L, BigDecimal.valueOf(50));
 
-        assertEquals(expectedDto.getBalance(), accountDto.getBalance());
+        assertEquals(expectedDto, accountDto);
         verify(mockTransactionRepository).save(any(Transaction.class));
     }
 
@@ -109,7 +149,7 @@ class AccountServiceTests {
         Account account = new Account();
         account.setId(1L);
         account.setOwner("Test owner");
-        account.setBalance(BigDecimal.valueOf(100));
+        account.setBalance(Money.of(BigDecimal.valueOf(100)));
 
         when(mockAccountRepository.findById(1L)).thenReturn(Optional.of(account));
 
@@ -123,12 +163,12 @@ class AccountServiceTests {
         Account fromAccount = new Account();
         fromAccount.setId(1L);
         fromAccount.setOwner("Test owner");
-        fromAccount.setBalance(BigDecimal.valueOf(200));
+        fromAccount.setBalance(Money.of(BigDecimal.valueOf(200)));
 
         Account toAccount = new Account();
         toAccount.setId(2L);
         toAccount.setOwner("Test owner");
-        toAccount.setBalance(BigDecimal.valueOf(100));
+        toAccount.setBalance(Money.of(BigDecimal.valueOf(100)));
 
         when(mockAccountRepository.findById(1L)).thenReturn(Optional.of(fromAccount));
         when(mockAccountRepository.findById(2L)).thenReturn(Optional.of(toAccount));
@@ -136,19 +176,18 @@ class AccountServiceTests {
 
         AccountDto fromAccountDto = new AccountDto();
         fromAccountDto.setId(1L);
-        fromAccountDto.setBalance(BigDecimal.valueOf(150));
+        fromAccountDto.setOwner("Test owner");
+        fromAccountDto.setBalance(new BigDecimal("150.00"));
 
         AccountDto toAccountDto = new AccountDto();
         toAccountDto.setId(2L);
-        toAccountDto.setBalance(BigDecimal.valueOf(150));
+        toAccountDto.setOwner("Test owner");
+        toAccountDto.setBalance(new BigDecimal("150.00"));
 
-        when(mockModelMapper.map(fromAccount, AccountDto.class)).thenReturn(fromAccountDto);
-        when(mockModelMapper.map(toAccount, AccountDto.class)).thenReturn(toAccountDto);
+        assertEquals(fromAccountDto, accountService.transfer(1L, 2L, BigDecimal.valueOf(50)));
 
-        accountService.transfer(1L, 2L, BigDecimal.valueOf(50));
-
-        assertEquals(fromAccountDto.getBalance(), fromAccount.getBalance());
-        assertEquals(toAccountDto.getBalance(), toAccount.getBalance());
+        assertEquals(Money.of(fromAccountDto.getBalance()), fromAccount.getBalance());
+        assertEquals(Money.of(toAccountDto.getBalance()), toAccount.getBalance());
         verify(mockTransactionRepository, times(2)).save(any(Transaction.class));
     }
 
@@ -157,12 +196,12 @@ class AccountServiceTests {
         Account fromAccount = new Account();
         fromAccount.setId(1L);
         fromAccount.setOwner("Test owner");
-        fromAccount.setBalance(BigDecimal.valueOf(100));
+        fromAccount.setBalance(Money.of(BigDecimal.valueOf(100)));
 
         Account toAccount = new Account();
         toAccount.setId(2L);
         toAccount.setOwner("Test owner");
-        toAccount.setBalance(BigDecimal.valueOf(200));
+        toAccount.setBalance(Money.of(BigDecimal.valueOf(200)));
 
         when(mockAccountRepository.findById(1L)).thenReturn(Optional.of(fromAccount));
         when(mockAccountRepository.findById(2L)).thenReturn(Optional.of(toAccount));
@@ -177,12 +216,12 @@ class AccountServiceTests {
         Account account = new Account();
         account.setId(1L);
         account.setOwner("Test owner");
-        account.setBalance(BigDecimal.valueOf(100));
+        account.setBalance(Money.of(BigDecimal.valueOf(100)));
 
         when(mockAccountRepository.findById(1L)).thenReturn(Optional.of(account));
 
         BigDecimal balance = accountService.getBalance(1L);
-        assertEquals(BigDecimal.valueOf(100), balance);
+        assertEquals(new BigDecimal("100.00"), balance);
     }
 
     @Test
@@ -194,33 +233,220 @@ class AccountServiceTests {
 
 
 
+    @Test
+    void testGetBalanceAsOfStartsFromSnapshot() {
+        Instant snapshotTime = Instant.parse("2026-01-01T00:00:00Z");
+        Instant asOf = snapshotTime.plusSeconds(600);
+
+        when(mockSnapshotRepository.findFirstByAccountIdAndTimeLessThanEqualOrderByTimeDesc(1L, asOf))
+                .thenReturn(Optional.of(new BalanceSnapshot(1L, snapshotTime, BigDecimal.valueOf(100))));
+        when(mockTransactionRepository.sumChanges(1L, snapshotTime, asOf)).thenReturn(BigDecimal.valueOf(-30));
+
+        assertEquals(BigDecimal.valueOf(70), accountService.getBalance(1L, asOf));
+        verify(mockAccountRepository, never()).existsById(any());
+    }
+
+    @Test
+    void testGetBalanceAsOfWithoutSnapshot() {
+        Instant asOf = Instant.parse("2026-01-01T00:00:00Z");
+
+        when(mockSnapshotRepository.findFirstByAccountIdAndTimeLessThanEqualOrderByTimeDesc(any(), any()))
+                .thenReturn(Optional.empty());
+        when(mockAccountRepository.existsById(1L)).thenReturn(true);
+        when(mockTransactionRepository.sumChanges(1L, Instant.EPOCH, asOf)).thenReturn(BigDecimal.valueOf(15));
+
+        assertEquals(BigDecimal.valueOf(15), accountService.getBalance(1L, asOf));
+        assertThrows(AccountNotFoundException.class, () -> accountService.getBalance(2L, asOf));
+    }
+
+    @Test
+    void testGetSummaryGroupsRollupsByMonth() {
+        LocalDate from = LocalDate.of(2026, 1, 1);
+        LocalDate to = LocalDate.of(2026, 2, 28);
+
+        when(mockRollupRepository.findAllByAccountIdAndDayBetweenOrderByDay(1L, from, to)).thenReturn(List.of(
+                new DailyRollup(1L, LocalDate.of(2026, 1, 5), TransactionType.DEPOSIT, BigDecimal.valueOf(100), 2L),
+                new DailyRollup(1L, LocalDate.of(2026, 1, 20), TransactionType.DEPOSIT, BigDecimal.valueOf(50), 1L),
+                new DailyRollup(1L, LocalDate.of(2026, 1, 20), TransactionType.WITHDRAW, BigDecimal.valueOf(30), 3L),
+                new DailyRollup(1L, LocalDate.of(2026, 2, 2), TransactionType.WITHDRAW, BigDecimal.valueOf(10), 1L)));
+
+        List<SummaryDto> summary = accountService.getSummary(1L, from, to, SummaryGranularity.MONTH);
+
+        assertEquals(List.of(
+                new SummaryDto(LocalDate.of(2026, 1, 1), BigDecimal.valueOf(150), 3, BigDecimal.valueOf(30), 3),
+                new SummaryDto(LocalDate.of(2026, 2, 1), BigDecimal.ZERO, 0, BigDecimal.valueOf(10), 1)), summary);
+    }
+
+    @Test
+    void testGetSummaryOfUnknownAccount() {
+        LocalDate day = LocalDate.of(2026, 1, 1);
+
+        when(mockRollupRepository.findAllByAccountIdAndDayBetweenOrderByDay(any(), any(), any())).thenReturn(List.of());
+        when(mockAccountRepository.existsById(1L)).thenReturn(true);
+
+        assertEquals(List.of(), accountService.getSummary(1L, day, day, SummaryGranularity.WEEK));
+        assertThrows(AccountNotFoundException.class, () -> accountService.getSummary(2L, day, day, SummaryGranularity.WEEK));
+    }
+
     @Test
     void testGetTransactions() {
+        StatementLine line = statementLine(1L);
+
+        when(mockTransactionRepository.findStatement(eq(1L), any(), any())).thenReturn(List.of(line));
+
+        List<TransactionDto> transactions = accountService.getTransactions(1L, Instant.now().minusSeconds(3600), Instant.now());
+        assertEquals(1, transactions.size());
+
+        assertEquals(line.toDto(), transactions.get(0));
+        verify(mockAccountRepository, never()).findById(any());
+    }
+
+    @Test
+    void testGetTransactionsPage() {
+        StatementLine line = statementLine(11L);
+
+        Instant afterTime = Instant.parse("2024-01-01T00:00:00Z");
+        when(mockTransactionRepository.findStatementCursor(eq(1L), any(), any(), eq(10L))).thenReturn(Optional.of(afterTime));
+        when(mockTransactionRepository.findStatementPageAfter(eq(1L), any(), any(), eq(afterTime), eq(10L), eq(Limit.of(1))))
+                .thenReturn(List.of(line));
+
+        List<TransactionDto> page = accountService.getTransactions(1L, Instant.EPOCH, Instant.now(), 10L, 1);
+        assertEquals(List.of(line.toDto()), page);
+
+        when(mockAccountRepository.existsById(2L)).thenReturn(false);
+        assertThrows(AccountNotFoundException.class,
+                () -> accountService.getTransactions(2L, Instant.EPOCH, Instant.now(), null, 1));
+    }
+
+    @Test
+    void testGetTransactionsPageAfterForeignOperationIsRejected() {
+        when(mockTransactionRepository.findStatementCursor(eq(1L), any(), any(), eq(10L))).thenReturn(Optional.empty());
+
+        assertThrows(InvalidCursorException.class,
+                () -> accountService.getTransactions(1L, Instant.EPOCH, Instant.now(), 10L, 1));
+        verify(mockTransactionRepository, never()).findStatementPageAfter(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void testStreamTransactions() {
+        StatementLine first = statementLine(1L);
+        StatementLine second = statementLine(2L);
+        when(mockTransactionRepository.streamStatement(eq(1L), any(), any())).thenReturn(Stream.of(first, second));
+
+        List<Long> streamed = new ArrayList<>();
+        accountService.streamTransactions(1L, Instant.EPOCH, Instant.now(), dto -> streamed.add(dto.getId()));
+
+        assertEquals(List.of(1L, 2L), streamed);
+    }
+    @Test
+    void testExecuteBatchReportsEachOperation() {
         Account account = new Account();
         account.setId(1L);
         account.setOwner("Test owner");
-        account.setBalance(BigDecimal.valueOf(100));
+        account.setBalance(Money.of(BigDecimal.valueOf(100)));
 
-        AccountDto accountDto = new AccountDto();
-        accountDto.setId(1L);
-        accountDto.setOwner("Test owner");
-        accountDto.setBalance(BigDecimal.valueOf(100));
+        when(mockAccountRepository.findById(1L)).thenReturn(Optional.of(account));
+        when(mockAccountRepository.findById(2L)).thenReturn(Optional.empty());
+
+        List<OperationResultDto> results = accountService.executeBatch(List.of(
+                new OperationDto(OperationType.DEPOSIT, 1L, null, BigDecimal.valueOf(50)),
+                new OperationDto(OperationType.WITHDRAW, 1L, null, BigDecimal.valueOf(500)),
+                new OperationDto(OperationType.TRANSFER, 1L, 2L, BigDecimal.valueOf(10)),
+                new OperationDto(OperationType.WITHDRAW, 1L, null, BigDecimal.valueOf(30))
+        ), false);
+
+        assertEquals(List.of(OperationStatus.OK, OperationStatus.FAILED, OperationStatus.FAILED, OperationStatus.OK),
+                results.stream().map(OperationResultDto::getStatus).toList());
+        assertEquals(Money.of(BigDecimal.valueOf(120)), account.getBalance());
+        verify(mockTransactionRepository, times(2)).save(any(Transaction.class));
+    }
 
-        Transaction transaction = new Transaction();
-        transaction.setAccount(account);
+    @Test
+    void testExecuteBatchAllOrNothing() {
+        Account account = new Account();
+        account.setId(1L);
+        account.setOwner("Test owner");
+        account.setBalance(Money.of(BigDecimal.valueOf(100)));
 
         when(mockAccountRepository.findById(1L)).thenReturn(Optional.of(account));
-        when(mockTransactionRepository.findAllByTimeBetweenAndAccount(any(), any(), any())).thenReturn(Collections.singletonList(transaction));
 
-        TransactionDto transactionDto = new TransactionDto();
-        transactionDto.setAccount(accountDto);
+        BatchRolledBackException exception = assertThrows(BatchRolledBackException.class, () ->
+                accountService.executeBatch(List.of(
+                        new OperationDto(OperationType.DEPOSIT, 1L, null, BigDecimal.valueOf(50)),
+                        new OperationDto(OperationType.WITHDRAW, 1L, null, BigDecimal.valueOf(500)),
+                        new OperationDto(OperationType.DEPOSIT, 1L, null, BigDecimal.valueOf(50))
+                ), true));
 
-        when(mockModelMapper.map(transaction, TransactionDto.class)).thenReturn(transactionDto);
+        assertEquals(List.of(OperationStatus.ROLLED_BACK, OperationStatus.FAILED, OperationStatus.ROLLED_BACK),
+                exception.getResults().stream().map(OperationResultDto::getStatus).toList());
+    }
 
-        List<TransactionDto> transactions = accountService.getTransactions(1L, Instant.now().minusSeconds(3600), Instant.now());
-        assertEquals(1, transactions.size());
+    @Test
+    void testExecuteBatchDoesNotCommitHalfTransfer() {
+        var balances = new HashMap<Long, BigDecimal>(Map.of(1L, new BigDecimal("100.00"), 2L, new BigDecimal("0.00")));
+        when(mockAccountRepository.credit(anyLong(), any())).thenAnswer(invocation ->
+                update(balances, invocation.getArgument(0), invocation.getArgument(1)));
+        when(mockAccountRepository.debit(anyLong(), any())).thenAnswer(invocation ->
+                update(balances, invocation.getArgument(0), invocation.<BigDecimal>getArgument(1).negate()));
+        when(mockAccountRepository.existsById(anyLong())).thenAnswer(invocation ->
+                balances.containsKey(invocation.<Long>getArgument(0)));
+        var atomicService = accountService(new AccountProperties(), new AtomicUpdateConcurrencyStrategy(mockAccountRepository));
+
+        List<OperationResultDto> results = atomicService.executeBatch(List.of(
+                new OperationDto(OperationType.TRANSFER, 2L, 1L, BigDecimal.valueOf(10))
+        ), false);
+
+        assertEquals(OperationStatus.FAILED, results.get(0).getStatus());
+        assertEquals(new BigDecimal("100.00"), balances.get(1L));
+        assertEquals(new BigDecimal("0.00"), balances.get(2L));
+        verify(mockTransactionRepository, never()).save(any(Transaction.class));
+    }
 
-        assertEquals(transactionDto.getAccount(), transactions.get(0).getAccount());
+    private AccountService accountService(AccountProperties properties, ConcurrencyStrategy concurrencyStrategy) {
+        var shardManager = new AccountShardManager(mockAccountRepository, Mockito.mock(AccountShardRepository.class), properties);
+        return new AccountService(mockAccountRepository, mockTransactionRepository, mockSnapshotRepository,
+                mockRollupRepository, concurrencyStrategy, shardManager,
+                new SynchronousLedgerWriter(mockTransactionRepository),
+                new BalanceCache(properties, BalanceInvalidationChannel.NONE, new SimpleMeterRegistry()),
+                new IdempotencyService(Mockito.mock(IdempotencyKeyRepository.class), new ObjectMapper(),
+                        Clock.systemUTC(), properties, new SimpleMeterRegistry()),
+                new BalanceFeed(properties, new LocalBalanceEventBus(), new SimpleMeterRegistry()));
     }
 
-}
\ No newline at end of file
+    /**
+     * Conditional balance update of the atomic strategy: no row when the account is missing or the
+     * balance would go negative.
+     */
+    private static Optional<AccountView> update(Map<Long, BigDecimal> balances, Long id, BigDecimal change) {
+        var balance = balances.get(id);
+        if (balance == null || balance.add(change).signum() < 0) {
+            return Optional.empty();
+        }
+        balances.put(id, balance.add(change));
+        return Optional.of(new AccountView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getOwner() {
+                return "Test owner";
+            }
+
+            @Override
+            public BigDecimal getBalance() {
+                return balances.get(id);
+            }
+
+            @Override
+            public Long getVersion() {
+                return 1L;
+            }
+        });
+    }
+
+    private static StatementLine statementLine(Long id) {
+        return new StatementLine(id, TransactionType.DEPOSIT, Money.of(BigDecimal.TEN), Instant.EPOCH);
+    }
+}
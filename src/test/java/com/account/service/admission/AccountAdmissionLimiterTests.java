@@ -0,0 +1,116 @@
+package com.account.service.admission;
+
+import com.account.config.AccountProperties;
+import com.account.exception.AccountOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class AccountAdmissionLimiterTests {
+    private AccountProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new AccountProperties();
+        properties.getAdmission().setMaxInFlight(1);
+        properties.getAdmission().setQueueSize(0);
+        properties.getAdmission().setRetryAfter(Duration.ofSeconds(2));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testFullQueueIsRejectedAtOnce() {
+        var limiter = new AccountAdmissionLimiter(properties, meterRegistry);
+
+        try (var permit = limiter.admit(1L)) {
+            var exception = assertThrows(AccountOverloadedException.class, () -> limiter.admit(1L));
+            assertEquals(Duration.ofSeconds(2), exception.getRetryAfter());
+            limiter.admit(2L).close();
+        }
+        limiter.admit(1L).close();
+
+        assertEquals(1, rejected("queue-full"));
+        assertEquals(0, gauge("account.admission.accounts"));
+    }
+
+    @Test
+    void testQueuedOperationRunsOnceSlotIsFree() throws Exception {
+        properties.getAdmission().setQueueSize(1);
+        properties.getAdmission().setTimeout(Duration.ofSeconds(10));
+        var limiter = new AccountAdmissionLimiter(properties, meterRegistry);
+
+        var first = limiter.admit(1L);
+        var second = CompletableFuture.supplyAsync(() -> limiter.admit(1L));
+        while (gauge("account.admission.queued") == 0) {
+            Thread.onSpinWait();
+        }
+        assertThrows(AccountOverloadedException.class, () -> limiter.admit(1L));
+        assertFalse(second.isDone());
+
+        first.close();
+        second.get(5, TimeUnit.SECONDS).close();
+
+        assertEquals(1, rejected("queue-full"));
+        assertEquals(0, gauge("account.admission.in-flight"));
+    }
+
+    @Test
+    void testQueuedOperationTimesOut() {
+        properties.getAdmission().setQueueSize(1);
+        properties.getAdmission().setTimeout(Duration.ofMillis(50));
+        var limiter = new AccountAdmissionLimiter(properties, meterRegistry);
+
+        try (var permit = limiter.admit(1L)) {
+            assertThrows(AccountOverloadedException.class, () -> limiter.admit(1L));
+        }
+
+        assertEquals(1, rejected("timeout"));
+        assertEquals(0, gauge("account.admission.queued"));
+        assertEquals(0, gauge("account.admission.accounts"));
+    }
+
+    @Test
+    void testAccountOverride() {
+        var override = new AccountProperties.AccountAdmission();
+        override.setMaxInFlight(2);
+        properties.getAdmission().getAccounts().put(7L, override);
+        var limiter = new AccountAdmissionLimiter(properties, meterRegistry);
+
+        try (var first = limiter.admit(7L); var second = limiter.admit(7L)) {
+            assertThrows(AccountOverloadedException.class, () -> limiter.admit(7L));
+            assertEquals(2, gauge("account.admission.in-flight"));
+        }
+        assertEquals(2, limiter.maxInFlight(7L));
+        assertEquals(0, limiter.queueSize(7L));
+        assertEquals(1, limiter.maxInFlight(8L));
+    }
+
+    @Test
+    void testRejectedTransferReleasesItsOtherAccount() {
+        var limiter = new AccountAdmissionLimiter(properties, meterRegistry);
+
+        try (var permit = limiter.admit(2L)) {
+            assertThrows(AccountOverloadedException.class, () -> limiter.admit(2L, 1L));
+            limiter.admit(1L, null).close();
+            assertEquals(1, gauge("account.admission.accounts"));
+        }
+        assertEquals(0, gauge("account.admission.in-flight"));
+    }
+
+    private double rejected(String reason) {
+        return meterRegistry.get("account.admission.rejected").tag("reason", reason).counter().count();
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+}
@@ -0,0 +1,101 @@
+package com.account.service.bulk;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.DefaultApplicationArguments;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class BulkCommandRunnerTests {
+    private static final String CSV = "id,account_id,type,amount,time\n1,1,DEPOSIT,10.00,2024-05-01 00:00:00+00\n";
+
+    @TempDir
+    Path directory;
+    private BulkCopyService bulkCopyService;
+    private BulkCommandRunner runner;
+
+    @BeforeEach
+    public void setUp() {
+        bulkCopyService = mock(BulkCopyService.class);
+        runner = new BulkCommandRunner(bulkCopyService);
+    }
+
+    @Test
+    void testExportIsCompressedAndFiltered() throws IOException {
+        doAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(3).write(CSV.getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(bulkCopyService).exportTransactions(any(), any(), any(), any());
+        var file = directory.resolve("transactions.csv.gz");
+
+        runner.run(new DefaultApplicationArguments("export", file.toString(), "--accounts=1,2",
+                "--accounts=3", "--from=2024-05-01T00:00:00Z", "--to=2024-06-01T00:00:00Z"));
+
+        verify(bulkCopyService).exportTransactions(eq(List.of(1L, 2L, 3L)),
+                eq(Instant.parse("2024-05-01T00:00:00Z")), eq(Instant.parse("2024-06-01T00:00:00Z")), any());
+        try (var in = new GZIPInputStream(Files.newInputStream(file))) {
+            assertEquals(CSV, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testFailedExportLeavesNoFile() {
+        doAnswer(invocation -> {
+            throw new UncheckedIOException(new IOException("connection reset"));
+        }).when(bulkCopyService).exportTransactions(any(), any(), any(), any());
+        var file = directory.resolve("transactions.csv");
+
+        assertThrows(UncheckedIOException.class, () -> runner.run(new DefaultApplicationArguments("export",
+                file.toString(), "--from=2024-05-01T00:00:00Z", "--to=2024-06-01T00:00:00Z")));
+        assertFalse(Files.exists(file));
+        assertFalse(Files.exists(directory.resolve("transactions.csv.tmp")));
+    }
+
+    @Test
+    void testImportReadsCompressedFile() throws IOException {
+        var file = directory.resolve("transactions.csv.gz");
+        try (var out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(CSV.getBytes(StandardCharsets.UTF_8));
+        }
+        var imported = new ByteArrayOutputStream();
+        doAnswer(invocation -> {
+            invocation.<InputStream>getArgument(0).transferTo(imported);
+            return 1L;
+        }).when(bulkCopyService).importTransactions(any());
+
+        runner.run(new DefaultApplicationArguments("import-transactions", file.toString()));
+
+        assertEquals(CSV, imported.toString(StandardCharsets.UTF_8));
+        verify(bulkCopyService, never()).importAccounts(any());
+    }
+
+    @Test
+    void testUnknownCommandIsRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> runner.run(new DefaultApplicationArguments("delete", "accounts.csv")));
+        assertThrows(IllegalArgumentException.class,
+                () -> runner.run(new DefaultApplicationArguments("export", "transactions.csv")));
+    }
+}
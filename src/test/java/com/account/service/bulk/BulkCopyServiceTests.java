@@ -0,0 +1,39 @@
+package com.account.service.bulk;
+
+import com.account.exception.InvalidPeriodException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BulkCopyServiceTests {
+    private static final Instant FROM = Instant.parse("2024-05-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2024-06-01T00:00:00Z");
+
+    @Test
+    void testExportQueryForAllAccounts() {
+        assertEquals("""
+                COPY (SELECT id, account_id, type, amount, time FROM transactions
+                      WHERE time >= TIMESTAMPTZ '2024-05-01T00:00:00Z' AND time < TIMESTAMPTZ '2024-06-01T00:00:00Z'
+                      ORDER BY account_id, time, id) TO STDOUT WITH (FORMAT csv, HEADER)""",
+                BulkCopyService.exportQuery(List.of(), FROM, TO));
+    }
+
+    @Test
+    void testExportQueryForAccountSet() {
+        assertEquals("""
+                COPY (SELECT id, account_id, type, amount, time FROM transactions
+                      WHERE time >= TIMESTAMPTZ '2024-05-01T00:00:00Z' AND time < TIMESTAMPTZ '2024-06-01T00:00:00Z' AND account_id IN (3, 1)
+                      ORDER BY account_id, time, id) TO STDOUT WITH (FORMAT csv, HEADER)""",
+                BulkCopyService.exportQuery(List.of(3L, 1L), FROM, TO));
+    }
+
+    @Test
+    void testEmptyPeriodIsRejected() {
+        assertThrows(InvalidPeriodException.class, () -> BulkCopyService.exportQuery(null, TO, TO));
+        assertThrows(InvalidPeriodException.class, () -> BulkCopyService.exportQuery(null, TO, FROM));
+    }
+}
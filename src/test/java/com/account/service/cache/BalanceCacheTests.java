@@ -0,0 +1,105 @@
+package com.account.service.cache;
+
+import com.account.config.AccountProperties;
+import com.account.model.Account;
+import com.account.model.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class BalanceCacheTests {
+    private AccountProperties properties;
+    private LocalBalanceInvalidationChannel channel;
+    private SimpleMeterRegistry meterRegistry;
+    private BalanceCache cache;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new AccountProperties();
+        properties.getCache().setEnabled(true);
+        channel = new LocalBalanceInvalidationChannel();
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new BalanceCache(properties, channel, meterRegistry);
+    }
+
+    @Test
+    void testBalanceIsLoadedOnce() {
+        var loads = new AtomicInteger();
+        Function<Long, Account> loader = id -> {
+            loads.incrementAndGet();
+            return account(id, "10.00", 1L);
+        };
+
+        assertEquals(Money.of(new BigDecimal("10.00")), cache.get(1L, loader));
+        assertEquals(Money.of(new BigDecimal("10.00")), cache.get(1L, loader));
+
+        assertEquals(1, loads.get());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void testStaleReadDoesNotOverwriteNewerBalance() {
+        cache.updateAfterCommit(account(1L, "20.00", 2L));
+
+        cache.get(2L, id -> account(id, "1.00", 1L));
+        cache.updateAfterCommit(account(2L, "5.00", 3L));
+
+        assertEquals(Money.of(new BigDecimal("20.00")), cache.get(1L, id -> account(id, "10.00", 1L)));
+        assertEquals(Money.of(new BigDecimal("5.00")), cache.get(2L, id -> account(id, "1.00", 1L)));
+    }
+
+    @Test
+    void testPutKeepsNewerVersionAndSkipsUnversionedAccounts() {
+        cache.put(account(1L, "10.00", 2L));
+        cache.put(account(1L, "7.00", 1L));
+        cache.put(account(2L, "3.00", null));
+
+        assertEquals(Money.of(new BigDecimal("10.00")), cache.getIfPresent(1L));
+        assertNull(cache.getIfPresent(2L));
+    }
+
+    @Test
+    void testUpdateIsPublishedAfterCommit() {
+        cache.get(1L, id -> account(id, "10.00", 1L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.updateAfterCommit(account(1L, "15.00", 2L));
+            assertEquals(Money.of(new BigDecimal("10.00")), cache.get(1L, id -> account(id, "10.00", 1L)));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertEquals(Money.of(new BigDecimal("15.00")), cache.get(1L, id -> account(id, "10.00", 1L)));
+    }
+
+    @Test
+    void testOtherNodeDropsOlderEntry() {
+        var otherNode = new BalanceCache(properties, channel, new SimpleMeterRegistry());
+        otherNode.get(1L, id -> account(id, "10.00", 1L));
+        otherNode.get(2L, id -> account(id, "30.00", 4L));
+
+        cache.updateAfterCommit(account(1L, "15.00", 2L));
+        cache.updateAfterCommit(account(2L, "25.00", 3L));
+
+        assertEquals(Money.of(new BigDecimal("15.00")), otherNode.get(1L, id -> account(id, "15.00", 2L)));
+        assertEquals(Money.of(new BigDecimal("30.00")), otherNode.get(2L, id -> account(id, "25.00", 3L)));
+    }
+
+    private static Account account(Long id, String balance, Long version) {
+        return new Account(id, "Test owner", Money.of(new BigDecimal(balance)), version);
+    }
+}
@@ -0,0 +1,167 @@
+package com.account.service.concurrency;
+
+import com.account.exception.AccountNotFoundException;
+import com.account.exception.NotEnoughMoneyException;
+import com.account.model.Account;
+import com.account.model.Money;
+import com.account.repository.AccountRepository;
+import com.account.repository.AccountView;
+import com.account.service.shard.AccountShardManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ConcurrencyStrategyTests {
+    private AccountRepository mockAccountRepository;
+
+    @BeforeEach
+    public void setUp() {
+        mockAccountRepository = Mockito.mock(AccountRepository.class);
+    }
+
+    @Test
+    void testPessimisticWithdrawLocksRow() {
+        var account = new Account(1L, "Test owner", Money.of(BigDecimal.valueOf(100)), 0L);
+        when(mockAccountRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(account));
+
+        var strategy = new PessimisticConcurrencyStrategy(mockAccountRepository);
+        strategy.withdraw(1L, Money.of(BigDecimal.valueOf(40)));
+
+        assertEquals(Money.of(BigDecimal.valueOf(60)), account.getBalance());
+        verify(mockAccountRepository, never()).findById(any());
+    }
+
+    @Test
+    void testPessimisticTransferLocksBothRowsInOneQuery() {
+        var source = new Account(2L, "Source", Money.of(BigDecimal.valueOf(100)), 0L);
+        var target = new Account(1L, "Target", Money.of(BigDecimal.valueOf(10)), 0L);
+        when(mockAccountRepository.findAllByIdForUpdate(anyList())).thenReturn(List.of(target, source));
+
+        var strategy = new PessimisticConcurrencyStrategy(mockAccountRepository);
+        var transfer = strategy.transfer(2L, 1L, Money.of(BigDecimal.valueOf(30)));
+
+        assertSame(source, transfer.source());
+        assertSame(target, transfer.target());
+        assertEquals(Money.of(BigDecimal.valueOf(70)), source.getBalance());
+        assertEquals(Money.of(BigDecimal.valueOf(40)), target.getBalance());
+        verify(mockAccountRepository, times(1)).findAllByIdForUpdate(anyList());
+    }
+
+    @Test
+    void testPessimisticTransferToMissingAccount() {
+        var source = new Account(2L, "Source", Money.of(BigDecimal.valueOf(100)), 0L);
+        when(mockAccountRepository.findAllByIdForUpdate(anyList())).thenReturn(List.of(source));
+
+        var strategy = new PessimisticConcurrencyStrategy(mockAccountRepository);
+
+        assertThrows(AccountNotFoundException.class, () -> strategy.transfer(2L, 3L, Money.of(BigDecimal.ONE)));
+    }
+
+    @Test
+    void testOptimisticWithdrawFlushesImmediately() {
+        var account = new Account(1L, "Test owner", Money.of(BigDecimal.valueOf(100)), 3L);
+        when(mockAccountRepository.findById(1L)).thenReturn(Optional.of(account));
+
+        var strategy = new OptimisticConcurrencyStrategy(mockAccountRepository);
+        strategy.withdraw(1L, Money.of(BigDecimal.valueOf(100)));
+
+        assertEquals(Money.ZERO, account.getBalance());
+        verify(mockAccountRepository).saveAllAndFlush(List.of(account));
+    }
+
+    @Test
+    void testOptimisticWithdrawNotEnoughMoney() {
+        var account = new Account(1L, "Test owner", Money.of(BigDecimal.valueOf(100)), 3L);
+        when(mockAccountRepository.findById(1L)).thenReturn(Optional.of(account));
+
+        var strategy = new OptimisticConcurrencyStrategy(mockAccountRepository);
+
+        assertThrows(NotEnoughMoneyException.class, () -> strategy.withdraw(1L, Money.of(BigDecimal.valueOf(101))));
+        verify(mockAccountRepository, never()).saveAllAndFlush(anyList());
+    }
+
+    @Test
+    void testAtomicWithdrawUsesSingleStatement() {
+        var updated = view(1L, BigDecimal.valueOf(90));
+        when(mockAccountRepository.debit(1L, new BigDecimal("10.00"))).thenReturn(Optional.of(updated));
+
+        var strategy = new AtomicUpdateConcurrencyStrategy(mockAccountRepository);
+        var account = strategy.withdraw(1L, Money.of(BigDecimal.TEN));
+
+        assertEquals(Money.of(BigDecimal.valueOf(90)), account.getBalance());
+        verify(mockAccountRepository, never()).findById(any());
+        verify(mockAccountRepository, never()).existsById(any());
+    }
+
+    @Test
+    void testAtomicWithdrawNotEnoughMoney() {
+        when(mockAccountRepository.debit(eq(1L), any())).thenReturn(Optional.empty());
+        when(mockAccountRepository.existsById(1L)).thenReturn(true);
+
+        var strategy = new AtomicUpdateConcurrencyStrategy(mockAccountRepository);
+
+        assertThrows(NotEnoughMoneyException.class, () -> strategy.withdraw(1L, Money.of(BigDecimal.TEN)));
+    }
+
+    @Test
+    void testAtomicWithdrawAccountNotFound() {
+        when(mockAccountRepository.debit(eq(1L), any())).thenReturn(Optional.empty());
+        when(mockAccountRepository.existsById(1L)).thenReturn(false);
+
+        var strategy = new AtomicUpdateConcurrencyStrategy(mockAccountRepository);
+
+        assertThrows(AccountNotFoundException.class, () -> strategy.withdraw(1L, Money.of(BigDecimal.TEN)));
+    }
+
+    @Test
+    void testAtomicTransferUpdatesRowsInIdOrder() {
+        var source = view(2L, BigDecimal.valueOf(90));
+        var target = view(1L, BigDecimal.valueOf(20));
+        when(mockAccountRepository.debit(2L, new BigDecimal("10.00"))).thenReturn(Optional.of(source));
+        when(mockAccountRepository.credit(1L, new BigDecimal("10.00"))).thenReturn(Optional.of(target));
+
+        var strategy = new AtomicUpdateConcurrencyStrategy(mockAccountRepository);
+        var transfer = strategy.transfer(2L, 1L, Money.of(BigDecimal.TEN));
+
+        var inOrder = inOrder(mockAccountRepository);
+        inOrder.verify(mockAccountRepository).credit(1L, new BigDecimal("10.00"));
+        inOrder.verify(mockAccountRepository).debit(2L, new BigDecimal("10.00"));
+        assertEquals(Money.of(BigDecimal.valueOf(90)), transfer.source().getBalance());
+        assertEquals(Money.of(BigDecimal.valueOf(20)), transfer.target().getBalance());
+    }
+
+    @Test
+    void testShardedTransferUndoesCreditWhenSourceIsShort() {
+        var delegate = Mockito.mock(ConcurrencyStrategy.class);
+        var shardManager = Mockito.mock(AccountShardManager.class);
+        when(shardManager.isSharded(2L)).thenReturn(true);
+        when(shardManager.debit(2L, Money.of(BigDecimal.TEN))).thenThrow(new NotEnoughMoneyException(2L));
+
+        var strategy = new ShardedConcurrencyStrategy(delegate, shardManager);
+
+        assertThrows(NotEnoughMoneyException.class, () -> strategy.transfer(2L, 1L, Money.of(BigDecimal.TEN)));
+        var inOrder = inOrder(delegate);
+        inOrder.verify(delegate).deposit(1L, Money.of(BigDecimal.TEN));
+        inOrder.verify(delegate).withdraw(1L, Money.of(BigDecimal.TEN));
+    }
+
+    private static AccountView view(Long id, BigDecimal balance) {
+        var view = Mockito.mock(AccountView.class, CALLS_REAL_METHODS);
+        when(view.getId()).thenReturn(id);
+        when(view.getOwner()).thenReturn("Test owner");
+        when(view.getBalance()).thenReturn(balance);
+        when(view.getVersion()).thenReturn(1L);
+        return view;
+    }
+}
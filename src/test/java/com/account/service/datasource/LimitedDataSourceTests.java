@@ -0,0 +1,64 @@
+package com.account.service.datasource;
+
+import com.account.config.AccountProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class LimitedDataSourceTests {
+    private DataSource mockDataSource;
+    private SimpleMeterRegistry meterRegistry;
+    private LimitedDataSource dataSource;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        mockDataSource = Mockito.mock(DataSource.class);
+        when(mockDataSource.getConnection()).thenAnswer(invocation -> Mockito.mock(Connection.class));
+        var properties = new AccountProperties();
+        properties.getDbLimiter().setPermits(2);
+        properties.getDbLimiter().setTimeout(Duration.ofMillis(50));
+        meterRegistry = new SimpleMeterRegistry();
+        dataSource = new LimitedDataSource(mockDataSource, properties, meterRegistry);
+    }
+
+    @Test
+    void testRejectsBeyondPermitsUntilConnectionIsClosed() throws SQLException {
+        var first = dataSource.getConnection();
+        dataSource.getConnection();
+
+        assertThrows(SQLTransientConnectionException.class, dataSource::getConnection);
+        assertEquals(1, meterRegistry.counter("account.db.limiter.rejected").count());
+
+        first.close();
+        assertNotNull(dataSource.getConnection());
+    }
+
+    @Test
+    void testRepeatedCloseReturnsOnePermit() throws SQLException {
+        var connection = dataSource.getConnection();
+        connection.close();
+        connection.close();
+
+        assertEquals(2, meterRegistry.get("account.db.limiter.available").gauge().value());
+    }
+
+    @Test
+    void testPermitReturnedWhenPoolFails() throws SQLException {
+        when(mockDataSource.getConnection()).thenThrow(new SQLException("pool exhausted"));
+
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertThrows(SQLException.class, dataSource::getConnection);
+        assertEquals(0, meterRegistry.counter("account.db.limiter.rejected").count());
+    }
+}
@@ -0,0 +1,134 @@
+package com.account.service.datasource;
+
+import com.account.config.AccountProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ReplicaRouterTests {
+    private SimpleMeterRegistry meterRegistry;
+    private DataSource primary;
+    private ReplicaLagMonitor monitor;
+    private RoutingDataSource dataSource;
+    private ReplicaRouter router;
+    private Reader reader;
+
+    interface Reader {
+        @ReplicaRead
+        String read();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        primary = database("primary");
+        var replica = database("replica");
+        var properties = new AccountProperties();
+        properties.getReplica().setMaxLag(Duration.ofSeconds(5));
+        monitor = new ReplicaLagMonitor(replica, () -> primary, meterRegistry);
+        dataSource = new RoutingDataSource(primary, replica);
+        var jdbcTemplate = new JdbcTemplate(dataSource);
+        var proxyFactory = new ProxyFactory((Reader) () -> jdbcTemplate.queryForObject("SELECT name FROM node", String.class));
+        router = new ReplicaRouter(monitor, properties, meterRegistry);
+        proxyFactory.addAdvice(router);
+        reader = (Reader) proxyFactory.getProxy();
+    }
+
+    @Test
+    void testReadsGoToReplicaOnceChecked() {
+        assertEquals("primary", reader.read());
+
+        monitor.update(100, 100, 30);
+
+        assertEquals("replica", reader.read());
+        assertEquals(0, monitor.lagSeconds());
+        assertEquals(1, routed("replica", "replica"));
+        assertEquals(1, routed("primary", "unavailable"));
+    }
+
+    @Test
+    void testLaggingReplicaIsBypassed() {
+        monitor.update(90, 100, 6);
+
+        assertEquals("primary", reader.read());
+        assertEquals(1, routed("primary", "lagging"));
+        assertEquals(10, meterRegistry.get("account.db.replica.lag.bytes").gauge().value());
+    }
+
+    @Test
+    void testReadAfterUnreplayedWriteGoesToPrimary() {
+        monitor.update(90, 100, 1);
+        try {
+            ReplicaRouter.readAfter(100);
+            assertEquals("primary", reader.read());
+
+            ReplicaRouter.readAfter(90);
+            assertEquals("replica", reader.read());
+        } finally {
+            ReplicaRouter.clearReadAfter();
+        }
+        assertEquals(1, routed("primary", "read-your-writes"));
+    }
+
+    @Test
+    void testReadInsideTransactionStaysOnPrimary() {
+        monitor.update(100, 100, 0);
+        var transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+
+        assertEquals("primary", transactionTemplate.execute(status -> reader.read()));
+        assertEquals(1, routed("primary", "transaction"));
+    }
+
+    @Test
+    void testReplicaReadIsVisibleToTheReadMethod() {
+        var proxyFactory = new ProxyFactory((Reader) () -> String.valueOf(ReplicaRouter.isReplicaRead()));
+        proxyFactory.addAdvice(router);
+        var flagReader = (Reader) proxyFactory.getProxy();
+
+        assertEquals("false", flagReader.read());
+        monitor.update(100, 100, 0);
+        assertEquals("true", flagReader.read());
+        assertFalse(ReplicaRouter.isReplicaRead());
+    }
+
+    @Test
+    void testConnectionsOutsideReadMethodsGoToPrimary() {
+        monitor.update(100, 100, 0);
+
+        assertEquals("primary", new JdbcTemplate(dataSource).queryForObject("SELECT name FROM node", String.class));
+    }
+
+    @Test
+    void testLogPositionRoundTrip() {
+        assertEquals(0x16B374D848L, Lsn.parse("16/B374D848"));
+        assertEquals("16/B374D848", Lsn.format(Lsn.parse("16/b374d848")));
+    }
+
+    private double routed(String target, String reason) {
+        return meterRegistry.get("account.db.replica.route").tag("target", target).tag("reason", reason)
+                .counter().count();
+    }
+
+    /**
+     * In-memory stand-in for one database server, which knows its own name.
+     */
+    private static DataSource database(String name) {
+        var dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1");
+        var jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE node (name VARCHAR(16))");
+        jdbcTemplate.update("INSERT INTO node (name) VALUES (?)", name);
+        return dataSource;
+    }
+}
@@ -0,0 +1,355 @@
+package com.account.service.engine;
+
+import com.account.config.AccountProperties;
+import com.account.exception.AccountNotFoundException;
+import com.account.exception.EngineOutcomeUnknownException;
+import com.account.exception.EngineUnavailableException;
+import com.account.exception.InvalidAmountException;
+import com.account.exception.NotEnoughMoneyException;
+import com.account.repository.AccountView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LedgerEngineTests {
+    private static final int SHARDS = 4;
+    private static final BigDecimal MAX_AMOUNT = BigDecimal.valueOf(Long.MAX_VALUE, 2);
+
+    @TempDir
+    Path directory;
+    private List<AccountView> existingAccounts;
+    private LedgerEngine engine;
+
+    @BeforeEach
+    public void setUp() {
+        existingAccounts = new ArrayList<>();
+        engine = start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        engine.stop();
+    }
+
+    @Test
+    void testDepositWithdrawAndTransfer() {
+        var first = engine.createAccount("First owner");
+        var second = engine.createAccount("Second owner");
+
+        engine.deposit(first.getId(), new BigDecimal("100.50"));
+        engine.withdraw(first.getId(), new BigDecimal("0.50"));
+        var source = engine.transfer(first.getId(), second.getId(), new BigDecimal("40"));
+
+        assertEquals(new BigDecimal("60.00"), source.getBalance());
+        assertEquals(new BigDecimal("40.00"), engine.getBalance(second.getId()));
+    }
+
+    @Test
+    void testWithdrawBeyondBalanceIsRejected() {
+        var account = engine.createAccount("Test owner");
+        engine.deposit(account.getId(), BigDecimal.TEN);
+
+        assertThrows(NotEnoughMoneyException.class, () -> engine.withdraw(account.getId(), new BigDecimal("10.01")));
+        assertEquals(new BigDecimal("10.00"), engine.getBalance(account.getId()));
+    }
+
+    @Test
+    void testTransferToMissingAccountOfAnotherShardIsReturned() {
+        var account = engine.createAccount("Test owner");
+        engine.deposit(account.getId(), BigDecimal.TEN);
+        long missingId = account.getId() + 1_000_000;
+        while (EngineShard.shardOf(missingId, SHARDS) == EngineShard.shardOf(account.getId(), SHARDS)) {
+            missingId++;
+        }
+        long target = missingId;
+
+        assertThrows(AccountNotFoundException.class, () -> engine.transfer(account.getId(), target, BigDecimal.ONE));
+        assertEquals(new BigDecimal("10.00"), engine.getBalance(account.getId()));
+    }
+
+    @Test
+    void testDepositOverflowingBalanceIsRejected() {
+        var account = engine.createAccount("Test owner");
+        engine.deposit(account.getId(), MAX_AMOUNT);
+
+        assertThrows(InvalidAmountException.class, () -> engine.deposit(account.getId(), new BigDecimal("0.01")));
+        assertEquals(MAX_AMOUNT, engine.getBalance(account.getId()));
+    }
+
+    @Test
+    void testTransferOverflowingBalanceOfAnotherShardIsReturned() {
+        var source = engine.createAccount("Source owner");
+        long targetId = engine.createAccount("Target owner").getId();
+        while (EngineShard.shardOf(targetId, SHARDS) == EngineShard.shardOf(source.getId(), SHARDS)) {
+            targetId = engine.createAccount("Target owner " + targetId).getId();
+        }
+        long target = targetId;
+        engine.deposit(source.getId(), BigDecimal.TEN);
+        engine.deposit(target, MAX_AMOUNT);
+
+        assertThrows(InvalidAmountException.class, () -> engine.transfer(source.getId(), target, BigDecimal.ONE));
+        assertEquals(new BigDecimal("10.00"), engine.getBalance(source.getId()));
+        assertEquals(MAX_AMOUNT, engine.getBalance(target));
+    }
+
+    @Test
+    void testConcurrentTransfersConserveMoney() throws Exception {
+        var ids = createFundedAccounts(32, 1000);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[8];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = CompletableFuture.runAsync(() -> transferRandomly(ids, 500), executor);
+            }
+            CompletableFuture.allOf(futures).get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(new BigDecimal("32000.00"), total(ids));
+    }
+
+    @Test
+    void testRecoversFromSnapshotAndJournalAfterCrash() {
+        var ids = createFundedAccounts(16, 100);
+        transferRandomly(ids, 200);
+        for (int shard = 0; shard < SHARDS; shard++) {
+            engine.markProjected(shard, Long.MAX_VALUE);
+        }
+        engine.takeSnapshots();
+        transferRandomly(ids, 200);
+        var balances = balances(ids);
+
+        engine.halt();
+        engine = start();
+
+        assertEquals(balances, balances(ids));
+        assertEquals(new BigDecimal("1600.00"), total(ids));
+    }
+
+    @Test
+    void testRecoversAfterStop() {
+        var ids = createFundedAccounts(16, 100);
+        transferRandomly(ids, 200);
+        var balances = balances(ids);
+
+        engine.stop();
+        engine = start();
+
+        assertEquals(balances, balances(ids));
+        assertThrows(DataIntegrityViolationException.class, () -> engine.createAccount("owner-0"));
+    }
+
+    @Test
+    void testDebitWithoutCreditIsDeliveredAfterCrash() throws IOException {
+        var source = engine.createAccount("Source owner");
+        long targetId = engine.createAccount("Target owner").getId();
+        while (EngineShard.shardOf(targetId, SHARDS) == EngineShard.shardOf(source.getId(), SHARDS)) {
+            targetId = engine.createAccount("Target owner " + targetId).getId();
+        }
+        long target = targetId;
+        engine.deposit(source.getId(), BigDecimal.TEN);
+        engine.halt();
+        appendToLastSegment(EngineShard.shardOf(source.getId(), SHARDS), (buffer, seq) ->
+                new JournalRecord(JournalRecord.Type.TRANSFER, seq + 1, source.getId(), target, 100,
+                        EngineShard.micros(Instant.now()), 0, 0, null).write(buffer));
+
+        engine = start();
+        engine.halt();
+        engine = start();
+
+        assertEquals(new BigDecimal("9.00"), engine.getBalance(source.getId()));
+        assertEquals(new BigDecimal("1.00"), engine.getBalance(target));
+    }
+
+    @Test
+    void testTornRecordIsDiscarded() throws IOException {
+        var account = engine.createAccount("Test owner");
+        engine.deposit(account.getId(), BigDecimal.TEN);
+        engine.halt();
+        tearLastSegment(EngineShard.shardOf(account.getId(), SHARDS));
+
+        engine = start();
+        engine.deposit(account.getId(), BigDecimal.ONE);
+        engine.halt();
+        engine = start();
+
+        assertEquals(new BigDecimal("11.00"), engine.getBalance(account.getId()));
+    }
+
+    @Test
+    void testSeedsAccountsFromDatabaseOnFirstStart() {
+        engine.stop();
+        directory = directory.resolve("seeded");
+        existingAccounts.add(view(7L, "Existing owner", new BigDecimal("12.34")));
+        engine = start();
+
+        assertEquals(new BigDecimal("12.34"), engine.getBalance(7L));
+        assertEquals(8L, engine.createAccount("New owner").getId());
+    }
+
+    @Test
+    void testFailedJournalForceStopsTheShard() {
+        engine.stop();
+        var failing = new AtomicBoolean();
+        engine = startForcing(failing);
+        var account = engine.createAccount("Test owner");
+        engine.deposit(account.getId(), BigDecimal.TEN);
+        int shard = EngineShard.shardOf(account.getId(), SHARDS);
+        long published = engine.publishedSeq(shard);
+
+        failing.set(true);
+
+        assertThrows(EngineOutcomeUnknownException.class, () -> engine.deposit(account.getId(), BigDecimal.ONE));
+        assertEquals(published, engine.publishedSeq(shard));
+        var rejected = assertThrows(EngineUnavailableException.class, () -> engine.getBalance(account.getId()));
+        assertEquals(EngineUnavailableException.class, rejected.getClass());
+    }
+
+    private LedgerEngine start() {
+        var started = new LedgerEngine(properties(false), () -> existingAccounts, Clock.systemUTC(),
+                new SimpleMeterRegistry());
+        started.start();
+        return started;
+    }
+
+    /**
+     * Starts an engine with {@code account.engine.fsync} whose journals fail to force while
+     * {@code failing} is set.
+     */
+    private LedgerEngine startForcing(AtomicBoolean failing) {
+        var properties = properties(true);
+        var started = new LedgerEngine(properties, () -> existingAccounts, Clock.systemUTC(),
+                new SimpleMeterRegistry()) {
+            @Override
+            Journal journal(int shard) {
+                return new Journal(directory, shard, properties.getEngine().getSegmentSize()) {
+                    @Override
+                    void force() {
+                        if (failing.get()) {
+                            throw new UncheckedIOException(new IOException("Disk failure"));
+                        }
+                        super.force();
+                    }
+                };
+            }
+        };
+        started.start();
+        return started;
+    }
+
+    private AccountProperties properties(boolean fsync) {
+        var properties = new AccountProperties();
+        var settings = properties.getEngine();
+        settings.setShards(SHARDS);
+        settings.setDirectory(directory);
+        settings.setSegmentSize(4096);
+        settings.setExpectedAccounts(64);
+        settings.setFsync(fsync);
+        return properties;
+    }
+
+    private List<Long> createFundedAccounts(int count, int amount) {
+        var ids = new ArrayList<Long>();
+        for (int i = 0; i < count; i++) {
+            var id = engine.createAccount("owner-" + i).getId();
+            engine.deposit(id, BigDecimal.valueOf(amount));
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private void transferRandomly(List<Long> ids, int transfers) {
+        var random = ThreadLocalRandom.current();
+        for (int i = 0; i < transfers; i++) {
+            try {
+                engine.transfer(ids.get(random.nextInt(ids.size())), ids.get(random.nextInt(ids.size())),
+                        BigDecimal.valueOf(random.nextInt(1, 20)));
+            } catch (NotEnoughMoneyException ignored) {
+            }
+        }
+    }
+
+    private List<BigDecimal> balances(List<Long> ids) {
+        return ids.stream().map(engine::getBalance).toList();
+    }
+
+    private BigDecimal total(List<Long> ids) {
+        return balances(ids).stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    /**
+     * Writes the start of a record after the last one of the shard, as a crash in the middle of an append
+     * would leave it.
+     */
+    private void tearLastSegment(int shard) throws IOException {
+        appendToLastSegment(shard, (buffer, seq) -> {
+            buffer.putInt(70);
+            buffer.put((byte) JournalRecord.Type.DEPOSIT.ordinal());
+            buffer.putLong(seq + 1);
+        });
+    }
+
+    private void appendToLastSegment(int shard, BiConsumer<ByteBuffer, Long> writer) throws IOException {
+        var segment = Journal.segments(directory, shard).get(Journal.segments(directory, shard).size() - 1);
+        try (var file = FileChannel.open(segment.path(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            var buffer = file.map(FileChannel.MapMode.READ_WRITE, 0, file.size());
+            long seq = segment.firstSeq() - 1;
+            JournalRecord record;
+            while ((record = JournalRecord.read(buffer)) != null) {
+                seq = record.seq();
+            }
+            writer.accept(buffer, seq);
+            buffer.force();
+        }
+    }
+
+    private static AccountView view(Long id, String owner, BigDecimal balance) {
+        return new AccountView() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getOwner() {
+                return owner;
+            }
+
+            @Override
+            public BigDecimal getBalance() {
+                return balance;
+            }
+
+            @Override
+            public Long getVersion() {
+                return 0L;
+            }
+        };
+    }
+}
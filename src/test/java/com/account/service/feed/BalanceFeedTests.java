@@ -0,0 +1,213 @@
+package com.account.service.feed;
+
+import com.account.config.AccountProperties;
+import com.account.enums.TransactionType;
+import com.account.exception.BalanceFeedDisabledException;
+import com.account.model.Account;
+import com.account.model.Money;
+import com.account.model.Transaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BalanceFeedTests {
+    private AccountProperties properties;
+    private LocalBalanceEventBus bus;
+    private SimpleMeterRegistry meterRegistry;
+    private BalanceFeed feed;
+    private BlockingQueue<BalanceEvent> received;
+
+    @BeforeEach
+    public void setUp() {
+        properties = new AccountProperties();
+        properties.getFeed().setEnabled(true);
+        properties.getFeed().setDeliveryThreads(1);
+        bus = new LocalBalanceEventBus();
+        meterRegistry = new SimpleMeterRegistry();
+        feed = new BalanceFeed(properties, bus, meterRegistry);
+        received = new LinkedBlockingQueue<>();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        feed.close();
+    }
+
+    @Test
+    void testChangesArePublishedOnceAfterCommit() throws InterruptedException {
+        feed.subscribe(List.of(1L), received::add);
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            feed.publishAfterCommit(transaction(account(1L, "10.00", 1L), TransactionType.DEPOSIT, "10.00"), false);
+            feed.publishAfterCommit(transaction(account(1L, "7.00", 1L), TransactionType.WITHDRAW, "3.00"), false);
+            feed.publishAfterCommit(transaction(account(2L, "3.00", 1L), TransactionType.DEPOSIT, "3.00"), false);
+            assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        var event = received.poll(5, TimeUnit.SECONDS);
+        assertEquals(new BalanceEvent(1L, money("7.00"), 1L, money("10.00"), 1, money("3.00"), 1, event.time()), event);
+        assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(2, meterRegistry.get("account.feed.published").counter().count());
+    }
+
+    @Test
+    void testSlowSubscriberGetsEventsMerged() throws InterruptedException {
+        var sending = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        feed.subscribe(List.of(1L), event -> {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            received.add(event);
+        });
+
+        feed.publishAfterCommit(transaction(account(1L, "10.00", 1L), TransactionType.DEPOSIT, "10.00"), false);
+        sending.await(5, TimeUnit.SECONDS);
+        feed.publishAfterCommit(transaction(account(1L, "15.00", 2L), TransactionType.DEPOSIT, "5.00"), false);
+        feed.publishAfterCommit(transaction(account(1L, "13.00", 3L), TransactionType.WITHDRAW, "2.00"), false);
+        feed.publishAfterCommit(transaction(account(1L, "12.00", 4L), TransactionType.WITHDRAW, "1.00"), false);
+        release.countDown();
+
+        assertEquals(money("10.00"), received.poll(5, TimeUnit.SECONDS).balance());
+        var merged = received.poll(5, TimeUnit.SECONDS);
+        assertEquals(new BalanceEvent(1L, money("12.00"), 4L, money("5.00"), 1, money("3.00"), 2, merged.time()), merged);
+        assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(2, meterRegistry.get("account.feed.coalesced").counter().count());
+    }
+
+    @Test
+    void testOlderBalanceIsNotSentAfterNewerOne() throws InterruptedException {
+        var subscription = feed.subscribe(List.of(1L), received::add);
+
+        feed.publishAfterCommit(transaction(account(1L, "15.00", 5L), TransactionType.DEPOSIT, "5.00"), false);
+        assertEquals(5L, received.poll(5, TimeUnit.SECONDS).version());
+
+        subscription.offer(BalanceEvent.current(1L, money("10.00"), 4L));
+        subscription.offer(new BalanceEvent(1L, money("10.00"), 4L, money("1.00"), 1, Money.ZERO, 0, Instant.now()));
+
+        var late = received.poll(5, TimeUnit.SECONDS);
+        assertEquals(money("15.00"), late.balance());
+        assertEquals(5L, late.version());
+        assertEquals(1, late.depositCount());
+        assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testShardedAccountEventHasNoBalance() throws InterruptedException {
+        feed.subscribe(List.of(1L), received::add);
+
+        feed.publishAfterCommit(transaction(account(1L, "0.00", null), TransactionType.DEPOSIT, "5.00"), true);
+
+        var event = received.poll(5, TimeUnit.SECONDS);
+        assertNull(event.balance());
+        assertNull(event.toDto().getBalance());
+        assertEquals(new BigDecimal("5.00"), event.toDto().getDeposits());
+    }
+
+    @Test
+    void testFailedSubscriberIsClosed() throws InterruptedException {
+        feed.subscribe(List.of(1L), event -> {
+            throw new IOException("Broken pipe");
+        });
+        feed.publishAfterCommit(transaction(account(1L, "10.00", 1L), TransactionType.DEPOSIT, "10.00"), false);
+
+        feed.subscribe(List.of(1L), received::add);
+        feed.publishAfterCommit(transaction(account(1L, "15.00", 2L), TransactionType.DEPOSIT, "5.00"), false);
+
+        assertEquals(2L, received.poll(5, TimeUnit.SECONDS).version());
+        assertEquals(1, meterRegistry.get("account.feed.subscribers").gauge().value());
+    }
+
+    @Test
+    void testStuckSubscriberIsClosedAfterWriteTimeout() throws InterruptedException {
+        feed.close();
+        properties.getFeed().setWriteTimeout(Duration.ofMillis(100));
+        meterRegistry = new SimpleMeterRegistry();
+        feed = new BalanceFeed(properties, new LocalBalanceEventBus(), meterRegistry);
+        var release = new CountDownLatch(1);
+        try {
+            feed.subscribe(List.of(1L), event -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            feed.subscribe(List.of(1L), received::add);
+
+            feed.publishAfterCommit(transaction(account(1L, "10.00", 1L), TransactionType.DEPOSIT, "10.00"), false);
+
+            assertEquals(1L, received.poll(5, TimeUnit.SECONDS).version());
+            var timeouts = meterRegistry.get("account.feed.write.timeouts").counter();
+            for (int i = 0; i < 50 && timeouts.count() == 0; i++) {
+                Thread.sleep(100);
+            }
+            assertEquals(1, timeouts.count());
+            assertEquals(1, meterRegistry.get("account.feed.subscribers").gauge().value());
+
+            feed.publishAfterCommit(transaction(account(1L, "15.00", 2L), TransactionType.DEPOSIT, "5.00"), false);
+            assertEquals(2L, received.poll(5, TimeUnit.SECONDS).version());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testOtherNodeReceivesEvents() throws InterruptedException {
+        var otherNode = new BalanceFeed(properties, bus, new SimpleMeterRegistry());
+        try {
+            otherNode.subscribe(List.of(1L), received::add);
+
+            feed.publishAfterCommit(transaction(account(1L, "10.00", 1L), TransactionType.DEPOSIT, "10.00"), false);
+
+            assertEquals(money("10.00"), received.poll(5, TimeUnit.SECONDS).balance());
+        } finally {
+            otherNode.close();
+        }
+    }
+
+    @Test
+    void testDisabledFeedRejectsSubscriptions() {
+        var disabled = new BalanceFeed(new AccountProperties(), bus, new SimpleMeterRegistry());
+
+        assertThrows(BalanceFeedDisabledException.class, () -> disabled.subscribe(List.of(1L), received::add));
+    }
+
+    private static Transaction transaction(Account account, TransactionType type, String amount) {
+        return new Transaction(null, account, type, money(amount), Instant.now());
+    }
+
+    private static Account account(Long id, String balance, Long version) {
+        return new Account(id, "Test owner", money(balance), version);
+    }
+
+    private static Money money(String amount) {
+        return Money.of(new BigDecimal(amount));
+    }
+}
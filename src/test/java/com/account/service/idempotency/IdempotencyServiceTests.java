@@ -0,0 +1,169 @@
+package com.account.service.idempotency;
+
+import com.account.config.AccountProperties;
+import com.account.dto.AccountDto;
+import com.account.exception.EngineUnavailableException;
+import com.account.exception.IdempotencyKeyInProgressException;
+import com.account.exception.IdempotencyKeyReuseException;
+import com.account.exception.NotEnoughMoneyException;
+import com.account.model.IdempotencyKey;
+import com.account.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceTests {
+    private static final TypeReference<AccountDto> ACCOUNT = new TypeReference<>() {
+    };
+    private static final Instant NOW = Instant.parse("2026-06-01T12:00:00Z");
+
+    private IdempotencyKeyRepository mockRepository;
+    private IdempotencyService idempotencyService;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    public void setUp() {
+        mockRepository = Mockito.mock(IdempotencyKeyRepository.class);
+        idempotencyService = new IdempotencyService(mockRepository, new ObjectMapper(),
+                Clock.fixed(NOW, ZoneOffset.UTC), new AccountProperties(), new SimpleMeterRegistry());
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    void testReplayFromCacheDoesNotRunOperationAgain() {
+        var first = idempotencyService.execute("key-1", "deposit 1 100", ACCOUNT, this::deposit);
+        var second = idempotencyService.execute("key-1", "deposit 1 100", ACCOUNT, this::deposit);
+
+        assertEquals(1, executions.get());
+        assertEquals(first, second);
+        verify(mockRepository).insert(eq("key-1"), any(), any(), eq(NOW));
+        verify(mockRepository, times(1)).findById("key-1");
+    }
+
+    @Test
+    void testReplayFromDatabase() {
+        var response = ArgumentCaptor.forClass(String.class);
+        var hash = ArgumentCaptor.forClass(String.class);
+        idempotencyService.execute("key-1", "deposit 1 100", ACCOUNT, this::deposit);
+        verify(mockRepository).insert(eq("key-1"), hash.capture(), response.capture(), any());
+
+        var otherNode = new IdempotencyService(mockRepository, new ObjectMapper(),
+                Clock.systemUTC(), new AccountProperties(), new SimpleMeterRegistry());
+        when(mockRepository.findById("key-1"))
+                .thenReturn(Optional.of(new IdempotencyKey("key-1", hash.getValue(), response.getValue(), NOW)));
+
+        var replayed = otherNode.execute("key-1", "deposit 1 100", ACCOUNT, this::deposit);
+
+        assertEquals(1, executions.get());
+        assertEquals(new AccountDto(1L, "owner", BigDecimal.valueOf(100)), replayed);
+    }
+
+    @Test
+    void testKeyReusedForOtherRequest() {
+        idempotencyService.execute("key-1", "deposit 1 100", ACCOUNT, this::deposit);
+
+        assertThrows(IdempotencyKeyReuseException.class,
+                () -> idempotencyService.execute("key-1", "withdraw 1 100", ACCOUNT, this::deposit));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void testConcurrentDuplicateReplaysWinner() {
+        var response = ArgumentCaptor.forClass(String.class);
+        var hash = ArgumentCaptor.forClass(String.class);
+        idempotencyService.execute("key-0", "deposit 1 100", ACCOUNT, this::deposit);
+        verify(mockRepository).insert(eq("key-0"), hash.capture(), response.capture(), any());
+
+        when(mockRepository.findById("key-1"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new IdempotencyKey("key-1", hash.getValue(), response.getValue(), NOW)));
+        doThrow(new DataIntegrityViolationException("duplicate key"))
+                .when(mockRepository).insert(eq("key-1"), any(), any(), any());
+
+        var replayed = idempotencyService.execute("key-1", "deposit 1 100", ACCOUNT, this::deposit);
+
+        assertEquals(new AccountDto(1L, "owner", BigDecimal.valueOf(100)), replayed);
+    }
+
+    @Test
+    void testWithoutKey() {
+        idempotencyService.execute(null, "deposit 1 100", ACCOUNT, this::deposit);
+        idempotencyService.execute(null, "deposit 1 100", ACCOUNT, this::deposit);
+
+        assertEquals(2, executions.get());
+        verifyNoInteractions(mockRepository);
+    }
+
+    @Test
+    void testClaimedKeyIsStoredAfterOperation() {
+        var first = idempotencyService.executeClaimed("key-1", "deposit 1 100", ACCOUNT, this::engineDeposit);
+        var second = idempotencyService.executeClaimed("key-1", "deposit 1 100", ACCOUNT, this::engineDeposit);
+
+        assertEquals(1, executions.get());
+        assertEquals(first, second);
+        var inOrder = inOrder(mockRepository);
+        inOrder.verify(mockRepository).claim(eq("key-1"), any(), eq(NOW));
+        inOrder.verify(mockRepository).complete(eq("key-1"), any());
+        verify(mockRepository, never()).insert(any(), any(), any(), any());
+    }
+
+    @Test
+    void testClaimedKeyInProgressIsNotRunAgain() {
+        doThrow(new DataIntegrityViolationException("duplicate key"))
+                .when(mockRepository).claim(eq("key-1"), any(), any());
+        when(mockRepository.findById("key-1"))
+                .thenReturn(Optional.empty())
+                .thenAnswer(invocation -> {
+                    var hash = ArgumentCaptor.forClass(String.class);
+                    verify(mockRepository).claim(eq("key-1"), hash.capture(), any());
+                    return Optional.of(new IdempotencyKey("key-1", hash.getValue(), null, NOW));
+                });
+
+        assertThrows(IdempotencyKeyInProgressException.class,
+                () -> idempotencyService.executeClaimed("key-1", "deposit 1 100", ACCOUNT, this::engineDeposit));
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void testRejectedOperationReleasesClaim() {
+        assertThrows(NotEnoughMoneyException.class, () -> idempotencyService.executeClaimed("key-1",
+                "withdraw 1 100", ACCOUNT, () -> {
+                    throw new NotEnoughMoneyException(1L);
+                }));
+        assertThrows(EngineUnavailableException.class, () -> idempotencyService.executeClaimed("key-2",
+                "withdraw 1 100", ACCOUNT, () -> {
+                    throw new EngineUnavailableException();
+                }));
+
+        verify(mockRepository).release("key-1");
+        verify(mockRepository, never()).release("key-2");
+        verify(mockRepository, never()).complete(any(), any());
+    }
+
+    private AccountDto engineDeposit() {
+        executions.incrementAndGet();
+        return new AccountDto(1L, "owner", BigDecimal.valueOf(100));
+    }
+
+    private AccountDto deposit() {
+        executions.incrementAndGet();
+        return idempotencyService.remember(new AccountDto(1L, "owner", BigDecimal.valueOf(100)));
+    }
+}
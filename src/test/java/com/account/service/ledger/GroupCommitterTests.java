@@ -0,0 +1,211 @@
+package com.account.service.ledger;
+
+import com.account.config.AccountProperties;
+import com.account.exception.NotEnoughMoneyException;
+import com.account.repository.IdempotencyKeyRepository;
+import com.account.service.idempotency.IdempotencyService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class GroupCommitterTests {
+    private PlatformTransactionManager mockTransactionManager;
+    private IdempotencyKeyRepository mockKeyRepository;
+    private IdempotencyService idempotencyService;
+    private AccountProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private GroupCommitter committer;
+
+    @BeforeEach
+    public void setUp() {
+        mockTransactionManager = Mockito.mock(PlatformTransactionManager.class);
+        when(mockTransactionManager.getTransaction(any())).thenAnswer(answer -> new SimpleTransactionStatus());
+        mockKeyRepository = Mockito.mock(IdempotencyKeyRepository.class);
+        properties = new AccountProperties();
+        properties.getLedger().setMaxLatency(Duration.ofSeconds(5));
+        meterRegistry = new SimpleMeterRegistry();
+        idempotencyService = new IdempotencyService(mockKeyRepository, new ObjectMapper(), Clock.systemUTC(),
+                properties, meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        committer.stop();
+    }
+
+    @Test
+    void testConcurrentCallsAreCommittedTogether() throws Exception {
+        start(4);
+
+        var results = invokeAll(List.of(value(1), value(2), value(3), value(4)));
+
+        assertEquals(List.of(1, 2, 3, 4), await(results));
+        verify(mockTransactionManager, times(1)).getTransaction(any());
+        verify(mockTransactionManager, times(1)).commit(any());
+        assertEquals(4, meterRegistry.get("account.ledger.group.size").summary().totalAmount());
+    }
+
+    @Test
+    void testCallerIsAnsweredAfterCommit() throws Exception {
+        start(1);
+        var committing = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        doAnswer(answer -> {
+            committing.countDown();
+            release.await();
+            return null;
+        }).when(mockTransactionManager).commit(any());
+
+        var result = invokeAll(List.of(value(1))).get(0);
+        committing.await(5, TimeUnit.SECONDS);
+
+        assertThrows(TimeoutException.class, () -> result.get(200, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertEquals(1, result.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testFailedCallIsRunAloneAndOthersAreCommitted() throws Exception {
+        start(3);
+        var executions = new AtomicInteger();
+        Callable<Object> failing = () -> {
+            executions.incrementAndGet();
+            throw new NotEnoughMoneyException(2L);
+        };
+
+        var results = invokeAll(List.of(value(1), failing, value(3)));
+
+        assertEquals(1, results.get(0).get(5, TimeUnit.SECONDS));
+        var failure = assertThrows(ExecutionException.class, () -> results.get(1).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(NotEnoughMoneyException.class, failure.getCause());
+        assertEquals(3, results.get(2).get(5, TimeUnit.SECONDS));
+        verify(mockTransactionManager).rollback(any());
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void testFailedCommitRunsEachCallAlone() throws Exception {
+        start(2);
+        var executions = new AtomicInteger();
+        Callable<Object> counted = () -> {
+            executions.incrementAndGet();
+            return "ok";
+        };
+        doThrow(new TransactionSystemException("Commit failed")).when(mockTransactionManager).commit(any());
+
+        var results = invokeAll(List.of(counted, counted));
+
+        assertEquals(List.of("ok", "ok"), await(results));
+        assertEquals(4, executions.get());
+    }
+
+    @Test
+    void testCallInsideTransactionRunsAtOnce() throws Throwable {
+        start(4);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertEquals(1, committer.invoke(invocation(value(1))));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+
+        verifyNoInteractions(mockTransactionManager);
+    }
+
+    @Test
+    void testIdempotencyKeyIsSeenOnWriterThread() {
+        start(1);
+        var invocation = invocation(() -> idempotencyService.remember("stored"));
+
+        var result = idempotencyService.execute("key-1", "request", new TypeReference<String>() {
+        }, () -> {
+            try {
+                return (String) committer.invoke(invocation);
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertEquals("stored", result);
+        verify(mockKeyRepository).insert(eq("key-1"), any(), eq("\"stored\""), any());
+    }
+
+    private void start(int flushSize) {
+        properties.getLedger().setFlushSize(flushSize);
+        committer = new GroupCommitter(idempotencyService, mockTransactionManager, properties, meterRegistry);
+        committer.start();
+    }
+
+    private List<CompletableFuture<Object>> invokeAll(List<Callable<Object>> bodies) {
+        var results = new ArrayList<CompletableFuture<Object>>();
+        for (var body : bodies) {
+            var invocation = invocation(body);
+            var result = new CompletableFuture<Object>();
+            var caller = new Thread(() -> {
+                try {
+                    result.complete(committer.invoke(invocation));
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+            caller.setDaemon(true);
+            caller.start();
+            results.add(result);
+        }
+        return results;
+    }
+
+    private static List<Object> await(List<CompletableFuture<Object>> results) throws Exception {
+        var values = new ArrayList<>();
+        for (var result : results) {
+            values.add(result.get(5, TimeUnit.SECONDS));
+        }
+        return values;
+    }
+
+    private static Callable<Object> value(Object value) {
+        return () -> value;
+    }
+
+    private static ProxyMethodInvocation invocation(Callable<Object> body) {
+        try {
+            var clone = Mockito.mock(MethodInvocation.class);
+            when(clone.proceed()).thenAnswer(answer -> body.call());
+            var invocation = Mockito.mock(ProxyMethodInvocation.class);
+            when(invocation.invocableClone()).thenReturn(clone);
+            when(invocation.proceed()).thenAnswer(answer -> body.call());
+            return invocation;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
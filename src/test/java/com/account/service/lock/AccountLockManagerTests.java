@@ -0,0 +1,107 @@
+package com.account.service.lock;
+
+import com.account.config.AccountProperties;
+import com.account.exception.AccountLockTimeoutException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountLockManagerTests {
+    private SimpleMeterRegistry meterRegistry;
+    private AccountLockManager lockManager;
+
+    @BeforeEach
+    public void setUp() {
+        var properties = new AccountProperties();
+        properties.getLock().setStripes(16);
+        properties.getLock().setTimeout(Duration.ofMillis(200));
+        meterRegistry = new SimpleMeterRegistry();
+        lockManager = new AccountLockManager(properties, meterRegistry);
+    }
+
+    @Test
+    void testStripeIndexIsStableForEqualIds() {
+        assertEquals(lockManager.stripeIndex(1000L), lockManager.stripeIndex(Long.valueOf(1000L)));
+        for (long id = 0; id < 1000; id++) {
+            int index = lockManager.stripeIndex(id);
+            assertTrue(index >= 0 && index < 16);
+        }
+    }
+
+    @Test
+    void testLockSerializesOperationsOnSameAccount() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger maxInside = new AtomicInteger();
+        try {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[200];
+            for (int i = 0; i < futures.length; i++) {
+                futures[i] = CompletableFuture.runAsync(() -> {
+                    try (var ignored = lockManager.lock(500L)) {
+                        maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+                        inside.decrementAndGet();
+                    }
+                }, executor);
+            }
+            CompletableFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, maxInside.get());
+    }
+
+    @Test
+    void testOppositeTransfersDoNotDeadlock() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            CompletableFuture<?>[] futures = new CompletableFuture<?>[2000];
+            for (int i = 0; i < futures.length; i++) {
+                long from = i % 2 == 0 ? 1L : 2L;
+                long to = i % 2 == 0 ? 2L : 1L;
+                futures[i] = CompletableFuture.runAsync(() -> lockManager.lock(from, to).close(), executor);
+            }
+            CompletableFuture.allOf(futures).get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0, meterRegistry.counter("account.lock.timeouts").count());
+    }
+
+    @Test
+    void testLockTimeout() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            try (var ignored = lockManager.lock(7L)) {
+                locked.countDown();
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        holder.start();
+        try {
+            assertTrue(locked.await(5, TimeUnit.SECONDS));
+            assertThrows(AccountLockTimeoutException.class, () -> lockManager.lock(3L, 7L));
+        } finally {
+            done.countDown();
+            holder.join();
+        }
+
+        assertEquals(1, meterRegistry.counter("account.lock.timeouts").count());
+        assertEquals(1, meterRegistry.counter("account.lock.contended").count());
+        try (var ignored = lockManager.lock(3L, 7L)) {
+            assertNotNull(ignored);
+        }
+    }
+}
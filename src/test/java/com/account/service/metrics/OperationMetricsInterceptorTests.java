@@ -0,0 +1,101 @@
+package com.account.service.metrics;
+
+import com.account.exception.AccountNotFoundException;
+import com.account.exception.NotEnoughMoneyException;
+import com.account.service.AccountService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.aopalliance.intercept.MethodInvocation;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OperationMetricsInterceptorTests {
+    private SimpleMeterRegistry meterRegistry;
+    private DbCallRecorder recorder;
+    private InstrumentedDataSource dataSource;
+    private OperationMetricsInterceptor interceptor;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        var h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:metrics;DB_CLOSE_DELAY=-1");
+        meterRegistry = new SimpleMeterRegistry();
+        recorder = new DbCallRecorder();
+        dataSource = new InstrumentedDataSource(h2, recorder, meterRegistry);
+        interceptor = new OperationMetricsInterceptor(meterRegistry, recorder);
+        try (var connection = dataSource.getConnection(); var statement = connection.createStatement()) {
+            statement.execute("create table if not exists t (id int)");
+            statement.execute("delete from t");
+        }
+    }
+
+    @Test
+    void testRecordsStatementsAndRowsOfTheOperation() throws Throwable {
+        interceptor.invoke(invocation("deposit", () -> {
+            try (var connection = dataSource.getConnection()) {
+                try (var insert = connection.prepareStatement("insert into t values (?)")) {
+                    for (int i = 0; i < 3; i++) {
+                        insert.setInt(1, i);
+                        insert.addBatch();
+                    }
+                    insert.executeBatch();
+                }
+                try (var select = connection.prepareStatement("select id from t");
+                     var resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        assertTrue(resultSet.getInt(1) >= 0);
+                    }
+                }
+            }
+            return null;
+        }));
+
+        var tags = new String[]{"operation", "deposit", "outcome", "ok"};
+        assertEquals(1, meterRegistry.get("account.operation").tags(tags).timer().count());
+        assertEquals(2, meterRegistry.get("account.operation.db.statements").tags(tags).summary().totalAmount());
+        assertEquals(6, meterRegistry.get("account.operation.db.rows").tags(tags).summary().totalAmount());
+        assertEquals(6, meterRegistry.get("account.db.rows").counter().count());
+        assertTrue(meterRegistry.get("account.operation.db.time").tags(tags).timer().totalTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    void testTagsOutcomeOfFailedOperations() throws Throwable {
+        assertThrows(AccountNotFoundException.class, () -> interceptor.invoke(invocation("getBalance", () -> {
+            throw new AccountNotFoundException(1L);
+        })));
+        assertThrows(NotEnoughMoneyException.class, () -> interceptor.invoke(invocation("withdraw", () -> {
+            throw new NotEnoughMoneyException(1L);
+        })));
+
+        assertEquals(1, meterRegistry.get("account.operation")
+                .tags("operation", "getBalance", "outcome", "not-found").timer().count());
+        assertEquals(1, meterRegistry.get("account.operation")
+                .tags("operation", "withdraw", "outcome", "insufficient-funds").timer().count());
+        assertNull(meterRegistry.find("account.operation").tags("operation", "withdraw", "outcome", "ok").timer());
+        assertEquals(0, meterRegistry.get("account.operation.db.statements").tags("operation", "withdraw").summary().count());
+    }
+
+    private MethodInvocation invocation(String name, Body body) throws Throwable {
+        var method = Arrays.stream(AccountService.class.getMethods())
+                .filter(m -> m.getName().equals(name))
+                .findFirst()
+                .orElseThrow();
+        var invocation = Mockito.mock(MethodInvocation.class);
+        when(invocation.getMethod()).thenReturn(method);
+        when(invocation.proceed()).thenAnswer(answer -> body.run());
+        return invocation;
+    }
+
+    @FunctionalInterface
+    private interface Body {
+        Object run() throws Exception;
+    }
+}
@@ -0,0 +1,118 @@
+package com.account.service.partition;
+
+import com.account.config.AccountProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TransactionPartitionManagerTests {
+    private JdbcTemplate mockJdbcTemplate;
+    private Connection mockConnection;
+    private ResultSet mockLockResult;
+    private TransactionPartitionManager partitionManager;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        mockJdbcTemplate = Mockito.mock(JdbcTemplate.class);
+        var mockDataSource = Mockito.mock(DataSource.class);
+        mockConnection = Mockito.mock(Connection.class);
+        var mockStatement = Mockito.mock(PreparedStatement.class);
+        mockLockResult = Mockito.mock(ResultSet.class);
+        when(mockDataSource.getConnection()).thenReturn(mockConnection);
+        when(mockConnection.prepareStatement(anyString())).thenReturn(mockStatement);
+        when(mockStatement.executeQuery()).thenReturn(mockLockResult);
+        when(mockLockResult.next()).thenReturn(true);
+        when(mockLockResult.getBoolean(1)).thenReturn(true);
+        var properties = new AccountProperties();
+        properties.getPartitioning().setPremakeMonths(2);
+        properties.getPartitioning().setRetentionMonths(12);
+        var clock = Clock.fixed(Instant.parse("2026-12-15T10:00:00Z"), ZoneOffset.UTC);
+        partitionManager = new TransactionPartitionManager(mockJdbcTemplate, mockDataSource, clock, properties);
+    }
+
+    @Test
+    void testPartitionNames() {
+        assertEquals("transactions_p202601", TransactionPartitionManager.partitionName(YearMonth.of(2026, 1)));
+        assertEquals(Optional.of(YearMonth.of(2025, 11)), TransactionPartitionManager.partitionMonth("transactions_p202511"));
+        assertEquals(Optional.empty(), TransactionPartitionManager.partitionMonth("transactions_pkey"));
+    }
+
+    @Test
+    void testUpcomingPartitionsAreCreated() {
+        when(mockJdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any(Object[].class))).thenReturn(true);
+
+        partitionManager.maintain();
+
+        verify(mockJdbcTemplate).execute("CREATE TABLE IF NOT EXISTS transactions_p202612 PARTITION OF transactions "
+                + "FOR VALUES FROM ('2026-12-01') TO ('2027-01-01')");
+        verify(mockJdbcTemplate).execute("CREATE TABLE IF NOT EXISTS transactions_p202701 PARTITION OF transactions "
+                + "FOR VALUES FROM ('2027-01-01') TO ('2027-02-01')");
+        verify(mockJdbcTemplate).execute("CREATE TABLE IF NOT EXISTS transactions_p202702 PARTITION OF transactions "
+                + "FOR VALUES FROM ('2027-02-01') TO ('2027-03-01')");
+    }
+
+    @Test
+    void testPartitionsWithinRetentionAreKept() {
+        when(mockJdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any(Object[].class))).thenReturn(true);
+        when(mockJdbcTemplate.queryForList(anyString(), eq(String.class), any(Object[].class)))
+                .thenReturn(List.of("transactions_p202512", "transactions_p202611", "transactions_pkey"));
+
+        partitionManager.maintain();
+
+        verify(mockJdbcTemplate, never()).execute(contains("DETACH"));
+        verify(mockJdbcTemplate, never()).execute(contains("DROP"));
+    }
+
+    @Test
+    void testRunIsSkippedWhileAnotherNodeHoldsTheLock() throws SQLException {
+        when(mockLockResult.getBoolean(1)).thenReturn(false);
+
+        partitionManager.maintain();
+
+        verifyNoInteractions(mockJdbcTemplate);
+        verify(mockConnection, never()).prepareStatement(contains("unlock"));
+        verify(mockConnection).close();
+    }
+
+    @Test
+    void testLockIsReleasedAfterRun() throws SQLException {
+        when(mockJdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any(Object[].class))).thenReturn(true);
+
+        partitionManager.maintain();
+
+        var inOrder = inOrder(mockJdbcTemplate, mockConnection);
+        inOrder.verify(mockConnection).prepareStatement("SELECT pg_try_advisory_lock(?)");
+        inOrder.verify(mockJdbcTemplate).queryForObject(anyString(), eq(Boolean.class), any(Object[].class));
+        inOrder.verify(mockConnection).prepareStatement("SELECT pg_advisory_unlock(?)");
+        inOrder.verify(mockConnection).close();
+    }
+
+    @Test
+    void testUnpartitionedTableIsSkipped() {
+        when(mockJdbcTemplate.queryForObject(anyString(), eq(Boolean.class), any(Object[].class))).thenReturn(false);
+
+        partitionManager.maintain();
+
+        verify(mockJdbcTemplate, never()).execute(anyString());
+    }
+}
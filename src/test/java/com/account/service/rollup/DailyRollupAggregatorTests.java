@@ -0,0 +1,67 @@
+package com.account.service.rollup;
+
+import com.account.config.AccountProperties;
+import com.account.model.RollupProgress;
+import com.account.repository.DailyRollupRepository;
+import com.account.repository.RollupProgressRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DailyRollupAggregatorTests {
+    private static final Instant NOW = Instant.parse("2026-06-01T12:00:00Z");
+
+    private DailyRollupRepository mockRollupRepository;
+    private RollupProgressRepository mockProgressRepository;
+    private DailyRollupAggregator aggregator;
+
+    @BeforeEach
+    public void setUp() {
+        mockRollupRepository = Mockito.mock(DailyRollupRepository.class);
+        mockProgressRepository = Mockito.mock(RollupProgressRepository.class);
+        var properties = new AccountProperties();
+        properties.getRollups().setLag(Duration.ofMinutes(1));
+        aggregator = new DailyRollupAggregator(mockRollupRepository, mockProgressRepository,
+                Clock.fixed(NOW, ZoneOffset.UTC), properties);
+    }
+
+    @Test
+    void testAggregateAdvancesProgress() {
+        var progress = new RollupProgress(1, NOW.minus(Duration.ofMinutes(5)));
+        when(mockProgressRepository.findByIdForUpdate(1)).thenReturn(Optional.of(progress));
+        when(mockRollupRepository.aggregate(any(), any())).thenReturn(4);
+
+        assertEquals(4, aggregator.aggregate());
+
+        verify(mockRollupRepository).aggregate(NOW.minus(Duration.ofMinutes(5)), NOW.minus(Duration.ofMinutes(1)));
+        assertEquals(NOW.minus(Duration.ofMinutes(1)), progress.getAggregatedTo());
+    }
+
+    @Test
+    void testFirstRunStartsFromEpoch() {
+        when(mockProgressRepository.findByIdForUpdate(1)).thenReturn(Optional.empty());
+        when(mockProgressRepository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        aggregator.aggregate();
+
+        verify(mockRollupRepository).aggregate(Instant.EPOCH, NOW.minus(Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void testNothingToDoWithinLag() {
+        when(mockProgressRepository.findByIdForUpdate(1)).thenReturn(Optional.of(new RollupProgress(1, NOW.minusSeconds(30))));
+
+        assertEquals(0, aggregator.aggregate());
+        verify(mockRollupRepository, never()).aggregate(any(), any());
+    }
+}
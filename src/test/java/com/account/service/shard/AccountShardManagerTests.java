@@ -0,0 +1,110 @@
+package com.account.service.shard;
+
+import com.account.config.AccountProperties;
+import com.account.exception.NotEnoughMoneyException;
+import com.account.model.AccountShard;
+import com.account.model.Money;
+import com.account.repository.AccountRepository;
+import com.account.repository.AccountShardRepository;
+import com.account.repository.AccountView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AccountShardManagerTests {
+    private AccountRepository mockAccountRepository;
+    private AccountShardRepository mockShardRepository;
+    private AccountShardManager shardManager;
+
+    @BeforeEach
+    public void setUp() {
+        mockAccountRepository = Mockito.mock(AccountRepository.class);
+        mockShardRepository = Mockito.mock(AccountShardRepository.class);
+        shardManager = new AccountShardManager(mockAccountRepository, mockShardRepository, new AccountProperties());
+    }
+
+    @Test
+    void testShardCountsAreCached() {
+        var count = Mockito.mock(AccountShardRepository.ShardCount.class);
+        when(count.getAccountId()).thenReturn(1L);
+        when(count.getShards()).thenReturn(4L);
+        when(mockShardRepository.countShards()).thenReturn(List.of(count));
+
+        assertEquals(4, shardManager.shardCount(1L));
+        assertFalse(shardManager.isSharded(2L));
+        verify(mockShardRepository, times(1)).countShards();
+
+        shardManager.invalidate();
+        assertTrue(shardManager.isSharded(1L));
+        verify(mockShardRepository, times(2)).countShards();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReshardSplitsBalanceEvenly() {
+        when(mockAccountRepository.lockBalance(1L)).thenReturn(Optional.of(BigDecimal.valueOf(100)));
+        when(mockShardRepository.lockBalances(1L)).thenReturn(List.of());
+        var total = Mockito.mock(AccountView.class, CALLS_REAL_METHODS);
+        when(total.getId()).thenReturn(1L);
+        when(total.getBalance()).thenReturn(BigDecimal.valueOf(100));
+        when(mockAccountRepository.findTotalById(1L)).thenReturn(Optional.of(total));
+
+        assertEquals(Money.of(BigDecimal.valueOf(100)), shardManager.reshard(1L, 3).getBalance());
+
+        ArgumentCaptor<List<AccountShard>> shards = ArgumentCaptor.forClass(List.class);
+        verify(mockShardRepository).saveAll(shards.capture());
+        assertEquals(List.of(new BigDecimal("33.34"), new BigDecimal("33.33"), new BigDecimal("33.33")),
+                shards.getValue().stream().map(shard -> shard.getBalance().toBigDecimal()).toList());
+        verify(mockAccountRepository).addBalance(1L, new BigDecimal("-100.00"));
+    }
+
+    @Test
+    void testSubtractBorrowsFromSiblingShards() {
+        var count = Mockito.mock(AccountShardRepository.ShardCount.class);
+        when(count.getAccountId()).thenReturn(1L);
+        when(count.getShards()).thenReturn(2L);
+        when(mockShardRepository.countShards()).thenReturn(List.of(count));
+        when(mockShardRepository.debit(eq(1L), anyInt(), any())).thenReturn(0);
+        when(mockAccountRepository.lockBalance(1L)).thenReturn(Optional.of(BigDecimal.ZERO));
+        var first = shard(0, BigDecimal.valueOf(5));
+        var second = shard(1, BigDecimal.valueOf(20));
+        when(mockShardRepository.lockBalances(1L)).thenReturn(List.of(first, second));
+
+        shardManager.subtract(1L, Money.of(BigDecimal.valueOf(15)));
+
+        verify(mockShardRepository).setBalance(1L, 0, new BigDecimal("5.00"));
+        verify(mockShardRepository).setBalance(1L, 1, new BigDecimal("5.00"));
+        verify(mockAccountRepository, never()).addBalance(any(), any());
+    }
+
+    @Test
+    void testSubtractNotEnoughMoneyAcrossShards() {
+        var count = Mockito.mock(AccountShardRepository.ShardCount.class);
+        when(count.getAccountId()).thenReturn(1L);
+        when(count.getShards()).thenReturn(2L);
+        when(mockShardRepository.countShards()).thenReturn(List.of(count));
+        when(mockAccountRepository.lockBalance(1L)).thenReturn(Optional.of(BigDecimal.ONE));
+        var first = shard(0, BigDecimal.valueOf(5));
+        var second = shard(1, BigDecimal.valueOf(5));
+        when(mockShardRepository.lockBalances(1L)).thenReturn(List.of(first, second));
+
+        assertThrows(NotEnoughMoneyException.class, () -> shardManager.subtract(1L, Money.of(BigDecimal.valueOf(12))));
+        verify(mockShardRepository, never()).setBalance(any(), anyInt(), any());
+    }
+
+    private static AccountShardRepository.ShardBalance shard(int shard, BigDecimal balance) {
+        var view = Mockito.mock(AccountShardRepository.ShardBalance.class);
+        when(view.getShard()).thenReturn(shard);
+        when(view.getBalance()).thenReturn(balance);
+        return view;
+    }
+}
@@ -0,0 +1,59 @@
+package com.account.service.snapshot;
+
+import com.account.config.AccountProperties;
+import com.account.repository.BalanceSnapshotRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BalanceSnapshotterTests {
+    private static final Instant NOW = Instant.parse("2026-06-01T12:00:00Z");
+
+    private BalanceSnapshotRepository mockSnapshotRepository;
+    private BalanceSnapshotter snapshotter;
+
+    @BeforeEach
+    public void setUp() {
+        mockSnapshotRepository = Mockito.mock(BalanceSnapshotRepository.class);
+        var properties = new AccountProperties();
+        properties.getSnapshots().setLag(Duration.ofMinutes(1));
+        snapshotter = new BalanceSnapshotter(mockSnapshotRepository, Clock.fixed(NOW, ZoneOffset.UTC), properties);
+    }
+
+    @Test
+    void testWindowStartsAtLatestSnapshotAndEndsBeforeLag() {
+        var latest = NOW.minus(Duration.ofMinutes(6));
+        when(mockSnapshotRepository.findLatestTime()).thenReturn(Optional.of(latest));
+        when(mockSnapshotRepository.insertSnapshots(any(), any())).thenReturn(3);
+
+        assertEquals(3, snapshotter.takeSnapshots());
+        verify(mockSnapshotRepository).insertSnapshots(latest, NOW.minus(Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void testFirstRunCoversWholeHistory() {
+        when(mockSnapshotRepository.findLatestTime()).thenReturn(Optional.empty());
+
+        snapshotter.takeSnapshots();
+
+        verify(mockSnapshotRepository).insertSnapshots(Instant.EPOCH, NOW.minus(Duration.ofMinutes(1)));
+    }
+
+    @Test
+    void testNothingToDoWithinLag() {
+        when(mockSnapshotRepository.findLatestTime()).thenReturn(Optional.of(NOW.minusSeconds(30)));
+
+        assertEquals(0, snapshotter.takeSnapshots());
+        verify(mockSnapshotRepository, never()).insertSnapshots(any(), any());
+    }
+}